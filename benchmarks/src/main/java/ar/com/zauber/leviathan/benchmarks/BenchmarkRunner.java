@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which reports the bytes
+ * allocated per operation (<code>gc.alloc.rate.norm</code>).
+ *
+ * <pre>
+ *   java -jar benchmarks/target/benchmarks.jar [regexp...]
+ * </pre>
+ *
+ * Documents can be added to the corpus with
+ * <code>-Dleviathan.corpus=directory</code> (see {@link Corpus}).
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class BenchmarkRunner {
+
+    /** utility class */
+    private BenchmarkRunner() {
+        // void
+    }
+
+    /**
+     * @param args regular expressions of the benchmarks to run (default: all)
+     * @throws RunnerException on error
+     */
+    public static void main(final String[] args) throws RunnerException {
+        final ChainedOptionsBuilder options = new OptionsBuilder()
+            .addProfiler(GCProfiler.class);
+        if(args.length == 0) {
+            options.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+        }
+        for(final String include : args) {
+            options.include(include);
+        }
+        final String corpus = System.getProperty(Corpus.CORPUS_PROPERTY);
+        if(corpus != null) {
+            options.jvmArgsAppend("-D" + Corpus.CORPUS_PROPERTY + "=" + corpus);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.benchmarks;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ar.com.zauber.leviathan.common.AbstractPrefixCharsetStrategy;
+import ar.com.zauber.leviathan.common.CharsetStrategy;
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.ResponseMetadata;
+import ar.com.zauber.leviathan.impl.httpclient.charset.ByteOrderMarkCharsetStrategy;
+import ar.com.zauber.leviathan.impl.httpclient.charset.CachingCharsetStrategy;
+import ar.com.zauber.leviathan.impl.httpclient.charset.ChainedCharsetStrategy;
+import ar.com.zauber.leviathan.impl.httpclient.charset.DefaultHttpCharsetStrategy;
+import ar.com.zauber.leviathan.impl.httpclient.charset.DetectorCharsetStrategy;
+import ar.com.zauber.leviathan.impl.httpclient.charset.FixedCharsetStrategy;
+import ar.com.zauber.leviathan.impl.httpclient.charset.HTMLMetaCharsetStrategy;
+import ar.com.zauber.leviathan.impl.httpclient.charset.SkipBytesException;
+import ar.com.zauber.leviathan.impl.httpclient.charset.VotersCharsetStrategy;
+import ar.com.zauber.leviathan.impl.httpclient.charset.XMLCharsetStrategy;
+
+/**
+ * Throughput of the {@link CharsetStrategy}s over the {@link Corpus}, as the
+ * fetchers call them: over a {@link ContentPrefix} of the body.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CharsetStrategyBenchmark {
+    /** strategy under test */
+    @Param({"default", "bom", "detector", "xml", "html", "chained", "voters",
+            "caching" })
+    private String strategy;
+
+    /** document of the {@link Corpus} */
+    @Param({"html-utf-8-8k", "html-utf-8-512k", "html-windows-1252-64k",
+            "html-nometa-windows-1251-64k", "html-shift_jis-64k",
+            "html-nometa-gbk-64k", "html-koi8-r-64k-header", "html-bom-utf-8-64k",
+            "rss-utf-8-64k", "rss-iso-8859-1-512k" })
+    private String document;
+
+    /** prefix the strategies can inspect */
+    @Param({"8192" })
+    private int prefixSize;
+
+    private CharsetStrategy charsetStrategy;
+    private ResponseMetadata meta;
+    private byte[] content;
+
+    /** prepares the trial */
+    @Setup
+    public final void setup() {
+        final Corpus.Document doc = Corpus.get(document);
+        charsetStrategy = createStrategy(strategy);
+        meta = doc.getMeta();
+        content = doc.getContent();
+    }
+
+    /** @return the charset of the document */
+    @Benchmark
+    public final Charset detect() {
+        try {
+            return AbstractPrefixCharsetStrategy.getCharset(charsetStrategy, meta,
+                    ContentPrefix.wrap(content, prefixSize));
+        } catch (final SkipBytesException e) {
+            return e.getCharset();
+        }
+    }
+
+    /**
+     * @param name name of the strategy (see {@link #strategy})
+     * @return the strategy
+     */
+    static CharsetStrategy createStrategy(final String name) {
+        final CharsetStrategy ret;
+        if("default".equals(name)) {
+            ret = new DefaultHttpCharsetStrategy();
+        } else if("bom".equals(name)) {
+            ret = new ByteOrderMarkCharsetStrategy();
+        } else if("detector".equals(name)) {
+            ret = new DetectorCharsetStrategy();
+        } else if("xml".equals(name)) {
+            ret = new XMLCharsetStrategy();
+        } else if("html".equals(name)) {
+            ret = new HTMLMetaCharsetStrategy();
+        } else if("chained".equals(name)) {
+            ret = new ChainedCharsetStrategy(Arrays.<CharsetStrategy>asList(
+                    new ByteOrderMarkCharsetStrategy(),
+                    new DefaultHttpCharsetStrategy(),
+                    new XMLCharsetStrategy(),
+                    new HTMLMetaCharsetStrategy(),
+                    new DetectorCharsetStrategy(),
+                    new FixedCharsetStrategy("utf-8")));
+        } else if("voters".equals(name)) {
+            ret = new VotersCharsetStrategy(Arrays.<CharsetStrategy>asList(
+                    new DefaultHttpCharsetStrategy(),
+                    new HTMLMetaCharsetStrategy(),
+                    new DetectorCharsetStrategy()), "utf-8");
+        } else if("caching".equals(name)) {
+            ret = new CachingCharsetStrategy(createStrategy("chained"));
+        } else {
+            throw new IllegalArgumentException("unknown strategy: " + name);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.Validate;
+
+import ar.com.zauber.leviathan.common.ResponseMetadata;
+import ar.com.zauber.leviathan.impl.httpclient.InmutableResponseMetadata;
+
+/**
+ * Documents used by the benchmarks: HTML pages and feeds in several encodings
+ * and sizes. The corpus is synthetic: a few sentences per language (pangrams
+ * and headlines) repeated inside typical markup until the size is reached, so
+ * it exercises the decoders but it is more regular than real pages. Named
+ * <code>type-encoding-size</code> (ie: <code>html-shift_jis-64k</code>);
+ * the <code>nometa</code> pages don't declare their encoding, and none of the
+ * pages has a charset in the <code>Content-Type</code> header unless its
+ * name ends in <code>-header</code>.
+ *
+ * Real saved pages can be added with the <code>leviathan.corpus</code> system
+ * property: a directory of <code>name.html</code> or <code>name.xml</code>
+ * files. Results that matter should be confirmed with them.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class Corpus {
+    /** system property with a directory of extra documents */
+    public static final String CORPUS_PROPERTY = "leviathan.corpus";
+    private static final int K = 1024;
+    private static final Map<String, Document> DOCUMENTS = build();
+
+    /** texts, in several languages */
+    private static final String SPANISH = "El veloz murci\u00e9lago hind\u00fa com\u00eda "
+        + "feliz cardillo y kiwi. La cig\u00fce\u00f1a tocaba el saxof\u00f3n detr\u00e1s "
+        + "del palenque de paja. \u00bfQui\u00e9n dijo que el a\u00f1o ser\u00eda f\u00e1cil?";
+    private static final String RUSSIAN = "\u0421\u044a\u0435\u0448\u044c \u0436\u0435 "
+        + "\u0435\u0449\u0451 \u044d\u0442\u0438\u0445 \u043c\u044f\u0433\u043a\u0438\u0445 "
+        + "\u0444\u0440\u0430\u043d\u0446\u0443\u0437\u0441\u043a\u0438\u0445 "
+        + "\u0431\u0443\u043b\u043e\u043a, \u0434\u0430 \u0432\u044b\u043f\u0435\u0439 "
+        + "\u0447\u0430\u044e. \u041d\u043e\u0432\u043e\u0441\u0442\u0438 "
+        + "\u0438 \u043f\u043e\u0433\u043e\u0434\u0430 \u043d\u0430 \u0441\u0435\u0433\u043e\u0434\u043d\u044f.";
+    private static final String JAPANESE = "\u3044\u308d\u306f\u306b\u307b\u3078\u3068 "
+        + "\u3061\u308a\u306c\u308b\u3092 \u308f\u304b\u3088\u305f\u308c\u305d "
+        + "\u3064\u306d\u306a\u3089\u3080\u3002\u6771\u4eac\u306e\u5929\u6c17\u3068"
+        + "\u30cb\u30e5\u30fc\u30b9\u3001\u30b9\u30dd\u30fc\u30c4\u306e\u7d50\u679c\u3002";
+    private static final String CHINESE = "\u6211\u80fd\u541e\u4e0b\u73bb\u7483\u800c"
+        + "\u4e0d\u4f24\u8eab\u4f53\u3002\u4eca\u5929\u7684\u65b0\u95fb\u548c\u5929\u6c14"
+        + "\u9884\u62a5\uff0c\u4f53\u80b2\u6bd4\u8d5b\u7ed3\u679c\u3002";
+
+    /** utility class */
+    private Corpus() {
+        // void
+    }
+
+    /** a document of the corpus */
+    public static final class Document {
+        private final String name;
+        private final byte[] content;
+        private final ResponseMetadata meta;
+        private final Charset charset;
+
+        /** Creates the Document. */
+        Document(final String name, final byte[] content, final String contentType,
+                final String headerCharset, final Charset charset) {
+            this.name = name;
+            this.content = content;
+            this.charset = charset;
+            this.meta = new InmutableResponseMetadata(
+                URI.create("http://example.com/" + name), contentType, null, 200,
+                headerCharset);
+        }
+
+        /** @return the name */
+        public String getName() {
+            return name;
+        }
+
+        /** @return the body */
+        public byte[] getContent() {
+            return content;
+        }
+
+        /** @return the metadata of the response */
+        public ResponseMetadata getMeta() {
+            return meta;
+        }
+
+        /** @return the real encoding (null if unknown) */
+        public Charset getCharset() {
+            return charset;
+        }
+    }
+
+    /**
+     * @param name name of the document
+     * @return the document
+     * @throws IllegalArgumentException if there is no such document
+     */
+    public static Document get(final String name) {
+        final Document ret = DOCUMENTS.get(name);
+        Validate.isTrue(ret != null, "unknown document: " + name);
+        return ret;
+    }
+
+    /** @return all the documents by name */
+    public static Map<String, Document> getDocuments() {
+        return Collections.unmodifiableMap(DOCUMENTS);
+    }
+
+    /** builds the corpus */
+    private static Map<String, Document> build() {
+        final Map<String, Document> ret = new LinkedHashMap<String, Document>();
+        final int[] sizes = {8 * K, 64 * K, 512 * K};
+        final String[][] pages = {
+            // encoding, text
+            {"utf-8", SPANISH + " " + RUSSIAN + " " + JAPANESE + " " + CHINESE},
+            {"windows-1252", SPANISH},
+            {"windows-1251", RUSSIAN},
+            {"koi8-r", RUSSIAN},
+            {"shift_jis", JAPANESE},
+            {"euc-jp", JAPANESE},
+            {"gbk", CHINESE},
+        };
+        for(final String[] page : pages) {
+            for(final int size : sizes) {
+                add(ret, "html-" + page[0] + "-" + size / K + "k", "text/html", null,
+                    page[0], html(page[1], page[0], true, size));
+            }
+            add(ret, "html-nometa-" + page[0] + "-64k", "text/html", null,
+                page[0], html(page[1], page[0], false, 64 * K));
+            add(ret, "html-" + page[0] + "-64k-header", "text/html; charset=" + page[0],
+                page[0], page[0], html(page[1], page[0], false, 64 * K));
+        }
+        for(final int size : sizes) {
+            add(ret, "rss-utf-8-" + size / K + "k", "application/rss+xml", null,
+                "utf-8", rss(SPANISH + " " + CHINESE, "utf-8", size));
+            add(ret, "rss-iso-8859-1-" + size / K + "k", "application/rss+xml", null,
+                "iso-8859-1", rss(SPANISH, "iso-8859-1", size));
+        }
+        final byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        final String html = html(RUSSIAN, "utf-8", false, 64 * K);
+        final byte[] body = html.getBytes(Charset.forName("utf-8"));
+        final byte[] withBom = new byte[bom.length + body.length];
+        System.arraycopy(bom, 0, withBom, 0, bom.length);
+        System.arraycopy(body, 0, withBom, bom.length, body.length);
+        ret.put("html-bom-utf-8-64k", new Document("html-bom-utf-8-64k", withBom,
+                "text/html", null, Charset.forName("utf-8")));
+
+        final String dir = System.getProperty(CORPUS_PROPERTY);
+        if(dir != null) {
+            loadDirectory(ret, new File(dir));
+        }
+        return ret;
+    }
+
+    /** adds the documents of a directory */
+    private static void loadDirectory(final Map<String, Document> ret, final File dir) {
+        final File[] files = dir.listFiles();
+        Validate.notNull(files, dir + " is not a directory");
+        for(final File file : files) {
+            final String name = file.getName();
+            final String contentType = name.endsWith(".html") || name.endsWith(".htm")
+                ? "text/html" : name.endsWith(".xml") ? "application/xml" : null;
+            if(contentType != null) {
+                try {
+                    ret.put(name, new Document(name, FileUtils.readFileToByteArray(file),
+                            contentType, null, null));
+                } catch(final IOException e) {
+                    throw new IllegalStateException("reading " + file, e);
+                }
+            }
+        }
+    }
+
+    /** adds a document */
+    private static void add(final Map<String, Document> ret, final String name,
+            final String contentType, final String headerCharset,
+            final String encoding, final String text) {
+        final Charset charset = Charset.forName(encoding);
+        ret.put(name, new Document(name, text.getBytes(charset), contentType,
+                headerCharset, charset));
+    }
+
+    /** @return an html page of about <code>size</code> characters */
+    private static String html(final String text, final String encoding,
+            final boolean meta, final int size) {
+        final StringBuilder sb = new StringBuilder(size + 1024);
+        sb.append("<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Transitional//EN\" ")
+          .append("\"http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd\">\n")
+          .append("<html xmlns=\"http://www.w3.org/1999/xhtml\" lang=\"es\">\n<head>\n");
+        if(meta) {
+            sb.append("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=")
+              .append(encoding).append("\" />\n");
+        }
+        sb.append("<!-- generated by the CMS. Do not edit -->\n")
+          .append("<title>").append(text, 0, Math.min(20, text.length()))
+          .append("</title>\n");
+        for(int i = 0; i < 6; i++) {
+            sb.append("<link rel=\"stylesheet\" type=\"text/css\" href=\"/static/css/site-")
+              .append(i).append(".css?v=20121018\" media=\"all\" />\n");
+        }
+        sb.append("<script type=\"text/javascript\">var _gaq = _gaq || []; ")
+          .append("_gaq.push(['_setAccount', 'UA-000000-1']);</script>\n");
+        sb.append("<meta name=\"description\" content=\"")
+          .append(text, 0, Math.min(40, text.length())).append("\" />\n")
+          .append("</head>\n<body class=\"home\">\n<div id=\"main\">\n");
+        int i = 0;
+        while(sb.length() < size) {
+            sb.append("<div class=\"article\" id=\"a").append(i).append("\">")
+              .append("<h2><a href=\"/articles/").append(i).append("\">")
+              .append(text, 0, Math.min(30, text.length())).append("</a></h2>")
+              .append("<p>").append(text).append("</p>")
+              .append("<ul class=\"tags\"><li><a href=\"/tags/").append(i % 7)
+              .append("\">#").append(i % 7).append("</a></li></ul></div>\n");
+            i++;
+        }
+        return sb.append("</div>\n</body>\n</html>\n").toString();
+    }
+
+    /** @return an rss feed of about <code>size</code> characters */
+    private static String rss(final String text, final String encoding, final int size) {
+        final StringBuilder sb = new StringBuilder(size + 1024);
+        sb.append("<?xml version=\"1.0\" encoding=\"").append(encoding).append("\"?>\n")
+          .append("<rss version=\"2.0\"><channel><title>leviathan</title>")
+          .append("<link>http://example.com/</link>\n");
+        int i = 0;
+        while(sb.length() < size) {
+            sb.append("<item><title>").append(text, 0, Math.min(30, text.length()))
+              .append("</title><link>http://example.com/items/").append(i)
+              .append("</link><guid isPermaLink=\"false\">item-").append(i)
+              .append("</guid><description>").append(text)
+              .append("</description></item>\n");
+            i++;
+        }
+        return sb.append("</channel></rss>\n").toString();
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.benchmarks;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ar.com.zauber.leviathan.common.CompactHeaders;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
+
+/**
+ * Decoding of the body to a {@link String}, as the fetchers do once the
+ * charset is known (see {@link InmutableURIFetcherHttpResponse}).
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+    /** document of the {@link Corpus} */
+    @Param({"html-utf-8-8k", "html-utf-8-64k", "html-utf-8-512k",
+            "html-windows-1252-64k", "html-windows-1251-64k", "html-shift_jis-64k",
+            "html-euc-jp-64k", "html-gbk-64k", "rss-iso-8859-1-512k" })
+    private String document;
+
+    private byte[] content;
+    private Charset charset;
+
+    /** prepares the trial */
+    @Setup
+    public final void setup() {
+        final Corpus.Document doc = Corpus.get(document);
+        content = doc.getContent();
+        charset = doc.getCharset() == null ? Charset.forName("utf-8") : doc.getCharset();
+    }
+
+    /** @return the decoded body */
+    @Benchmark
+    public final String decode() {
+        return new InmutableURIFetcherHttpResponse(content, 0, charset, 200,
+                CompactHeaders.EMPTY).getContentAsString();
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.common.CompactHeaders;
+import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.ResponseCodec;
+
+/**
+ * Encoding and decoding of cached responses: {@link ResponseCodec} against
+ * java serialization. The size of the encoded documents is printed when the
+ * trial starts.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseCodecBenchmark {
+    /** document of the {@link Corpus} */
+    @Param({"html-utf-8-8k", "html-windows-1252-64k", "html-utf-8-512k" })
+    private String document;
+
+    /** codec under test */
+    @Param({"binary", "java" })
+    private String codec;
+
+    private URIFetcherResponse response;
+    private byte[] encoded;
+
+    /** prepares the trial */
+    @Setup
+    public final void setup() throws IOException {
+        final Corpus.Document doc = Corpus.get(document);
+        final Map<String, Object> ctx = new HashMap<String, Object>();
+        ctx.put("depth", 3);
+        ctx.put("referer", "http://example.com/");
+        response = new InmutableURIFetcherResponse(
+            new InmutableURIAndCtx(doc.getMeta().getURI(), ctx),
+            new InmutableURIFetcherHttpResponse(doc.getContent(), 0, doc.getCharset(),
+                200, CompactHeaders.of(
+                    new String[] {"Content-Type", "Date", "ETag", "Server", "Vary",
+                                  "Cache-Control", },
+                    new String[] {"text/html", "Thu, 18 Oct 2012 10:00:00 GMT",
+                                  "\"5080d1b8-1a2b\"", "nginx", "Accept-Encoding",
+                                  "max-age=300", })));
+        // decoded once, as it is when it is stored after being processed
+        response.getHttpResponse().getContentAsString();
+        encoded = encode();
+        System.out.println(document + " " + codec + ": " + encoded.length + " bytes");
+    }
+
+    /** @return the encoded response */
+    @Benchmark
+    public final byte[] encode() throws IOException {
+        if("binary".equals(codec)) {
+            return ResponseCodec.encode(response);
+        }
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeObject(response);
+        oos.close();
+        return bos.toByteArray();
+    }
+
+    /** @return the decoded response */
+    @Benchmark
+    public final Object decode() throws IOException, ClassNotFoundException {
+        if("binary".equals(codec)) {
+            return ResponseCodec.decode(encoded);
+        }
+        return new ObjectInputStream(new ByteArrayInputStream(encoded)).readObject();
+    }
+}
@@ -57,6 +57,21 @@ public abstract class AbstractAsyncUriFetcher extends AbstractAsyncTaskExecutor
         return rr;
     }
     
+    /**
+     * releases the resources held by the response (if any). Must be called
+     * once the user closure finished processing the response.
+     */
+    protected final void release(final URIFetcherResponse response) {
+        try {
+            if(response != null && response.isSucceeded()
+                    && response.getHttpResponse() instanceof Releasable) {
+                ((Releasable) response.getHttpResponse()).release();
+            }
+        } catch(final Throwable t) {
+            logger.warn("releasing response for " + response.getURIAndCtx(), t);
+        }
+    }
+    
     @Override
     public final AsyncUriFetcher scheduleFetch(final FetchingTask task, final ProcessingFlow processingFlow) {
         scheduleFetch(task, adaptProcessingFlowToClosure(processingFlow));
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Base class for {@link PrefixCharsetStrategy}s: when called with a stream,
+ * the first {@link ContentPrefix#DEFAULT_SIZE} bytes are read and inspected.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public abstract class AbstractPrefixCharsetStrategy implements PrefixCharsetStrategy {
+
+    /** @see CharsetStrategy#getCharset(ResponseMetadata, InputStream) */
+    public final Charset getCharset(final ResponseMetadata meta,
+            final InputStream content) {
+        ContentPrefix prefix;
+        try {
+            prefix = ContentPrefix.read(content, ContentPrefix.DEFAULT_SIZE);
+        } catch(final IOException e) {
+            prefix = ContentPrefix.EMPTY;
+        }
+        return getCharsetFromPrefix(meta, prefix);
+    }
+
+    /**
+     * Asks <code>strategy</code> for the charset of the body. Strategies that
+     * are not {@link PrefixCharsetStrategy}s get a new stream over the prefix,
+     * so they can't consume it for the other strategies.
+     *
+     * @param strategy the strategy
+     * @param meta     not null
+     * @param prefix   the beginning of the body
+     * @return the charset, or <code>null</code>
+     */
+    public static Charset getCharset(final CharsetStrategy strategy,
+            final ResponseMetadata meta, final ContentPrefix prefix) {
+        Validate.notNull(strategy);
+        Validate.notNull(prefix);
+        if(strategy instanceof PrefixCharsetStrategy) {
+            return ((PrefixCharsetStrategy) strategy).getCharsetFromPrefix(meta, prefix);
+        }
+        return strategy.getCharset(meta, prefix.openStream());
+    }
+}
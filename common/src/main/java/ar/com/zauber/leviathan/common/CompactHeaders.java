@@ -0,0 +1,289 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Immutable response headers kept in two flat arrays (names and values, in
+ * arrival order). Lookups are case-insensitive and don't allocate; names of
+ * common headers are shared among all the instances (also after
+ * deserialization), so a cache with millions of responses doesn't hold
+ * millions of copies of <code>Content-Type</code>.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class CompactHeaders implements Serializable {
+    private static final long serialVersionUID = 4526306722186394217L;
+    /** headers without values */
+    public static final CompactHeaders EMPTY =
+        new CompactHeaders(new String[0], new String[0]);
+    /** canonical instances of the common header names */
+    private static final Map<String, String> COMMON_NAMES =
+        new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        for(final String name : new String[] {
+                "Accept-Ranges", "Access-Control-Allow-Origin", "Age", "Allow",
+                "Alt-Svc", "Cache-Control", "Connection", "Content-Disposition",
+                "Content-Encoding", "Content-Language", "Content-Length",
+                "Content-Location", "Content-Security-Policy", "Content-Type",
+                "Date", "ETag", "Expires", "Keep-Alive", "Last-Modified", "Link",
+                "Location", "P3P", "Pragma", "Proxy-Connection", "Refresh",
+                "Retry-After", "Server", "Set-Cookie", "Strict-Transport-Security",
+                "Transfer-Encoding", "Vary", "Via", "WWW-Authenticate",
+                "X-Cache", "X-Content-Type-Options", "X-Frame-Options",
+                "X-Powered-By", "X-XSS-Protection", }) {
+            COMMON_NAMES.put(name, name);
+        }
+    }
+
+    private final String[] names;
+    private final String[] values;
+
+    /** Creates the CompactHeaders. The arrays are owned by the instance. */
+    private CompactHeaders(final String[] names, final String[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    /**
+     * @param names  header names
+     * @param values header values (same length as <code>names</code>)
+     * @return the headers
+     */
+    public static CompactHeaders of(final String[] names, final String[] values) {
+        Validate.notNull(names);
+        Validate.notNull(values);
+        Validate.isTrue(names.length == values.length, "lengths differ");
+
+        final String[] n = new String[names.length];
+        for(int i = 0; i < n.length; i++) {
+            Validate.notNull(names[i]);
+            Validate.notNull(values[i]);
+            n[i] = canonical(names[i]);
+        }
+        return new CompactHeaders(n, values.clone());
+    }
+
+    /**
+     * @return the headers, owning the arrays (the names are replaced by their
+     *         canonical instances)
+     */
+    static CompactHeaders wrap(final String[] names, final String[] values) {
+        for(int i = 0; i < names.length; i++) {
+            names[i] = canonical(names[i]);
+        }
+        return new CompactHeaders(names, values);
+    }
+
+    /** @return the headers of a map of header name to its values */
+    public static CompactHeaders of(final Map<String, List<String>> headers) {
+        Validate.notNull(headers);
+
+        int n = 0;
+        for(final List<String> v : headers.values()) {
+            n += v == null ? 0 : v.size();
+        }
+        final String[] names = new String[n];
+        final String[] values = new String[n];
+        int i = 0;
+        for(final Entry<String, List<String>> entry : headers.entrySet()) {
+            if(entry.getValue() != null) {
+                final String name = canonical(entry.getKey());
+                for(final String value : entry.getValue()) {
+                    names[i] = name;
+                    values[i] = value;
+                    i++;
+                }
+            }
+        }
+        return new CompactHeaders(names, values);
+    }
+
+    /** @return the shared instance of the name, if it is a common one */
+    private static String canonical(final String name) {
+        final String ret = COMMON_NAMES.get(name);
+        return ret == null ? name : ret;
+    }
+
+    /** @return number of header lines */
+    public int size() {
+        return names.length;
+    }
+
+    /** @return the name of the i-th header */
+    public String getName(final int i) {
+        return names[i];
+    }
+
+    /** @return the value of the i-th header */
+    public String getValue(final int i) {
+        return values[i];
+    }
+
+    /**
+     * @param name header name (case-insensitive)
+     * @return the first value of the header, or <code>null</code>
+     */
+    public String getFirst(final String name) {
+        final int i = indexOf(name, 0);
+        return i == -1 ? null : values[i];
+    }
+
+    /**
+     * @param name header name (case-insensitive)
+     * @return all the values of the header, or <code>null</code> if the header
+     *         is not present
+     */
+    public List<String> getAll(final String name) {
+        int i = indexOf(name, 0);
+        if(i == -1) {
+            return null;
+        }
+        final int j = indexOf(name, i + 1);
+        if(j == -1) {
+            return Collections.singletonList(values[i]);
+        }
+        final List<String> ret = new ArrayList<String>(4);
+        ret.add(values[i]);
+        for(i = j; i != -1; i = indexOf(name, i + 1)) {
+            ret.add(values[i]);
+        }
+        return Collections.unmodifiableList(ret);
+    }
+
+    /** @return <code>true</code> if the header is present */
+    public boolean contains(final String name) {
+        return indexOf(name, 0) != -1;
+    }
+
+    /** @return position of the header starting at from, or -1 */
+    private int indexOf(final String name, final int from) {
+        if(name != null) {
+            for(int i = from; i < names.length; i++) {
+                final String n = names[i];
+                if(n == name || n.equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param update headers that replace the values of the headers with the
+     *               same name (ie: the ones of a <code>304 Not Modified</code>).
+     *               Its framing headers (<code>Content-Length</code>,
+     *               <code>Content-Encoding</code>,
+     *               <code>Transfer-Encoding</code>) are ignored: they describe
+     *               its own (empty) body.
+     * @return the updated headers
+     */
+    public CompactHeaders update(final CompactHeaders update) {
+        Validate.notNull(update);
+
+        final List<String> n = new ArrayList<String>(names.length + update.size());
+        final List<String> v = new ArrayList<String>(names.length + update.size());
+        for(int i = 0; i < names.length; i++) {
+            if(isFraming(names[i]) || !update.contains(names[i])) {
+                n.add(names[i]);
+                v.add(values[i]);
+            }
+        }
+        for(int i = 0; i < update.names.length; i++) {
+            if(!isFraming(update.names[i])) {
+                n.add(update.names[i]);
+                v.add(update.values[i]);
+            }
+        }
+        return new CompactHeaders(n.toArray(new String[n.size()]),
+                v.toArray(new String[v.size()]));
+    }
+
+    /** @return <code>true</code> if the header describes the message body */
+    private static boolean isFraming(final String name) {
+        return "Content-Length".equalsIgnoreCase(name)
+            || "Content-Encoding".equalsIgnoreCase(name)
+            || "Transfer-Encoding".equalsIgnoreCase(name);
+    }
+
+    /** @return the headers as a (case-insensitive) map */
+    public Map<String, List<String>> toMap() {
+        final Map<String, List<String>> ret =
+            new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+        for(int i = 0; i < names.length; i++) {
+            if(!ret.containsKey(names[i])) {
+                ret.put(names[i], getAll(names[i]));
+            }
+        }
+        return ret;
+    }
+
+    /** shares the common names again after deserialization */
+    private Object readResolve() {
+        for(int i = 0; i < names.length; i++) {
+            names[i] = canonical(names[i]);
+        }
+        return this;
+    }
+
+    /** @see Object#equals(Object) */
+    @Override
+    public boolean equals(final Object obj) {
+        boolean ret = false;
+
+        if(obj == this) {
+            ret = true;
+        } else if(obj instanceof CompactHeaders) {
+            final CompactHeaders h = (CompactHeaders) obj;
+            ret = Arrays.equals(names, h.names) && Arrays.equals(values, h.values);
+        }
+
+        return ret;
+    }
+
+    /** @see Object#hashCode() */
+    @Override
+    public int hashCode() {
+        int ret = 17;
+
+        ret = ret * 39 + Arrays.hashCode(names);
+        ret = ret * 39 + Arrays.hashCode(values);
+
+        return ret;
+    }
+
+    /** @see Object#toString() */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < names.length; i++) {
+            sb.append(names[i]).append(": ").append(values[i]).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Read-only view of the first bytes of a response body (by default
+ * {@link #DEFAULT_SIZE}). It is what {@link PrefixCharsetStrategy}s inspect:
+ * every strategy of a chain sees the same bytes, and the cost of detecting a
+ * charset is bounded no matter how big the body is.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class ContentPrefix {
+    /** default length of the prefix */
+    public static final int DEFAULT_SIZE = 8 * 1024;
+    /** an empty body */
+    public static final ContentPrefix EMPTY = new ContentPrefix(new byte[0], 0, 0, true);
+
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+    private final boolean complete;
+
+    /** Creates the ContentPrefix. */
+    private ContentPrefix(final byte[] data, final int offset, final int length,
+            final boolean complete) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        this.complete = complete;
+    }
+
+    /**
+     * Wraps (without copying) the beginning of an in-memory body.
+     *
+     * @param data    the body
+     * @param offset  where the body starts
+     * @param length  length of the body
+     * @param maxSize maximum length of the prefix
+     * @return the prefix
+     */
+    public static ContentPrefix wrap(final byte[] data, final int offset,
+            final int length, final int maxSize) {
+        Validate.notNull(data);
+        Validate.isTrue(offset >= 0 && length >= 0 && offset + length <= data.length);
+        Validate.isTrue(maxSize >= 0);
+        return new ContentPrefix(data, offset, Math.min(length, maxSize),
+                length <= maxSize);
+    }
+
+    /** @see #wrap(byte[], int, int, int) */
+    public static ContentPrefix wrap(final byte[] data, final int maxSize) {
+        Validate.notNull(data);
+        return wrap(data, 0, data.length, maxSize);
+    }
+
+    /**
+     * Reads the prefix of a body. Up to <code>maxSize + 1</code> bytes are
+     * consumed from <code>content</code> (to know if the body ends within the
+     * prefix); it is not closed.
+     *
+     * @param content the body (may be null)
+     * @param maxSize maximum length of the prefix
+     * @return the prefix
+     */
+    public static ContentPrefix read(final InputStream content, final int maxSize)
+            throws IOException {
+        Validate.isTrue(maxSize >= 0);
+        if(content == null) {
+            return EMPTY;
+        }
+        final byte[] buf = new byte[maxSize];
+        int n = 0;
+        int r;
+        while(n < maxSize && (r = content.read(buf, n, maxSize - n)) > 0) {
+            n += r;
+        }
+        final boolean complete = n < maxSize || content.read() == -1;
+        return new ContentPrefix(buf, 0, n, complete);
+    }
+
+    /** @return the length of the prefix */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @param i index (0 &lt;= i &lt; {@link #length()})
+     * @return the byte at <code>i</code> (unsigned)
+     */
+    public int byteAt(final int i) {
+        if(i < 0 || i >= length) {
+            throw new IndexOutOfBoundsException(String.valueOf(i));
+        }
+        return data[offset + i] & 0xff;
+    }
+
+    /** @return <code>true</code> if the prefix starts with <code>bytes</code> */
+    public boolean startsWith(final byte[] bytes) {
+        Validate.notNull(bytes);
+        if(bytes.length > length) {
+            return false;
+        }
+        for(int i = 0; i < bytes.length; i++) {
+            if(data[offset + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if the prefix is the whole body, 
+     *         <code>false</code> if the body is longer
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /** @return a new stream over the prefix */
+    public InputStream openStream() {
+        return new ByteArrayInputStream(data, offset, length);
+    }
+
+    /** @return a read-only buffer over the prefix */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(data, offset, length).slice().asReadOnlyBuffer();
+    }
+}
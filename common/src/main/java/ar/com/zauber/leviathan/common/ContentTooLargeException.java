@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+/**
+ * An exception that is thrown when the body of a response is bigger than the
+ * maximum allowed. The fetch is aborted as soon as it is detected, so the
+ * body is never read completely.
+ * 
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class ContentTooLargeException extends RuntimeException {
+    
+    /** <code>serialVersionUID</code> */
+    private static final long serialVersionUID = -3528412476283109811L;
+    
+    private final long length;
+    private final long maxLength;
+    private final String contentType;
+    
+    /**
+     * Creates the ContentTooLargeException.
+     *
+     * @param length      declared length of the body (<code>Content-Length</code>),
+     *                    or the number of bytes read when the limit was crossed
+     * @param maxLength   the limit
+     * @param contentType content type of the response (may be null)
+     */
+    public ContentTooLargeException(final long length, final long maxLength,
+            final String contentType) {
+        super("content of " + length + " bytes exceeds the maximum of " + maxLength
+                + " bytes (" + contentType + ")");
+        this.length = length;
+        this.maxLength = maxLength;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Returns the length.
+     * 
+     * @return <code>long</code> with the length.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the maxLength.
+     * 
+     * @return <code>long</code> with the maxLength.
+     */
+    public long getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Returns the contentType.
+     * 
+     * @return <code>String</code> with the contentType (may be null).
+     */
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import java.io.File;
+
+import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcher;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+
+/**
+ * {@link URIFetcher} that can download binary content (ie: PDFs, images)
+ * straight to a file, without holding it in memory nor decoding it.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public interface DownloadURIFetcher extends URIFetcher {
+
+    /**
+     * Creates a GET task that writes the body of a successful (2xx) response
+     * to <code>target</code>. The {@link URIFetcherResponse} carries a
+     * {@link FileURIFetcherHttpResponse}; other responses are returned as
+     * usual and the file is not touched.
+     *
+     * @param uriAndCtx the uri
+     * @param target    the file to write (it is replaced)
+     */
+    FetchingTask createDownload(URIAndCtx uriAndCtx, File target);
+
+    /** @see #createDownload(URIAndCtx, File) */
+    URIFetcherResponse download(URIAndCtx uriAndCtx, File target);
+}
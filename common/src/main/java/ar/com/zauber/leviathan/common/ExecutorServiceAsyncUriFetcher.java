@@ -60,8 +60,10 @@ public class ExecutorServiceAsyncUriFetcher extends AbstractAsyncUriFetcher {
         try {
             executorService.submit(new Runnable() {
                 public void run() {
+                    URIFetcherResponse response = null;
                     try {
-                        closure.execute(methodCommand.execute());
+                        response = methodCommand.execute();
+                        closure.execute(response);
                     } catch(final Throwable t) {
                         if(logger.isErrorEnabled()) {
                             logger.error("error while processing using "
@@ -70,6 +72,7 @@ public class ExecutorServiceAsyncUriFetcher extends AbstractAsyncUriFetcher {
                                     + methodCommand.getURIAndCtx(), t);
                         }
                     } finally {
+                        release(response);
                         decrementActiveJobs();
                     }
                 }
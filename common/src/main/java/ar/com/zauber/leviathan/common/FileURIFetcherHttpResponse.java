@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.UnhandledException;
+import org.apache.commons.lang.Validate;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import ar.com.zauber.leviathan.api.URIFetcherHttpResponse;
+
+/**
+ * {@link URIFetcherHttpResponse} whose body was written to a file (see
+ * {@link DownloadURIFetcher}). The content is not decoded while it is
+ * downloaded: {@link #getRawContent()} reads the file, and
+ * {@link #getContent()} / {@link #getContentAsString()} decode it on demand
+ * with the charset of the <code>Content-Type</code> header (ISO-8859-1 if
+ * there is none), so observers that log the content keep working.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class FileURIFetcherHttpResponse implements URIFetcherHttpResponse {
+    /** default digest algorithm */
+    public static final String DEFAULT_DIGEST_ALGORITHM = "SHA-1";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final long TRANSFER_CHUNK = 64 * 1024;
+    private static final String DEFAULT_CHARSET = "ISO-8859-1";
+    private final File file;
+    private final long size;
+    private final String digestAlgorithm;
+    private final byte[] digest;
+    private final int statusCode;
+    private final CompactHeaders headers;
+
+    /**
+     * Creates the FileURIFetcherHttpResponse.
+     *
+     * @param file            where the body is
+     * @param size            length of the body in bytes
+     * @param digestAlgorithm ie: <code>SHA-1</code>
+     * @param digest          digest of the body
+     * @param statusCode      the status code
+     * @param headers         the response headers
+     */
+    public FileURIFetcherHttpResponse(final File file, final long size,
+            final String digestAlgorithm, final byte[] digest,
+            final int statusCode, final CompactHeaders headers) {
+        Validate.notNull(file);
+        Validate.isTrue(size >= 0);
+        Validate.notEmpty(digestAlgorithm);
+        Validate.notNull(digest);
+        Validate.notNull(headers);
+
+        this.file = file;
+        this.size = size;
+        this.digestAlgorithm = digestAlgorithm;
+        this.digest = digest.clone();
+        this.statusCode = statusCode;
+        this.headers = headers;
+    }
+
+    /**
+     * Writes <code>content</code> to <code>target</code> with
+     * {@link FileChannel#transferFrom(ReadableByteChannel, long, long)},
+     * computing its digest on the way. The content is written to a
+     * <code>.part</code> sibling that is renamed once complete, so
+     * <code>target</code> is never left half written. The content is closed.
+     *
+     * @param content         the body
+     * @param target          the file to write (it is replaced)
+     * @param digestAlgorithm ie: <code>SHA-1</code>
+     * @param statusCode      the status code
+     * @param headers         the response headers
+     * @return the response
+     * @throws IOException on error (the partial file is removed)
+     */
+    public static FileURIFetcherHttpResponse transfer(final InputStream content,
+            final File target, final String digestAlgorithm, final int statusCode,
+            final CompactHeaders headers) throws IOException {
+        Validate.notNull(content);
+        Validate.notNull(target);
+
+        final MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(digestAlgorithm);
+        } catch (final NoSuchAlgorithmException e) {
+            IOUtils.closeQuietly(content);
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        final File part = new File(target.getPath() + ".part");
+        final ReadableByteChannel in = Channels.newChannel(
+                new DigestInputStream(content, md));
+        boolean ok = false;
+        long size = 0;
+        try {
+            final FileOutputStream os = new FileOutputStream(part);
+            try {
+                final FileChannel out = os.getChannel();
+                long n;
+                while((n = out.transferFrom(in, size, TRANSFER_CHUNK)) > 0) {
+                    size += n;
+                }
+                out.force(false);
+            } finally {
+                os.close();
+            }
+            if(target.exists() && !target.delete()) {
+                throw new IOException("can't replace " + target);
+            }
+            if(!part.renameTo(target)) {
+                throw new IOException("can't rename " + part + " to " + target);
+            }
+            ok = true;
+        } finally {
+            try {
+                in.close();
+            } catch(final IOException e) {
+                // ignore
+            }
+            if(!ok) {
+                part.delete();
+            }
+        }
+        return new FileURIFetcherHttpResponse(target, size, digestAlgorithm,
+                md.digest(), statusCode, headers);
+    }
+
+    /** @return where the body is */
+    public File getFile() {
+        return file;
+    }
+
+    /** @return length of the body in bytes */
+    public long getSize() {
+        return size;
+    }
+
+    /** @return ie: <code>SHA-1</code> */
+    public String getDigestAlgorithm() {
+        return digestAlgorithm;
+    }
+
+    /** @return digest of the body */
+    public byte[] getDigest() {
+        return digest.clone();
+    }
+
+    /** @return digest of the body, in lowercase hexadecimal */
+    public String getDigestAsHex() {
+        final char[] ret = new char[digest.length * 2];
+        for(int i = 0; i < digest.length; i++) {
+            ret[i * 2] = HEX[(digest[i] >> 4) & 0x0f];
+            ret[i * 2 + 1] = HEX[digest[i] & 0x0f];
+        }
+        return new String(ret);
+    }
+
+    /** @see URIFetcherHttpResponse#getStatusCode() */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @see URIFetcherHttpResponse#getContent()
+     * @return a reader that decodes the file. The caller must close it.
+     */
+    public Reader getContent() {
+        return new InputStreamReader(getRawContent(), getCharset());
+    }
+
+    /**
+     * @see URIFetcherHttpResponse#getContentAsString()
+     * @return the decoded file. Beware that the whole file is loaded.
+     */
+    public String getContentAsString() {
+        final Reader reader = getContent();
+        try {
+            return IOUtils.toString(reader);
+        } catch(final IOException e) {
+            throw new UnhandledException(e);
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    /** @return the charset of the <code>Content-Type</code> header */
+    private Charset getCharset() {
+        final String contentType = headers.getFirst("Content-Type");
+        if(contentType != null) {
+            for(final String param : contentType.split(";")) {
+                final int i = param.indexOf('=');
+                if(i != -1 && param.substring(0, i).trim().equalsIgnoreCase("charset")) {
+                    final String name = param.substring(i + 1).trim().replace("\"", "");
+                    try {
+                        return Charset.forName(name);
+                    } catch(final IllegalArgumentException e) {
+                        // unknown or illegal charset name
+                        break;
+                    }
+                }
+            }
+        }
+        return Charset.forName(DEFAULT_CHARSET);
+    }
+
+    /** @see URIFetcherHttpResponse#getRawContent() */
+    public InputStream getRawContent() {
+        try {
+            return new FileInputStream(file);
+        } catch(final FileNotFoundException e) {
+            throw new UnhandledException(e);
+        }
+    }
+
+    /** @see URIFetcherHttpResponse#getHeader(String) */
+    public String getHeader(final String name) {
+        return headers.getFirst(name);
+    }
+
+    /** @see URIFetcherHttpResponse#getHeaders(String) */
+    public List<String> getHeaders(final String name) {
+        return headers.getAll(name);
+    }
+
+    /** @return all the headers */
+    public CompactHeaders getHeaders() {
+        return headers;
+    }
+
+    /** @see Object#toString() */
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ModelUtils.STYLE)
+        .append("status", statusCode)
+        .append("file", file)
+        .append("size", size)
+        .append(digestAlgorithm, getDigestAsHex())
+        .toString();
+    }
+}
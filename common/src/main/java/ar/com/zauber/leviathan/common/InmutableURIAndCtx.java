@@ -17,7 +17,6 @@ package ar.com.zauber.leviathan.common;
 
 import java.io.Serializable;
 import java.net.URI;
-import java.util.Collections;
 import java.util.Map;
 
 import org.apache.commons.lang.Validate;
@@ -29,6 +28,10 @@ import ar.com.zauber.leviathan.api.URIFetcherResponse;
 /**
  * URIAndCtx inmutable implementation
  *
+ * The context is a {@link PersistentMap}: derived contexts
+ * ({@link #with(String, Object)}, {@link #withURI(URI)}) share the unchanged
+ * entries with this one instead of copying them.
+ *
  * @author Mariano Semelman
  * @since Dec 2, 2009
  */
@@ -37,21 +40,47 @@ public class InmutableURIAndCtx implements URIFetcherResponse.URIAndCtx,
     private static final long serialVersionUID = 5270026214580346190L;
 
     private final URI uri;
-    private final transient Map<String, Object> ctx;
+    private final transient PersistentMap<String, Object> ctx;
 
     /** Creates the InmutableURIAndCtx. */
-    @SuppressWarnings("unchecked")
     public InmutableURIAndCtx(final URI uri) {
-        this(uri, Collections.EMPTY_MAP);
+        this(uri, PersistentMap.<String, Object>empty());
     }
 
-    /** Creates the InmutableURIAndCtx. */
+    /**
+     * Creates the InmutableURIAndCtx.
+     *
+     * @param ctx the context. It is copied (unless it is a
+     *            {@link PersistentMap}); null keys are not supported.
+     */
     public InmutableURIAndCtx(final URI uri, final Map<String, Object> ctx) {
         Validate.notNull(uri);
         Validate.notNull(ctx);
 
         this.uri = uri;
-        this.ctx = Collections.unmodifiableMap(ctx);
+        this.ctx = PersistentMap.copyOf(ctx);
+    }
+
+    /**
+     * @return a URIAndCtx for <code>uri</code> that carries the context of
+     *         <code>uriAndCtx</code> (shared, if it is an InmutableURIAndCtx)
+     */
+    public static InmutableURIAndCtx derive(final URIFetcherResponse.URIAndCtx uriAndCtx,
+            final URI uri) {
+        Validate.notNull(uriAndCtx);
+        final Map<String, Object> ctx = uriAndCtx.getCtx();
+        return new InmutableURIAndCtx(uri,
+                ctx == null ? PersistentMap.<String, Object>empty() : ctx);
+    }
+
+    /** @return a copy that also binds <code>key</code> to <code>value</code> */
+    public final InmutableURIAndCtx with(final String key, final Object value) {
+        return new InmutableURIAndCtx(uri, ctx.with(key, value));
+    }
+
+    /** @return a copy with another uri and the same context */
+    public final InmutableURIAndCtx withURI(final URI anotherURI) {
+        return new InmutableURIAndCtx(anotherURI, ctx);
     }
 
     @Override
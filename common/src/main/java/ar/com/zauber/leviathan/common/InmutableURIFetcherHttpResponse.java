@@ -20,6 +20,12 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,51 +40,201 @@ import ar.com.zauber.leviathan.api.URIFetcherResponse;
 /**
  * Inmutable {@link URIFetcherHttpResponse}.
  *
+ * It may be built from the raw body and its charset: the body is kept once
+ * (skipping the first <code>offset</code> bytes, ie: a byte order mark,
+ * without copying) and it is only decoded the first time that
+ * {@link #getContent()} or {@link #getContentAsString()} is called.
+ *
  * @author Juan F. Codagnone
  * @since Oct 12, 2009
  */
 public class InmutableURIFetcherHttpResponse implements URIFetcherHttpResponse,
                                                         Serializable {
-    private static final long serialVersionUID = 2726687465186262473L;
+    private static final long serialVersionUID = 6032164931528476402L;
+    /** decoders are expensive to create: one per charset and thread */
+    private static final ThreadLocal<Map<String, CharsetDecoder>> DECODERS =
+        new ThreadLocal<Map<String, CharsetDecoder>>() {
+            @Override
+            protected Map<String, CharsetDecoder> initialValue() {
+                return new HashMap<String, CharsetDecoder>();
+            }
+        };
 
-    private final String content;
+    /** content given as text (null if it is decoded from rawContent) */
+    private final String text;
     private final int statusCode;
-    private final Map<String, List<String>> headers;
+    private final CompactHeaders headers;
     private final byte[] rawContent;
+    private final int offset;
+    private final String charsetName;
+    private transient volatile String decoded;
 
     /** Creates the InmutableURIFetcherResponse. */
     public InmutableURIFetcherHttpResponse(final String  content,
             final int statusCode, final Map<String, List<String>> headers,
             final byte[] rawContent) {
+        this(content, statusCode, CompactHeaders.of(headers), rawContent);
+    }
+    
+    /** Creates the InmutableURIFetcherResponse. */
+    public InmutableURIFetcherHttpResponse(final String  content,
+            final int statusCode, final CompactHeaders headers,
+            final byte[] rawContent) {
         Validate.notNull(content, "content is null");
         Validate.notNull(headers);
         
-        this.content = content;
+        this.text = content;
         this.statusCode = statusCode;
-        this.headers = new HashMap<String, List<String>>();
+        this.headers = headers;
         this.rawContent = rawContent;
+        this.offset = 0;
+        this.charsetName = null;
+    }
+    
+    /**
+     * Creates the InmutableURIFetcherHttpResponse. The content is decoded on
+     * demand.
+     *
+     * @param rawContent the body (it is not copied: it must not be modified)
+     * @param offset     number of bytes to skip from the start of the body
+     *                   (ie: a byte order mark)
+     * @param charset    charset used to decode the body
+     * @param statusCode http status code
+     * @param headers    response headers
+     */
+    public InmutableURIFetcherHttpResponse(final byte[] rawContent,
+            final int offset, final Charset charset, final int statusCode,
+            final Map<String, List<String>> headers) {
+        this(rawContent, offset, charset, statusCode, CompactHeaders.of(headers));
+    }
+    
+    /**
+     * Creates the InmutableURIFetcherHttpResponse. The content is decoded on
+     * demand.
+     *
+     * @see #InmutableURIFetcherHttpResponse(byte[], int, Charset, int, Map)
+     */
+    public InmutableURIFetcherHttpResponse(final byte[] rawContent,
+            final int offset, final Charset charset, final int statusCode,
+            final CompactHeaders headers) {
+        Validate.notNull(rawContent, "content is null");
+        Validate.notNull(charset, "charset is null");
+        Validate.notNull(headers);
+        Validate.isTrue(offset >= 0 && offset <= rawContent.length,
+                "invalid offset");
         
-        //All the headers will be treated in lower case. Transparent for the user
-        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
-            this.headers.put(entry.getKey().toLowerCase(), entry.getValue());
-        }
+        this.text = null;
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.rawContent = rawContent;
+        this.offset = offset;
+        this.charsetName = charset.name();
     }
+    
+    /** copy with other headers */
+    private InmutableURIFetcherHttpResponse(final InmutableURIFetcherHttpResponse r,
+            final CompactHeaders headers) {
+        this.text = r.text;
+        this.statusCode = r.statusCode;
+        this.headers = headers;
+        this.rawContent = r.rawContent;
+        this.offset = r.offset;
+        this.charsetName = r.charsetName;
+        this.decoded = r.decoded;
+    }
+    
     /**Creates the InmutableURIFetcherHttpResponse.*/
     public InmutableURIFetcherHttpResponse(final String  content,
             final int statusCode, final Map<String, List<String>> headers) {
         this(content, statusCode, headers, null);
     }
 
+    /**
+     * @param update headers that replace the ones with the same name
+     * @return a copy of the response (sharing the body) with the headers updated
+     * @see CompactHeaders#update(CompactHeaders)
+     */
+    public final InmutableURIFetcherHttpResponse withHeaders(
+            final CompactHeaders update) {
+        return new InmutableURIFetcherHttpResponse(this, headers.update(update));
+    }
+
     /** @see URIFetcherResponse#getContent() */
     public final Reader getContent() {
-        return new StringReader(content);
+        return new StringReader(getContentAsString());
     }
     
     @Override
     public final String getContentAsString() {
-        return content;
+        if(text != null) {
+            return text;
+        }
+        String ret = decoded;
+        if(ret == null) {
+            // racing threads decode the same string: no need to lock
+            ret = decode(rawContent, offset, rawContent.length - offset,
+                    Charset.forName(charsetName));
+            decoded = ret;
+        }
+        return ret;
     }
     
+    /** @return <code>true</code> if the content was already decoded */
+    public final boolean isDecoded() {
+        return text != null || decoded != null;
+    }
+
+    /**
+     * decodes the bytes with a cached {@link CharsetDecoder}. Malformed input
+     * is replaced, as {@link String#String(byte[], String)} does.
+     */
+    private static String decode(final byte[] data, final int off, final int len,
+            final Charset charset) {
+        final Map<String, CharsetDecoder> decoders = DECODERS.get();
+        CharsetDecoder decoder = decoders.get(charset.name());
+        if(decoder == null) {
+            decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            decoders.put(charset.name(), decoder);
+        }
+        decoder.reset();
+        
+        final CharBuffer out = CharBuffer.allocate(
+                (int) (len * (double) decoder.maxCharsPerByte()));
+        final ByteBuffer in = ByteBuffer.wrap(data, off, len);
+        CoderResult result = decoder.decode(in, out, true);
+        if(!result.isUnderflow()) {
+            // errors are replaced and the buffer is big enough: can't happen
+            throw new IllegalStateException("decoding: " + result);
+        }
+        result = decoder.flush(out);
+        if(!result.isUnderflow()) {
+            throw new IllegalStateException("decoding: " + result);
+        }
+        return new String(out.array(), 0, out.position());
+    }
+    
+    /** @return the content given as text (null if it is decoded from the body) */
+    final String getText() {
+        return text;
+    }
+
+    /** @return the body (not copied), or <code>null</code> */
+    final byte[] getRawBytes() {
+        return rawContent;
+    }
+
+    /** @return number of bytes of the body that are skipped */
+    final int getOffset() {
+        return offset;
+    }
+
+    /** @return the charset of the body (null if the content was given as text) */
+    final String getCharsetName() {
+        return charsetName;
+    }
+
     /** @see URIFetcherResponse#getStatusCode() */
     public final int getStatusCode() {
         return statusCode;
@@ -86,26 +242,17 @@ public class InmutableURIFetcherHttpResponse implements URIFetcherHttpResponse,
     
     /** @see URIFetcherHttpResponse#getHeader(String) */
     public final String getHeader(final String name) {
-        if (headers != null && name != null) {
-            List<String> auxHeaders = headers.get(name.toLowerCase());
-            if (auxHeaders != null && auxHeaders.size() > 0) {
-                return auxHeaders.get(0);
-            }
-        }
-        
-        return null;
+        return headers.getFirst(name);
     }
     
     /** @see URIFetcherHttpResponse#getHeaders(java.lang.String) */
     public final List<String> getHeaders(final String name) {
-        if (headers != null && name != null) {
-            List<String> auxHeaders = headers.get(name.toLowerCase());
-            if (auxHeaders != null && auxHeaders.size() > 0) {
-                return auxHeaders;
-            }
-        }
-        
-        return null;
+        return headers.getAll(name);
+    }
+    
+    /** @return all the headers */
+    public final CompactHeaders getHeaders() {
+        return headers;
     }
 
     /** @see Object#toString() */
@@ -149,6 +296,7 @@ public class InmutableURIFetcherHttpResponse implements URIFetcherHttpResponse,
         if(null == rawContent) {
             throw new IllegalStateException("Raw content not setted");
         }
-        return new ByteArrayInputStream(rawContent);
+        return new ByteArrayInputStream(rawContent, offset,
+                rawContent.length - offset);
     }
 }
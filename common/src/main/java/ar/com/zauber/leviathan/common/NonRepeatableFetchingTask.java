@@ -0,0 +1,30 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import ar.com.zauber.leviathan.api.FetchingTask;
+
+/**
+ * A {@link FetchingTask} that can be executed only once (ie: a POST whose
+ * body is streamed from an {@link java.io.InputStream}). The decorators that
+ * execute a task more than once (retries, hedges) execute these just once.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public interface NonRepeatableFetchingTask extends FetchingTask {
+
+}
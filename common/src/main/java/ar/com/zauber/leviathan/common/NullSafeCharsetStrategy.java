@@ -23,12 +23,13 @@ import org.apache.commons.lang.Validate;
 /**
  * {@link CharsetStrategy} that has a default value. If the decorated
  * {@link CharsetStrategy} returns null, it coalesces to the given default
- * {@link Charset}
+ * {@link Charset}. The prefix of the body is handed to the decorated strategy
+ * as is (see {@link PrefixCharsetStrategy}).
  * 
  * @author flbulgarelli
  * @since Jun 19, 2012
  */
-public final class NullSafeCharsetStrategy implements CharsetStrategy {
+public final class NullSafeCharsetStrategy implements PrefixCharsetStrategy {
 
     private final CharsetStrategy charsetStrategy;
     private final Charset defaultCharset;
@@ -52,4 +53,11 @@ public final class NullSafeCharsetStrategy implements CharsetStrategy {
         return charset != null ? charset : defaultCharset;
     }
 
+    @Override
+    public Charset getCharsetFromPrefix(final ResponseMetadata meta, final ContentPrefix prefix) {
+        final Charset charset = AbstractPrefixCharsetStrategy.getCharset(
+                charsetStrategy, meta, prefix);
+        return charset != null ? charset : defaultCharset;
+    }
+
 }
@@ -0,0 +1,359 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Inmutable sorted map (an AVL tree) whose copies share structure:
+ * {@link #with(Comparable, Object)} and {@link #without(Comparable)} return a
+ * new map in O(log n) that shares every unchanged node with this one, so
+ * deriving a context from another (ie: a redirect, a follow-up fetch) costs a
+ * handful of nodes instead of a copy of the whole map.
+ *
+ * The {@link Map} mutators throw {@link UnsupportedOperationException}.
+ * Keys can't be <code>null</code>; values can. Iteration is in key order.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class PersistentMap<K extends Comparable<? super K>, V>
+       extends AbstractMap<K, V> {
+    private static final PersistentMap<?, ?> EMPTY =
+        new PersistentMap<String, Object>(null, 0);
+
+    private final Node<K, V> root;
+    private final int size;
+    private Set<Entry<K, V>> entrySet;
+
+    /** Creates the PersistentMap. */
+    private PersistentMap(final Node<K, V> root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /** @return the empty map */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * @param map entries
+     * @return a persistent map with the entries of <code>map</code> (the same
+     *         instance if it already is a {@link PersistentMap})
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>, V> PersistentMap<K, V> copyOf(
+            final Map<? extends K, ? extends V> map) {
+        Validate.notNull(map);
+        if(map instanceof PersistentMap) {
+            // inmutable, so it is safe to see it as a map of supertypes
+            return (PersistentMap<K, V>) map;
+        }
+        return PersistentMap.<K, V>empty().withAll(map);
+    }
+
+    /**
+     * @return a map with <code>key</code> bound to <code>value</code>. This
+     *         map doesn't change.
+     */
+    public PersistentMap<K, V> with(final K key, final V value) {
+        Validate.notNull(key, "null keys are not supported");
+        final Node<K, V> node = find(key);
+        if(node != null && node.value == value) {
+            return this;
+        }
+        return new PersistentMap<K, V>(insert(root, key, value),
+                node == null ? size + 1 : size);
+    }
+
+    /**
+     * @return a map with the entries of this map and the ones of
+     *         <code>map</code> (that win). This map doesn't change.
+     */
+    public PersistentMap<K, V> withAll(final Map<? extends K, ? extends V> map) {
+        Validate.notNull(map);
+        PersistentMap<K, V> ret = this;
+        for(final Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            ret = ret.with(entry.getKey(), entry.getValue());
+        }
+        return ret;
+    }
+
+    /**
+     * @return a map without <code>key</code>. This map doesn't change.
+     */
+    public PersistentMap<K, V> without(final K key) {
+        Validate.notNull(key);
+        if(find(key) == null) {
+            return this;
+        }
+        return size == 1 ? PersistentMap.<K, V>empty()
+                         : new PersistentMap<K, V>(remove(root, key), size - 1);
+    }
+
+    @Override
+    public V get(final Object key) {
+        final Node<K, V> node = lookup(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return lookup(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if(entrySet == null) {
+            entrySet = new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator<K, V>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /** @return height of the tree (for the tests) */
+    int height() {
+        return height(root);
+    }
+
+    /** @return the node of a key of any type */
+    @SuppressWarnings("unchecked")
+    private Node<K, V> lookup(final Object key) {
+        if(key == null) {
+            return null;
+        }
+        try {
+            return find((K) key);
+        } catch(final ClassCastException e) {
+            return null;
+        }
+    }
+
+    /** @return the node of the key, or <code>null</code> */
+    private Node<K, V> find(final K key) {
+        Node<K, V> node = root;
+        while(node != null) {
+            final int cmp = key.compareTo(node.key);
+            if(cmp == 0) {
+                return node;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /** @return the new subtree with the binding */
+    private static <K extends Comparable<? super K>, V> Node<K, V> insert(
+            final Node<K, V> node, final K key, final V value) {
+        if(node == null) {
+            return new Node<K, V>(key, value, null, null);
+        }
+        final int cmp = key.compareTo(node.key);
+        if(cmp == 0) {
+            return new Node<K, V>(key, value, node.left, node.right);
+        } else if(cmp < 0) {
+            return balance(node.key, node.value, insert(node.left, key, value),
+                    node.right);
+        } else {
+            return balance(node.key, node.value, node.left,
+                    insert(node.right, key, value));
+        }
+    }
+
+    /** @return the new subtree without the (present) key */
+    private static <K extends Comparable<? super K>, V> Node<K, V> remove(
+            final Node<K, V> node, final K key) {
+        final int cmp = key.compareTo(node.key);
+        if(cmp < 0) {
+            return balance(node.key, node.value, remove(node.left, key), node.right);
+        } else if(cmp > 0) {
+            return balance(node.key, node.value, node.left, remove(node.right, key));
+        } else if(node.left == null) {
+            return node.right;
+        } else if(node.right == null) {
+            return node.left;
+        }
+        Node<K, V> min = node.right;
+        while(min.left != null) {
+            min = min.left;
+        }
+        return balance(min.key, min.value, node.left, removeMin(node.right));
+    }
+
+    /** @return the subtree without its smallest node */
+    private static <K, V> Node<K, V> removeMin(final Node<K, V> node) {
+        if(node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, removeMin(node.left), node.right);
+    }
+
+    /** @return a node with the given children, rotated if they are unbalanced */
+    private static <K, V> Node<K, V> balance(final K key, final V value,
+            final Node<K, V> left, final Node<K, V> right) {
+        final int hl = height(left);
+        final int hr = height(right);
+        if(hl > hr + 1) {
+            if(height(left.left) >= height(left.right)) {
+                return new Node<K, V>(left.key, left.value, left.left,
+                        new Node<K, V>(key, value, left.right, right));
+            }
+            final Node<K, V> lr = left.right;
+            return new Node<K, V>(lr.key, lr.value,
+                    new Node<K, V>(left.key, left.value, left.left, lr.left),
+                    new Node<K, V>(key, value, lr.right, right));
+        } else if(hr > hl + 1) {
+            if(height(right.right) >= height(right.left)) {
+                return new Node<K, V>(right.key, right.value,
+                        new Node<K, V>(key, value, left, right.left), right.right);
+            }
+            final Node<K, V> rl = right.left;
+            return new Node<K, V>(rl.key, rl.value,
+                    new Node<K, V>(key, value, left, rl.left),
+                    new Node<K, V>(right.key, right.value, rl.right, right.right));
+        }
+        return new Node<K, V>(key, value, left, right);
+    }
+
+    /** @return height of the subtree */
+    private static int height(final Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /** node of the tree. It is also the (inmutable) entry */
+    private static final class Node<K, V> implements Entry<K, V> {
+        private final K key;
+        private final V value;
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        private final int height;
+
+        /** Creates the Node. */
+        Node(final K key, final V value, final Node<K, V> left,
+                final Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+
+        /** @see Entry#getKey() */
+        public K getKey() {
+            return key;
+        }
+
+        /** @see Entry#getValue() */
+        public V getValue() {
+            return value;
+        }
+
+        /** @see Entry#setValue(Object) */
+        public V setValue(final V v) {
+            throw new UnsupportedOperationException("inmutable map");
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if(!(obj instanceof Entry)) {
+                return false;
+            }
+            final Entry<?, ?> e = (Entry<?, ?>) obj;
+            return key.equals(e.getKey())
+                && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /** in order traversal */
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final Node<K, V>[] stack;
+        private int depth;
+
+        /** Creates the EntryIterator. */
+        @SuppressWarnings("unchecked")
+        EntryIterator(final Node<K, V> root) {
+            stack = new Node[height(root)];
+            push(root);
+        }
+
+        /** pushes the node and its left spine */
+        private void push(final Node<K, V> node) {
+            for(Node<K, V> n = node; n != null; n = n.left) {
+                stack[depth++] = n;
+            }
+        }
+
+        /** @see Iterator#hasNext() */
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        /** @see Iterator#next() */
+        public Entry<K, V> next() {
+            if(depth == 0) {
+                throw new NoSuchElementException();
+            }
+            final Node<K, V> ret = stack[--depth];
+            push(ret.right);
+            return ret;
+        }
+
+        /** @see Iterator#remove() */
+        public void remove() {
+            throw new UnsupportedOperationException("inmutable map");
+        }
+    }
+}
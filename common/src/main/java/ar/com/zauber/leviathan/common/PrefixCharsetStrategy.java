@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import java.nio.charset.Charset;
+
+/**
+ * {@link CharsetStrategy} that inspects only a bounded {@link ContentPrefix}
+ * of the body. Composite strategies hand the same prefix to all their
+ * delegates (see {@link AbstractPrefixCharsetStrategy#getCharset(
+ * CharsetStrategy, ResponseMetadata, ContentPrefix)}).
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public interface PrefixCharsetStrategy extends CharsetStrategy {
+
+    /**
+     * @param meta   not null
+     * @param prefix the beginning of the body (not null)
+     * @return the charset, or <code>null</code> if it can't be decided
+     */
+    Charset getCharsetFromPrefix(ResponseMetadata meta, ContentPrefix prefix);
+}
@@ -17,8 +17,6 @@ package ar.com.zauber.leviathan.common;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.apache.commons.lang.UnhandledException;
 
@@ -108,11 +106,12 @@ public final class RedirectClosure implements Closure<URIFetcherResponse> {
             
             final String originalURI = (String) t.getURIAndCtx().getCtx()
                 .get(KEY_ORIGINAL_URL);
-            final Map<String, Object> ctx = new HashMap<String, Object>(
+            // shares the entries of the context instead of copying them
+            PersistentMap<String, Object> ctx = PersistentMap.copyOf(
                     t.getURIAndCtx().getCtx());
             
             if (originalURI == null) {
-                ctx.put(KEY_ORIGINAL_URL, t.getURIAndCtx().getURI().toString());
+                ctx = ctx.with(KEY_ORIGINAL_URL, t.getURIAndCtx().getURI().toString());
             }
             
             if(code == 301 || code == 302 || code == 303) {
@@ -141,7 +140,7 @@ public final class RedirectClosure implements Closure<URIFetcherResponse> {
                         hops = hops + 1; 
                     }
                     
-                    ctx.put(KEY_HOPS, hops);
+                    ctx = ctx.with(KEY_HOPS, hops);
                     // TODO: falta implementar el RedirectClosure de forma mejor
                     uriFetcher.scheduleFetch(f.createGet(new InmutableURIAndCtx(uri, ctx)), 
                             onRedirectTarget);
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+
+/**
+ * Extra request headers (ie: the validators of a conditional GET) travel in
+ * the context of the {@link URIAndCtx} under {@link #KEY_HEADERS}, so they can
+ * be passed through any {@link ar.com.zauber.leviathan.api.URIFetcher}
+ * decorator. The fetchers that talk HTTP add them to the request.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class RequestHeaders {
+    /**
+     * Key for the context map to store the extra request headers as a
+     * <code>Map&lt;String, String&gt;</code>.
+     */
+    public static final String KEY_HEADERS =
+        RequestHeaders.class.getCanonicalName() + "-headers";
+
+    /** utility class */
+    private RequestHeaders() {
+        // void
+    }
+
+    /**
+     * @return the extra headers of the request (never null)
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, String> get(final URIAndCtx uriAndCtx) {
+        Validate.notNull(uriAndCtx);
+        final Map<String, Object> ctx = uriAndCtx.getCtx();
+        final Object headers = ctx == null ? null : ctx.get(KEY_HEADERS);
+        return headers == null
+            ? Collections.<String, String>emptyMap()
+            : (Map<String, String>) headers;
+    }
+
+    /**
+     * @return a copy of <code>uriAndCtx</code> that also carries the
+     *         <code>headers</code> (merged with the ones it already had)
+     */
+    public static URIAndCtx with(final URIAndCtx uriAndCtx,
+            final Map<String, String> headers) {
+        Validate.notNull(uriAndCtx);
+        Validate.notNull(headers);
+
+        final Map<String, String> merged = new LinkedHashMap<String, String>(
+                get(uriAndCtx));
+        merged.putAll(headers);
+        return InmutableURIAndCtx.derive(uriAndCtx, uriAndCtx.getURI())
+            .with(KEY_HEADERS, Collections.unmodifiableMap(merged));
+    }
+}
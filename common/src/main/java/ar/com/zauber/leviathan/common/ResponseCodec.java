@@ -0,0 +1,583 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang.UnhandledException;
+import org.apache.commons.lang.Validate;
+
+import ar.com.zauber.leviathan.api.URIFetcherHttpResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+
+/**
+ * Compact binary form of {@link URIFetcherResponse}s, for the tiers of the
+ * caches that keep them as bytes (ie: when they overflow to disk). Unlike the
+ * java serialization of the responses it doesn't write class descriptors,
+ * keeps the body once (raw bytes and charset: the text is decoded again on
+ * demand) and keeps the context of the {@link URIAndCtx}.
+ *
+ * Format (version {@value #VERSION}); numbers are unsigned varints and strings
+ * are UTF-8 prefixed with their length:
+ * <pre>
+ *   'L' 'V' version kind
+ *   uri  (key tagged-value)*
+ *   kind http:  status (name value)* flags [charset] [text] [body]
+ *   kind error: java serialized throwable
+ * </pre>
+ * The body goes last: decoded responses use the encoded array as their body,
+ * without copying it. Context entries whose value is not
+ * {@link Serializable} are dropped.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class ResponseCodec {
+    /** version of the format that is written */
+    public static final int VERSION = 1;
+    private static final byte MAGIC_1 = 'L';
+    private static final byte MAGIC_2 = 'V';
+    private static final int KIND_HTTP = 0;
+    private static final int KIND_ERROR = 1;
+    private static final int HAS_CHARSET = 1;
+    private static final int HAS_TEXT = 2;
+    private static final int HAS_BODY = 4;
+    private static final int TAG_NULL = 0;
+    private static final int TAG_STRING = 1;
+    private static final int TAG_INTEGER = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_BOOLEAN = 4;
+    private static final int TAG_STRING_MAP = 5;
+    private static final int TAG_SERIALIZED = 6;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** utility class */
+    private ResponseCodec() {
+        // void
+    }
+
+    /**
+     * @return <code>true</code> if the response can be encoded: errors and
+     *         {@link InmutableURIFetcherHttpResponse}s or
+     *         {@link SpooledURIFetcherHttpResponse}s.
+     */
+    public static boolean canEncode(final URIFetcherResponse response) {
+        if(response == null || response.getURIAndCtx() == null
+                || response.getURIAndCtx().getURI() == null) {
+            return false;
+        }
+        if(!response.isSucceeded()) {
+            return response.getError() != null;
+        }
+        final URIFetcherHttpResponse http = response.getHttpResponse();
+        return http instanceof InmutableURIFetcherHttpResponse
+            || http instanceof SpooledURIFetcherHttpResponse;
+    }
+
+    /**
+     * @param response a response (see {@link #canEncode(URIFetcherResponse)})
+     * @return its binary form
+     */
+    public static byte[] encode(final URIFetcherResponse response) {
+        Validate.isTrue(canEncode(response), "can't encode the response");
+
+        final URIAndCtx uriAndCtx = response.getURIAndCtx();
+        final List<String> keys = new ArrayList<String>();
+        final List<Object> values = new ArrayList<Object>();
+        collectCtx(uriAndCtx.getCtx(), keys, values);
+        InmutableURIFetcherHttpResponse http = null;
+        byte[] error = null;
+        if(response.isSucceeded()) {
+            final URIFetcherHttpResponse r = response.getHttpResponse();
+            http = r instanceof SpooledURIFetcherHttpResponse
+                ? ((SpooledURIFetcherHttpResponse) r).toInmutable()
+                : (InmutableURIFetcherHttpResponse) r;
+        } else {
+            error = serialize(response.getError());
+        }
+
+        // a first pass computes the size, so the body is copied just once
+        final Output size = new Output(-1);
+        write(size, uriAndCtx, keys, values, http, error);
+        final Output out = new Output(size.pos);
+        write(out, uriAndCtx, keys, values, http, error);
+        return out.toByteArray();
+    }
+
+    /** writes the response: <code>http</code> or else <code>error</code> */
+    private static void write(final Output out, final URIAndCtx uriAndCtx,
+            final List<String> keys, final List<Object> values,
+            final InmutableURIFetcherHttpResponse http, final byte[] error) {
+        out.writeByte(MAGIC_1);
+        out.writeByte(MAGIC_2);
+        out.writeByte(VERSION);
+        out.writeByte(http == null ? KIND_ERROR : KIND_HTTP);
+        out.writeString(uriAndCtx.getURI().toString());
+        writeCtx(out, keys, values);
+        if(http == null) {
+            out.writeBytes(error, 0, error.length);
+            return;
+        }
+
+        final String text = http.getText();
+        final byte[] body = http.getRawBytes();
+        final int offset = http.getOffset();
+        out.writeVarint(http.getStatusCode());
+        final CompactHeaders headers = http.getHeaders();
+        out.writeVarint(headers.size());
+        for(int i = 0; i < headers.size(); i++) {
+            out.writeString(headers.getName(i));
+            out.writeString(headers.getValue(i));
+        }
+        final String charset = http.getCharsetName();
+        out.writeByte((charset == null ? 0 : HAS_CHARSET)
+                | (text == null ? 0 : HAS_TEXT)
+                | (body == null ? 0 : HAS_BODY));
+        if(charset != null) {
+            out.writeString(charset);
+        }
+        if(text != null) {
+            out.writeString(text);
+        }
+        if(body != null) {
+            out.writeBytes(body, offset, body.length - offset);
+        }
+    }
+
+    /**
+     * @param data a response encoded with {@link #encode(URIFetcherResponse)}.
+     *             It is used as the body of the response: it must not be
+     *             modified.
+     * @return the response
+     * @throws IllegalArgumentException if the data is not an encoded response
+     *         (or it was written by an unknown version)
+     */
+    public static URIFetcherResponse decode(final byte[] data) {
+        Validate.notNull(data);
+        final Input in = new Input(data);
+        try {
+            if(in.readByte() != MAGIC_1 || in.readByte() != MAGIC_2) {
+                throw new IllegalArgumentException("not an encoded response");
+            }
+            final int version = in.readByte();
+            if(version != VERSION) {
+                throw new IllegalArgumentException("unsupported version: " + version);
+            }
+            final int kind = in.readByte();
+            final URIAndCtx uriAndCtx = new InmutableURIAndCtx(
+                    URI.create(in.readString()), readCtx(in));
+
+            if(kind == KIND_ERROR) {
+                return new InmutableURIFetcherResponse(uriAndCtx,
+                        (Throwable) deserialize(in.readBytes()));
+            } else if(kind != KIND_HTTP) {
+                throw new IllegalArgumentException("unknown kind: " + kind);
+            }
+            final int status = in.readVarint();
+            final int n = in.readVarint();
+            final String[] names = new String[n];
+            final String[] values = new String[n];
+            for(int i = 0; i < n; i++) {
+                names[i] = in.readString();
+                values[i] = in.readString();
+            }
+            final CompactHeaders headers = CompactHeaders.wrap(names, values);
+            final int flags = in.readByte();
+            final String charset = (flags & HAS_CHARSET) == 0 ? null : in.readString();
+            final String text = (flags & HAS_TEXT) == 0 ? null : in.readString();
+            byte[] body = null;
+            int offset = 0;
+            if((flags & HAS_BODY) != 0) {
+                final int length = in.readVarint();
+                if(length != in.remaining()) {
+                    throw new IllegalArgumentException("corrupt body");
+                }
+                if(text == null) {
+                    body = data;
+                    offset = in.pos;
+                } else {
+                    body = Arrays.copyOfRange(data, in.pos, data.length);
+                }
+            }
+
+            final InmutableURIFetcherHttpResponse http;
+            if(text == null) {
+                Validate.isTrue(charset != null && body != null, "corrupt response");
+                http = new InmutableURIFetcherHttpResponse(body, offset,
+                        Charset.forName(charset), status, headers);
+            } else {
+                http = new InmutableURIFetcherHttpResponse(text, status, headers, body);
+            }
+            return new InmutableURIFetcherResponse(uriAndCtx, http);
+        } catch(final IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated response", e);
+        }
+    }
+
+    /** collects the context entries that can be written */
+    private static void collectCtx(final Map<String, Object> ctx,
+            final List<String> keys, final List<Object> values) {
+        if(ctx == null) {
+            return;
+        }
+        for(final Entry<String, Object> entry : ctx.entrySet()) {
+            final Object value = entry.getValue();
+            if(entry.getKey() == null) {
+                continue;
+            } else if(value == null || value instanceof String
+                    || value instanceof Integer || value instanceof Long
+                    || value instanceof Boolean || isStringMap(value)) {
+                values.add(value);
+            } else if(value instanceof Serializable) {
+                try {
+                    values.add(serialize(value));
+                } catch(final UnhandledException e) {
+                    // ie: it references something that is not serializable
+                    continue;
+                }
+            } else {
+                continue;
+            }
+            keys.add(entry.getKey());
+        }
+    }
+
+    /** writes the context entries (see {@link #collectCtx(Map, List, List)}) */
+    private static void writeCtx(final Output out, final List<String> keys,
+            final List<Object> values) {
+        out.writeVarint(keys.size());
+        for(int i = 0; i < keys.size(); i++) {
+            out.writeString(keys.get(i));
+            final Object value = values.get(i);
+            if(value == null) {
+                out.writeByte(TAG_NULL);
+            } else if(value instanceof String) {
+                out.writeByte(TAG_STRING);
+                out.writeString((String) value);
+            } else if(value instanceof Integer) {
+                out.writeByte(TAG_INTEGER);
+                out.writeVarint((Integer) value);
+            } else if(value instanceof Long) {
+                out.writeByte(TAG_LONG);
+                out.writeVarlong((Long) value);
+            } else if(value instanceof Boolean) {
+                out.writeByte(TAG_BOOLEAN);
+                out.writeByte((Boolean) value ? 1 : 0);
+            } else if(value instanceof byte[]) {
+                final byte[] serialized = (byte[]) value;
+                out.writeByte(TAG_SERIALIZED);
+                out.writeBytes(serialized, 0, serialized.length);
+            } else {
+                final Map<?, ?> map = (Map<?, ?>) value;
+                out.writeByte(TAG_STRING_MAP);
+                out.writeVarint(map.size());
+                for(final Entry<?, ?> entry : map.entrySet()) {
+                    out.writeString((String) entry.getKey());
+                    out.writeString((String) entry.getValue());
+                }
+            }
+        }
+    }
+
+    /** @return the context */
+    private static PersistentMap<String, Object> readCtx(final Input in) {
+        PersistentMap<String, Object> ret = PersistentMap.empty();
+        final int n = in.readVarint();
+        for(int i = 0; i < n; i++) {
+            final String key = in.readString();
+            final int tag = in.readByte();
+            final Object value;
+            switch(tag) {
+                case TAG_NULL:
+                    value = null;
+                    break;
+                case TAG_STRING:
+                    value = in.readString();
+                    break;
+                case TAG_INTEGER:
+                    value = in.readVarint();
+                    break;
+                case TAG_LONG:
+                    value = in.readVarlong();
+                    break;
+                case TAG_BOOLEAN:
+                    value = in.readByte() != 0;
+                    break;
+                case TAG_STRING_MAP:
+                    final int size = in.readVarint();
+                    final Map<String, String> map = new LinkedHashMap<String, String>();
+                    for(int j = 0; j < size; j++) {
+                        map.put(in.readString(), in.readString());
+                    }
+                    value = Collections.unmodifiableMap(map);
+                    break;
+                case TAG_SERIALIZED:
+                    value = deserialize(in.readBytes());
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown tag: " + tag);
+            }
+            ret = ret.with(key, value);
+        }
+        return ret;
+    }
+
+    /** @return <code>true</code> if it is a map of strings to strings */
+    private static boolean isStringMap(final Object value) {
+        if(!(value instanceof Map)) {
+            return false;
+        }
+        for(final Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            if(!(entry.getKey() instanceof String)
+                    || !(entry.getValue() instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return the java serialization of the object */
+    private static byte[] serialize(final Object o) {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try {
+            final ObjectOutputStream oos = new ObjectOutputStream(bos);
+            oos.writeObject(o);
+            oos.close();
+        } catch(final IOException e) {
+            throw new UnhandledException("serializing " + o.getClass(), e);
+        }
+        return bos.toByteArray();
+    }
+
+    /** @return the object */
+    private static Object deserialize(final byte[] data) {
+        try {
+            return new ObjectInputStream(new ByteArrayInputStream(data)).readObject();
+        } catch(final IOException e) {
+            throw new IllegalArgumentException("corrupt serialized object", e);
+        } catch(final ClassNotFoundException e) {
+            throw new UnhandledException("deserializing", e);
+        }
+    }
+
+    /**
+     * output buffer of a fixed size. Without a buffer (negative capacity) it
+     * only counts the bytes that would be written.
+     */
+    private static final class Output {
+        private final byte[] buf;
+        private int pos;
+
+        /** Creates the Output. */
+        Output(final int capacity) {
+            buf = capacity < 0 ? null : new byte[capacity];
+        }
+
+        /** writes a byte */
+        void writeByte(final int b) {
+            if(buf != null) {
+                buf[pos] = (byte) b;
+            }
+            pos++;
+        }
+
+        /** writes an unsigned varint (negative numbers take 5 bytes) */
+        void writeVarint(final int n) {
+            int v = n;
+            while((v & ~0x7f) != 0) {
+                writeByte((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            writeByte(v);
+        }
+
+        /** writes an unsigned varlong */
+        void writeVarlong(final long n) {
+            long v = n;
+            while((v & ~0x7fL) != 0) {
+                writeByte((int) ((v & 0x7f) | 0x80));
+                v >>>= 7;
+            }
+            writeByte((int) v);
+        }
+
+        /** writes the length and the bytes */
+        void writeBytes(final byte[] b, final int off, final int len) {
+            writeVarint(len);
+            if(buf != null) {
+                System.arraycopy(b, off, buf, pos, len);
+            }
+            pos += len;
+        }
+
+        /**
+         * writes the length and the UTF-8 bytes of the string. Unpaired
+         * surrogates are written as '?', as {@link String#getBytes(String)}
+         * does.
+         */
+        void writeString(final String s) {
+            final int n = s.length();
+            int length = 0;
+            for(int i = 0; i < n; i++) {
+                final char c = s.charAt(i);
+                if(c < 0x80) {
+                    length++;
+                } else if(c < 0x800) {
+                    length += 2;
+                } else if(isPair(s, i)) {
+                    length += 4;
+                    i++;
+                } else if(isSurrogate(c)) {
+                    length++;
+                } else {
+                    length += 3;
+                }
+            }
+            writeVarint(length);
+            if(buf == null) {
+                pos += length;
+                return;
+            }
+            for(int i = 0; i < n; i++) {
+                final char c = s.charAt(i);
+                if(c < 0x80) {
+                    buf[pos++] = (byte) c;
+                } else if(c < 0x800) {
+                    buf[pos++] = (byte) (0xc0 | c >> 6);
+                    buf[pos++] = (byte) (0x80 | c & 0x3f);
+                } else if(isPair(s, i)) {
+                    final int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf[pos++] = (byte) (0xf0 | cp >> 18);
+                    buf[pos++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                    buf[pos++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                    buf[pos++] = (byte) (0x80 | cp & 0x3f);
+                } else if(isSurrogate(c)) {
+                    buf[pos++] = '?';
+                } else {
+                    buf[pos++] = (byte) (0xe0 | c >> 12);
+                    buf[pos++] = (byte) (0x80 | c >> 6 & 0x3f);
+                    buf[pos++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+        }
+
+        /** @return <code>true</code> if a surrogate pair starts at i */
+        private static boolean isPair(final String s, final int i) {
+            return Character.isHighSurrogate(s.charAt(i)) && i + 1 < s.length()
+                && Character.isLowSurrogate(s.charAt(i + 1));
+        }
+
+        /** @return <code>true</code> if c is a (high or low) surrogate */
+        private static boolean isSurrogate(final char c) {
+            return c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE;
+        }
+
+        /** @return the written bytes */
+        byte[] toByteArray() {
+            if(pos != buf.length) {
+                throw new IllegalStateException("wrote " + pos + " bytes of "
+                        + buf.length);
+            }
+            return buf;
+        }
+    }
+
+    /** input buffer */
+    private static final class Input {
+        private final byte[] buf;
+        private int pos;
+
+        /** Creates the Input. */
+        Input(final byte[] buf) {
+            this.buf = buf;
+        }
+
+        /** @return an unsigned byte */
+        int readByte() {
+            return buf[pos++] & 0xff;
+        }
+
+        /** @return an unsigned varint */
+        int readVarint() {
+            int ret = 0;
+            for(int shift = 0; shift < 35; shift += 7) {
+                final int b = readByte();
+                ret |= (b & 0x7f) << shift;
+                if((b & 0x80) == 0) {
+                    return ret;
+                }
+            }
+            throw new IllegalArgumentException("malformed varint");
+        }
+
+        /** @return an unsigned varlong */
+        long readVarlong() {
+            long ret = 0;
+            for(int shift = 0; shift < 70; shift += 7) {
+                final int b = readByte();
+                ret |= (long) (b & 0x7f) << shift;
+                if((b & 0x80) == 0) {
+                    return ret;
+                }
+            }
+            throw new IllegalArgumentException("malformed varlong");
+        }
+
+        /** @return the bytes (prefixed with their length) */
+        byte[] readBytes() {
+            final int n = checkLength(readVarint());
+            final byte[] ret = Arrays.copyOfRange(buf, pos, pos + n);
+            pos += n;
+            return ret;
+        }
+
+        /** @return a string (prefixed with the length of its UTF-8 bytes) */
+        String readString() {
+            final int n = checkLength(readVarint());
+            final String ret = new String(buf, pos, n, UTF8);
+            pos += n;
+            return ret;
+        }
+
+        /** @return unread bytes */
+        int remaining() {
+            return buf.length - pos;
+        }
+
+        /** @return the length, if there are that many bytes */
+        private int checkLength(final int n) {
+            if(n < 0 || n > remaining()) {
+                throw new IllegalArgumentException("truncated response");
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.UnhandledException;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Content of a response that is kept in a bounded in-memory buffer while it
+ * is smaller than a threshold, and that spills to a temporary file once the
+ * threshold is exceeded. The heap used by a response is bounded by the
+ * threshold no matter how big the body is.
+ * <p>
+ * Instances should be {@link #release()}d when they are no longer needed so
+ * the temporary file (if any) is deleted right away. Callers that never
+ * release them (ie: plain {@link ar.com.zauber.leviathan.api.URIFetcher#get(
+ * java.net.URI)} users) do not leak the file: it is deleted by a daemon thread
+ * once the content is garbage collected (only spilled contents are tracked,
+ * with a {@link PhantomReference}), or when the JVM exits.
+ * </p>
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class SpooledContent implements Releasable {
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final String TEMP_PREFIX = "leviathan-";
+    private static final String TEMP_SUFFIX = ".spool";
+    /** where the spilled contents are enqueued once they are collected */
+    private static final ReferenceQueue<SpooledContent> COLLECTED =
+        new ReferenceQueue<SpooledContent>();
+    /** spool files not released yet (keeps their references reachable) */
+    private static final Set<SpoolReference> LIVE_FILES =
+        Collections.synchronizedSet(new HashSet<SpoolReference>());
+
+    static {
+        final Thread cleaner = new Thread("leviathan-spool-cleaner") {
+            @Override
+            public void run() {
+                while(true) {
+                    try {
+                        ((SpoolReference) COLLECTED.remove()).delete();
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        };
+        cleaner.setDaemon(true);
+        cleaner.start();
+        Runtime.getRuntime().addShutdownHook(new Thread("leviathan-spool-exit") {
+            @Override
+            public void run() {
+                synchronized (LIVE_FILES) {
+                    for(final SpoolReference ref : LIVE_FILES) {
+                        ref.file.delete();
+                    }
+                    LIVE_FILES.clear();
+                }
+            }
+        });
+    }
+
+    private final byte[] buffer;
+    private final File file;
+    private final SpoolReference reference;
+    private final long length;
+    private volatile boolean released = false;
+
+    /** Creates the SpooledContent. */
+    private SpooledContent(final byte[] buffer, final File file, final long length) {
+        this.buffer = buffer;
+        this.file = file;
+        this.length = length;
+        this.reference = file == null ? null : new SpoolReference(this, file);
+    }
+
+    /**
+     * Reads the stream until its end, buffering up to <code>threshold</code>
+     * bytes in memory. The stream is not closed.
+     *
+     * @param is        the content to spool
+     * @param threshold maximum number of bytes kept in memory
+     * @param directory where temporary files are created. <code>null</code>
+     *                  for the default temporary directory.
+     */
+    public static SpooledContent spool(final InputStream is, final int threshold,
+            final File directory) throws IOException {
+        Validate.notNull(is);
+        Validate.isTrue(threshold > 0, "threshold must be positive");
+
+        byte[] buf = new byte[Math.min(threshold, INITIAL_BUFFER_SIZE)];
+        int count = 0;
+        int n;
+        while((n = is.read(buf, count, buf.length - count)) != -1) {
+            count += n;
+            if(count == buf.length) {
+                if(buf.length == threshold) {
+                    final int next = is.read();
+                    if(next == -1) {
+                        break;
+                    }
+                    return spill(buf, count, next, is, directory);
+                }
+                buf = Arrays.copyOf(buf, (int) Math.min(threshold, 2L * buf.length));
+            }
+        }
+        return new SpooledContent(buf, null, count);
+    }
+
+    /** dumps the buffer and the rest of the stream to a temporary file */
+    private static SpooledContent spill(final byte[] buf, final int count,
+            final int next, final InputStream is, final File directory)
+            throws IOException {
+        final File file = File.createTempFile(TEMP_PREFIX, TEMP_SUFFIX, directory);
+        boolean ok = false;
+        final OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(buf, 0, count);
+            os.write(next);
+            final long rest = IOUtils.copyLarge(is, os);
+            ok = true;
+            return new SpooledContent(null, file, count + 1 + rest);
+        } finally {
+            IOUtils.closeQuietly(os);
+            if(!ok) {
+                file.delete();
+            }
+        }
+    }
+
+    /** @return <code>true</code> if the content lives in a temporary file */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /** @return the length of the content in bytes */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @return a new stream over the content, starting at <code>offset</code>.
+     * The caller is responsible for closing it.
+     * @throws IllegalStateException if the content was released
+     */
+    public InputStream openStream(final int offset) {
+        Validate.isTrue(offset >= 0 && offset <= length, "invalid offset");
+        if(released) {
+            throw new IllegalStateException("content was already released");
+        }
+
+        final InputStream ret;
+        if(file == null) {
+            ret = new ByteArrayInputStream(buffer, offset, (int) length - offset);
+        } else {
+            try {
+                final FileInputStream is = new FileInputStream(file);
+                if(offset > 0) {
+                    is.getChannel().position(offset);
+                }
+                ret = new SpoolInputStream(is, this);
+            } catch (final FileNotFoundException e) {
+                throw new IllegalStateException("spool file is gone: " + file, e);
+            } catch (final IOException e) {
+                throw new UnhandledException(e);
+            }
+        }
+        return ret;
+    }
+
+    /** @see Releasable#release() */
+    public void release() {
+        if(!released) {
+            released = true;
+            if(reference != null) {
+                reference.clear();
+                reference.delete();
+            }
+        }
+    }
+
+    /**
+     * Tracks a spilled content: once it is collected the reference is
+     * enqueued and its file deleted.
+     */
+    private static final class SpoolReference extends PhantomReference<SpooledContent> {
+        private final File file;
+
+        /** Creates the SpoolReference. */
+        public SpoolReference(final SpooledContent content, final File file) {
+            super(content, COLLECTED);
+            this.file = file;
+            LIVE_FILES.add(this);
+        }
+
+        /** deletes the file */
+        public void delete() {
+            file.delete();
+            LIVE_FILES.remove(this);
+        }
+    }
+
+    /**
+     * Stream over the spool file. It keeps the content reachable while it is
+     * being read, so the file is not deleted under the reader's feet.
+     */
+    private static final class SpoolInputStream extends BufferedInputStream {
+        @SuppressWarnings("unused")
+        private final SpooledContent owner;
+
+        /** Creates the SpoolInputStream. */
+        public SpoolInputStream(final InputStream in, final SpooledContent owner) {
+            super(in);
+            this.owner = owner;
+        }
+    }
+}
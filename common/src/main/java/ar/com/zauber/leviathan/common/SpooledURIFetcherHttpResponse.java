@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.UnhandledException;
+import org.apache.commons.lang.Validate;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import ar.com.zauber.leviathan.api.URIFetcherHttpResponse;
+
+/**
+ * {@link URIFetcherHttpResponse} backed by a {@link SpooledContent}. The body
+ * is never held twice (as bytes and as a decoded {@link String}): every call
+ * to {@link #getContent()} or {@link #getRawContent()} reads again from the
+ * spooled content.
+ * <p>
+ * The response should be {@link #release()}d once the processing finishes.
+ * {@link AbstractAsyncUriFetcher} implementations do it after the user closure
+ * runs. Synchronous callers that do not release it keep the temporary file
+ * until the response is garbage collected (or the JVM exits).
+ * </p>
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class SpooledURIFetcherHttpResponse implements URIFetcherHttpResponse,
+                                                      Releasable {
+    private final SpooledContent content;
+    private final int offset;
+    private final Charset charset;
+    private final int statusCode;
+    private final CompactHeaders headers;
+
+    /**
+     * Creates the SpooledURIFetcherHttpResponse.
+     *
+     * @param content    the body
+     * @param offset     number of bytes to skip from the start of the body
+     *                   (ie: a byte order mark)
+     * @param charset    charset used to decode the body
+     * @param statusCode http status code
+     * @param headers    response headers
+     */
+    public SpooledURIFetcherHttpResponse(final SpooledContent content,
+            final int offset, final Charset charset, final int statusCode,
+            final Map<String, List<String>> headers) {
+        this(content, offset, charset, statusCode, CompactHeaders.of(headers));
+    }
+
+    /**
+     * Creates the SpooledURIFetcherHttpResponse.
+     *
+     * @see #SpooledURIFetcherHttpResponse(SpooledContent, int, Charset, int, Map)
+     */
+    public SpooledURIFetcherHttpResponse(final SpooledContent content,
+            final int offset, final Charset charset, final int statusCode,
+            final CompactHeaders headers) {
+        Validate.notNull(content, "content is null");
+        Validate.notNull(charset, "charset is null");
+        Validate.notNull(headers);
+
+        this.content = content;
+        this.offset = offset;
+        this.charset = charset;
+        this.statusCode = statusCode;
+        this.headers = headers;
+    }
+
+    /** @see URIFetcherHttpResponse#getContent() */
+    public final Reader getContent() {
+        return new InputStreamReader(getRawContent(), charset);
+    }
+
+    /** @see URIFetcherHttpResponse#getContentAsString() */
+    public final String getContentAsString() {
+        final Reader reader = getContent();
+        try {
+            return IOUtils.toString(reader);
+        } catch (final IOException e) {
+            throw new UnhandledException("reading spooled content", e);
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    /** @see URIFetcherHttpResponse#getRawContent() */
+    public final InputStream getRawContent() {
+        return content.openStream(offset);
+    }
+
+    /** @see URIFetcherHttpResponse#getStatusCode() */
+    public final int getStatusCode() {
+        return statusCode;
+    }
+
+    /** @see URIFetcherHttpResponse#getHeader(String) */
+    public final String getHeader(final String name) {
+        return headers.getFirst(name);
+    }
+
+    /** @see URIFetcherHttpResponse#getHeaders(String) */
+    public final List<String> getHeaders(final String name) {
+        return headers.getAll(name);
+    }
+
+    /** @return all the headers */
+    public final CompactHeaders getHeaders() {
+        return headers;
+    }
+
+    /** @return the charset used to decode the content */
+    public final Charset getCharset() {
+        return charset;
+    }
+
+    /** @return the length of the body (without the skipped bytes) */
+    public final long getContentLength() {
+        return content.length() - offset;
+    }
+
+    /**
+     * @return an in-memory copy of the response that does not need to be
+     * released (ie: to store it in a cache)
+     */
+    public final InmutableURIFetcherHttpResponse toInmutable() {
+        final InputStream is = getRawContent();
+        try {
+            return new InmutableURIFetcherHttpResponse(IOUtils.toByteArray(is), 0,
+                    charset, statusCode, headers);
+        } catch (final IOException e) {
+            throw new UnhandledException("reading spooled content", e);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    /** @see Releasable#release() */
+    public final void release() {
+        content.release();
+    }
+
+    /** @see Object#toString() */
+    @Override
+    public final String toString() {
+        return new ToStringBuilder(this, ModelUtils.STYLE)
+        .append("status", statusCode)
+        .append("length", content.length())
+        .append("spilled", content.isSpilled())
+        .toString();
+    }
+}
@@ -0,0 +1,354 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+
+/**
+ * Per host circuit breaker. After <code>failureThreshold</code> consecutive
+ * failures the circuit of the host opens and its fetchs are not executed
+ * (see {@link FetchQueueAsyncUriFetcher#setCircuitBreaker(CircuitBreaker)}
+ * and {@link ar.com.zauber.leviathan.common.async.impl.CircuitBreakerJobQueue}).
+ * Once <code>openTimeout</code> expires the circuit is half open and a single
+ * probe request is let through: if it succeeds the circuit closes, if it
+ * fails the circuit opens again for twice the time (up to
+ * <code>maxOpenTimeout</code>).
+ *
+ * A failure is a request that could not be executed (ie: connect timeout)
+ * or, by default, a 5xx response. Only hosts with recent failures take
+ * memory.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class CircuitBreaker {
+    /** state of the circuit of a host */
+    public enum State {
+        /** requests are executed */
+        CLOSED,
+        /** requests are not executed */
+        OPEN,
+        /** a probe request is being executed */
+        HALF_OPEN
+    };
+
+    private final ConcurrentMap<String, Circuit> circuits =
+        new ConcurrentHashMap<String, Circuit>();
+    private final List<CircuitBreakerListener> listeners =
+        new CopyOnWriteArrayList<CircuitBreakerListener>();
+    private final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+    private final int failureThreshold;
+    private final long openTimeout;
+    private volatile long maxOpenTimeout = 300000;
+    private volatile boolean serverErrorFailure = true;
+    private volatile int maxHosts = 10000;
+
+    /** Creates the CircuitBreaker: 5 failures, open for 30 seconds */
+    public CircuitBreaker() {
+        this(5, 30000);
+    }
+
+    /**
+     * Creates the CircuitBreaker.
+     *
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param openTimeout      milliseconds before the first probe
+     */
+    public CircuitBreaker(final int failureThreshold, final long openTimeout) {
+        Validate.isTrue(failureThreshold > 0, "failureThreshold must be positive");
+        Validate.isTrue(openTimeout > 0, "openTimeout must be positive");
+
+        this.failureThreshold = failureThreshold;
+        this.openTimeout = openTimeout;
+    }
+
+    /**
+     * Asks for permission to fetch from the host. When the circuit is open
+     * and its timeout expired, the caller becomes the probe.
+     *
+     * @return <code>true</code> if the request can be executed
+     */
+    public final boolean tryAcquire(final String host) {
+        final Circuit c = circuits.get(host);
+        if(c == null) {
+            return true;
+        }
+        final boolean ret;
+        boolean changed = false;
+        synchronized (c) {
+            if(c.state == State.CLOSED) {
+                ret = true;
+            } else if(c.state == State.OPEN) {
+                ret = now() >= c.openUntil;
+                if(ret) {
+                    c.state = State.HALF_OPEN;
+                    c.probing = true;
+                    changed = true;
+                }
+            } else {
+                ret = !c.probing;
+                c.probing = true;
+            }
+        }
+        if(changed) {
+            fire(host, State.HALF_OPEN);
+        }
+        return ret;
+    }
+
+    /**
+     * Like {@link #tryAcquire(String)} but without side effects.
+     *
+     * @return <code>true</code> if a request to the host would be executed
+     */
+    public final boolean isCallPermitted(final String host) {
+        final Circuit c = circuits.get(host);
+        if(c == null) {
+            return true;
+        }
+        synchronized (c) {
+            return c.state == State.CLOSED
+                || c.state == State.OPEN && now() >= c.openUntil
+                || c.state == State.HALF_OPEN && !c.probing;
+        }
+    }
+
+    /** records the outcome of a request to the host */
+    public final void record(final String host, final URIFetcherResponse response) {
+        if(!response.isSucceeded()) {
+            final Throwable error = response.getError();
+            if(error instanceof CircuitOpenException) {
+                // it was never executed
+                return;
+            }
+            if(error instanceof CancellationException
+                    || error instanceof InterruptedException) {
+                // it says nothing about the host
+                release(host);
+                return;
+            }
+        }
+        if(isFailure(response)) {
+            onFailure(host);
+        } else {
+            onSuccess(host);
+        }
+    }
+
+    /**
+     * A request allowed by {@link #tryAcquire(String)} ended without an
+     * outcome (ie: it was cancelled, interrupted, or it blew up). If it was
+     * the probe of a half open circuit, the next request becomes the probe.
+     */
+    public final void release(final String host) {
+        final Circuit c = circuits.get(host);
+        if(c == null) {
+            return;
+        }
+        synchronized (c) {
+            if(c.state == State.HALF_OPEN) {
+                c.probing = false;
+            }
+        }
+    }
+
+    /** @return <code>true</code> if the response counts as a failure */
+    protected boolean isFailure(final URIFetcherResponse response) {
+        return !response.isSucceeded() || serverErrorFailure
+            && response.getHttpResponse().getStatusCode() >= 500;
+    }
+
+    /** a request to the host succeeded */
+    public final void onSuccess(final String host) {
+        final Circuit c = circuits.get(host);
+        if(c == null) {
+            return;
+        }
+        final State previous;
+        synchronized (c) {
+            previous = c.state;
+            if(previous == State.OPEN) {
+                // a request that started before the circuit opened
+                return;
+            }
+            c.state = State.CLOSED;
+            circuits.remove(host, c);
+        }
+        if(previous != State.CLOSED) {
+            fire(host, State.CLOSED);
+        }
+    }
+
+    /** a request to the host failed */
+    public final void onFailure(final String host) {
+        Circuit c = circuits.get(host);
+        if(c == null) {
+            if(circuits.size() >= maxHosts) {
+                purge();
+            }
+            c = new Circuit();
+            final Circuit previous = circuits.putIfAbsent(host, c);
+            if(previous != null) {
+                c = previous;
+            }
+        }
+        boolean opened = false;
+        synchronized (c) {
+            if(c.state == State.CLOSED) {
+                c.failures++;
+                if(c.failures >= failureThreshold) {
+                    open(c, openTimeout);
+                    opened = true;
+                }
+            } else if(c.state == State.HALF_OPEN) {
+                open(c, Math.min(c.timeout * 2, Math.max(openTimeout, maxOpenTimeout)));
+                opened = true;
+            }
+        }
+        if(opened) {
+            fire(host, State.OPEN);
+        }
+    }
+
+    /** opens the circuit. must hold its lock */
+    private void open(final Circuit c, final long timeout) {
+        c.state = State.OPEN;
+        c.timeout = timeout;
+        c.openUntil = now() + timeout;
+        c.probing = false;
+    }
+
+    /** forgets the closed circuits */
+    private void purge() {
+        for(final Iterator<Circuit> i = circuits.values().iterator(); i.hasNext();) {
+            final Circuit c = i.next();
+            synchronized (c) {
+                if(c.state == State.CLOSED) {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+    /** notifies the listeners */
+    private void fire(final String host, final State state) {
+        if(logger.isInfoEnabled()) {
+            logger.info("circuit of " + host + " is " + state);
+        }
+        for(final CircuitBreakerListener listener : listeners) {
+            try {
+                listener.stateChanged(host, state);
+            } catch(final Throwable t) {
+                logger.error("notifying " + listener, t);
+            }
+        }
+    }
+
+    /** @return the state of the circuit of the host */
+    public final State getState(final String host) {
+        final Circuit c = circuits.get(host);
+        if(c == null) {
+            return State.CLOSED;
+        }
+        synchronized (c) {
+            return c.state;
+        }
+    }
+
+    /**
+     * @return when (in milliseconds since the epoch) the probe of an open
+     *         circuit will be allowed, or 0 if the circuit is not open
+     */
+    public final long getRetryAt(final String host) {
+        final Circuit c = circuits.get(host);
+        if(c == null) {
+            return 0;
+        }
+        synchronized (c) {
+            return c.state == State.OPEN ? c.openUntil : 0;
+        }
+    }
+
+    /** @return the hosts whose circuit is not closed, and their state */
+    public final Map<String, State> getTrippedHosts() {
+        final Map<String, State> ret = new HashMap<String, State>();
+        for(final Entry<String, Circuit> entry : circuits.entrySet()) {
+            final Circuit c = entry.getValue();
+            synchronized (c) {
+                if(c.state != State.CLOSED) {
+                    ret.put(entry.getKey(), c.state);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /** registers a listener of state changes */
+    public final void addListener(final CircuitBreakerListener listener) {
+        Validate.notNull(listener);
+        listeners.add(listener);
+    }
+
+    /** removes a listener */
+    public final void removeListener(final CircuitBreakerListener listener) {
+        listeners.remove(listener);
+    }
+
+    /** @return current time in milliseconds */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    /** @param maxOpenTimeout maximum milliseconds that a circuit stays open */
+    public final void setMaxOpenTimeout(final long maxOpenTimeout) {
+        Validate.isTrue(maxOpenTimeout > 0);
+        this.maxOpenTimeout = maxOpenTimeout;
+    }
+
+    /** @param serverErrorFailure <code>true</code> if 5xx responses are failures */
+    public final void setServerErrorFailure(final boolean serverErrorFailure) {
+        this.serverErrorFailure = serverErrorFailure;
+    }
+
+    /** @param maxHosts number of hosts with failures to remember */
+    public final void setMaxHosts(final int maxHosts) {
+        Validate.isTrue(maxHosts > 0);
+        this.maxHosts = maxHosts;
+    }
+
+    /** circuit of a host (guarded by itself) */
+    private static final class Circuit {
+        private State state = State.CLOSED;
+        private int failures;
+        private long openUntil;
+        private long timeout;
+        private boolean probing;
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async;
+
+/**
+ * Notified when the circuit of a host changes its state.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public interface CircuitBreakerListener {
+
+    /** the circuit of the host is now in the given state */
+    void stateChanged(String host, CircuitBreaker.State state);
+}
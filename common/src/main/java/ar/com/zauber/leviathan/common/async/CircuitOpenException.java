@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async;
+
+/**
+ * The fetch was not executed because the circuit of its host is open (the
+ * host failed too many times in a row).
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ * @see CircuitBreaker
+ */
+public final class CircuitOpenException extends RuntimeException {
+
+    /** <code>serialVersionUID</code> */
+    private static final long serialVersionUID = 2715903486241872035L;
+
+    private final String host;
+
+    /** @param host the failing host */
+    public CircuitOpenException(final String host) {
+        super("circuit of " + host + " is open");
+        this.host = host;
+    }
+
+    /** @return the failing host */
+    public String getHost() {
+        return host;
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ar.com.zauber.commons.dao.Closure;
+import ar.com.zauber.leviathan.api.URIFetcherHttpResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.common.CtxDecorableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
+
+/**
+ * Remembers a 64 bit hash of the raw bodies of the successful (2xx)
+ * responses, so bodies that were already seen (mirrors, session id variants,
+ * print views) need not be processed again (see
+ * {@link FetchQueueAsyncUriFetcher#setDuplicateContentFilter(
+ * DuplicateContentFilter)}). The fetcher still hands the duplicates to the
+ * user closure, with {@link #KEY_DUPLICATE} in their context;
+ * {@link #routing(Closure, Closure)} sends them to a cheaper closure.
+ *
+ * The hashes of the last <code>maxEntries</code> distinct bodies are kept
+ * (least recently seen are forgotten first). Errors, other status codes and
+ * responses without raw content are never duplicates.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class DuplicateContentFilter {
+    /**
+     * Key for the context map of the responses whose body was already seen.
+     * It is bound to {@link Boolean#TRUE}.
+     */
+    public static final String KEY_DUPLICATE =
+        DuplicateContentFilter.class.getCanonicalName() + "-duplicate";
+    /** default number of remembered bodies */
+    public static final int DEFAULT_MAX_ENTRIES = 100000;
+    private static final int BUFFER_SIZE = 8192;
+    private static final long M = 0xc6a4a7935bd1e995L;
+    private static final int R = 47;
+    private static final long SEED = 0x9747b28cL;
+
+    private final Logger logger = LoggerFactory.getLogger(DuplicateContentFilter.class);
+    private final Map<Long, Boolean> seen;
+    private long checked;
+    private long duplicates;
+
+    /** Creates the DuplicateContentFilter. */
+    public DuplicateContentFilter() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates the DuplicateContentFilter.
+     *
+     * @param maxEntries how many distinct bodies are remembered
+     */
+    public DuplicateContentFilter(final int maxEntries) {
+        Validate.isTrue(maxEntries > 0, "maxEntries must be positive");
+        this.seen = new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Entry<Long, Boolean> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param response a fetched response
+     * @return <code>true</code> if its body was already seen. The body is
+     *         remembered otherwise.
+     */
+    public final boolean isDuplicate(final URIFetcherResponse response) {
+        Validate.notNull(response);
+        if(!response.isSucceeded()) {
+            return false;
+        }
+        final URIFetcherHttpResponse http = response.getHttpResponse();
+        final int status = http.getStatusCode();
+        if(status < 200 || status >= 300) {
+            return false;
+        }
+
+        final long hash;
+        InputStream is = null;
+        try {
+            is = http.getRawContent();
+            hash = hash(is);
+        } catch(final IllegalStateException e) {
+            // no raw content
+            return false;
+        } catch(final IOException e) {
+            logger.warn("hashing the content of " + response.getURI(), e);
+            return false;
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+
+        synchronized (seen) {
+            checked++;
+            if(seen.put(hash, Boolean.TRUE) != null) {
+                duplicates++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /** @return <code>response</code> with {@link #KEY_DUPLICATE} in its context */
+    public static URIFetcherResponse markDuplicate(final URIFetcherResponse response) {
+        Validate.notNull(response);
+        return new CtxDecorableURIFetcherResponse(response,
+                InmutableURIAndCtx.derive(response.getURIAndCtx(), response.getURI())
+                    .with(KEY_DUPLICATE, Boolean.TRUE));
+    }
+
+    /** @return <code>true</code> if the response was marked as a duplicate */
+    public static boolean isMarkedDuplicate(final URIFetcherResponse response) {
+        Validate.notNull(response);
+        final Map<String, Object> ctx = response.getURIAndCtx().getCtx();
+        return ctx != null && Boolean.TRUE.equals(ctx.get(KEY_DUPLICATE));
+    }
+
+    /**
+     * @return a closure that hands the responses marked as duplicates to
+     *         <code>onDuplicate</code> (ie: a closure that just records the
+     *         alias) and the rest to <code>closure</code>
+     */
+    public static Closure<URIFetcherResponse> routing(
+            final Closure<URIFetcherResponse> closure,
+            final Closure<URIFetcherResponse> onDuplicate) {
+        Validate.notNull(closure);
+        Validate.notNull(onDuplicate);
+        return new Closure<URIFetcherResponse>() {
+            public void execute(final URIFetcherResponse response) {
+                if(isMarkedDuplicate(response)) {
+                    onDuplicate.execute(response);
+                } else {
+                    closure.execute(response);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param in content (it is not closed)
+     * @return a 64 bit hash of the content (MurmurHash64A mixing; the length
+     *         is mixed at the end so the content can be streamed)
+     */
+    public static long hash(final InputStream in) throws IOException {
+        Validate.notNull(in);
+        final byte[] buf = new byte[BUFFER_SIZE];
+        long h = SEED;
+        long length = 0;
+        int n = 0;
+        int r;
+        while((r = in.read(buf, n, buf.length - n)) != -1) {
+            n += r;
+            length += r;
+            final int words = n & ~7;
+            for(int i = 0; i < words; i += 8) {
+                long k = (buf[i] & 0xffL)
+                    | (buf[i + 1] & 0xffL) << 8
+                    | (buf[i + 2] & 0xffL) << 16
+                    | (buf[i + 3] & 0xffL) << 24
+                    | (buf[i + 4] & 0xffL) << 32
+                    | (buf[i + 5] & 0xffL) << 40
+                    | (buf[i + 6] & 0xffL) << 48
+                    | (buf[i + 7] & 0xffL) << 56;
+                k *= M;
+                k ^= k >>> R;
+                k *= M;
+                h ^= k;
+                h *= M;
+            }
+            System.arraycopy(buf, words, buf, 0, n - words);
+            n -= words;
+        }
+        if(n > 0) {
+            for(int i = n - 1; i >= 0; i--) {
+                h ^= (buf[i] & 0xffL) << (8 * i);
+            }
+            h *= M;
+        }
+        h ^= length * M;
+        h ^= h >>> R;
+        h *= M;
+        h ^= h >>> R;
+        return h;
+    }
+
+    /** @return number of responses that were checked (2xx with a body) */
+    public final long getChecked() {
+        synchronized (seen) {
+            return checked;
+        }
+    }
+
+    /** @return number of responses that were duplicates */
+    public final long getDuplicates() {
+        synchronized (seen) {
+            return duplicates;
+        }
+    }
+
+    /** @return number of remembered bodies */
+    public final int size() {
+        synchronized (seen) {
+            return seen.size();
+        }
+    }
+
+    /** forgets every body */
+    public final void clear() {
+        synchronized (seen) {
+            seen.clear();
+        }
+    }
+}
@@ -31,6 +31,7 @@ import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
 import ar.com.zauber.leviathan.common.AbstractAsyncUriFetcher;
 import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
 import ar.com.zauber.leviathan.common.async.impl.DebugLoggerAsyncUriFetcherObserver;
+import ar.com.zauber.leviathan.common.robots.RobotsDisallowedException;
 
 /**
  * {@link AsyncUriFetcher} que utiliza dos colas (de tipo  {@link JobQueue}
@@ -127,6 +128,18 @@ public final class FetchQueueAsyncUriFetcher extends AbstractAsyncUriFetcher {
         new DebugLoggerAsyncUriFetcherObserver(
                 LoggerFactory.getLogger(FetchQueueAsyncUriFetcher.class));
     
+    private volatile CircuitBreaker circuitBreaker;
+    /** forwards the state changes of the breaker to the observer */
+    private final CircuitBreakerListener circuitListener = new CircuitBreakerListener() {
+        public void stateChanged(final String host, final CircuitBreaker.State state) {
+            final AsyncUriFetcherObserver o = observer;
+            if(o instanceof CircuitBreakerListener) {
+                ((CircuitBreakerListener) o).stateChanged(host, state);
+            }
+        }
+    };
+    private volatile DuplicateContentFilter duplicateFilter;
+    
     /** */
     public FetchQueueAsyncUriFetcher(
             final JobScheduler fetcherScheduler,
@@ -163,7 +176,7 @@ public final class FetchQueueAsyncUriFetcher extends AbstractAsyncUriFetcher {
         incrementActiveJobs();
          
         try {
-            fetcherQueue.add(new Job() {
+            fetcherQueue.add(new RejectableJob() {
                 /** @see Job#getUriAndCtx() */
                 public URIAndCtx getUriAndCtx() {
                     return methodCommand.getURIAndCtx();
@@ -173,66 +186,136 @@ public final class FetchQueueAsyncUriFetcher extends AbstractAsyncUriFetcher {
                     final URIAndCtx uriAndCtx = methodCommand.getURIAndCtx();
                     observer.beginFetch(uriAndCtx);
                     final long t1 = System.currentTimeMillis();
-                    final URIFetcherResponse rr = execute(methodCommand);
-                    final URIFetcherResponse r = rr;    
+                    final URIFetcherResponse r = fetch(methodCommand);
                     final long t2 = System.currentTimeMillis();
                     
                     observer.finishFetch(uriAndCtx, t2 - t1);
-                    try {
-                        processingQueue.add(new Job() {
-                            public void run() {
-                                Long t1 = null;
-                                try {
-                                    observer.beginProcessing(uriAndCtx);
-                                    t1 = System.currentTimeMillis();
-                                    closure.execute(r);
-                                } catch(final Throwable t) {
-                                    if(logger.isErrorEnabled()) {
-                                        logger.error("error while processing using "
-                                                + closure.toString() 
-                                                + " with URI: "
-                                                + uriAndCtx, t);
-                                    }
-                                } finally {
-                                    if(null == t1) {
-                                        //Shouldn't enter here, its very rare.
-                                        //This is because if it fails before the line
-                                        //t1 = System.currentTimeMillis() at the try,
-                                        //this will be null and then will fail calculating
-                                        //the time elapsed. Plus, will show trash data
-                                        t1 = System.currentTimeMillis();
-                                    }
-                                    long t2 = System.currentTimeMillis();
-                                    observer.finishProcessing(uriAndCtx, t2 - t1);
-                                    decrementActiveJobs();
-                                }
-                            }
-                            /** @see Job#getUriAndCtx() */
-                            public URIAndCtx getUriAndCtx() {
-                                return uriAndCtx;
-                            }
-                        });
-                    } catch (final Throwable e) {
-                        closure.execute(new InmutableURIFetcherResponse(
-                                uriAndCtx, e));
-                    }
+                    enqueueProcessing(uriAndCtx, isDuplicate(r)
+                        ? DuplicateContentFilter.markDuplicate(r) : r, closure);
                     // TODO notificar a la fetcherQueue que ya se 
                     // fetcheo el elemento. 
                 }
 
+                /** @see RejectableJob#reject(Throwable) */
+                public void reject(final Throwable cause) {
+                    final URIAndCtx uriAndCtx = methodCommand.getURIAndCtx();
+                    enqueueProcessing(uriAndCtx, new InmutableURIFetcherResponse(
+                            uriAndCtx, cause), closure);
+                }
             });
         } catch(final Throwable e) {
-            decrementActiveJobs();   
-            logger.error("error adding job to the fetch queue "
-                    + closure.toString() 
-                    + " with URI: "
-                    + methodCommand.getURIAndCtx().getURI(), e);
+            // rejected before being queued: the user gets the error
+            if(e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if(!(e instanceof RobotsDisallowedException)) {
+                logger.error("error adding job to the fetch queue "
+                        + closure.toString() 
+                        + " with URI: "
+                        + methodCommand.getURIAndCtx().getURI(), e);
+            }
+            try {
+                closure.execute(new InmutableURIFetcherResponse(
+                        methodCommand.getURIAndCtx(), e));
+            } finally {
+                decrementActiveJobs();
+            }
         }
         
         return this;
     }
 
 
+    /** hands the response to the processing queue */
+    private void enqueueProcessing(final URIAndCtx uriAndCtx,
+            final URIFetcherResponse r, final Closure<URIFetcherResponse> target) {
+        try {
+            processingQueue.add(new Job() {
+                public void run() {
+                    Long t1 = null;
+                    try {
+                        observer.beginProcessing(uriAndCtx);
+                        t1 = System.currentTimeMillis();
+                        target.execute(r);
+                    } catch(final Throwable t) {
+                        if(logger.isErrorEnabled()) {
+                            logger.error("error while processing using "
+                                    + target.toString() 
+                                    + " with URI: "
+                                    + uriAndCtx, t);
+                        }
+                    } finally {
+                        if(null == t1) {
+                            //Shouldn't enter here, its very rare.
+                            //This is because if it fails before the line
+                            //t1 = System.currentTimeMillis() at the try,
+                            //this will be null and then will fail calculating
+                            //the time elapsed. Plus, will show trash data
+                            t1 = System.currentTimeMillis();
+                        }
+                        long t2 = System.currentTimeMillis();
+                        release(r);
+                        observer.finishProcessing(uriAndCtx, t2 - t1);
+                        decrementActiveJobs();
+                    }
+                }
+                /** @see Job#getUriAndCtx() */
+                public URIAndCtx getUriAndCtx() {
+                    return uriAndCtx;
+                }
+            });
+        } catch (final Throwable e) {
+            release(r);
+            try {
+                target.execute(new InmutableURIFetcherResponse(uriAndCtx, e));
+            } finally {
+                decrementActiveJobs();
+            }
+        }
+    }
+
+    /** executes the task, unless the circuit of its host is open */
+    private URIFetcherResponse fetch(final FetchingTask task) {
+        final CircuitBreaker breaker = circuitBreaker;
+        final URIAndCtx uriAndCtx = task.getURIAndCtx();
+        final String host = uriAndCtx.getURI().getHost();
+        if(breaker == null || host == null) {
+            return execute(task);
+        }
+        if(!breaker.tryAcquire(host)) {
+            return new InmutableURIFetcherResponse(uriAndCtx, 
+                    new CircuitOpenException(host));
+        }
+        URIFetcherResponse r = null;
+        try {
+            r = execute(task);
+        } finally {
+            if(r == null) {
+                breaker.release(host);
+            } else {
+                breaker.record(host, r);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * @return <code>true</code> if the body of the response was already
+     *         processed (and a duplicate filter is set)
+     */
+    private boolean isDuplicate(final URIFetcherResponse r) {
+        final DuplicateContentFilter filter = duplicateFilter;
+        if(filter == null) {
+            return false;
+        }
+        try {
+            return filter.isDuplicate(r);
+        } catch(final Throwable t) {
+            logger.error("checking for duplicate content of " + r.getURI(), t);
+            return false;
+        }
+    }
+
     /** @see AsyncUriFetcher#shutdown() */
     public void shutdown() {
         // no aceptamos ms trabajos.
@@ -240,7 +323,16 @@ public final class FetchQueueAsyncUriFetcher extends AbstractAsyncUriFetcher {
         waitForTermination(inScheduler);
         processingQueue.shutdown();
         waitForTermination(outScheduler);
-        
+        removeCircuitListener();
+    }
+
+    /** stops listening to the circuit breaker */
+    private void removeCircuitListener() {
+        synchronized (circuitListener) {
+            if(circuitBreaker != null) {
+                circuitBreaker.removeListener(circuitListener);
+            }
+        }
     }
 
     /** @see AsyncUriFetcher#shutdownNow() */
@@ -252,6 +344,7 @@ public final class FetchQueueAsyncUriFetcher extends AbstractAsyncUriFetcher {
         
         inScheduler.interrupt();
         outScheduler.interrupt();
+        removeCircuitListener();
     }
     
     /** Sets the observer. <code>null</code> sets a internal. s*/
@@ -259,4 +352,40 @@ public final class FetchQueueAsyncUriFetcher extends AbstractAsyncUriFetcher {
         Validate.notNull(observer);
         this.observer = o;
     }
+    
+    /**
+     * Sets a circuit breaker: the fetchs to a host whose circuit is open 
+     * fail fast with a {@link CircuitOpenException}, and its state changes
+     * are notified to the observer if it is a {@link CircuitBreakerListener}.
+     * Replacing the breaker (or shutting down) stops listening to the
+     * previous one. To park those fetchs (instead of failing 
+     * them) the fetch queue must be a 
+     * {@link ar.com.zauber.leviathan.common.async.impl.CircuitBreakerJobQueue}
+     * that shares the breaker.
+     */
+    public void setCircuitBreaker(final CircuitBreaker breaker) {
+        Validate.notNull(breaker);
+        synchronized (circuitListener) {
+            final CircuitBreaker previous = circuitBreaker;
+            if(previous != null) {
+                previous.removeListener(circuitListener);
+            }
+            breaker.addListener(circuitListener);
+            this.circuitBreaker = breaker;
+        }
+    }
+
+    /**
+     * Sets a filter of duplicate content: once fetched, responses whose body
+     * was already seen are still processed by the closure given to
+     * {@link #scheduleFetch(FetchingTask, Closure)}, but marked with
+     * {@link DuplicateContentFilter#KEY_DUPLICATE} in their context (see
+     * {@link DuplicateContentFilter#routing(Closure, Closure)}).
+     *
+     * @param filter remembers the bodies
+     */
+    public void setDuplicateContentFilter(final DuplicateContentFilter filter) {
+        Validate.notNull(filter);
+        this.duplicateFilter = filter;
+    }
 }
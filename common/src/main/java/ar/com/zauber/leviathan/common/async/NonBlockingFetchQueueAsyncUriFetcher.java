@@ -0,0 +1,356 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async;
+
+import static ar.com.zauber.leviathan.common.async.ThreadUtils.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ar.com.zauber.commons.dao.Closure;
+import ar.com.zauber.leviathan.api.AsyncUriFetcher;
+import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.common.AbstractAsyncUriFetcher;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.async.impl.DebugLoggerAsyncUriFetcherObserver;
+import ar.com.zauber.leviathan.common.robots.RobotsDisallowedException;
+import ar.com.zauber.leviathan.common.utils.DirectExecutorService;
+
+/**
+ * {@link AsyncUriFetcher} for {@link NonBlockingFetchingTask}s. It has the
+ * same flow as {@link FetchQueueAsyncUriFetcher} (a fetch {@link JobQueue},
+ * usually a polite one, in front; and a processing {@link JobScheduler} that
+ * runs the user closures) but the fetch stage does not hold a thread while
+ * the request waits for the network: the fetch scheduler only starts the
+ * request and returns, and the response is enqueued for processing when the
+ * I/O layer completes it.
+ *
+ * <pre>
+ *  +-------+    +----------+   +---------+   +------------+   +----------+
+ *  | Fetch |    |  fetch   |   | I/O     |   | processing |   |processing|
+ *  | Queue |-->-| scheduler|->-| reactor |->-|    queue   |->-|scheduler |-->
+ *  +-------+    +----------+   +---------+   +------------+   +----------+
+ * </pre>
+ *
+ * <p>
+ * The number of requests in flight is bounded by <code>maxInFlight</code>;
+ * when the limit is reached the fetch scheduler stops consuming the fetch queue
+ * until some request completes.
+ * </p>
+ * <p>
+ * {@link FetchingTask}s that are not {@link NonBlockingFetchingTask}s are still
+ * accepted: they are executed (blocking) in the <code>blockingExecutor</code>.
+ * </p>
+ * <p>
+ * The processing queue is fed from the I/O threads, so it should not block on
+ * {@link JobQueue#add(Object)} (ie: an unbounded queue).
+ * </p>
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class NonBlockingFetchQueueAsyncUriFetcher extends AbstractAsyncUriFetcher {
+    private final JobQueue<Job> fetcherQueue;
+    private final JobQueue<Job> processingQueue;
+    private final JobScheduler fetcherScheduler;
+    private final JobScheduler processingScheduler;
+    private final ExecutorService blockingExecutor;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final Thread inScheduler;
+    private final Thread outScheduler;
+
+    private final Logger logger = LoggerFactory.getLogger(
+            NonBlockingFetchQueueAsyncUriFetcher.class);
+
+    private AsyncUriFetcherObserver observer =
+        new DebugLoggerAsyncUriFetcherObserver(
+                LoggerFactory.getLogger(NonBlockingFetchQueueAsyncUriFetcher.class));
+    private volatile CircuitBreaker circuitBreaker;
+    /** forwards the state changes of the breaker to the observer */
+    private final CircuitBreakerListener circuitListener = new CircuitBreakerListener() {
+        public void stateChanged(final String host, final CircuitBreaker.State state) {
+            final AsyncUriFetcherObserver o = observer;
+            if(o instanceof CircuitBreakerListener) {
+                ((CircuitBreakerListener) o).stateChanged(host, state);
+            }
+        }
+    };
+
+    /**
+     * Creates the NonBlockingFetchQueueAsyncUriFetcher.
+     *
+     * @param fetcherQueue queue of pending fetchs (ie: a polite one)
+     * @param processingScheduler where the user closures run
+     * @param blockingExecutor runs the tasks that are not
+     *        {@link NonBlockingFetchingTask}s
+     * @param maxInFlight maximum number of concurrent requests
+     */
+    public NonBlockingFetchQueueAsyncUriFetcher(
+            final JobQueue<Job> fetcherQueue,
+            final JobScheduler processingScheduler,
+            final ExecutorService blockingExecutor,
+            final int maxInFlight) {
+        Validate.notNull(fetcherQueue);
+        Validate.notNull(processingScheduler);
+        Validate.notNull(blockingExecutor);
+        Validate.isTrue(maxInFlight > 0, "maxInFlight must be positive");
+        Validate.isTrue(fetcherQueue != processingScheduler.getQueue(),
+                "fetch and processing can't share the same queue");
+
+        this.fetcherQueue = fetcherQueue;
+        this.processingQueue = processingScheduler.getQueue();
+        this.fetcherScheduler = new JobScheduler(fetcherQueue, new DirectExecutorService());
+        this.processingScheduler = processingScheduler;
+        this.blockingExecutor = blockingExecutor;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        inScheduler = new Thread(fetcherScheduler, "NonBlockingJobScheduler-IN");
+        outScheduler = new Thread(processingScheduler, "NonBlockingJobScheduler-OUT");
+
+        inScheduler.start();
+        outScheduler.start();
+    }
+
+    @Override
+    public AsyncUriFetcher scheduleFetch(final FetchingTask task,
+            final Closure<URIFetcherResponse> closure) {
+        Validate.notNull(task);
+        Validate.notNull(closure);
+
+        observer.newFetch(task.getURIAndCtx());
+        incrementActiveJobs();
+        try {
+            fetcherQueue.add(new RejectableJob() {
+                /** @see Job#getUriAndCtx() */
+                public URIAndCtx getUriAndCtx() {
+                    return task.getURIAndCtx();
+                }
+
+                /** starts the fetch. runs in the fetch scheduler thread */
+                public void run() {
+                    startFetch(task, closure);
+                }
+
+                /** @see RejectableJob#reject(Throwable) */
+                public void reject(final Throwable cause) {
+                    enqueueProcessing(task.getURIAndCtx(),
+                            new InmutableURIFetcherResponse(task.getURIAndCtx(), cause),
+                            closure);
+                }
+            });
+        } catch(final Throwable e) {
+            // rejected before being queued: the user gets the error
+            if(e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if(!(e instanceof RobotsDisallowedException)) {
+                logger.error("error adding job to the fetch queue "
+                        + closure.toString()
+                        + " with URI: "
+                        + task.getURIAndCtx().getURI(), e);
+            }
+            try {
+                closure.execute(new InmutableURIFetcherResponse(
+                        task.getURIAndCtx(), e));
+            } finally {
+                decrementActiveJobs();
+            }
+        }
+        return this;
+    }
+
+    /** starts the fetching of a task, without waiting for its response */
+    private void startFetch(final FetchingTask task,
+            final Closure<URIFetcherResponse> closure) {
+        final URIAndCtx uriAndCtx = task.getURIAndCtx();
+        final CircuitBreaker breaker = circuitBreaker;
+        final String host = uriAndCtx.getURI().getHost();
+        if(breaker != null && host != null && !breaker.tryAcquire(host)) {
+            enqueueProcessing(uriAndCtx, new InmutableURIFetcherResponse(uriAndCtx,
+                    new CircuitOpenException(host)), closure);
+            return;
+        }
+        try {
+            inFlight.acquire();
+        } catch (final InterruptedException e) {
+            if(breaker != null && host != null) {
+                breaker.release(host);
+            }
+            enqueueProcessing(uriAndCtx, new InmutableURIFetcherResponse(uriAndCtx, e),
+                    closure);
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        observer.beginFetch(uriAndCtx);
+        final long t1 = System.currentTimeMillis();
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final Closure<URIFetcherResponse> onFetched = new Closure<URIFetcherResponse>() {
+            public void execute(final URIFetcherResponse response) {
+                if(done.compareAndSet(false, true)) {
+                    inFlight.release();
+                    if(breaker != null && host != null) {
+                        breaker.record(host, response);
+                    }
+                    observer.finishFetch(uriAndCtx, System.currentTimeMillis() - t1);
+                    enqueueProcessing(uriAndCtx, response, closure);
+                } else {
+                    logger.warn("fetching task " + task
+                            + " completed more than once. Ignoring " + response);
+                }
+            }
+        };
+
+        try {
+            if(task instanceof NonBlockingFetchingTask) {
+                ((NonBlockingFetchingTask) task).executeAsync(onFetched);
+            } else {
+                blockingExecutor.execute(new Runnable() {
+                    public void run() {
+                        onFetched.execute(execute(task));
+                    }
+                });
+            }
+        } catch(final Throwable t) {
+            onFetched.execute(new InmutableURIFetcherResponse(uriAndCtx, t));
+        }
+    }
+
+    /** hands the response to the processing queue */
+    private void enqueueProcessing(final URIAndCtx uriAndCtx,
+            final URIFetcherResponse r, final Closure<URIFetcherResponse> closure) {
+        try {
+            processingQueue.add(new Job() {
+                public void run() {
+                    final long t1 = System.currentTimeMillis();
+                    try {
+                        observer.beginProcessing(uriAndCtx);
+                        closure.execute(r);
+                    } catch(final Throwable t) {
+                        if(logger.isErrorEnabled()) {
+                            logger.error("error while processing using "
+                                    + closure.toString()
+                                    + " with URI: "
+                                    + uriAndCtx, t);
+                        }
+                    } finally {
+                        release(r);
+                        observer.finishProcessing(uriAndCtx,
+                                System.currentTimeMillis() - t1);
+                        decrementActiveJobs();
+                    }
+                }
+                /** @see Job#getUriAndCtx() */
+                public URIAndCtx getUriAndCtx() {
+                    return uriAndCtx;
+                }
+            });
+        } catch (final Throwable e) {
+            release(r);
+            try {
+                closure.execute(new InmutableURIFetcherResponse(uriAndCtx, e));
+            } finally {
+                decrementActiveJobs();
+            }
+        }
+    }
+
+    /** @return number of requests that are waiting for the network */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /** @see AsyncUriFetcher#shutdown() */
+    public void shutdown() {
+        fetcherQueue.shutdown();
+        waitForTermination(inScheduler);
+
+        // wait for the requests that are still in flight
+        inFlight.acquireUninterruptibly(maxInFlight);
+        inFlight.release(maxInFlight);
+        blockingExecutor.shutdown();
+        try {
+            while(!blockingExecutor.awaitTermination(1000, TimeUnit.MILLISECONDS)) {
+                logger.debug("waiting for blocking fetchs");
+            }
+        } catch (final InterruptedException e) {
+            logger.warn("interrupted while shutting down");
+        }
+
+        processingQueue.shutdown();
+        waitForTermination(outScheduler);
+        removeCircuitListener();
+    }
+
+    /** stops listening to the circuit breaker */
+    private void removeCircuitListener() {
+        synchronized (circuitListener) {
+            if(circuitBreaker != null) {
+                circuitBreaker.removeListener(circuitListener);
+            }
+        }
+    }
+
+    /** @see AsyncUriFetcher#shutdownNow() */
+    public void shutdownNow() {
+        fetcherQueue.shutdown();
+        processingQueue.shutdown();
+        fetcherScheduler.shutdownNow();
+        processingScheduler.shutdownNow();
+        blockingExecutor.shutdownNow();
+
+        inScheduler.interrupt();
+        outScheduler.interrupt();
+        removeCircuitListener();
+    }
+
+    /**
+     * Sets a circuit breaker: the fetchs to a host whose circuit is open
+     * fail fast with a {@link CircuitOpenException}, and its state changes
+     * are notified to the observer if it is a {@link CircuitBreakerListener}.
+     * Replacing the breaker (or shutting down) stops listening to the
+     * previous one.
+     *
+     * @see FetchQueueAsyncUriFetcher#setCircuitBreaker(CircuitBreaker)
+     */
+    public void setCircuitBreaker(final CircuitBreaker breaker) {
+        Validate.notNull(breaker);
+        synchronized (circuitListener) {
+            final CircuitBreaker previous = circuitBreaker;
+            if(previous != null) {
+                previous.removeListener(circuitListener);
+            }
+            breaker.addListener(circuitListener);
+            this.circuitBreaker = breaker;
+        }
+    }
+
+    /** Sets the observer. */
+    public void setObserver(final AsyncUriFetcherObserver o) {
+        Validate.notNull(o);
+        this.observer = o;
+    }
+}
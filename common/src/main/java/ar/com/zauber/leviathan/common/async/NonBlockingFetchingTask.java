@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async;
+
+import ar.com.zauber.commons.dao.Closure;
+import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+
+/**
+ * A {@link FetchingTask} that is able to fetch without holding the calling
+ * thread while it waits for the network (ie: backed by an event-loop I/O
+ * client).
+ *
+ * {@link #execute()} still must work (blocking) so the task can be used with
+ * any {@link ar.com.zauber.leviathan.api.AsyncUriFetcher}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public interface NonBlockingFetchingTask extends FetchingTask {
+
+    /**
+     * Starts the fetching and returns immediately.
+     *
+     * @param closure called exactly once with the response (or the error).
+     *        It is usually called from an I/O thread, so it must not block.
+     *        The implementation must never throw: errors must be reported
+     *        through the closure.
+     */
+    void executeAsync(Closure<URIFetcherResponse> closure);
+}
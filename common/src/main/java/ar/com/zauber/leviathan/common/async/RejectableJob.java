@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async;
+
+/**
+ * {@link Job} that a {@link JobQueue} can still reject after
+ * {@link JobQueue#add(Object)} accepted it (ie: a queue that parks the job
+ * until it can decide, see
+ * {@link ar.com.zauber.leviathan.common.async.impl.RobotsJobQueue}).
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public interface RejectableJob extends Job {
+
+    /**
+     * The job will never run. Must not block.
+     *
+     * @param cause why it was rejected
+     */
+    void reject(Throwable cause);
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async.impl;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.lang.Validate;
+
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.common.async.Job;
+import ar.com.zauber.leviathan.common.async.JobQueue;
+import ar.com.zauber.leviathan.common.bandwidth.BandwidthLimiter;
+
+/**
+ * {@link JobQueue} decorator that binds a {@link BandwidthLimiter} to the
+ * thread that runs each job (see {@link BandwidthLimiter#current()}), so the
+ * fetchers pace the reading of the responses. Fetchers with their own
+ * limiter ignore it.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class BandwidthLimitedJobQueue implements JobQueue<Job> {
+    private final JobQueue<Job> target;
+    private final BandwidthLimiter limiter;
+
+    /**
+     * Creates the BandwidthLimitedJobQueue.
+     *
+     * @param target  queue that holds the jobs
+     * @param limiter limiter of the fetchs
+     */
+    public BandwidthLimitedJobQueue(final JobQueue<Job> target,
+            final BandwidthLimiter limiter) {
+        Validate.notNull(target);
+        Validate.notNull(limiter);
+
+        this.target = target;
+        this.limiter = limiter;
+    }
+
+    /** @see JobQueue#add(Object) */
+    public final void add(final Job fetchJob) throws RejectedExecutionException,
+            InterruptedException {
+        Validate.notNull(fetchJob);
+        target.add(new Job() {
+            public URIAndCtx getUriAndCtx() {
+                return fetchJob.getUriAndCtx();
+            }
+
+            public void run() {
+                final BandwidthLimiter previous = BandwidthLimiter.current();
+                BandwidthLimiter.bind(limiter);
+                try {
+                    fetchJob.run();
+                } finally {
+                    BandwidthLimiter.bind(previous);
+                }
+            }
+        });
+    }
+
+    /** @see JobQueue#poll() */
+    public final Job poll() throws InterruptedException {
+        return target.poll();
+    }
+
+    /** @see JobQueue#isEmpty() */
+    public final boolean isEmpty() {
+        return target.isEmpty();
+    }
+
+    /** @see JobQueue#shutdown() */
+    public final void shutdown() {
+        target.shutdown();
+    }
+
+    /** @see JobQueue#isShutdown() */
+    public final boolean isShutdown() {
+        return target.isShutdown();
+    }
+
+    /** @see JobQueue#size() */
+    public final int size() {
+        return target.size();
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ar.com.zauber.leviathan.common.async.CircuitBreaker;
+import ar.com.zauber.leviathan.common.async.CircuitBreakerListener;
+import ar.com.zauber.leviathan.common.async.Job;
+import ar.com.zauber.leviathan.common.async.JobQueue;
+
+/**
+ * {@link JobQueue} decorator that parks the jobs of the hosts whose circuit
+ * is open, instead of handing them to the fetch executor (where they would
+ * fail fast, see {@link
+ * ar.com.zauber.leviathan.common.async.FetchQueueAsyncUriFetcher#setCircuitBreaker(CircuitBreaker)}).
+ * Parked jobs do not use a thread: they are put back in the queue when the
+ * circuit allows a probe, and again when the circuit closes.
+ *
+ * On {@link #shutdown()} the parked jobs are put back, so they are delivered
+ * (and fail fast) instead of being lost.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class CircuitBreakerJobQueue implements JobQueue<Job>, CircuitBreakerListener {
+    private final JobQueue<Job> target;
+    private final CircuitBreaker breaker;
+    private final Timer timer;
+    private final boolean ownTimer;
+    private final Map<String, List<Job>> parked = new HashMap<String, List<Job>>();
+    private final Logger logger = LoggerFactory.getLogger(CircuitBreakerJobQueue.class);
+    private int parkedCount = 0;
+    private boolean shutdown = false;
+
+    /** Creates the CircuitBreakerJobQueue with its own timer */
+    public CircuitBreakerJobQueue(final JobQueue<Job> target,
+            final CircuitBreaker breaker) {
+        this(target, breaker, new Timer("CircuitBreakerJobQueue", true), true);
+    }
+
+    /**
+     * Creates the CircuitBreakerJobQueue.
+     *
+     * @param target  queue that holds the jobs
+     * @param breaker breaker shared with the fetcher
+     * @param timer   puts back the parked jobs
+     */
+    public CircuitBreakerJobQueue(final JobQueue<Job> target,
+            final CircuitBreaker breaker, final Timer timer) {
+        this(target, breaker, timer, false);
+    }
+
+    /** Creates the CircuitBreakerJobQueue. */
+    private CircuitBreakerJobQueue(final JobQueue<Job> target,
+            final CircuitBreaker breaker, final Timer timer, final boolean ownTimer) {
+        Validate.notNull(target);
+        Validate.notNull(breaker);
+        Validate.notNull(timer);
+
+        this.target = target;
+        this.breaker = breaker;
+        this.timer = timer;
+        this.ownTimer = ownTimer;
+        breaker.addListener(this);
+    }
+
+    /** @see JobQueue#add(Object) */
+    public final void add(final Job fetchJob) throws RejectedExecutionException,
+            InterruptedException {
+        synchronized (this) {
+            if(shutdown) {
+                throw new RejectedExecutionException(
+                        "We do not accept jobs, while shutting down");
+            }
+        }
+        target.add(fetchJob);
+    }
+
+    /** @see JobQueue#poll() */
+    public final Job poll() throws InterruptedException {
+        while(true) {
+            final Job job = target.poll();
+            final String host = job.getUriAndCtx().getURI().getHost();
+            if(host == null || breaker.isCallPermitted(host)) {
+                return job;
+            }
+            synchronized (this) {
+                if(shutdown) {
+                    return job;
+                }
+                List<Job> jobs = parked.get(host);
+                if(jobs == null) {
+                    jobs = new ArrayList<Job>();
+                    parked.put(host, jobs);
+                }
+                jobs.add(job);
+                parkedCount++;
+            }
+            // the circuit may have changed before the job was parked
+            if(breaker.isCallPermitted(host)) {
+                schedule(host, 0);
+            }
+        }
+    }
+
+    /** @see CircuitBreakerListener#stateChanged(String, CircuitBreaker.State) */
+    public final void stateChanged(final String host, final CircuitBreaker.State state) {
+        if(state == CircuitBreaker.State.OPEN) {
+            schedule(host, Math.max(0, breaker.getRetryAt(host)
+                    - System.currentTimeMillis()));
+        } else if(state == CircuitBreaker.State.CLOSED) {
+            schedule(host, 0);
+        }
+    }
+
+    /** puts back the parked jobs of the host after the delay */
+    private void schedule(final String host, final long delay) {
+        try {
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    unpark(host);
+                }
+            }, delay);
+        } catch(final IllegalStateException e) {
+            // timer cancelled
+            unpark(host);
+        }
+    }
+
+    /** puts back the parked jobs of the host */
+    private void unpark(final String host) {
+        final List<Job> jobs;
+        synchronized (this) {
+            jobs = parked.remove(host);
+            if(jobs == null) {
+                return;
+            }
+            parkedCount -= jobs.size();
+        }
+        requeue(jobs);
+    }
+
+    /** adds the jobs to the target queue */
+    private void requeue(final List<Job> jobs) {
+        for(final Job job : jobs) {
+            try {
+                target.add(job);
+            } catch(final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("interrupted while requeuing " + job.getUriAndCtx());
+            } catch(final RejectedExecutionException e) {
+                logger.error("lost parked job " + job.getUriAndCtx(), e);
+            }
+        }
+    }
+
+    /** @return number of parked jobs */
+    public final synchronized int getParked() {
+        return parkedCount;
+    }
+
+    /** @see JobQueue#isEmpty() */
+    public final boolean isEmpty() {
+        return getParked() == 0 && target.isEmpty();
+    }
+
+    /** @see JobQueue#shutdown() */
+    public final void shutdown() {
+        final List<Job> jobs = new ArrayList<Job>();
+        synchronized (this) {
+            shutdown = true;
+            for(final List<Job> l : parked.values()) {
+                jobs.addAll(l);
+            }
+            parked.clear();
+            parkedCount = 0;
+        }
+        requeue(jobs);
+        target.shutdown();
+        breaker.removeListener(this);
+        if(ownTimer) {
+            timer.cancel();
+        }
+    }
+
+    /** @see JobQueue#isShutdown() */
+    public final synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    /** @see JobQueue#size() */
+    public final int size() {
+        return getParked() + target.size();
+    }
+}
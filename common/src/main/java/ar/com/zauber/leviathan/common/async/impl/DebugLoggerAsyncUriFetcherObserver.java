@@ -21,6 +21,8 @@ import org.slf4j.Logger;
 import ar.com.zauber.leviathan.api.URIFetcherResponse;
 import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
 import ar.com.zauber.leviathan.common.async.AsyncUriFetcherObserver;
+import ar.com.zauber.leviathan.common.async.CircuitBreaker;
+import ar.com.zauber.leviathan.common.async.CircuitBreakerListener;
 
 /**
  * Muestra informacin  de debug
@@ -28,7 +30,8 @@ import ar.com.zauber.leviathan.common.async.AsyncUriFetcherObserver;
  * @author Juan F. Codagnone
  * @since Feb 27, 2010
  */
-public class DebugLoggerAsyncUriFetcherObserver implements AsyncUriFetcherObserver {
+public class DebugLoggerAsyncUriFetcherObserver implements AsyncUriFetcherObserver,
+        CircuitBreakerListener {
     private final Logger logger;
     // esto puede bloquear, asi que es por eso que se hizo todo el lock en
     // en incrementActiveJobs.
@@ -75,4 +78,12 @@ public class DebugLoggerAsyncUriFetcherObserver implements AsyncUriFetcherObserv
             logger.debug("Elapsed " + elapsed + "ms on " + uriAndCtx.getURI());
         }
     }
+
+    /** @see CircuitBreakerListener#stateChanged(String, CircuitBreaker.State) */
+    public final void stateChanged(final String host,
+            final CircuitBreaker.State state) {
+        if(isDebug) {
+            logger.debug("Circuit of " + host + " is " + state);
+        }
+    }
 }
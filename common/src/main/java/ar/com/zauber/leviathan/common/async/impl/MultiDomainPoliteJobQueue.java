@@ -55,6 +55,8 @@ public class MultiDomainPoliteJobQueue implements JobQueue<Job> {
     
     private final Set<String> excludedDomains = new HashSet<String>();
     private final long domainDelay;
+    private final ConcurrentMap<String, Long> domainDelays = 
+        new ConcurrentHashMap<String, Long>();
     
     /**
      * Creates the MultiDomainPoliteJobQueue.
@@ -116,12 +118,38 @@ public class MultiDomainPoliteJobQueue implements JobQueue<Job> {
                 || !this.lastPolls.containsKey(domain)) {
             nanoDelay = 0;
         } else {
-            nanoDelay = this.domainDelay 
+            nanoDelay = getDomainDelay(domain) 
                 - (System.nanoTime() - this.lastPolls.get(domain));
         }
         return nanoDelay;
     }
     
+    /** @return the delay (in nanoseconds) between requests to the domain */
+    private long getDomainDelay(final String domain) {
+        final Long delay = this.domainDelays.get(domain);
+        return delay == null ? this.domainDelay : delay;
+    }
+    
+    /**
+     * Overrides the delay between requests to a domain (ie: the 
+     * <code>Crawl-delay</code> of its robots.txt).
+     * 
+     * @param domain the domain
+     * @param delay  tiempo a esperar entre requests al domain. A negative 
+     *               value removes the override
+     * @param unit   Unidad de tiempo del delay
+     */
+    public final void setDomainDelay(final String domain, final long delay,
+            final TimeUnit unit) {
+        Validate.notNull(domain);
+        Validate.notNull(unit);
+        if(delay < 0) {
+            this.domainDelays.remove(domain);
+        } else {
+            this.domainDelays.put(domain, unit.toNanos(delay));
+        }
+    }
+    
     /** @see JobQueue#isEmpty() */
     public final boolean isEmpty() {
         return this.queue.isEmpty();
@@ -133,7 +161,7 @@ public class MultiDomainPoliteJobQueue implements JobQueue<Job> {
         Job fetchJob = null;
 
         while (!hasJob) {
-            long minDelay = this.domainDelay;
+            long minDelay = Long.MAX_VALUE;
             final int queueSize = this.queue.size();
             
             for (int i = 0; i < queueSize; i++) {
@@ -157,6 +185,9 @@ public class MultiDomainPoliteJobQueue implements JobQueue<Job> {
             }
             
             if (!hasJob) {
+                if (minDelay == Long.MAX_VALUE) {
+                    minDelay = this.domainDelay;
+                }
                 if (queueSize == 0 && this.isShutdown()) {
                     throw new InterruptedException("queue is shutdown");
                 } else {
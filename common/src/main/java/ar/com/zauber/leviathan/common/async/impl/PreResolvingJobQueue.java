@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async.impl;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.lang.Validate;
+
+import ar.com.zauber.leviathan.common.async.Job;
+import ar.com.zauber.leviathan.common.async.JobQueue;
+import ar.com.zauber.leviathan.common.dns.CachingHostResolver;
+
+/**
+ * {@link JobQueue} decorator that starts resolving the host of the jobs when
+ * they are queued, so that the address is already cached when the job is
+ * delivered (ie: once the delay of a {@link MultiDomainPoliteJobQueue}
+ * expires). The fetchers must use the same {@link CachingHostResolver}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class PreResolvingJobQueue implements JobQueue<Job> {
+    private final JobQueue<Job> target;
+    private final CachingHostResolver resolver;
+
+    /**
+     * Creates the PreResolvingJobQueue.
+     *
+     * @param target   queue that holds the jobs
+     * @param resolver resolver shared with the fetchers
+     */
+    public PreResolvingJobQueue(final JobQueue<Job> target,
+            final CachingHostResolver resolver) {
+        Validate.notNull(target);
+        Validate.notNull(resolver);
+
+        this.target = target;
+        this.resolver = resolver;
+    }
+
+    /** @see JobQueue#add(Object) */
+    public final void add(final Job fetchJob) throws RejectedExecutionException,
+            InterruptedException {
+        target.add(fetchJob);
+        resolver.prefetch(fetchJob.getUriAndCtx().getURI().getHost());
+    }
+
+    /** @see JobQueue#poll() */
+    public final Job poll() throws InterruptedException {
+        return target.poll();
+    }
+
+    /** @see JobQueue#isEmpty() */
+    public final boolean isEmpty() {
+        return target.isEmpty();
+    }
+
+    /** @see JobQueue#shutdown() */
+    public final void shutdown() {
+        target.shutdown();
+    }
+
+    /** @see JobQueue#isShutdown() */
+    public final boolean isShutdown() {
+        return target.isShutdown();
+    }
+
+    /** @see JobQueue#size() */
+    public final int size() {
+        return target.size();
+    }
+}
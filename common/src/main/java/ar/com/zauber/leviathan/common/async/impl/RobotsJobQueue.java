@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async.impl;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
+import ar.com.zauber.leviathan.common.async.Job;
+import ar.com.zauber.leviathan.common.async.JobQueue;
+import ar.com.zauber.leviathan.common.async.RejectableJob;
+import ar.com.zauber.leviathan.common.robots.RobotsDisallowedException;
+import ar.com.zauber.leviathan.common.robots.RobotsPolicy;
+import ar.com.zauber.leviathan.common.robots.RobotsRules;
+
+/**
+ * {@link JobQueue} decorator that rejects (with a
+ * {@link RobotsDisallowedException}) the jobs that the robots.txt of their
+ * site does not allow. The <code>Crawl-delay</code> of the site (up to
+ * <code>maxCrawlDelay</code>) becomes its delay in the
+ * {@link MultiDomainPoliteJobQueue}.
+ *
+ * {@link #add(Job)} never waits for the network: when the rules of the site
+ * are known the job is queued (or rejected) right away. Otherwise the job is
+ * parked and a job that fetches the robots.txt is queued in its place, so the
+ * fetch waits its turn (and the per domain delay) like any other job and is
+ * executed by the fetch workers. Once the rules are ready the parked jobs of
+ * the site are queued, or rejected through {@link RejectableJob#reject(
+ * Throwable)}; parked jobs that are not {@link RejectableJob}s are dropped.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class RobotsJobQueue implements JobQueue<Job> {
+    private final JobQueue<Job> target;
+    private final RobotsPolicy robots;
+    private final MultiDomainPoliteJobQueue politeQueue;
+    /** jobs waiting for the rules of their site, by robots.txt (guarded by itself) */
+    private final Map<URI, List<Job>> parked = new HashMap<URI, List<Job>>();
+    private final Logger logger = LoggerFactory.getLogger(RobotsJobQueue.class);
+    private int parkedJobs = 0;
+    private volatile long maxCrawlDelay = 60000;
+
+    /** Creates the RobotsJobQueue (the Crawl-delay is ignored) */
+    public RobotsJobQueue(final JobQueue<Job> target, final RobotsPolicy robots) {
+        this(target, robots, null);
+    }
+
+    /**
+     * Creates the RobotsJobQueue.
+     *
+     * @param target      queue that holds the jobs
+     * @param robots      the robots.txt rules
+     * @param politeQueue the queue whose per domain delay follows the
+     *                    <code>Crawl-delay</code> (usually <code>target</code>
+     *                    or the queue it decorates). May be null
+     */
+    public RobotsJobQueue(final JobQueue<Job> target, final RobotsPolicy robots,
+            final MultiDomainPoliteJobQueue politeQueue) {
+        Validate.notNull(target);
+        Validate.notNull(robots);
+
+        this.target = target;
+        this.robots = robots;
+        this.politeQueue = politeQueue;
+    }
+
+    /**
+     * @see JobQueue#add(Object)
+     * @throws RobotsDisallowedException if the (known) rules of the site
+     *         don't allow the job
+     */
+    public final void add(final Job fetchJob) throws RejectedExecutionException,
+            InterruptedException {
+        Validate.notNull(fetchJob, "null jobs are not accepted");
+        if(isShutdown()) {
+            throw new RejectedExecutionException(
+                    "We do not accept jobs, while shutting down");
+        }
+        final URI uri = fetchJob.getUriAndCtx().getURI();
+        final RobotsRules rules = robots.getCachedRules(uri);
+        if(rules != null) {
+            if(!rules.isAllowed(uri)) {
+                throw new RobotsDisallowedException(uri);
+            }
+            enqueue(fetchJob, rules);
+            return;
+        }
+
+        final URI robotsURI = RobotsPolicy.getRobotsURI(uri);
+        final boolean first;
+        synchronized (parked) {
+            List<Job> jobs = parked.get(robotsURI);
+            first = jobs == null;
+            if(first) {
+                jobs = new ArrayList<Job>();
+                parked.put(robotsURI, jobs);
+            }
+            jobs.add(fetchJob);
+            parkedJobs++;
+        }
+        if(first) {
+            try {
+                target.add(new RulesJob(robotsURI));
+            } catch(final RejectedExecutionException e) {
+                release(robotsURI, null, e);
+            } catch(final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                release(robotsURI, null, e);
+            } catch(final RuntimeException e) {
+                release(robotsURI, null, e);
+            }
+        }
+    }
+
+    /** queues an allowed job, applying the Crawl-delay */
+    private void enqueue(final Job fetchJob, final RobotsRules rules)
+            throws InterruptedException {
+        final URI uri = fetchJob.getUriAndCtx().getURI();
+        if(politeQueue != null && rules.getCrawlDelay() >= 0 && uri.getHost() != null) {
+            politeQueue.setDomainDelay(uri.getHost(),
+                    Math.min(rules.getCrawlDelay(), maxCrawlDelay),
+                    TimeUnit.MILLISECONDS);
+        }
+        target.add(fetchJob);
+    }
+
+    /**
+     * the rules of a site are ready (or they could not be obtained): queues
+     * or rejects its parked jobs
+     *
+     * @param rules the rules, or <code>null</code> if there was an error
+     * @param error why the rules are <code>null</code>
+     */
+    private void release(final URI robotsURI, final RobotsRules rules,
+            final Throwable error) {
+        final List<Job> jobs;
+        synchronized (parked) {
+            jobs = parked.remove(robotsURI);
+            if(jobs == null) {
+                return;
+            }
+            parkedJobs -= jobs.size();
+        }
+        for(final Job job : jobs) {
+            final URI uri = job.getUriAndCtx().getURI();
+            if(rules == null) {
+                reject(job, error);
+            } else if(!rules.isAllowed(uri)) {
+                reject(job, new RobotsDisallowedException(uri));
+            } else {
+                try {
+                    enqueue(job, rules);
+                } catch(final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    reject(job, e);
+                } catch(final RuntimeException e) {
+                    reject(job, e);
+                }
+            }
+        }
+    }
+
+    /** the job won't run */
+    private void reject(final Job job, final Throwable cause) {
+        if(job instanceof RejectableJob) {
+            ((RejectableJob) job).reject(cause);
+        } else {
+            logger.warn("dropping " + job.getUriAndCtx().getURI() + ": " + cause);
+        }
+    }
+
+    /** @param maxCrawlDelay maximum delay (milliseconds) honored */
+    public final void setMaxCrawlDelay(final long maxCrawlDelay) {
+        Validate.isTrue(maxCrawlDelay >= 0);
+        this.maxCrawlDelay = maxCrawlDelay;
+    }
+
+    /** @see JobQueue#poll() */
+    public final Job poll() throws InterruptedException {
+        return target.poll();
+    }
+
+    /** @see JobQueue#isEmpty() */
+    public final boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** @see JobQueue#shutdown() */
+    public final void shutdown() {
+        target.shutdown();
+    }
+
+    /** @see JobQueue#isShutdown() */
+    public final boolean isShutdown() {
+        return target.isShutdown();
+    }
+
+    /** @see JobQueue#size() */
+    public final int size() {
+        synchronized (parked) {
+            return target.size() + parkedJobs;
+        }
+    }
+
+    /** fetches the robots.txt of a site, and releases its parked jobs */
+    private final class RulesJob implements Job {
+        private final URIAndCtx robotsURI;
+
+        /** Creates the RulesJob. */
+        public RulesJob(final URI robotsURI) {
+            this.robotsURI = new InmutableURIAndCtx(robotsURI);
+        }
+
+        /** @see Job#getUriAndCtx() */
+        public URIAndCtx getUriAndCtx() {
+            return robotsURI;
+        }
+
+        /** @see Runnable#run() */
+        public void run() {
+            final URI uri = robotsURI.getURI();
+            RobotsRules rules = null;
+            Throwable error = null;
+            try {
+                rules = robots.getRules(uri);
+            } catch(final Throwable t) {
+                logger.warn("reading " + uri, t);
+                error = t;
+            } finally {
+                release(uri, rules, error);
+            }
+        }
+
+        /** @see Object#toString() */
+        @Override
+        public String toString() {
+            return robotsURI.getURI().toString();
+        }
+    }
+}
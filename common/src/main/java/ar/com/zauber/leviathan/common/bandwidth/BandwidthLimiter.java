@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.bandwidth;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Limits the bytes per second read from each host and from all of them
+ * (token buckets). The readers call {@link #acquire(String, int)} after
+ * every (small) read, so throughput is smooth instead of bursty (see
+ * {@link ar.com.zauber.leviathan.common.utils.ThrottledInputStream}).
+ *
+ * A limiter can be bound to the current thread (see
+ * {@link ar.com.zauber.leviathan.common.async.impl.BandwidthLimitedJobQueue}),
+ * for the fetchers that do not have one configured.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class BandwidthLimiter {
+    private static final ThreadLocal<BandwidthLimiter> CURRENT =
+        new ThreadLocal<BandwidthLimiter>();
+
+    private final TokenBucket global;
+    private final long perHostBytesPerSecond;
+    private final ConcurrentMap<String, TokenBucket> hosts =
+        new ConcurrentHashMap<String, TokenBucket>();
+    private final Map<String, Long> hostLimits = new ConcurrentHashMap<String, Long>();
+    private volatile long burstMillis = 100;
+    private volatile int maxHosts = 10000;
+
+    /**
+     * Creates the BandwidthLimiter.
+     *
+     * @param perHostBytesPerSecond limit of each host. Less or equal than
+     *                              zero means unlimited
+     * @param globalBytesPerSecond  limit of all the hosts. Less or equal than
+     *                              zero means unlimited
+     */
+    public BandwidthLimiter(final long perHostBytesPerSecond,
+            final long globalBytesPerSecond) {
+        this.perHostBytesPerSecond = perHostBytesPerSecond;
+        this.global = globalBytesPerSecond > 0
+                ? new TokenBucket(globalBytesPerSecond, burst(globalBytesPerSecond))
+                : null;
+    }
+
+    /**
+     * Waits until the bytes read from the host are allowed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public final void acquire(final String host, final int bytes)
+            throws InterruptedException {
+        long wait = global == null ? 0 : global.reserve(bytes);
+        final TokenBucket bucket = host == null ? null : getBucket(host);
+        if(bucket != null) {
+            wait = Math.max(wait, bucket.reserve(bytes));
+        }
+        if(wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /** @return the bucket of the host, or null if it is unlimited */
+    private TokenBucket getBucket(final String host) {
+        TokenBucket ret = hosts.get(host);
+        if(ret == null) {
+            final Long limit = hostLimits.get(host);
+            final long rate = limit == null ? perHostBytesPerSecond : limit;
+            if(rate <= 0) {
+                return null;
+            }
+            if(hosts.size() >= maxHosts) {
+                purge();
+            }
+            ret = new TokenBucket(rate, burst(rate));
+            final TokenBucket previous = hosts.putIfAbsent(host, ret);
+            if(previous != null) {
+                ret = previous;
+            }
+        }
+        return ret;
+    }
+
+    /** forgets the idle buckets */
+    private void purge() {
+        for(final Iterator<TokenBucket> i = hosts.values().iterator(); i.hasNext();) {
+            if(i.next().isFull()) {
+                i.remove();
+            }
+        }
+    }
+
+    /** @return the burst (bytes) allowed for the rate */
+    private long burst(final long bytesPerSecond) {
+        return Math.max(1, bytesPerSecond * burstMillis / 1000);
+    }
+
+    /**
+     * Overrides the limit of a host (ie: a partner that caps bandwidth).
+     *
+     * @param bytesPerSecond less or equal than zero means unlimited
+     */
+    public final void setHostLimit(final String host, final long bytesPerSecond) {
+        Validate.notEmpty(host);
+        hostLimits.put(host, bytesPerSecond);
+        hosts.remove(host);
+    }
+
+    /**
+     * @param burstMillis the buckets hold this many milliseconds of traffic
+     *                    (default 100). Applies to new buckets
+     */
+    public final void setBurstMillis(final long burstMillis) {
+        Validate.isTrue(burstMillis > 0);
+        this.burstMillis = burstMillis;
+    }
+
+    /** @param maxHosts number of host buckets kept */
+    public final void setMaxHosts(final int maxHosts) {
+        Validate.isTrue(maxHosts > 0);
+        this.maxHosts = maxHosts;
+    }
+
+    /** binds a limiter to the current thread (null unbinds) */
+    public static void bind(final BandwidthLimiter limiter) {
+        if(limiter == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(limiter);
+        }
+    }
+
+    /** @return the limiter bound to the current thread, or null */
+    public static BandwidthLimiter current() {
+        return CURRENT.get();
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.bandwidth;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Token bucket of bytes. A reservation is always granted, but it may leave
+ * the bucket in debt: the caller must wait the returned time before using
+ * the bytes. This way the reservations are served in order and big reads
+ * are not starved by small ones.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class TokenBucket {
+    private final long bytesPerSecond;
+    private final long capacity;
+    private double tokens;
+    private long last;
+
+    /**
+     * Creates the TokenBucket.
+     *
+     * @param bytesPerSecond the rate
+     * @param capacity       maximum burst in bytes
+     */
+    public TokenBucket(final long bytesPerSecond, final long capacity) {
+        Validate.isTrue(bytesPerSecond > 0, "bytesPerSecond must be positive");
+        Validate.isTrue(capacity > 0, "capacity must be positive");
+
+        this.bytesPerSecond = bytesPerSecond;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.last = System.nanoTime();
+    }
+
+    /**
+     * Reserves bytes.
+     *
+     * @param bytes number of bytes
+     * @return nanoseconds to wait before using them (0 if they are available)
+     */
+    public synchronized long reserve(final long bytes) {
+        refill();
+        tokens -= bytes;
+        return tokens >= 0 ? 0
+                : (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+    }
+
+    /** @return <code>true</code> if the bucket is full (it is idle) */
+    public synchronized boolean isFull() {
+        refill();
+        return tokens >= capacity;
+    }
+
+    /** adds the tokens of the elapsed time */
+    private void refill() {
+        final long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens
+                + (double) (now - last) * bytesPerSecond / TimeUnit.SECONDS.toNanos(1));
+        last = now;
+    }
+
+    /** @return the rate */
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.UnhandledException;
+import org.apache.commons.lang.Validate;
+
+/**
+ * {@link HostResolver} that caches the answers of another resolver: resolved
+ * hosts for {@link #setPositiveTtl(long)} milliseconds and unknown hosts for
+ * {@link #setNegativeTtl(long)} milliseconds. Concurrent lookups of the same
+ * host are made only once.
+ *
+ * {@link #prefetch(String)} resolves a host in background (ie: when a job is
+ * queued) so that the answer is ready when the fetcher connects. The
+ * instance is meant to be shared by all the fetchers.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class CachingHostResolver implements HostResolver {
+    private final HostResolver target;
+    private final Executor executor;
+    private final ConcurrentMap<String, Lookup> cache =
+        new ConcurrentHashMap<String, Lookup>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong prefetches = new AtomicLong();
+
+    private volatile long positiveTtl = 300000;
+    private volatile long negativeTtl = 30000;
+    private volatile long refreshAhead = 30000;
+    private volatile int maxEntries = 10000;
+
+    /**
+     * Creates the CachingHostResolver.
+     *
+     * @param target   resolver that makes the lookups
+     * @param executor where prefetches are run
+     */
+    public CachingHostResolver(final HostResolver target, final Executor executor) {
+        Validate.notNull(target);
+        Validate.notNull(executor);
+
+        this.target = target;
+        this.executor = executor;
+    }
+
+    /** @see HostResolver#resolve(String) */
+    public final InetAddress[] resolve(final String host)
+            throws UnknownHostException {
+        Validate.notEmpty(host);
+        final String key = host.toLowerCase();
+
+        Lookup lookup = cache.get(key);
+        if(lookup == null || lookup.isExpired(System.currentTimeMillis())) {
+            final Lookup fresh = new Lookup(key);
+            if(replace(key, lookup, fresh)) {
+                misses.incrementAndGet();
+                fresh.run();
+                lookup = fresh;
+            } else {
+                // someone else started the lookup
+                lookup = cache.get(key);
+                if(lookup == null) {
+                    return resolve(host);
+                }
+                hits.incrementAndGet();
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        return lookup.getAddresses();
+    }
+
+    /**
+     * Starts resolving the host in background, unless there is a lookup in
+     * flight or a cached answer that won't expire in the next
+     * {@link #setRefreshAhead(long)} milliseconds.
+     *
+     * @param host host to resolve. <code>null</code> is ignored.
+     */
+    public final void prefetch(final String host) {
+        if(host == null || host.length() == 0) {
+            return;
+        }
+        final String key = host.toLowerCase();
+        final Lookup lookup = cache.get(key);
+        if(lookup == null
+           || lookup.isExpired(System.currentTimeMillis() + refreshAhead)) {
+            final Lookup fresh = new Lookup(key);
+            if(replace(key, lookup, fresh)) {
+                prefetches.incrementAndGet();
+                try {
+                    executor.execute(fresh);
+                } catch(final RejectedExecutionException e) {
+                    cache.remove(key, fresh);
+                    fresh.cancel(false);
+                }
+            }
+        }
+    }
+
+    /** @return number of lookups served from the cache */
+    public final long getHits() {
+        return hits.get();
+    }
+
+    /** @return number of lookups that had to wait for the target resolver */
+    public final long getMisses() {
+        return misses.get();
+    }
+
+    /** @return number of background lookups started */
+    public final long getPrefetches() {
+        return prefetches.get();
+    }
+
+    /** @return number of cached hosts (including lookups in flight) */
+    public final int size() {
+        return cache.size();
+    }
+
+    /** forgets all the cached answers */
+    public final void clear() {
+        cache.clear();
+    }
+
+    /** @param positiveTtl milliseconds that a resolved host is cached */
+    public final void setPositiveTtl(final long positiveTtl) {
+        Validate.isTrue(positiveTtl >= 0);
+        this.positiveTtl = positiveTtl;
+    }
+
+    /** @param negativeTtl milliseconds that an unknown host is cached */
+    public final void setNegativeTtl(final long negativeTtl) {
+        Validate.isTrue(negativeTtl >= 0);
+        this.negativeTtl = negativeTtl;
+    }
+
+    /**
+     * @param refreshAhead {@link #prefetch(String)} resolves again cached
+     *        hosts that expire within this many milliseconds
+     */
+    public final void setRefreshAhead(final long refreshAhead) {
+        Validate.isTrue(refreshAhead >= 0);
+        this.refreshAhead = refreshAhead;
+    }
+
+    /** @param maxEntries maximum number of cached hosts */
+    public final void setMaxEntries(final int maxEntries) {
+        Validate.isTrue(maxEntries > 0);
+        this.maxEntries = maxEntries;
+    }
+
+    /** puts <code>fresh</code> in place of <code>old</code> */
+    private boolean replace(final String key, final Lookup old, final Lookup fresh) {
+        final boolean ret = old == null ? cache.putIfAbsent(key, fresh) == null
+                                        : cache.replace(key, old, fresh);
+        if(ret && cache.size() > maxEntries) {
+            evict();
+        }
+        return ret;
+    }
+
+    /** drops expired answers, and if that is not enough, any answer */
+    private void evict() {
+        final long now = System.currentTimeMillis();
+        for(final Iterator<Entry<String, Lookup>> i = cache.entrySet().iterator();
+                i.hasNext();) {
+            if(i.next().getValue().isExpired(now)) {
+                i.remove();
+            }
+        }
+        for(final Iterator<Entry<String, Lookup>> i = cache.entrySet().iterator();
+                cache.size() > maxEntries && i.hasNext();) {
+            if(i.next().getValue().isDone()) {
+                i.remove();
+            }
+        }
+    }
+
+    /** a lookup of a host (in flight or done) */
+    private final class Lookup extends FutureTask<InetAddress[]> {
+        /** while in flight a lookup never expires */
+        private volatile long expires = Long.MAX_VALUE;
+
+        /** Creates the Lookup. */
+        public Lookup(final String host) {
+            super(new Callable<InetAddress[]>() {
+                public InetAddress[] call() throws Exception {
+                    return target.resolve(host);
+                }
+            });
+        }
+
+        /*
+         * the expiration is set before the result is published: get() may
+         * return before done() runs
+         */
+        @Override
+        protected void set(final InetAddress[] addresses) {
+            expires = System.currentTimeMillis() + positiveTtl;
+            super.set(addresses);
+        }
+
+        @Override
+        protected void setException(final Throwable t) {
+            final long now = System.currentTimeMillis();
+            expires = t instanceof UnknownHostException ? now + negativeTtl : now;
+            super.setException(t);
+        }
+
+        @Override
+        protected void done() {
+            if(isCancelled()) {
+                expires = System.currentTimeMillis();
+            }
+        }
+
+        /** @return <code>true</code> if the answer is not valid at time */
+        public boolean isExpired(final long time) {
+            return time >= expires;
+        }
+
+        /** @return the resolved addresses */
+        public InetAddress[] getAddresses() throws UnknownHostException {
+            try {
+                return get().clone();
+            } catch(final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UnknownHostException("interrupted while resolving");
+            } catch(final ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if(cause instanceof UnknownHostException) {
+                    // the cached exception is shared: each caller gets its own
+                    final UnknownHostException ex =
+                        new UnknownHostException(cause.getMessage());
+                    ex.initCause(cause);
+                    throw ex;
+                } else if(cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if(cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new UnhandledException("resolving host", cause);
+            } catch(final CancellationException e) {
+                throw new UnknownHostException("lookup cancelled");
+            }
+        }
+    }
+}
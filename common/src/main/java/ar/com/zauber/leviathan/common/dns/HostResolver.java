@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Resolves host names.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public interface HostResolver {
+
+    /**
+     * @param host a host name (or a literal address)
+     * @return the addresses of the host (at least one)
+     * @throws UnknownHostException if the host can't be resolved
+     */
+    InetAddress[] resolve(String host) throws UnknownHostException;
+}
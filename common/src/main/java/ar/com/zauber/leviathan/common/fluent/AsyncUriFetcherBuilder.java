@@ -23,13 +23,21 @@ import java.util.concurrent.TimeUnit;
 
 import ar.com.zauber.leviathan.api.AsyncUriFetcher;
 import ar.com.zauber.leviathan.common.async.AsyncUriFetcherObserver;
+import ar.com.zauber.leviathan.common.async.CircuitBreaker;
+import ar.com.zauber.leviathan.common.async.DuplicateContentFilter;
 import ar.com.zauber.leviathan.common.async.Job;
 import ar.com.zauber.leviathan.common.async.JobQueue;
 import ar.com.zauber.leviathan.common.async.JobScheduler;
+import ar.com.zauber.leviathan.common.async.impl.CircuitBreakerJobQueue;
 import ar.com.zauber.leviathan.common.async.impl.MultiDomainPoliteJobQueue;
+import ar.com.zauber.leviathan.common.async.impl.PreResolvingJobQueue;
 import ar.com.zauber.leviathan.common.async.impl.RateLimitBlockingQueueJobQueue;
+import ar.com.zauber.leviathan.common.async.impl.RobotsJobQueue;
+import ar.com.zauber.leviathan.common.bandwidth.BandwidthLimiter;
+import ar.com.zauber.leviathan.common.dns.CachingHostResolver;
 import ar.com.zauber.leviathan.common.fluent.AsyncUriFetcherBuilder.SchedulerBuilder;
 import ar.com.zauber.leviathan.common.fluent.AsyncUriFetcherBuilder.ThreadedExecutorService;
+import ar.com.zauber.leviathan.common.robots.RobotsPolicy;
 
 /**
  * TODO: Description of the class, Comments in english by default  
@@ -53,6 +61,19 @@ public interface AsyncUriFetcherBuilder {
     /** set an observer to monitor the flow */
     AsyncUriFetcherBuilder withFetchingObserver(AsyncUriFetcherObserver observer);
     
+    /** 
+     * fetchs to failing hosts fail fast (@see {@link CircuitBreaker}). 
+     * Use {@link SchedulerBuilder#withCircuitBreaker(CircuitBreaker)} in the 
+     * fetching scheduler to park them instead. 
+     */
+    AsyncUriFetcherBuilder withCircuitBreaker(CircuitBreaker breaker);
+    
+    /** 
+     * responses whose body was already seen are marked as duplicates 
+     * (@see {@link DuplicateContentFilter}).
+     */
+    AsyncUriFetcherBuilder withDuplicateContentFilter(DuplicateContentFilter filter);
+    
     /** builds the {@link AsyncUriFetcher} */
     AsyncUriFetcher build();
     
@@ -73,6 +94,18 @@ public interface AsyncUriFetcherBuilder {
         
         SchedulerBuilder withTimer(Timer timer, int i);
         
+        /** 
+         * resolve the host of the queued jobs in background 
+         * (@see {@link PreResolvingJobQueue}) 
+         */
+        SchedulerBuilder withDnsPrefetch(CachingHostResolver resolver);
+        
+        /** 
+         * park the jobs of failing hosts (@see {@link CircuitBreakerJobQueue}).
+         * The fetcher must use the same breaker. 
+         */
+        SchedulerBuilder withCircuitBreaker(CircuitBreaker breaker);
+        
         /** select the {@link ExecutorService} to use */
         SchedulerBuilder withExecutorService(ExecutorService executorService);
         
@@ -91,6 +124,23 @@ public interface AsyncUriFetcherBuilder {
          * @param unit Unidad de tiempo del delay
          */
         MultiDomainPoliteJobQueueBuilder minimalDelay(final long domainDelay, final TimeUnit unit);
+        /**
+         * limits the bytes per second read while fetching 
+         * (@see {@link BandwidthLimiter})
+         * 
+         * @param perHostBytesPerSecond limit of each host (<= 0 unlimited) 
+         * @param globalBytesPerSecond limit of all the hosts (<= 0 unlimited)
+         */
+        MultiDomainPoliteJobQueueBuilder maxBandwidth(long perHostBytesPerSecond, 
+                long globalBytesPerSecond);
+        /** limits the bytes per second read while fetching */
+        MultiDomainPoliteJobQueueBuilder withBandwidthLimiter(BandwidthLimiter limiter);
+        /**
+         * rejects the jobs disallowed by robots.txt, and uses the 
+         * <code>Crawl-delay</code> as the delay of the domain 
+         * (@see {@link RobotsJobQueue}) 
+         */
+        MultiDomainPoliteJobQueueBuilder withRobots(RobotsPolicy robots);
         /** excludedDomains */
         MultiDomainPoliteJobQueueBuilder withException(String s);
         /** excludedDomains */
@@ -33,19 +33,28 @@ import ar.com.zauber.commons.dao.Predicate;
 import ar.com.zauber.leviathan.api.AsyncUriFetcher;
 import ar.com.zauber.leviathan.api.URIFetcher;
 import ar.com.zauber.leviathan.common.async.AsyncUriFetcherObserver;
+import ar.com.zauber.leviathan.common.async.CircuitBreaker;
+import ar.com.zauber.leviathan.common.async.DuplicateContentFilter;
 import ar.com.zauber.leviathan.common.async.FetchQueueAsyncUriFetcher;
 import ar.com.zauber.leviathan.common.async.Job;
 import ar.com.zauber.leviathan.common.async.JobQueue;
 import ar.com.zauber.leviathan.common.async.JobScheduler;
+import ar.com.zauber.leviathan.common.async.impl.BandwidthLimitedJobQueue;
 import ar.com.zauber.leviathan.common.async.impl.BlockingQueueJobQueue;
+import ar.com.zauber.leviathan.common.async.impl.CircuitBreakerJobQueue;
 import ar.com.zauber.leviathan.common.async.impl.MultiDomainPoliteJobQueue;
 import ar.com.zauber.leviathan.common.async.impl.OutputStreamAsyncUriFetcherObserver;
+import ar.com.zauber.leviathan.common.async.impl.PreResolvingJobQueue;
 import ar.com.zauber.leviathan.common.async.impl.RateLimitBlockingQueueJobQueue;
+import ar.com.zauber.leviathan.common.async.impl.RobotsJobQueue;
+import ar.com.zauber.leviathan.common.bandwidth.BandwidthLimiter;
+import ar.com.zauber.leviathan.common.dns.CachingHostResolver;
 import ar.com.zauber.leviathan.common.fluent.AsyncUriFetcherBuilder.MultiDomainPoliteJobQueueBuilder;
 import ar.com.zauber.leviathan.common.fluent.AsyncUriFetcherBuilder.RateLimitJobQueueBuilder;
 import ar.com.zauber.leviathan.common.fluent.AsyncUriFetcherBuilder.SchedulerBuilder;
 import ar.com.zauber.leviathan.common.fluent.AsyncUriFetcherBuilder.ThreadedExecutorService;
 import ar.com.zauber.leviathan.common.mock.FixedURIFetcher;
+import ar.com.zauber.leviathan.common.robots.RobotsPolicy;
 import ar.com.zauber.leviathan.common.utils.BlockingRejectedExecutionHandler;
 
 /**
@@ -138,6 +147,8 @@ class DefaultAsyncUriFetcherBuilder implements AsyncUriFetcherBuilder {
     private JobScheduler fetching;
     private JobScheduler processing;
     private AsyncUriFetcherObserver observer;
+    private CircuitBreaker circuitBreaker;
+    private DuplicateContentFilter duplicateFilter;
 
     @Override
     public AsyncUriFetcherBuilder withFetchingScheduler(final JobScheduler scheduler) {
@@ -157,6 +168,19 @@ class DefaultAsyncUriFetcherBuilder implements AsyncUriFetcherBuilder {
         return this;
     }
 
+    @Override
+    public AsyncUriFetcherBuilder withCircuitBreaker(final CircuitBreaker breaker) {
+        circuitBreaker = breaker;
+        return this;
+    }
+
+    @Override
+    public AsyncUriFetcherBuilder withDuplicateContentFilter(
+            final DuplicateContentFilter filter) {
+        duplicateFilter = filter;
+        return this;
+    }
+
     @Override
     public AsyncUriFetcher build() {
         if(fetching == null) {
@@ -181,6 +205,12 @@ class DefaultAsyncUriFetcherBuilder implements AsyncUriFetcherBuilder {
         if(observer != null) {
             ret.setObserver(observer);
         }
+        if(circuitBreaker != null) {
+            ret.setCircuitBreaker(circuitBreaker);
+        }
+        if(duplicateFilter != null) {
+            ret.setDuplicateContentFilter(duplicateFilter);
+        }
         return ret;
     }
 
@@ -216,6 +246,8 @@ class DefaultSchedulerBuilder implements SchedulerBuilder {
     private ExecutorService executorService;
     private Timer timer;
     private int timerTimeout;
+    private CachingHostResolver resolver;
+    private CircuitBreaker circuitBreaker;
     
     /** Creates the DefaultSchedulerBuilder. */
     public DefaultSchedulerBuilder(final AsyncUriFetcherBuilder returnTo, final Predicate<JobScheduler> onBuild) {
@@ -241,6 +273,8 @@ class DefaultSchedulerBuilder implements SchedulerBuilder {
             private final Collection<String> excludedDomains = new HashSet<String>();
             private long domainDelay = 1000;
             private TimeUnit unit = TimeUnit.MILLISECONDS;
+            private BandwidthLimiter limiter;
+            private RobotsPolicy robots;
 
             @Override
             public MultiDomainPoliteJobQueueBuilder withExceptions(final Iterable<String> exceptions) {
@@ -250,6 +284,26 @@ class DefaultSchedulerBuilder implements SchedulerBuilder {
                 return this;
             }
 
+            @Override
+            public MultiDomainPoliteJobQueueBuilder maxBandwidth(
+                    final long perHostBytesPerSecond, final long globalBytesPerSecond) {
+                limiter = new BandwidthLimiter(perHostBytesPerSecond, globalBytesPerSecond);
+                return this;
+            }
+
+            @Override
+            public MultiDomainPoliteJobQueueBuilder withBandwidthLimiter(
+                    final BandwidthLimiter l) {
+                limiter = l;
+                return this;
+            }
+
+            @Override
+            public MultiDomainPoliteJobQueueBuilder withRobots(final RobotsPolicy r) {
+                robots = r;
+                return this;
+            }
+
             @Override
             public MultiDomainPoliteJobQueueBuilder withException(final String exception) {
                 excludedDomains.add(exception);
@@ -267,7 +321,15 @@ class DefaultSchedulerBuilder implements SchedulerBuilder {
 
             @Override
             public SchedulerBuilder donePoliteQueue() {
-                queue = new MultiDomainPoliteJobQueue(domainDelay, unit);
+                final MultiDomainPoliteJobQueue polite = 
+                    new MultiDomainPoliteJobQueue(domainDelay, unit);
+                queue = polite;
+                if(limiter != null) {
+                    queue = new BandwidthLimitedJobQueue(queue, limiter);
+                }
+                if(robots != null) {
+                    queue = new RobotsJobQueue(queue, robots, polite);
+                }
                 return DefaultSchedulerBuilder.this;
             }
         };
@@ -360,6 +422,18 @@ class DefaultSchedulerBuilder implements SchedulerBuilder {
         return this;
     }
 
+    @Override
+    public SchedulerBuilder withDnsPrefetch(final CachingHostResolver r) {
+        resolver = r;
+        return this;
+    }
+
+    @Override
+    public SchedulerBuilder withCircuitBreaker(final CircuitBreaker breaker) {
+        circuitBreaker = breaker;
+        return this;
+    }
+
     @Override
     public AsyncUriFetcherBuilder doneScheduler() {
         if(executorService == null) {
@@ -370,6 +444,12 @@ class DefaultSchedulerBuilder implements SchedulerBuilder {
             withPoliteQueue().donePoliteQueue();
             assert queue != null;
         }
+        if(resolver != null) {
+            queue = new PreResolvingJobQueue(queue, resolver);
+        }
+        if(circuitBreaker != null) {
+            queue = new CircuitBreakerJobQueue(queue, circuitBreaker);
+        }
         if(timer == null) {
             onBuild.evaluate(new JobScheduler(queue, executorService));
         } else {
@@ -0,0 +1,458 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.hedge;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ar.com.zauber.commons.dao.Closure;
+import ar.com.zauber.leviathan.api.AsyncUriFetcher;
+import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.common.AbstractAsyncUriFetcher;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.NonRepeatableFetchingTask;
+
+/**
+ * {@link AsyncUriFetcher} decorator that hedges slow requests: if a fetch has
+ * not finished after the configured percentile of the recent latencies of its
+ * host, the same task is scheduled again and the first response wins. The
+ * user closure receives only that response.
+ *
+ * <ul>
+ *   <li>The hedge is scheduled in the target fetcher, so it waits in its
+ *       fetch queue (ie: the per-host delay of a polite queue) like any other
+ *       job.</li>
+ *   <li>The loser is cancelled: if it is still queued it finishes without
+ *       touching the network, and if it is running its thread is interrupted
+ *       (the same best effort that {@link
+ *       ar.com.zauber.leviathan.common.async.JobScheduler} timeouts do).</li>
+ *   <li>Every request earns <code>budget</code> hedges (ie: 0.05) and every
+ *       hedge spends one, so hedges never add more than that ratio of extra
+ *       load (plus a small burst).</li>
+ *   <li>There is no hedging for a host until <code>minSamples</code>
+ *       latencies are known.</li>
+ * </ul>
+ *
+ * The tasks must be idempotent (ie: GETs). {@link NonRepeatableFetchingTask}s
+ * are never hedged.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class HedgingAsyncUriFetcher extends AbstractAsyncUriFetcher {
+    /** maximum number of saved hedges */
+    private static final double MAX_TOKENS = 10;
+
+    private final AsyncUriFetcher target;
+    private final double budget;
+    private final ScheduledExecutorService timer;
+    private final boolean ownTimer;
+    private final ConcurrentMap<String, LatencyWindow> latencies =
+        new ConcurrentHashMap<String, LatencyWindow>();
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final Logger logger = LoggerFactory.getLogger(
+            HedgingAsyncUriFetcher.class);
+    private double tokens = 0;
+
+    private volatile double percentile = 0.95;
+    private volatile int minSamples = 20;
+    private volatile int windowSize = 50;
+    private volatile int maxHosts = 10000;
+
+    /**
+     * Creates the HedgingAsyncUriFetcher.
+     *
+     * @param target fetcher that executes the requests and the hedges
+     * @param budget maximum ratio of hedges per request (ie: 0.05 is 5%)
+     */
+    public HedgingAsyncUriFetcher(final AsyncUriFetcher target,
+            final double budget) {
+        this(target, budget, Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    public Thread newThread(final Runnable r) {
+                        final Thread t = new Thread(r, "HedgingAsyncUriFetcher");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                }), true);
+    }
+
+    /**
+     * Creates the HedgingAsyncUriFetcher.
+     *
+     * @param target fetcher that executes the requests and the hedges
+     * @param budget maximum ratio of hedges per request (ie: 0.05 is 5%)
+     * @param timer  where the hedges wait (it only enqueues them)
+     */
+    public HedgingAsyncUriFetcher(final AsyncUriFetcher target,
+            final double budget, final ScheduledExecutorService timer) {
+        this(target, budget, timer, false);
+    }
+
+    /** Creates the HedgingAsyncUriFetcher. */
+    private HedgingAsyncUriFetcher(final AsyncUriFetcher target,
+            final double budget, final ScheduledExecutorService timer,
+            final boolean ownTimer) {
+        Validate.notNull(target);
+        Validate.notNull(timer);
+        Validate.isTrue(budget >= 0 && budget <= 1, "budget must be in [0, 1]");
+
+        this.target = target;
+        this.budget = budget;
+        this.timer = timer;
+        this.ownTimer = ownTimer;
+    }
+
+    /** @see AsyncUriFetcher#scheduleFetch(FetchingTask, Closure) */
+    public final AsyncUriFetcher scheduleFetch(final FetchingTask task,
+            final Closure<URIFetcherResponse> closure) {
+        Validate.notNull(task);
+        Validate.notNull(closure);
+        if(shutdown.get()) {
+            throw new RejectedExecutionException("shutting down");
+        }
+
+        incrementActiveJobs();
+        requests.incrementAndGet();
+        synchronized (this) {
+            tokens = Math.min(MAX_TOKENS, tokens + budget);
+        }
+        final Request request = new Request(task, closure);
+        final Attempt primary = new Attempt(request, false);
+        synchronized (request) {
+            request.pending++;
+            request.primary = primary;
+        }
+        try {
+            target.scheduleFetch(primary, primary);
+        } catch(final Throwable t) {
+            synchronized (request) {
+                request.pending--;
+                request.done = true;
+            }
+            deliver(request, new InmutableURIFetcherResponse(task.getURIAndCtx(), t));
+        }
+        return this;
+    }
+
+    /** the primary attempt started: schedules its hedge */
+    private void started(final Request request) {
+        final String host = request.task.getURIAndCtx().getURI().getHost();
+        if(host == null || budget == 0 || shutdown.get()
+                || request.task instanceof NonRepeatableFetchingTask) {
+            return;
+        }
+        final LatencyWindow window = latencies.get(host);
+        if(window == null || window.size() < minSamples) {
+            return;
+        }
+        final long delay = window.getPercentile(percentile);
+        try {
+            final ScheduledFuture<?> future = timer.schedule(new Runnable() {
+                public void run() {
+                    hedge(request);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+            synchronized (request) {
+                request.hedgeTimer = future;
+            }
+        } catch(final RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    /** the request is slow: hedges it if there is budget */
+    private void hedge(final Request request) {
+        final Attempt hedge = new Attempt(request, true);
+        synchronized (request) {
+            if(request.done || request.hedge != null || !takeToken()) {
+                return;
+            }
+            request.pending++;
+            request.hedge = hedge;
+        }
+        hedges.incrementAndGet();
+        if(logger.isDebugEnabled()) {
+            logger.debug("hedging " + request.task.getURIAndCtx().getURI());
+        }
+        try {
+            target.scheduleFetch(hedge, hedge);
+        } catch(final Throwable t) {
+            logger.warn("can't hedge " + request.task.getURIAndCtx().getURI(), t);
+            final URIFetcherResponse failure;
+            synchronized (request) {
+                request.pending--;
+                if(request.pending > 0 || request.done) {
+                    // the primary is still running, or already delivered
+                    return;
+                }
+                // the primary failed waiting for this hedge
+                request.done = true;
+                failure = request.failure;
+            }
+            deliver(request, failure);
+        }
+    }
+
+    /** @return <code>true</code> if there is budget for a hedge */
+    private synchronized boolean takeToken() {
+        if(tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /** an attempt finished */
+    private void finished(final Attempt attempt, final URIFetcherResponse response) {
+        final Request request = attempt.request;
+        synchronized (request) {
+            request.pending--;
+            if(request.done) {
+                // the loser
+                return;
+            }
+            if(!response.isSucceeded() && !attempt.cancelled && request.pending > 0) {
+                // the other attempt may still succeed
+                request.failure = response;
+                return;
+            }
+            request.done = true;
+            if(request.hedgeTimer != null) {
+                request.hedgeTimer.cancel(false);
+            }
+            final Attempt loser = attempt == request.primary
+                                ? request.hedge : request.primary;
+            if(loser != null) {
+                loser.cancel();
+            }
+        }
+        if(attempt.hedge) {
+            hedgeWins.incrementAndGet();
+        }
+        deliver(request, response);
+    }
+
+    /** gives the response to the user */
+    private void deliver(final Request request, final URIFetcherResponse response) {
+        try {
+            request.closure.execute(response);
+        } finally {
+            decrementActiveJobs();
+        }
+    }
+
+    /** records the latency of a successful attempt */
+    private void record(final URIAndCtx uriAndCtx, final long latency) {
+        final String host = uriAndCtx.getURI().getHost();
+        if(host == null) {
+            return;
+        }
+        LatencyWindow window = latencies.get(host);
+        if(window == null) {
+            if(latencies.size() >= maxHosts) {
+                latencies.clear();
+            }
+            window = new LatencyWindow(windowSize);
+            final LatencyWindow w = latencies.putIfAbsent(host, window);
+            if(w != null) {
+                window = w;
+            }
+        }
+        window.add(latency);
+    }
+
+    /** @return latencies of the host, or <code>null</code> */
+    public final LatencyWindow getLatencies(final String host) {
+        return latencies.get(host);
+    }
+
+    /** @return number of requests */
+    public final long getRequests() {
+        return requests.get();
+    }
+
+    /** @return number of hedges issued */
+    public final long getHedges() {
+        return hedges.get();
+    }
+
+    /** @return number of hedges that finished first */
+    public final long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    /** @param percentile latency percentile (ie: 0.95) that triggers a hedge */
+    public final void setPercentile(final double percentile) {
+        Validate.isTrue(percentile > 0 && percentile <= 1);
+        this.percentile = percentile;
+    }
+
+    /** @param minSamples latencies needed before hedging requests to a host */
+    public final void setMinSamples(final int minSamples) {
+        Validate.isTrue(minSamples > 0);
+        this.minSamples = minSamples;
+    }
+
+    /** @param windowSize number of latencies kept per host */
+    public final void setWindowSize(final int windowSize) {
+        Validate.isTrue(windowSize > 0);
+        this.windowSize = windowSize;
+    }
+
+    /** @param maxHosts maximum number of hosts with latencies */
+    public final void setMaxHosts(final int maxHosts) {
+        Validate.isTrue(maxHosts > 0);
+        this.maxHosts = maxHosts;
+    }
+
+    /**
+     * Waits for the requests in progress, and shuts down the target.
+     *
+     * @see AsyncUriFetcher#shutdown()
+     */
+    public final void shutdown() {
+        try {
+            awaitIdleness();
+        } catch(final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        shutdown.set(true);
+        target.shutdown();
+        if(ownTimer) {
+            timer.shutdown();
+        }
+    }
+
+    /** @see AsyncUriFetcher#shutdownNow() */
+    public final void shutdownNow() {
+        shutdown.set(true);
+        if(ownTimer) {
+            timer.shutdownNow();
+        }
+        target.shutdownNow();
+    }
+
+    /** a fetch requested by the user (guarded by itself) */
+    private static final class Request {
+        private final FetchingTask task;
+        private final Closure<URIFetcherResponse> closure;
+        private Attempt primary;
+        private Attempt hedge;
+        private ScheduledFuture<?> hedgeTimer;
+        /** failure of the first attempt, delivered if the other one fails */
+        private URIFetcherResponse failure;
+        private int pending;
+        private boolean done;
+
+        /** Creates the Request. */
+        public Request(final FetchingTask task,
+                final Closure<URIFetcherResponse> closure) {
+            this.task = task;
+            this.closure = closure;
+        }
+    }
+
+    /** an execution of the request's task (the primary or the hedge) */
+    private final class Attempt implements FetchingTask,
+                                           Closure<URIFetcherResponse> {
+        private final Request request;
+        private final boolean hedge;
+        private Thread thread;
+        private boolean cancelled;
+
+        /** Creates the Attempt. */
+        public Attempt(final Request request, final boolean hedge) {
+            this.request = request;
+            this.hedge = hedge;
+        }
+
+        /** @see FetchingTask#getURIAndCtx() */
+        public URIAndCtx getURIAndCtx() {
+            return request.task.getURIAndCtx();
+        }
+
+        /** @see FetchingTask#execute() */
+        public URIFetcherResponse execute() {
+            synchronized (request) {
+                if(cancelled || request.done) {
+                    cancelled = true;
+                    return new InmutableURIFetcherResponse(getURIAndCtx(),
+                            new CancellationException("hedged request lost"));
+                }
+                thread = Thread.currentThread();
+            }
+            if(!hedge) {
+                started(request);
+            }
+            final long t1 = System.currentTimeMillis();
+            URIFetcherResponse ret = null;
+            try {
+                ret = HedgingAsyncUriFetcher.this.execute(request.task);
+                return ret;
+            } finally {
+                final boolean lost;
+                synchronized (request) {
+                    thread = null;
+                    lost = cancelled;
+                }
+                if(lost) {
+                    // an interruption must not leak to the next job of the thread
+                    Thread.interrupted();
+                } else if(ret != null && ret.isSucceeded()) {
+                    record(getURIAndCtx(), System.currentTimeMillis() - t1);
+                }
+            }
+        }
+
+        /** cancels the attempt. Must be called holding the request lock */
+        private void cancel() {
+            cancelled = true;
+            if(thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        /** @see Closure#execute(Object) */
+        public void execute(final URIFetcherResponse response) {
+            finished(this, response);
+        }
+
+        /** @see Object#toString() */
+        @Override
+        public String toString() {
+            return (hedge ? "hedge of " : "") + request.task;
+        }
+    }
+}
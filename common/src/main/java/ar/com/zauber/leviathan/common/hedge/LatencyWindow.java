@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.hedge;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * The last latencies observed for a host.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class LatencyWindow {
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    /** @param size number of samples kept */
+    public LatencyWindow(final int size) {
+        Validate.isTrue(size > 0, "size must be positive");
+        samples = new long[size];
+    }
+
+    /** @param latency a latency in milliseconds */
+    public synchronized void add(final long latency) {
+        samples[next] = latency;
+        next = (next + 1) % samples.length;
+        if(count < samples.length) {
+            count++;
+        }
+    }
+
+    /** @return number of samples */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * @param percentile a value between 0 and 1 (ie: 0.95)
+     * @return the latency of the percentile, or -1 if there are no samples
+     */
+    public long getPercentile(final double percentile) {
+        Validate.isTrue(percentile >= 0 && percentile <= 1);
+        final long[] sorted;
+        synchronized (this) {
+            if(count == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        final int i = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, i)];
+    }
+}
@@ -105,10 +105,9 @@ public abstract class AbstractMockUriFetcher extends AbstractURIFetcher {
                     } else {
                         try {
                             ret = new InmutableURIFetcherResponse(uriAndCtx,
-                                    new InmutableURIFetcherHttpResponse(new String(
-                                            IOUtils.toByteArray(is), charset
-                                                    .displayName()), 200,
-                                            Collections.EMPTY_MAP));
+                                    new InmutableURIFetcherHttpResponse(
+                                            IOUtils.toByteArray(is), 0, charset,
+                                            200, Collections.EMPTY_MAP));
                         } catch (IOException e) {
                             throw new UnhandledException(e);
                         } finally {
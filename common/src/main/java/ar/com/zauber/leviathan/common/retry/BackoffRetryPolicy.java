@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.retry;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.Validate;
+
+import ar.com.zauber.leviathan.api.URIFetcherHttpResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+
+/**
+ * {@link RetryPolicy} with exponential backoff and jitter.
+ *
+ * <p>
+ * Each retryable status code and exception type has its own maximum number
+ * of attempts (see {@link #retryOnStatus(int, int)} and
+ * {@link #retryOnException(Class, int)}). Exceptions are matched by the most
+ * specific registered class, looking also at the causes. By default
+ * <code>408</code>, <code>429</code>, <code>500</code>, <code>502</code>,
+ * <code>503</code>, <code>504</code> and {@link IOException}s (but not
+ * {@link UnknownHostException}) are tried up to 3 times.
+ * </p>
+ * <p>
+ * The n-th retry waits a random time between the half and the whole of
+ * <code>min(maxDelay, baseDelay * 2^(n-1))</code>, so that the jobs that
+ * failed together don't come back together. A <code>Retry-After</code>
+ * header of a <code>429</code> or <code>503</code> response overrides the
+ * backoff; if it asks for more than <code>maxRetryAfter</code> the response
+ * is final.
+ * </p>
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class BackoffRetryPolicy implements RetryPolicy {
+    private static final int DEFAULT_ATTEMPTS = 3;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private static final String RETRY_AFTER = "Retry-After";
+
+    private final Map<Integer, Integer> statuses =
+        new ConcurrentHashMap<Integer, Integer>();
+    private final Map<Class<?>, Integer> exceptions =
+        new ConcurrentHashMap<Class<?>, Integer>();
+    private final Random random = new Random();
+    private volatile long baseDelay = 1000;
+    private volatile long maxDelay = 60000;
+    private volatile long maxRetryAfter = 300000;
+
+    /** Creates the BackoffRetryPolicy with the default retryable failures */
+    public BackoffRetryPolicy() {
+        for(final int status : new int[] {408, TOO_MANY_REQUESTS, 500, 502,
+                SERVICE_UNAVAILABLE, 504}) {
+            retryOnStatus(status, DEFAULT_ATTEMPTS);
+        }
+        retryOnException(IOException.class, DEFAULT_ATTEMPTS);
+        retryOnException(UnknownHostException.class, 1);
+    }
+
+    /**
+     * @param status      http status code
+     * @param maxAttempts maximum number of attempts for responses with the
+     *                    status (1 means that it is never retried)
+     * @return this
+     */
+    public final BackoffRetryPolicy retryOnStatus(final int status,
+            final int maxAttempts) {
+        Validate.isTrue(maxAttempts > 0, "maxAttempts must be positive");
+        statuses.put(status, maxAttempts);
+        return this;
+    }
+
+    /**
+     * @param type        exception type (its subclasses are matched too,
+     *                    unless they are registered)
+     * @param maxAttempts maximum number of attempts for failures with the
+     *                    exception (1 means that it is never retried)
+     * @return this
+     */
+    public final BackoffRetryPolicy retryOnException(
+            final Class<? extends Throwable> type, final int maxAttempts) {
+        Validate.notNull(type);
+        Validate.isTrue(maxAttempts > 0, "maxAttempts must be positive");
+        exceptions.put(type, maxAttempts);
+        return this;
+    }
+
+    /** @param baseDelay delay of the first retry in milliseconds */
+    public final void setBaseDelay(final long baseDelay) {
+        Validate.isTrue(baseDelay >= 0);
+        this.baseDelay = baseDelay;
+    }
+
+    /** @param maxDelay maximum delay of a retry in milliseconds */
+    public final void setMaxDelay(final long maxDelay) {
+        Validate.isTrue(maxDelay >= 0);
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * @param maxRetryAfter maximum <code>Retry-After</code> (in milliseconds)
+     *                      that is honored
+     */
+    public final void setMaxRetryAfter(final long maxRetryAfter) {
+        Validate.isTrue(maxRetryAfter >= 0);
+        this.maxRetryAfter = maxRetryAfter;
+    }
+
+    /** @see RetryPolicy#getRetryDelay(URIFetcherResponse, int) */
+    public final long getRetryDelay(final URIFetcherResponse response,
+            final int attempt) {
+        if(attempt >= getMaxAttempts(response)) {
+            return -1;
+        }
+        if(response.isSucceeded()) {
+            final URIFetcherHttpResponse r = response.getHttpResponse();
+            final int status = r.getStatusCode();
+            if(status == TOO_MANY_REQUESTS || status == SERVICE_UNAVAILABLE) {
+                final long retryAfter = parseRetryAfter(r.getHeader(RETRY_AFTER),
+                        System.currentTimeMillis());
+                if(retryAfter > maxRetryAfter) {
+                    return -1;
+                } else if(retryAfter >= 0) {
+                    return retryAfter;
+                }
+            }
+        }
+        return backoff(attempt);
+    }
+
+    /** @return the maximum number of attempts for the response */
+    private int getMaxAttempts(final URIFetcherResponse response) {
+        if(response.isSucceeded()) {
+            final Integer ret = statuses.get(response.getHttpResponse().getStatusCode());
+            return ret == null ? 1 : ret;
+        }
+        for(Throwable t = response.getError(); t != null; t = t.getCause()) {
+            for(Class<?> c = t.getClass(); c != null; c = c.getSuperclass()) {
+                final Integer ret = exceptions.get(c);
+                if(ret != null) {
+                    return ret;
+                }
+            }
+            if(t.getCause() == t) {
+                break;
+            }
+        }
+        return 1;
+    }
+
+    /** @return the delay (with jitter) of the retry that follows the attempt */
+    protected long backoff(final int attempt) {
+        final long exp = baseDelay << Math.min(attempt - 1, 30);
+        final long delay = exp < 0 ? maxDelay : Math.min(maxDelay, exp);
+        final long half = delay / 2;
+        return half + (long) (random.nextDouble() * (delay - half));
+    }
+
+    /**
+     * @param value value of a <code>Retry-After</code> header: seconds or an
+     *              http date
+     * @param now   current time in milliseconds
+     * @return the milliseconds to wait, or -1 if the value is not valid
+     */
+    public static long parseRetryAfter(final String value, final long now) {
+        if(value == null) {
+            return -1;
+        }
+        final String v = value.trim();
+        if(v.length() == 0) {
+            return -1;
+        }
+        if(Character.isDigit(v.charAt(0))) {
+            try {
+                final long seconds = Long.parseLong(v);
+                return seconds > Long.MAX_VALUE / 1000 ? Long.MAX_VALUE : seconds * 1000;
+            } catch(final NumberFormatException e) {
+                return -1;
+            }
+        }
+        final SimpleDateFormat format = new SimpleDateFormat(
+                "EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            final Date date = format.parse(v);
+            return Math.max(0, date.getTime() - now);
+        } catch(final ParseException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.retry;
+
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+
+/**
+ * Decides whether a fetch must be retried, and when.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public interface RetryPolicy {
+
+    /**
+     * @param response response (or error) of the attempt
+     * @param attempt  number of the attempt that produced the response
+     *                 (the first one is 1)
+     * @return milliseconds to wait before the next attempt, or a negative
+     *         value if the response is final
+     */
+    long getRetryDelay(URIFetcherResponse response, int attempt);
+}
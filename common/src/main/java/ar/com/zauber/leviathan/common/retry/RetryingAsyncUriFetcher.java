@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.retry;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ar.com.zauber.commons.dao.Closure;
+import ar.com.zauber.leviathan.api.AsyncUriFetcher;
+import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.common.AbstractAsyncUriFetcher;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.NonRepeatableFetchingTask;
+
+/**
+ * {@link AsyncUriFetcher} decorator that retries the fetches that the
+ * {@link RetryPolicy} considers transient failures. The user closure only
+ * receives the final response.
+ *
+ * <p>
+ * While a retry waits for its delay nothing is blocked: a timer enqueues the
+ * task again in the target fetcher once the delay expires, so the retry goes
+ * through its fetch queue (and its politeness policy) like any other job.
+ * </p>
+ * <p>
+ * The tasks must be executable more than once (ie: GETs, see
+ * {@link RetryingURIFetcher}). {@link NonRepeatableFetchingTask}s are
+ * executed once and never retried.
+ * </p>
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class RetryingAsyncUriFetcher extends AbstractAsyncUriFetcher {
+    private final AsyncUriFetcher target;
+    private final RetryPolicy policy;
+    private final ScheduledExecutorService timer;
+    private final boolean ownTimer;
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+    private final AtomicLong retries = new AtomicLong();
+    private final Logger logger = LoggerFactory.getLogger(
+            RetryingAsyncUriFetcher.class);
+
+    /**
+     * Creates the RetryingAsyncUriFetcher.
+     *
+     * @param target fetcher that executes the attempts
+     * @param policy retry policy
+     */
+    public RetryingAsyncUriFetcher(final AsyncUriFetcher target,
+            final RetryPolicy policy) {
+        this(target, policy, Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    public Thread newThread(final Runnable r) {
+                        final Thread t = new Thread(r, "RetryingAsyncUriFetcher");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                }), true);
+    }
+
+    /**
+     * Creates the RetryingAsyncUriFetcher.
+     *
+     * @param target fetcher that executes the attempts
+     * @param policy retry policy
+     * @param timer  where the delayed retries wait (it only enqueues them)
+     */
+    public RetryingAsyncUriFetcher(final AsyncUriFetcher target,
+            final RetryPolicy policy, final ScheduledExecutorService timer) {
+        this(target, policy, timer, false);
+    }
+
+    /** Creates the RetryingAsyncUriFetcher. */
+    private RetryingAsyncUriFetcher(final AsyncUriFetcher target,
+            final RetryPolicy policy, final ScheduledExecutorService timer,
+            final boolean ownTimer) {
+        Validate.notNull(target);
+        Validate.notNull(policy);
+        Validate.notNull(timer);
+
+        this.target = target;
+        this.policy = policy;
+        this.timer = timer;
+        this.ownTimer = ownTimer;
+    }
+
+    /** @see AsyncUriFetcher#scheduleFetch(FetchingTask, Closure) */
+    public final AsyncUriFetcher scheduleFetch(final FetchingTask task,
+            final Closure<URIFetcherResponse> closure) {
+        Validate.notNull(task);
+        Validate.notNull(closure);
+        if(shutdown.get()) {
+            throw new RejectedExecutionException("shutting down");
+        }
+
+        incrementActiveJobs();
+        attempt(task, closure, 1);
+        return this;
+    }
+
+    /** enqueues an attempt in the target */
+    private void attempt(final FetchingTask task,
+            final Closure<URIFetcherResponse> closure, final int attempt) {
+        try {
+            target.scheduleFetch(task, new Closure<URIFetcherResponse>() {
+                public void execute(final URIFetcherResponse response) {
+                    onResponse(task, closure, attempt, response);
+                }
+            });
+        } catch(final Throwable t) {
+            deliver(closure, new InmutableURIFetcherResponse(task.getURIAndCtx(), t));
+        }
+    }
+
+    /** decides if the response is final */
+    private void onResponse(final FetchingTask task,
+            final Closure<URIFetcherResponse> closure, final int attempt,
+            final URIFetcherResponse response) {
+        long delay = -1;
+        if(!shutdown.get() && !(task instanceof NonRepeatableFetchingTask)) {
+            try {
+                delay = policy.getRetryDelay(response, attempt);
+            } catch(final Throwable t) {
+                logger.error("retry policy failed for " + task.getURIAndCtx(), t);
+            }
+        }
+        if(delay < 0) {
+            deliver(closure, response);
+            return;
+        }
+
+        if(logger.isDebugEnabled()) {
+            logger.debug("retrying " + task.getURIAndCtx().getURI() + " in "
+                    + delay + "ms (attempt " + (attempt + 1) + ")");
+        }
+        try {
+            // the response is released by the target when we return
+            timer.schedule(new Runnable() {
+                public void run() {
+                    attempt(task, closure, attempt + 1);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+            retries.incrementAndGet();
+        } catch(final RejectedExecutionException e) {
+            deliver(closure, response);
+        }
+    }
+
+    /** gives the final response to the user */
+    private void deliver(final Closure<URIFetcherResponse> closure,
+            final URIFetcherResponse response) {
+        try {
+            closure.execute(response);
+        } finally {
+            decrementActiveJobs();
+        }
+    }
+
+    /** @return number of retries scheduled */
+    public final long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Waits for the pending retries, and shuts down the target.
+     *
+     * @see AsyncUriFetcher#shutdown()
+     */
+    public final void shutdown() {
+        try {
+            awaitIdleness();
+        } catch(final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        shutdown.set(true);
+        target.shutdown();
+        if(ownTimer) {
+            timer.shutdown();
+        }
+    }
+
+    /** @see AsyncUriFetcher#shutdownNow() */
+    public final void shutdownNow() {
+        shutdown.set(true);
+        if(ownTimer) {
+            timer.shutdownNow();
+        }
+        target.shutdownNow();
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.retry;
+
+import java.io.InputStream;
+
+import org.apache.commons.lang.Validate;
+
+import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcher;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.api.UrlEncodedPostBody;
+import ar.com.zauber.leviathan.common.AbstractURIFetcher;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.Releasable;
+
+/**
+ * {@link URIFetcher} decorator that retries GETs following a
+ * {@link RetryPolicy}. POSTs are not idempotent and are never retried.
+ *
+ * The delay between attempts is waited in the calling thread: with an
+ * {@link ar.com.zauber.leviathan.api.AsyncUriFetcher} use
+ * {@link RetryingAsyncUriFetcher} instead, which doesn't hold fetch threads.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class RetryingURIFetcher extends AbstractURIFetcher {
+    private final URIFetcher target;
+    private final RetryPolicy policy;
+
+    /**
+     * Creates the RetryingURIFetcher.
+     *
+     * @param target fetcher that executes the attempts
+     * @param policy retry policy
+     */
+    public RetryingURIFetcher(final URIFetcher target, final RetryPolicy policy) {
+        Validate.notNull(target);
+        Validate.notNull(policy);
+
+        this.target = target;
+        this.policy = policy;
+    }
+
+    /** @see URIFetcher#createGet(URIAndCtx) */
+    public final FetchingTask createGet(final URIAndCtx uriAndCtx) {
+        return new FetchingTask() {
+            public URIAndCtx getURIAndCtx() {
+                return uriAndCtx;
+            }
+
+            public URIFetcherResponse execute() {
+                for(int attempt = 1;; attempt++) {
+                    final URIFetcherResponse r = target.createGet(uriAndCtx).execute();
+                    final long delay = policy.getRetryDelay(r, attempt);
+                    if(delay < 0) {
+                        return r;
+                    }
+                    if(r.isSucceeded() && r.getHttpResponse() instanceof Releasable) {
+                        ((Releasable) r.getHttpResponse()).release();
+                    }
+                    try {
+                        Thread.sleep(delay);
+                    } catch(final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return new InmutableURIFetcherResponse(uriAndCtx, e);
+                    }
+                }
+            }
+
+            @Override
+            public String toString() {
+                return uriAndCtx.getURI().toString();
+            }
+        };
+    }
+
+    /** @see URIFetcher#createPost(URIAndCtx, InputStream) */
+    public final FetchingTask createPost(final URIAndCtx uriAndCtx,
+            final InputStream body) {
+        return target.createPost(uriAndCtx, body);
+    }
+
+    /** @see URIFetcher#createPost(URIAndCtx, UrlEncodedPostBody) */
+    public final FetchingTask createPost(final URIAndCtx uriAndCtx,
+            final UrlEncodedPostBody body) {
+        return target.createPost(uriAndCtx, body);
+    }
+}
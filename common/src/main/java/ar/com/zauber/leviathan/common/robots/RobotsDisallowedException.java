@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.robots;
+
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The robots.txt of the host does not allow fetching the URI.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class RobotsDisallowedException extends RejectedExecutionException {
+
+    /** <code>serialVersionUID</code> */
+    private static final long serialVersionUID = -7262910518443017634L;
+
+    private final URI uri;
+
+    /** @param uri the disallowed uri */
+    public RobotsDisallowedException(final URI uri) {
+        super(uri + " is disallowed by robots.txt");
+        this.uri = uri;
+    }
+
+    /** @return the disallowed uri */
+    public URI getURI() {
+        return uri;
+    }
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.robots;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.UnhandledException;
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ar.com.zauber.leviathan.api.URIFetcher;
+import ar.com.zauber.leviathan.api.URIFetcherHttpResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.common.Releasable;
+
+/**
+ * Fetches (with the given {@link URIFetcher}) and parses the robots.txt of
+ * each site once, and keeps the compiled {@link RobotsRules} in a LRU cache.
+ * Concurrent requests for the same site wait for a single fetch.
+ *
+ * As RFC 9309 says: a robots.txt that does not exist (4xx) allows
+ * everything, and one that can't be fetched (5xx or a network error)
+ * disallows everything for {@link #setErrorTtl(long)} milliseconds.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class RobotsPolicy {
+    /** robots.txt bigger than this are truncated */
+    private static final int MAX_LENGTH = 500 * 1024;
+
+    private final URIFetcher fetcher;
+    private final String userAgent;
+    private final Map<String, Entry> cache;
+    private final AtomicLong fetches = new AtomicLong();
+    private final Logger logger = LoggerFactory.getLogger(RobotsPolicy.class);
+    private volatile int maxSites = 1000;
+    private volatile long ttl = 24 * 60 * 60 * 1000L;
+    private volatile long errorTtl = 5 * 60 * 1000L;
+
+    /**
+     * Creates the RobotsPolicy.
+     *
+     * @param fetcher   fetcher of the robots.txt files
+     * @param userAgent user agent of the crawler (ie: <code>leviathan/1.0</code>),
+     *                  the groups are matched against its product token
+     */
+    public RobotsPolicy(final URIFetcher fetcher, final String userAgent) {
+        Validate.notNull(fetcher);
+        Validate.notEmpty(userAgent);
+
+        this.fetcher = fetcher;
+        this.userAgent = userAgent;
+        this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<String, RobotsPolicy.Entry> eldest) {
+                return size() > maxSites;
+            }
+        };
+    }
+
+    /** @return <code>true</code> if the uri can be fetched */
+    public final boolean isAllowed(final URI uri) {
+        return getRules(uri).isAllowed(uri);
+    }
+
+    /**
+     * @return the rules of the site of the uri. The robots.txt is fetched if
+     *         it is not cached
+     */
+    public final RobotsRules getRules(final URI uri) {
+        Validate.notNull(uri);
+        final URI robots = getRobotsURI(uri);
+        if(robots == null) {
+            return RobotsRules.ALLOW_ALL;
+        }
+
+        final String key = robots.toString();
+        final Entry entry;
+        boolean owner = false;
+        synchronized (cache) {
+            final Entry cached = cache.get(key);
+            if(cached == null || cached.isExpired()) {
+                entry = new Entry(robots);
+                cache.put(key, entry);
+                owner = true;
+            } else {
+                entry = cached;
+            }
+        }
+        if(owner) {
+            entry.run();
+        }
+        try {
+            return entry.get();
+        } catch(final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnhandledException(e);
+        } catch(final ExecutionException e) {
+            throw new UnhandledException(e.getCause());
+        }
+    }
+
+    /**
+     * Like {@link #getRules(URI)} but it never fetches nor waits.
+     *
+     * @return the rules of the site of the uri, or <code>null</code> if they
+     *         are not known yet (or they expired)
+     */
+    public final RobotsRules getCachedRules(final URI uri) {
+        Validate.notNull(uri);
+        final URI robots = getRobotsURI(uri);
+        if(robots == null) {
+            return RobotsRules.ALLOW_ALL;
+        }
+        final Entry entry;
+        synchronized (cache) {
+            entry = cache.get(robots.toString());
+        }
+        if(entry == null || !entry.isDone() || entry.isExpired()) {
+            return null;
+        }
+        try {
+            return entry.get();
+        } catch(final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch(final ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the robots.txt of the site of the uri, or <code>null</code> if
+     *         the uri has no site (ie: relative uris)
+     */
+    public static URI getRobotsURI(final URI uri) {
+        if(uri.getHost() == null || uri.getScheme() == null) {
+            return null;
+        }
+        try {
+            return new URI(uri.getScheme().toLowerCase(), null,
+                    uri.getHost().toLowerCase(), uri.getPort(), "/robots.txt",
+                    null, null);
+        } catch(final URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * fetches and parses a robots.txt
+     * @return the rules, or {@link RobotsRules#DISALLOW_ALL} if it can't be
+     *         fetched
+     */
+    private RobotsRules fetch(final URI robots) {
+        fetches.incrementAndGet();
+        final URIFetcherResponse response = fetcher.get(robots);
+        if(!response.isSucceeded()) {
+            logger.warn("fetching " + robots + ": " + response.getError());
+            return RobotsRules.DISALLOW_ALL;
+        }
+        final URIFetcherHttpResponse http = response.getHttpResponse();
+        try {
+            final int status = http.getStatusCode();
+            if(status >= 200 && status < 300) {
+                String content = http.getContentAsString();
+                if(content.length() > MAX_LENGTH) {
+                    content = content.substring(0, MAX_LENGTH);
+                }
+                return RobotsRules.parse(content, userAgent);
+            } else if(status >= 500 || status == 429) {
+                return RobotsRules.DISALLOW_ALL;
+            }
+            return RobotsRules.ALLOW_ALL;
+        } finally {
+            if(http instanceof Releasable) {
+                ((Releasable) http).release();
+            }
+        }
+    }
+
+    /** @return number of robots.txt fetched */
+    public final long getFetches() {
+        return fetches.get();
+    }
+
+    /** @return number of cached sites */
+    public final int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /** @param maxSites number of sites whose rules are kept */
+    public final void setMaxSites(final int maxSites) {
+        Validate.isTrue(maxSites > 0);
+        this.maxSites = maxSites;
+    }
+
+    /** @param ttl milliseconds that fetched rules are kept */
+    public final void setTtl(final long ttl) {
+        Validate.isTrue(ttl >= 0);
+        this.ttl = ttl;
+    }
+
+    /** @param errorTtl milliseconds that a robots.txt that failed is not retried */
+    public final void setErrorTtl(final long errorTtl) {
+        Validate.isTrue(errorTtl >= 0);
+        this.errorTtl = errorTtl;
+    }
+
+    /** cached rules of a site */
+    private final class Entry extends FutureTask<RobotsRules> {
+        private volatile long expires = Long.MAX_VALUE;
+
+        /** Creates the Entry. */
+        public Entry(final URI robots) {
+            super(new Callable<RobotsRules>() {
+                public RobotsRules call() throws Exception {
+                    return fetch(robots);
+                }
+            });
+        }
+
+        /** @return <code>true</code> if the rules must be fetched again */
+        public boolean isExpired() {
+            return isDone() && System.currentTimeMillis() >= expires;
+        }
+
+        @Override
+        protected void done() {
+            try {
+                // fetch() answers DISALLOW_ALL only on errors
+                expires = System.currentTimeMillis()
+                    + (get() == RobotsRules.DISALLOW_ALL ? errorTtl : ttl);
+            } catch(final Exception e) {
+                // ie: the fetcher failed: don't cache the error
+                expires = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.robots;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.lang.UnhandledException;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Compiled rules of a robots.txt (RFC 9309) for a user agent: the
+ * <code>Allow</code> and <code>Disallow</code> patterns (with
+ * <code>*</code> and <code>$</code>) of the group that applies, and its
+ * <code>Crawl-delay</code>. The longest matching pattern wins; on a tie
+ * <code>Allow</code> wins.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class RobotsRules {
+    /** everything is allowed (ie: there is no robots.txt) */
+    public static final RobotsRules ALLOW_ALL =
+        new RobotsRules(Collections.<Rule>emptyList(), -1);
+    /** nothing is allowed (ie: the robots.txt is unreachable) */
+    public static final RobotsRules DISALLOW_ALL =
+        new RobotsRules(Collections.singletonList(new Rule("/", false)), -1);
+
+    private static final String WILDCARD = "*";
+
+    private final Rule[] rules;
+    private final long crawlDelay;
+
+    /** Creates the RobotsRules. */
+    private RobotsRules(final List<Rule> rules, final long crawlDelay) {
+        final List<Rule> sorted = new ArrayList<Rule>(rules);
+        // longest first, allow first
+        Collections.sort(sorted, new Comparator<Rule>() {
+            public int compare(final Rule a, final Rule b) {
+                if(a.length != b.length) {
+                    return b.length - a.length;
+                }
+                return a.allow == b.allow ? 0 : a.allow ? -1 : 1;
+            }
+        });
+        this.rules = sorted.toArray(new Rule[sorted.size()]);
+        this.crawlDelay = crawlDelay;
+    }
+
+    /**
+     * @param path path and query of the URI (as sent in the request line,
+     *             ie: <code>/search?q=a</code>)
+     * @return <code>true</code> if the path can be fetched
+     */
+    public boolean isAllowed(final String path) {
+        final String p = path == null || path.length() == 0 ? "/" : path;
+        if(p.equals("/robots.txt")) {
+            return true;
+        }
+        for(final Rule rule : rules) {
+            if(rule.matches(p)) {
+                return rule.allow;
+            }
+        }
+        return true;
+    }
+
+    /** @return <code>true</code> if the uri can be fetched */
+    public boolean isAllowed(final URI uri) {
+        final String path = uri.getRawPath();
+        final String query = uri.getRawQuery();
+        return isAllowed(query == null ? path : path + "?" + query);
+    }
+
+    /** @return the crawl delay in milliseconds, or -1 if it was not declared */
+    public long getCrawlDelay() {
+        return crawlDelay;
+    }
+
+    /**
+     * Parses a robots.txt.
+     *
+     * @param content   the content of the robots.txt
+     * @param userAgent the user agent of the crawler (ie:
+     *                  <code>leviathan/1.0</code>). Only its product token
+     *                  (<code>leviathan</code>) is matched, case-insensitively,
+     *                  against the groups of the robots.txt
+     * @return the rules of the group that applies to the user agent (the
+     *         one named after its product token, or <code>*</code>)
+     */
+    public static RobotsRules parse(final String content, final String userAgent) {
+        Validate.notNull(content);
+        Validate.notEmpty(userAgent);
+        final String agent = productToken(userAgent);
+        Validate.notEmpty(agent, "the user agent has no product token");
+
+        final List<Rule> rules = new ArrayList<Rule>();
+        final List<Rule> defaultRules = new ArrayList<Rule>();
+        long delay = -1;
+        long defaultDelay = -1;
+        int bestMatch = 0;
+
+        // the agents of the group being read, and how it matches
+        final List<String> groupAgents = new ArrayList<String>();
+        boolean readingAgents = false;
+        int groupMatch = -1;
+
+        final BufferedReader reader = new BufferedReader(new StringReader(content));
+        try {
+            String line;
+            while((line = reader.readLine()) != null) {
+                final int comment = line.indexOf('#');
+                if(comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                final int colon = line.indexOf(':');
+                if(colon <= 0) {
+                    continue;
+                }
+                final String key = line.substring(0, colon).trim().toLowerCase();
+                final String value = line.substring(colon + 1).trim();
+
+                if(key.equals("user-agent")) {
+                    if(!readingAgents) {
+                        groupAgents.clear();
+                        readingAgents = true;
+                    }
+                    groupAgents.add(productToken(value));
+                    groupMatch = match(groupAgents, agent);
+                    if(groupMatch > bestMatch) {
+                        // a more specific group: forget the previous one
+                        bestMatch = groupMatch;
+                        rules.clear();
+                        delay = -1;
+                    }
+                    continue;
+                }
+                if(key.equals("sitemap")) {
+                    continue;
+                }
+                readingAgents = false;
+                if(groupMatch < 0) {
+                    // rules outside of a group
+                    continue;
+                }
+                final boolean isDefault = groupMatch == 0;
+                final boolean isBest = groupMatch > 0 && groupMatch == bestMatch;
+                if(!isDefault && !isBest) {
+                    continue;
+                }
+                if(key.equals("allow") || key.equals("disallow")) {
+                    if(value.length() > 0) {
+                        final Rule rule = new Rule(value, key.equals("allow"));
+                        (isDefault ? defaultRules : rules).add(rule);
+                    }
+                } else if(key.equals("crawl-delay")) {
+                    final long d = parseDelay(value);
+                    if(d >= 0) {
+                        if(isDefault) {
+                            defaultDelay = d;
+                        } else {
+                            delay = d;
+                        }
+                    }
+                }
+            }
+        } catch(final IOException e) {
+            throw new UnhandledException(e);
+        }
+
+        return bestMatch > 0 ? new RobotsRules(rules, delay)
+                : new RobotsRules(defaultRules, defaultDelay);
+    }
+
+    /**
+     * @return how the group matches the agent: 1 if it names the product
+     *         token, 0 for <code>*</code> or -1 if it does not apply
+     */
+    private static int match(final List<String> groupAgents, final String agent) {
+        int ret = -1;
+        for(final String groupAgent : groupAgents) {
+            if(groupAgent.equals(WILDCARD)) {
+                ret = Math.max(ret, 0);
+            } else if(groupAgent.equals(agent)) {
+                ret = 1;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return the product token of a user agent (up to the first
+     *         <code>/</code> or blank), in lower case
+     */
+    static String productToken(final String userAgent) {
+        final String ua = userAgent.trim();
+        int end = 0;
+        while(end < ua.length() && ua.charAt(end) != '/'
+                && !Character.isWhitespace(ua.charAt(end))) {
+            end++;
+        }
+        return ua.substring(0, end).toLowerCase();
+    }
+
+    /** @return the delay in milliseconds (the value is in seconds) or -1 */
+    private static long parseDelay(final String value) {
+        try {
+            final double seconds = Double.parseDouble(value);
+            return seconds < 0 || Double.isNaN(seconds) ? -1
+                    : (long) Math.min(seconds * 1000, Long.MAX_VALUE);
+        } catch(final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** an Allow or Disallow line */
+    private static final class Rule {
+        private final String[] parts;
+        private final boolean anchored;
+        private final boolean allow;
+        private final int length;
+
+        /** Creates the Rule. */
+        public Rule(final String pattern, final boolean allow) {
+            this.allow = allow;
+            this.length = pattern.length();
+            this.anchored = pattern.endsWith("$");
+            final String p = anchored ? pattern.substring(0, pattern.length() - 1)
+                                      : pattern;
+            this.parts = p.split("\\*", -1);
+        }
+
+        /** @return <code>true</code> if the pattern matches the path */
+        public boolean matches(final String path) {
+            if(!path.startsWith(parts[0])) {
+                return false;
+            }
+            if(parts.length == 1) {
+                return !anchored || path.length() == parts[0].length();
+            }
+            int i = parts[0].length();
+            final int last = parts.length - 1;
+            for(int j = 1; j < last; j++) {
+                final int k = path.indexOf(parts[j], i);
+                if(k < 0) {
+                    return false;
+                }
+                i = k + parts[j].length();
+            }
+            if(anchored) {
+                return path.length() - parts[last].length() >= i
+                    && path.endsWith(parts[last]);
+            }
+            return path.indexOf(parts[last], i) >= 0;
+        }
+    }
+}
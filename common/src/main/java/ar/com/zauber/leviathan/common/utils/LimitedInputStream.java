@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.lang.Validate;
+
+import ar.com.zauber.leviathan.common.ContentTooLargeException;
+
+/**
+ * {@link InputStream} that fails with a {@link ContentTooLargeException} as
+ * soon as more than <code>maxLength</code> bytes are read from it.
+ * 
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class LimitedInputStream extends FilterInputStream {
+    private final long maxLength;
+    private final String contentType;
+    private long count = 0;
+    private long mark = 0;
+
+    /**
+     * Creates the LimitedInputStream.
+     *
+     * @param in          the stream to limit
+     * @param maxLength   maximum number of bytes that can be read
+     * @param contentType content type reported in the exception (may be null)
+     */
+    public LimitedInputStream(final InputStream in, final long maxLength,
+            final String contentType) {
+        super(in);
+        Validate.notNull(in);
+        Validate.isTrue(maxLength >= 0, "maxLength must be positive");
+        this.maxLength = maxLength;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int ret = super.read();
+        if(ret != -1) {
+            count(1);
+        }
+        return ret;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        // ask for one byte more than allowed to detect the overflow
+        final long allowed = maxLength - count + 1;
+        final int n = super.read(b, off, (int) Math.min(len, allowed));
+        if(n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long ret = super.skip(Math.min(n, maxLength - count + 1));
+        count(ret);
+        return ret;
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit) {
+        super.mark(readlimit);
+        mark = count;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        super.reset();
+        count = mark;
+    }
+
+    /** @return number of bytes read so far */
+    public long getCount() {
+        return count;
+    }
+
+    /** accounts read bytes */
+    private void count(final long n) {
+        count += n;
+        if(count > maxLength) {
+            throw new ContentTooLargeException(count, maxLength, contentType);
+        }
+    }
+}
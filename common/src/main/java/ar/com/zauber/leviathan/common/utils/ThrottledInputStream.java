@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+import org.apache.commons.lang.Validate;
+
+import ar.com.zauber.leviathan.common.bandwidth.BandwidthLimiter;
+
+/**
+ * {@link InputStream} whose reads are paced by a {@link BandwidthLimiter}.
+ * Reads are done in small chunks, so the pace is smooth.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class ThrottledInputStream extends FilterInputStream {
+    private static final int CHUNK = 4096;
+    private final BandwidthLimiter limiter;
+    private final String host;
+
+    /**
+     * Creates the ThrottledInputStream.
+     *
+     * @param in      the stream to throttle
+     * @param limiter the limiter
+     * @param host    the host the content comes from (may be null)
+     */
+    public ThrottledInputStream(final InputStream in, final BandwidthLimiter limiter,
+            final String host) {
+        super(in);
+        Validate.notNull(in);
+        Validate.notNull(limiter);
+        this.limiter = limiter;
+        this.host = host;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int ret = super.read();
+        if(ret != -1) {
+            acquire(1);
+        }
+        return ret;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int n = super.read(b, off, Math.min(len, CHUNK));
+        if(n > 0) {
+            acquire(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long ret = super.skip(Math.min(n, CHUNK));
+        if(ret > 0) {
+            acquire((int) ret);
+        }
+        return ret;
+    }
+
+    /** waits for the limiter */
+    private void acquire(final int bytes) throws IOException {
+        try {
+            limiter.acquire(host, bytes);
+        } catch(final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while throttling");
+        }
+    }
+}
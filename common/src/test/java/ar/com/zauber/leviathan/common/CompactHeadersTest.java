@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.junit.Test;
+
+/**
+ * Tests {@link CompactHeaders}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class CompactHeadersTest {
+    private final CompactHeaders headers = CompactHeaders.of(
+            new String[] {new String("content-type"), "Set-Cookie", "X-Foo",
+                          "set-cookie"},
+            new String[] {"text/html", "a=1", "bar", "b=2"});
+
+    /** lookups are case insensitive */
+    @Test
+    public final void testLookup() {
+        assertEquals(4, headers.size());
+        assertEquals("text/html", headers.getFirst("Content-Type"));
+        assertEquals("text/html", headers.getFirst("CONTENT-TYPE"));
+        assertEquals("bar", headers.getFirst("x-foo"));
+        assertNull(headers.getFirst("Location"));
+        assertNull(headers.getFirst(null));
+        assertNull(headers.getAll("Location"));
+        assertEquals(Arrays.asList("a=1", "b=2"), headers.getAll("SET-COOKIE"));
+        assertEquals(Arrays.asList("bar"), headers.getAll("X-Foo"));
+    }
+
+    /** common names are shared */
+    @Test
+    public final void testCanonicalNames() {
+        assertSame("Content-Type", headers.getName(0));
+        assertSame("Set-Cookie", headers.getName(3));
+        assertEquals("X-Foo", headers.getName(2));
+
+        final CompactHeaders copy = (CompactHeaders) SerializationUtils.clone(headers);
+        assertEquals(headers, copy);
+        assertSame("Content-Type", copy.getName(0));
+    }
+
+    /** conversions from and to maps */
+    @Test
+    public final void testMap() {
+        final Map<String, List<String>> map = new LinkedHashMap<String, List<String>>();
+        map.put("ETag", Arrays.asList("\"x\""));
+        map.put("Vary", Arrays.asList("Accept", "Cookie"));
+        final CompactHeaders h = CompactHeaders.of(map);
+        assertEquals(3, h.size());
+        assertEquals(Arrays.asList("Accept", "Cookie"), h.getAll("vary"));
+        assertEquals(Arrays.asList("Accept", "Cookie"), h.toMap().get("VARY"));
+        assertEquals(map, CompactHeaders.of(h.toMap()).toMap());
+    }
+
+    /** headers of a 304 replace the stored ones, except the framing headers */
+    @Test
+    public final void testUpdate() {
+        final CompactHeaders stored = CompactHeaders.of(
+                new String[] {"ETag", "Content-Length", "Content-Type"},
+                new String[] {"\"1\"", "100", "text/html"});
+        final CompactHeaders updated = stored.update(CompactHeaders.of(
+                new String[] {"etag", "Content-Length", "Expires"},
+                new String[] {"\"2\"", "0", "tomorrow"}));
+        assertEquals("\"2\"", updated.getFirst("ETag"));
+        assertEquals(Arrays.asList("\"2\""), updated.getAll("ETag"));
+        assertEquals("100", updated.getFirst("Content-Length"));
+        assertEquals("text/html", updated.getFirst("Content-Type"));
+        assertEquals("tomorrow", updated.getFirst("Expires"));
+        assertEquals("\"1\"", stored.getFirst("ETag"));
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Tests {@link ContentPrefix} and {@link AbstractPrefixCharsetStrategy}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class ContentPrefixTest {
+
+    /** wrapping an in-memory body */
+    @Test
+    public final void testWrap() throws Exception {
+        final byte[] data = "0123456789".getBytes("US-ASCII");
+        final ContentPrefix prefix = ContentPrefix.wrap(data, 2, 8, 4);
+
+        assertEquals(4, prefix.length());
+        assertFalse(prefix.isComplete());
+        assertEquals('2', prefix.byteAt(0));
+        assertTrue(prefix.startsWith("23".getBytes("US-ASCII")));
+        assertFalse(prefix.startsWith("23456".getBytes("US-ASCII")));
+        assertEquals("2345", IOUtils.toString(prefix.openStream(), "US-ASCII"));
+        assertEquals(4, prefix.asByteBuffer().remaining());
+        assertTrue(prefix.asByteBuffer().isReadOnly());
+        assertTrue(ContentPrefix.wrap(data, 10).isComplete());
+    }
+
+    /** reading from a stream */
+    @Test
+    public final void testRead() throws Exception {
+        final byte[] data = new byte[100];
+        ContentPrefix prefix = ContentPrefix.read(new ByteArrayInputStream(data), 100);
+        assertEquals(100, prefix.length());
+        assertTrue(prefix.isComplete());
+
+        prefix = ContentPrefix.read(new ByteArrayInputStream(data), 99);
+        assertEquals(99, prefix.length());
+        assertFalse(prefix.isComplete());
+
+        prefix = ContentPrefix.read(null, 10);
+        assertEquals(0, prefix.length());
+        assertTrue(prefix.isComplete());
+    }
+
+    /** each stream strategy gets its own stream over the same prefix */
+    @Test
+    public final void testStreamStrategiesShareThePrefix() throws Exception {
+        final CharsetStrategy consumer = new CharsetStrategy() {
+            public Charset getCharset(final ResponseMetadata meta,
+                    final InputStream content) {
+                try {
+                    return IOUtils.toByteArray(content).length == 3
+                        ? Charset.forName("UTF-8") : null;
+                } catch (final IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        final ContentPrefix prefix = ContentPrefix.wrap(new byte[10], 3);
+        assertNotNull(AbstractPrefixCharsetStrategy.getCharset(consumer, null, prefix));
+        assertNotNull(AbstractPrefixCharsetStrategy.getCharset(consumer, null, prefix));
+    }
+}
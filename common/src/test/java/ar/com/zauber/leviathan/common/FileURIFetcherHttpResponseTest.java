@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link FileURIFetcherHttpResponse}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class FileURIFetcherHttpResponseTest {
+    private File dir;
+
+    /** creates the working directory */
+    @Before
+    public final void setUp() throws IOException {
+        dir = File.createTempFile("leviathan", "download");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+    }
+
+    /** removes the working directory */
+    @After
+    public final void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    /** the content ends in the file with its size and digest */
+    @Test
+    public final void testTransfer() throws Exception {
+        final byte[] data = new byte[300 * 1024];
+        for(int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        final File target = new File(dir, "image.bin");
+        final FileURIFetcherHttpResponse r = FileURIFetcherHttpResponse.transfer(
+                new ByteArrayInputStream(data), target, "SHA-1", 200,
+                CompactHeaders.of(new String[] {"Content-Type"},
+                                  new String[] {"image/png"}));
+
+        assertEquals(target, r.getFile());
+        assertEquals(data.length, r.getSize());
+        assertEquals(data.length, target.length());
+        assertFalse(new File(dir, "image.bin.part").exists());
+        assertArrayEquals(MessageDigest.getInstance("SHA-1").digest(data),
+                r.getDigest());
+        assertEquals(40, r.getDigestAsHex().length());
+        assertEquals("image/png", r.getHeader("content-type"));
+        final InputStream is = r.getRawContent();
+        try {
+            assertArrayEquals(data, IOUtils.toByteArray(is));
+        } finally {
+            is.close();
+        }
+    }
+
+    /** an existing file is replaced, an empty body is fine */
+    @Test
+    public final void testReplaceEmpty() throws Exception {
+        final File target = new File(dir, "empty");
+        FileUtils.writeStringToFile(target, "old content");
+        final FileURIFetcherHttpResponse r = FileURIFetcherHttpResponse.transfer(
+                new ByteArrayInputStream(new byte[0]), target, "MD5", 200,
+                CompactHeaders.EMPTY);
+
+        assertEquals(0, r.getSize());
+        assertEquals(0, target.length());
+        assertEquals("d41d8cd98f00b204e9800998ecf8427e", r.getDigestAsHex());
+    }
+
+    /** a failed transfer leaves no file behind */
+    @Test
+    public final void testFailure() throws Exception {
+        final File target = new File(dir, "broken");
+        try {
+            FileURIFetcherHttpResponse.transfer(new InputStream() {
+                private int n = 0;
+                @Override
+                public int read() throws IOException {
+                    if(n++ > 10) {
+                        throw new IOException("connection reset");
+                    }
+                    return 'a';
+                }
+            }, target, "SHA-1", 200, CompactHeaders.EMPTY);
+            fail();
+        } catch(final IOException e) {
+            // ok
+        }
+        assertFalse(target.exists());
+        assertEquals(0, dir.list().length);
+    }
+
+    /** the content is decoded on demand with the charset of the headers */
+    @Test
+    public final void testDecoding() throws Exception {
+        final String text = "ma\u00f1ana \u00e1rbol";
+        final FileURIFetcherHttpResponse r = FileURIFetcherHttpResponse.transfer(
+                new ByteArrayInputStream(text.getBytes("UTF-8")),
+                new File(dir, "utf8.txt"), "SHA-1", 200,
+                CompactHeaders.of(new String[] {"Content-Type"},
+                                  new String[] {"text/plain; charset=\"utf-8\""}));
+        assertEquals(text, r.getContentAsString());
+        assertEquals(text, r.getContentAsString());
+
+        final FileURIFetcherHttpResponse latin = FileURIFetcherHttpResponse.transfer(
+                new ByteArrayInputStream(text.getBytes("ISO-8859-1")),
+                new File(dir, "latin.txt"), "SHA-1", 200, CompactHeaders.EMPTY);
+        assertEquals(text, IOUtils.toString(latin.getContent()));
+    }
+}
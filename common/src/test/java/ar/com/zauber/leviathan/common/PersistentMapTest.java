@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link PersistentMap} and the contexts of {@link InmutableURIAndCtx}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class PersistentMapTest {
+
+    /** derived maps don't change the original */
+    @Test
+    public final void testPersistence() {
+        final PersistentMap<String, Object> empty = PersistentMap.empty();
+        final PersistentMap<String, Object> a = empty.with("a", 1);
+        final PersistentMap<String, Object> ab = a.with("b", 2);
+        final PersistentMap<String, Object> ab2 = ab.with("a", 3);
+
+        assertTrue(empty.isEmpty());
+        assertEquals(1, a.size());
+        assertEquals(2, ab.size());
+        assertEquals(2, ab2.size());
+        assertEquals(1, ab.get("a"));
+        assertEquals(3, ab2.get("a"));
+        assertNull(a.get("b"));
+        assertEquals(1, ab2.without("a").size());
+        assertEquals(3, ab2.get("a"));
+        assertSame(ab, ab.without("z"));
+        assertSame(empty, a.without("a"));
+        assertNull(ab.get(null));
+        assertNull(ab.get(1));
+        assertFalse(ab.containsKey(1));
+
+        final Map<String, Object> expected = new HashMap<String, Object>();
+        expected.put("a", 3);
+        expected.put("b", 2);
+        assertEquals(expected, ab2);
+        assertEquals(ab2, expected);
+        assertEquals(expected.hashCode(), ab2.hashCode());
+    }
+
+    /** null values are supported; the map can't be modified */
+    @Test
+    public final void testValues() {
+        final PersistentMap<String, Object> map = PersistentMap.<String, Object>empty()
+            .with("a", null);
+        assertTrue(map.containsKey("a"));
+        assertNull(map.get("a"));
+        try {
+            map.put("b", 1);
+            fail();
+        } catch(final UnsupportedOperationException e) {
+            // ok
+        }
+        try {
+            map.entrySet().iterator().next().setValue(1);
+            fail();
+        } catch(final UnsupportedOperationException e) {
+            // ok
+        }
+    }
+
+    /** against {@link TreeMap} with random operations */
+    @Test
+    public final void testRandom() {
+        final Random random = new Random(1);
+        final TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        for(int i = 0; i < 20000; i++) {
+            final Integer key = random.nextInt(2000);
+            if(random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.without(key);
+            } else {
+                expected.put(key, i);
+                map = map.with(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        final Iterator<Entry<Integer, Integer>> it = map.entrySet().iterator();
+        for(final Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry, it.next());
+        }
+        assertFalse(it.hasNext());
+    }
+
+    /** sequential keys keep the tree balanced */
+    @Test
+    public final void testBalanced() {
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        for(int i = 0; i < 100000; i++) {
+            map = map.with(i, i);
+        }
+        // AVL: height < 1.44 log2(n + 2)
+        assertTrue(map.height() <= 24);
+        assertEquals(100000, map.size());
+    }
+
+    /** contexts are shared */
+    @Test
+    public final void testURIAndCtx() {
+        final Map<String, Object> ctx = new HashMap<String, Object>();
+        ctx.put("a", 1);
+        final InmutableURIAndCtx u1 = new InmutableURIAndCtx(
+                URI.create("http://example.com/1"), ctx);
+        ctx.put("b", 2);
+        assertEquals(1, u1.getCtx().size());
+
+        final InmutableURIAndCtx u2 = u1.withURI(URI.create("http://example.com/2"))
+            .with("b", 3);
+        assertEquals(URI.create("http://example.com/2"), u2.getURI());
+        assertEquals(3, u2.getCtx().get("b"));
+        assertNull(u1.getCtx().get("b"));
+        assertSame(u2.getCtx(), InmutableURIAndCtx.derive(u2,
+                URI.create("http://example.com/3")).getCtx());
+        assertEquals(0, new InmutableURIAndCtx(u1.getURI()).getCtx().size());
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+
+/**
+ * Tests {@link RequestHeaders}.
+ * 
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class RequestHeadersTest {
+
+    /** headers are merged and the rest of the context is kept */
+    @Test
+    public final void with() throws Exception {
+        final Map<String, Object> ctx = new HashMap<String, Object>();
+        ctx.put("foo", "bar");
+        final URIAndCtx uriAndCtx = new InmutableURIAndCtx(new URI("http://foo"), ctx);
+        Assert.assertTrue(RequestHeaders.get(uriAndCtx).isEmpty());
+        
+        final Map<String, String> h1 = new HashMap<String, String>();
+        h1.put("If-None-Match", "\"abc\"");
+        final Map<String, String> h2 = new HashMap<String, String>();
+        h2.put("If-Modified-Since", "Sat, 29 Oct 1994 19:43:31 GMT");
+        final URIAndCtx r = RequestHeaders.with(RequestHeaders.with(uriAndCtx, h1), h2);
+        
+        Assert.assertEquals(uriAndCtx.getURI(), r.getURI());
+        Assert.assertEquals("bar", r.getCtx().get("foo"));
+        Assert.assertEquals(2, RequestHeaders.get(r).size());
+        Assert.assertEquals("\"abc\"", RequestHeaders.get(r).get("If-None-Match"));
+        Assert.assertTrue(RequestHeaders.get(uriAndCtx).isEmpty());
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+
+/**
+ * Tests {@link ResponseCodec}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class ResponseCodecTest {
+    private final URI uri = URI.create("http://example.com/caf\u00e9?q=1");
+
+    /** body and charset; the text is decoded again */
+    @Test
+    public final void testRawContent() throws Exception {
+        final Map<String, Object> ctx = new HashMap<String, Object>();
+        ctx.put("string", "valor \u00e1");
+        ctx.put("int", -3);
+        ctx.put("long", Long.MAX_VALUE);
+        ctx.put("bool", true);
+        ctx.put("null", null);
+        ctx.put("date", new Date(0));
+        ctx.put("headers", Collections.singletonMap("If-None-Match", "\"abc\""));
+        ctx.put("thread", Thread.currentThread());
+        final InmutableURIFetcherHttpResponse http = new InmutableURIFetcherHttpResponse(
+                "hola \u00f1and\u00fa \u4e2d\ud83d\ude00".getBytes("UTF-8"), 0,
+                Charset.forName("UTF-8"), 203, CompactHeaders.of(
+                        new String[] {"content-type", "ETag", "X-Foo"},
+                        new String[] {"text/html", "\"abc\"", "\u00e1"}));
+
+        final byte[] data = ResponseCodec.encode(new InmutableURIFetcherResponse(
+                new InmutableURIAndCtx(uri, ctx), http));
+        final URIFetcherResponse r = ResponseCodec.decode(data);
+
+        assertTrue(r.isSucceeded());
+        assertEquals(uri, r.getURI());
+        assertEquals(7, r.getURIAndCtx().getCtx().size());
+        assertEquals("valor \u00e1", r.getURIAndCtx().getCtx().get("string"));
+        assertEquals(-3, r.getURIAndCtx().getCtx().get("int"));
+        assertEquals(Long.MAX_VALUE, r.getURIAndCtx().getCtx().get("long"));
+        assertEquals(true, r.getURIAndCtx().getCtx().get("bool"));
+        assertTrue(r.getURIAndCtx().getCtx().containsKey("null"));
+        assertEquals(new Date(0), r.getURIAndCtx().getCtx().get("date"));
+        assertEquals(Collections.singletonMap("If-None-Match", "\"abc\""),
+                r.getURIAndCtx().getCtx().get("headers"));
+        assertEquals(203, r.getHttpResponse().getStatusCode());
+        assertEquals("text/html", r.getHttpResponse().getHeader("Content-Type"));
+        assertEquals("\u00e1", r.getHttpResponse().getHeader("X-Foo"));
+        assertEquals("hola \u00f1and\u00fa \u4e2d\ud83d\ude00",
+                r.getHttpResponse().getContentAsString());
+        assertSame(CompactHeaders.of(new String[] {"etag"}, new String[] {"x"}).getName(0),
+                ((InmutableURIFetcherHttpResponse) r.getHttpResponse()).getHeaders()
+                .getName(1));
+        // the body is not copied
+        assertSame(data, ((InmutableURIFetcherHttpResponse) r.getHttpResponse())
+                .getRawBytes());
+    }
+
+    /** the byte order mark (offset) is not stored */
+    @Test
+    public final void testOffset() throws Exception {
+        final byte[] body = {(byte) 0xef, (byte) 0xbb, (byte) 0xbf, 'h', 'i'};
+        final URIFetcherResponse r = ResponseCodec.decode(ResponseCodec.encode(
+                new InmutableURIFetcherResponse(uri, new InmutableURIFetcherHttpResponse(
+                        body, 3, Charset.forName("UTF-8"), 200, CompactHeaders.EMPTY))));
+        assertEquals("hi", r.getHttpResponse().getContentAsString());
+        assertEquals("hi", IOUtils.toString(r.getHttpResponse().getRawContent()));
+    }
+
+    /** content given as text, with and without raw content */
+    @Test
+    public final void testText() throws Exception {
+        URIFetcherResponse r = ResponseCodec.decode(ResponseCodec.encode(
+                new InmutableURIFetcherResponse(uri, new InmutableURIFetcherHttpResponse(
+                        "texto \u00e1", 404, CompactHeaders.EMPTY, null))));
+        assertEquals("texto \u00e1", r.getHttpResponse().getContentAsString());
+        assertEquals(404, r.getHttpResponse().getStatusCode());
+        assertEquals(0, r.getURIAndCtx().getCtx().size());
+
+        r = ResponseCodec.decode(ResponseCodec.encode(
+                new InmutableURIFetcherResponse(uri, new InmutableURIFetcherHttpResponse(
+                        "texto", 200, CompactHeaders.EMPTY, new byte[] {1, 2}))));
+        assertEquals("texto", r.getHttpResponse().getContentAsString());
+        assertTrue(Arrays.equals(new byte[] {1, 2},
+                IOUtils.toByteArray(r.getHttpResponse().getRawContent())));
+    }
+
+    /** errors */
+    @Test
+    public final void testError() throws Exception {
+        final URIFetcherResponse r = ResponseCodec.decode(ResponseCodec.encode(
+                new InmutableURIFetcherResponse(uri, new UnknownHostException("foo"))));
+        assertFalse(r.isSucceeded());
+        assertEquals(UnknownHostException.class, r.getError().getClass());
+        assertEquals("foo", r.getError().getMessage());
+    }
+
+    /** invalid data */
+    @Test
+    public final void testInvalid() throws Exception {
+        final byte[] data = ResponseCodec.encode(new InmutableURIFetcherResponse(uri,
+                new InmutableURIFetcherHttpResponse("hola", 200, CompactHeaders.EMPTY,
+                        null)));
+        for(final byte[] invalid : new byte[][] {
+                new byte[0],
+                "XX".getBytes("US-ASCII"),
+                Arrays.copyOf(data, data.length - 1),
+                versioned(data, ResponseCodec.VERSION + 1), }) {
+            try {
+                ResponseCodec.decode(invalid);
+                fail();
+            } catch(final IllegalArgumentException e) {
+                // ok
+            }
+        }
+        assertFalse(ResponseCodec.canEncode(null));
+    }
+
+    /** it is smaller than java serialization */
+    @Test
+    public final void testSize() throws Exception {
+        final Map<String, Object> ctx = new HashMap<String, Object>();
+        ctx.put("depth", 3);
+        final URIFetcherResponse response = new InmutableURIFetcherResponse(
+                new InmutableURIAndCtx(uri, ctx), new InmutableURIFetcherHttpResponse(
+                        new byte[100], 0, Charset.forName("UTF-8"), 200,
+                        CompactHeaders.of(new String[] {"Content-Type", "Server"},
+                                new String[] {"text/html", "nginx"})));
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeObject(response);
+        oos.close();
+        assertTrue(ResponseCodec.encode(response).length * 4 < bos.size());
+    }
+
+    /** @return a copy with another version */
+    private static byte[] versioned(final byte[] data, final int version) {
+        final byte[] ret = data.clone();
+        ret[2] = (byte) version;
+        return ret;
+    }
+}
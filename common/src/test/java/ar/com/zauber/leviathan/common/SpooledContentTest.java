@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Tests {@link SpooledContent} and {@link SpooledURIFetcherHttpResponse}.
+ * 
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class SpooledContentTest {
+
+    /** content smaller than the threshold stays in memory */
+    @Test
+    public final void testInMemory() throws Exception {
+        final byte[] data = "hola mundo".getBytes("utf-8");
+        final SpooledContent content = SpooledContent.spool(
+                new ByteArrayInputStream(data), 1024, null);
+        
+        assertFalse(content.isSpilled());
+        assertEquals(data.length, content.length());
+        assertArrayEquals(data, IOUtils.toByteArray(content.openStream(0)));
+        assertEquals("mundo", IOUtils.toString(content.openStream(5), "utf-8"));
+    }
+
+    /** content that exactly fits in the threshold stays in memory */
+    @Test
+    public final void testExactThreshold() throws Exception {
+        final byte[] data = new byte[64];
+        Arrays.fill(data, (byte) 'a');
+        final SpooledContent content = SpooledContent.spool(
+                new ByteArrayInputStream(data), data.length, null);
+        
+        assertFalse(content.isSpilled());
+        assertArrayEquals(data, IOUtils.toByteArray(content.openStream(0)));
+    }
+    
+    /** content bigger than the threshold goes to disk */
+    @Test
+    public final void testSpill() throws Exception {
+        final byte[] data = new byte[100 * 1024];
+        for(int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        final SpooledContent content = SpooledContent.spool(
+                new ByteArrayInputStream(data), 1024, null);
+        
+        assertTrue(content.isSpilled());
+        assertEquals(data.length, content.length());
+        assertArrayEquals(data, IOUtils.toByteArray(content.openStream(0)));
+        
+        final InputStream is = content.openStream(10);
+        assertEquals(10, is.read());
+        is.close();
+        
+        content.release();
+        try {
+            content.openStream(0);
+            fail();
+        } catch(final IllegalStateException e) {
+            // ok
+        }
+    }
+    
+    /** the file of a content that is never released is deleted once collected */
+    @Test(timeout = 10000)
+    public final void testCollected() throws Exception {
+        final File dir = File.createTempFile("spool", ".test");
+        assertTrue(dir.delete() && dir.mkdir());
+        try {
+            SpooledContent content = SpooledContent.spool(
+                    new ByteArrayInputStream(new byte[2048]), 1024, dir);
+            assertTrue(content.isSpilled());
+            assertEquals(1, dir.list().length);
+
+            content = null;
+            while(dir.list().length > 0) {
+                System.gc();
+                Thread.sleep(10);
+            }
+        } finally {
+            for(final File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    /** the response decodes on every call, skipping the offset */
+    @SuppressWarnings("unchecked")
+    @Test
+    public final void testResponse() throws Exception {
+        final byte[] bom = new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        final byte[] text = "ni\u00f1o".getBytes("utf-8");
+        final byte[] data = new byte[bom.length + text.length];
+        System.arraycopy(bom, 0, data, 0, bom.length);
+        System.arraycopy(text, 0, data, bom.length, text.length);
+        
+        final Map<String, List<String>> headers = Collections.singletonMap(
+                "Content-Type", Arrays.asList("text/plain"));
+        final SpooledURIFetcherHttpResponse response = new SpooledURIFetcherHttpResponse(
+                SpooledContent.spool(new ByteArrayInputStream(data), 2, null), 
+                bom.length, Charset.forName("utf-8"), 200, headers);
+        
+        assertEquals("ni\u00f1o", response.getContentAsString());
+        assertEquals("ni\u00f1o", response.getContentAsString());
+        assertArrayEquals(text, IOUtils.toByteArray(response.getRawContent()));
+        assertEquals("text/plain", response.getHeader("content-type"));
+        assertEquals(text.length, response.getContentLength());
+        assertEquals("ni\u00f1o", response.toInmutable().getContentAsString());
+        
+        response.release();
+        response.release();
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async;
+
+import static org.junit.Assert.*;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import ar.com.zauber.commons.dao.Closure;
+import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.async.CircuitBreaker.State;
+import ar.com.zauber.leviathan.common.async.impl.BlockingQueueJobQueue;
+import ar.com.zauber.leviathan.common.async.impl.NullAsyncUriFetcherObserver;
+
+/**
+ * Tests {@link CircuitBreaker}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class CircuitBreakerTest {
+    private long now = 0;
+    private final List<State> states = new CopyOnWriteArrayList<State>();
+
+    /** @return a breaker with a manual clock */
+    private CircuitBreaker createBreaker(final int threshold, final long timeout) {
+        final CircuitBreaker ret = new CircuitBreaker(threshold, timeout) {
+            @Override
+            protected long now() {
+                return now;
+            }
+        };
+        ret.addListener(new CircuitBreakerListener() {
+            public void stateChanged(final String host, final State state) {
+                states.add(state);
+            }
+        });
+        return ret;
+    }
+
+    /** closed, open, half open and back */
+    @Test
+    public final void testStates() {
+        final CircuitBreaker breaker = createBreaker(3, 1000);
+        breaker.onFailure("a");
+        breaker.onFailure("a");
+        breaker.onSuccess("a");
+        breaker.onFailure("a");
+        breaker.onFailure("a");
+        assertEquals(State.CLOSED, breaker.getState("a"));
+        assertTrue(breaker.tryAcquire("a"));
+
+        breaker.onFailure("a");
+        assertEquals(State.OPEN, breaker.getState("a"));
+        assertEquals(1000, breaker.getRetryAt("a"));
+        assertFalse(breaker.isCallPermitted("a"));
+        assertFalse(breaker.tryAcquire("a"));
+        assertTrue(breaker.tryAcquire("b"));
+
+        // a single probe
+        now = 1000;
+        assertTrue(breaker.isCallPermitted("a"));
+        assertTrue(breaker.tryAcquire("a"));
+        assertEquals(State.HALF_OPEN, breaker.getState("a"));
+        assertFalse(breaker.tryAcquire("a"));
+
+        // the probe failed: opens for twice the time
+        breaker.onFailure("a");
+        assertEquals(3000, breaker.getRetryAt("a"));
+        now = 2999;
+        assertFalse(breaker.tryAcquire("a"));
+        now = 3000;
+        assertTrue(breaker.tryAcquire("a"));
+        breaker.onSuccess("a");
+        assertEquals(State.CLOSED, breaker.getState("a"));
+        assertTrue(breaker.getTrippedHosts().isEmpty());
+        assertEquals(Arrays.asList(State.OPEN, State.HALF_OPEN, State.OPEN,
+                State.HALF_OPEN, State.CLOSED), states);
+    }
+
+    /** what counts as a failure */
+    @Test
+    public final void testRecord() throws URISyntaxException {
+        final URIAndCtx uri = new InmutableURIAndCtx(new URI("http://a/"));
+        final CircuitBreaker breaker = createBreaker(1, 1000);
+        breaker.record("a", new InmutableURIFetcherResponse(uri,
+                new CircuitOpenException("a")));
+        breaker.record("a", status(uri, 404));
+        assertEquals(State.CLOSED, breaker.getState("a"));
+        breaker.record("a", status(uri, 503));
+        assertEquals(State.OPEN, breaker.getState("a"));
+
+        final CircuitBreaker lenient = createBreaker(1, 1000);
+        lenient.setServerErrorFailure(false);
+        lenient.record("a", status(uri, 503));
+        assertEquals(State.CLOSED, lenient.getState("a"));
+        lenient.record("a", new InmutableURIFetcherResponse(uri,
+                new ConnectException()));
+        assertEquals(State.OPEN, lenient.getState("a"));
+    }
+
+    /** a probe without an outcome does not block the half open circuit */
+    @Test
+    public final void testProbeWithoutOutcome() throws URISyntaxException {
+        final URIAndCtx uri = new InmutableURIAndCtx(new URI("http://a/"));
+        final CircuitBreaker breaker = createBreaker(1, 1000);
+        breaker.onFailure("a");
+        now = 1000;
+        assertTrue(breaker.tryAcquire("a"));
+        assertFalse(breaker.tryAcquire("a"));
+
+        // ie: a hedge that lost
+        breaker.record("a", new InmutableURIFetcherResponse(uri,
+                new CancellationException()));
+        assertEquals(State.HALF_OPEN, breaker.getState("a"));
+        assertTrue(breaker.tryAcquire("a"));
+
+        // ie: a JobScheduler timeout
+        breaker.record("a", new InmutableURIFetcherResponse(uri,
+                new InterruptedException()));
+        assertTrue(breaker.tryAcquire("a"));
+        breaker.release("a");
+        assertTrue(breaker.tryAcquire("a"));
+        breaker.record("a", status(uri, 200));
+        assertEquals(State.CLOSED, breaker.getState("a"));
+    }
+
+    /** once the circuit opens the fetcher stops executing the tasks */
+    @Test(timeout = 5000)
+    public final void testFailFast() throws Exception {
+        final FetchQueueAsyncUriFetcher fetcher = new FetchQueueAsyncUriFetcher(
+                new JobScheduler(new BlockingQueueJobQueue<Job>(
+                        new LinkedBlockingQueue<Job>()),
+                        Executors.newSingleThreadExecutor()),
+                new JobScheduler(new BlockingQueueJobQueue<Job>(
+                        new LinkedBlockingQueue<Job>()),
+                        Executors.newSingleThreadExecutor()));
+        final List<String> observed = new CopyOnWriteArrayList<String>();
+        fetcher.setObserver(new ListeningObserver(observed));
+        // the fetcher stops listening to a replaced breaker
+        final CircuitBreaker replaced = new CircuitBreaker(1, 60000);
+        fetcher.setCircuitBreaker(replaced);
+        final CircuitBreaker breaker = new CircuitBreaker(2, 60000);
+        fetcher.setCircuitBreaker(breaker);
+        final URIFetcherResponse refused = new InmutableURIFetcherResponse(
+                new InmutableURIAndCtx(new URI("http://other/")), new ConnectException());
+        replaced.record("other", refused);
+
+        final URIAndCtx uri = new InmutableURIAndCtx(new URI("http://down/"));
+        final AtomicInteger executions = new AtomicInteger();
+        final List<URIFetcherResponse> responses =
+            new CopyOnWriteArrayList<URIFetcherResponse>();
+        for(int i = 0; i < 5; i++) {
+            fetcher.scheduleFetch(new FetchingTask() {
+                public URIAndCtx getURIAndCtx() {
+                    return uri;
+                }
+                public URIFetcherResponse execute() {
+                    executions.incrementAndGet();
+                    return new InmutableURIFetcherResponse(uri, new ConnectException());
+                }
+            }, new Closure<URIFetcherResponse>() {
+                public void execute(final URIFetcherResponse r) {
+                    responses.add(r);
+                }
+            });
+        }
+        fetcher.shutdown();
+        // nor to the breaker once it is shut down
+        breaker.record("other", refused);
+        breaker.record("other", refused);
+
+        assertEquals(2, executions.get());
+        assertEquals(5, responses.size());
+        assertTrue(responses.get(4).getError() instanceof CircuitOpenException);
+        assertEquals(Arrays.asList("down OPEN"), observed);
+    }
+
+    /** an observer that also listens to the circuit breaker */
+    private static final class ListeningObserver extends NullAsyncUriFetcherObserver
+            implements CircuitBreakerListener {
+        private final List<String> observed;
+
+        /** Creates the ListeningObserver. */
+        public ListeningObserver(final List<String> observed) {
+            this.observed = observed;
+        }
+
+        /** @see CircuitBreakerListener#stateChanged(String, State) */
+        public void stateChanged(final String host, final State state) {
+            observed.add(host + " " + state);
+        }
+    }
+
+    /** @return a response with the status */
+    private URIFetcherResponse status(final URIAndCtx uri, final int status) {
+        return new InmutableURIFetcherResponse(uri, new InmutableURIFetcherHttpResponse(
+                "", status, new HashMap<String, List<String>>()));
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import ar.com.zauber.commons.dao.Closure;
+import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.common.CompactHeaders;
+import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.async.impl.BlockingQueueJobQueue;
+
+/**
+ * Tests {@link DuplicateContentFilter}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class DuplicateContentFilterTest {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** @return a response with the body */
+    private static URIFetcherResponse response(final String uri, final int status,
+            final String body) {
+        return new InmutableURIFetcherResponse(URI.create(uri),
+                new InmutableURIFetcherHttpResponse(body.getBytes(UTF8), 0, UTF8,
+                        status, CompactHeaders.EMPTY));
+    }
+
+    /** the hash doesn't depend on how the content is read */
+    @Test
+    public final void testHash() throws IOException {
+        final byte[] data = new byte[20000];
+        for(int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        final long hash = DuplicateContentFilter.hash(new ByteArrayInputStream(data));
+        assertEquals(hash, DuplicateContentFilter.hash(new FilterInputStream(
+                new ByteArrayInputStream(data)) {
+            @Override
+            public int read(final byte[] b, final int off, final int len)
+                    throws IOException {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        }));
+        data[19999]++;
+        assertFalse(hash == DuplicateContentFilter.hash(new ByteArrayInputStream(data)));
+        assertFalse(DuplicateContentFilter.hash(new ByteArrayInputStream(new byte[0]))
+                == DuplicateContentFilter.hash(new ByteArrayInputStream(new byte[1])));
+    }
+
+    /** only successful bodies are remembered */
+    @Test
+    public final void testIsDuplicate() {
+        final DuplicateContentFilter filter = new DuplicateContentFilter(2);
+        assertFalse(filter.isDuplicate(response("http://a/1", 200, "hola")));
+        assertTrue(filter.isDuplicate(response("http://a/1?jsessionid=2", 200, "hola")));
+        assertFalse(filter.isDuplicate(response("http://a/2", 200, "chau")));
+        assertFalse(filter.isDuplicate(response("http://a/3", 404, "hola")));
+        assertFalse(filter.isDuplicate(response("http://a/4", 404, "hola")));
+        assertFalse(filter.isDuplicate(new InmutableURIFetcherResponse(
+                URI.create("http://a/5"), new UnknownHostException())));
+        assertFalse(filter.isDuplicate(new InmutableURIFetcherResponse(
+                URI.create("http://a/6"), new InmutableURIFetcherHttpResponse(
+                        "sin raw", 200, CompactHeaders.EMPTY, null))));
+        assertEquals(3, filter.getChecked());
+        assertEquals(1, filter.getDuplicates());
+
+        // bounded: "hola" is the least recently seen
+        assertFalse(filter.isDuplicate(response("http://a/7", 200, "otro")));
+        assertEquals(2, filter.size());
+        assertFalse(filter.isDuplicate(response("http://a/8", 200, "hola")));
+    }
+
+    /**
+     * duplicates are still handed to the scheduled closure, marked, so they
+     * can be routed to a cheap closure
+     */
+    @Test(timeout = 5000)
+    public final void testFetcher() throws Exception {
+        final FetchQueueAsyncUriFetcher fetcher = new FetchQueueAsyncUriFetcher(
+                new JobScheduler(new BlockingQueueJobQueue<Job>(
+                        new LinkedBlockingQueue<Job>()),
+                        Executors.newSingleThreadExecutor()),
+                new JobScheduler(new BlockingQueueJobQueue<Job>(
+                        new LinkedBlockingQueue<Job>()),
+                        Executors.newSingleThreadExecutor()));
+        final List<URI> processed = new CopyOnWriteArrayList<URI>();
+        final List<URI> duplicated = new CopyOnWriteArrayList<URI>();
+        final AtomicInteger scheduled = new AtomicInteger();
+        fetcher.setDuplicateContentFilter(new DuplicateContentFilter());
+        final Closure<URIFetcherResponse> closure = DuplicateContentFilter.routing(
+                new Closure<URIFetcherResponse>() {
+                    public void execute(final URIFetcherResponse r) {
+                        processed.add(r.getURI());
+                    }
+                }, new Closure<URIFetcherResponse>() {
+                    public void execute(final URIFetcherResponse r) {
+                        duplicated.add(r.getURI());
+                    }
+                });
+
+        final String[][] pages = {
+            {"http://a/", "home"},
+            {"http://a/?sid=1", "home"},
+            {"http://a/print", "home"},
+            {"http://a/other", "other"},
+        };
+        for(final String[] page : pages) {
+            final URIAndCtx uri = new InmutableURIAndCtx(URI.create(page[0]));
+            fetcher.scheduleFetch(new FetchingTask() {
+                public URIAndCtx getURIAndCtx() {
+                    return uri;
+                }
+                public URIFetcherResponse execute() {
+                    return response(page[0], 200, page[1]);
+                }
+            }, new Closure<URIFetcherResponse>() {
+                public void execute(final URIFetcherResponse r) {
+                    scheduled.incrementAndGet();
+                    closure.execute(r);
+                }
+            });
+        }
+        fetcher.shutdown();
+
+        assertEquals(4, scheduled.get());
+        assertEquals(2, processed.size());
+        assertTrue(processed.contains(URI.create("http://a/")));
+        assertTrue(processed.contains(URI.create("http://a/other")));
+        assertEquals(2, duplicated.size());
+        assertTrue(duplicated.contains(URI.create("http://a/print")));
+    }
+}
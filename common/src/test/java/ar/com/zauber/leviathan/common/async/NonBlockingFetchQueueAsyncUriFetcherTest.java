@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ar.com.zauber.commons.dao.Closure;
+import ar.com.zauber.leviathan.api.URIFetcher;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.async.impl.BlockingQueueJobQueue;
+import ar.com.zauber.leviathan.common.fluent.Fetchers;
+
+/**
+ * Tests {@link NonBlockingFetchQueueAsyncUriFetcher}
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class NonBlockingFetchQueueAsyncUriFetcherTest {
+
+    /** creates the fetcher under test */
+    private NonBlockingFetchQueueAsyncUriFetcher createFetcher(final int maxInFlight) {
+        return new NonBlockingFetchQueueAsyncUriFetcher(
+                new BlockingQueueJobQueue<Job>(new LinkedBlockingQueue<Job>()),
+                new JobScheduler(new BlockingQueueJobQueue<Job>(
+                        new LinkedBlockingQueue<Job>()),
+                        Executors.newSingleThreadExecutor()),
+                Executors.newSingleThreadExecutor(), maxInFlight);
+    }
+
+    /**
+     * the responses arrive from another thread (like an I/O reactor); the
+     * requests in flight never exceed the limit and shutdown waits for them.
+     */
+    @Test(timeout = 5000)
+    public final void boundedInFlight() throws URISyntaxException {
+        final int maxInFlight = 4;
+        final NonBlockingFetchQueueAsyncUriFetcher fetcher = createFetcher(maxInFlight);
+        final ScheduledExecutorService reactor = Executors.newScheduledThreadPool(2);
+        final AtomicInteger concurrent = new AtomicInteger(0);
+        final AtomicInteger maxConcurrent = new AtomicInteger(0);
+        final AtomicInteger processed = new AtomicInteger(0);
+
+        final Closure<URIFetcherResponse> closure = new Closure<URIFetcherResponse>() {
+            public void execute(final URIFetcherResponse t) {
+                Assert.assertTrue(t.isSucceeded());
+                processed.incrementAndGet();
+            }
+        };
+        for(int i = 0; i < 50; i++) {
+            final URIAndCtx uriAndCtx = new InmutableURIAndCtx(new URI("http://foo/" + i));
+            fetcher.scheduleFetch(new NonBlockingFetchingTask() {
+                public URIAndCtx getURIAndCtx() {
+                    return uriAndCtx;
+                }
+                public URIFetcherResponse execute() {
+                    throw new AssertionError("must not block");
+                }
+                public void executeAsync(final Closure<URIFetcherResponse> c) {
+                    final int n = concurrent.incrementAndGet();
+                    synchronized (maxConcurrent) {
+                        maxConcurrent.set(Math.max(n, maxConcurrent.get()));
+                    }
+                    reactor.schedule(new Runnable() {
+                        public void run() {
+                            concurrent.decrementAndGet();
+                            c.execute(new InmutableURIFetcherResponse(uriAndCtx,
+                                    new InmutableURIFetcherHttpResponse("ok", 200,
+                                    new HashMap<String, List<String>>())));
+                        }
+                    }, 5, TimeUnit.MILLISECONDS);
+                }
+            }, closure);
+        }
+        fetcher.shutdown();
+        reactor.shutdown();
+
+        Assert.assertEquals(50, processed.get());
+        Assert.assertEquals(0, fetcher.getInFlight());
+        Assert.assertTrue(maxConcurrent.get() <= maxInFlight);
+    }
+
+    /** plain (blocking) tasks still work */
+    @Test(timeout = 5000)
+    public final void blockingFallback() throws URISyntaxException {
+        final NonBlockingFetchQueueAsyncUriFetcher fetcher = createFetcher(2);
+        final URIFetcher f = Fetchers.createFixed().build();
+        final AtomicInteger processed = new AtomicInteger(0);
+        for(int i = 0; i < 10; i++) {
+            fetcher.scheduleFetch(f.createGet(new URI("http://foo")),
+                    new Closure<URIFetcherResponse>() {
+                public void execute(final URIFetcherResponse t) {
+                    processed.incrementAndGet();
+                }
+            });
+        }
+        fetcher.shutdown();
+        Assert.assertEquals(10, processed.get());
+    }
+
+    /** a task that calls back twice is only processed once */
+    @Test(timeout = 5000)
+    public final void completedTwice() throws URISyntaxException {
+        final NonBlockingFetchQueueAsyncUriFetcher fetcher = createFetcher(1);
+        final AtomicInteger processed = new AtomicInteger(0);
+        final URIAndCtx uriAndCtx = new InmutableURIAndCtx(new URI("http://foo"));
+        fetcher.scheduleFetch(new NonBlockingFetchingTask() {
+            public URIAndCtx getURIAndCtx() {
+                return uriAndCtx;
+            }
+            public URIFetcherResponse execute() {
+                throw new AssertionError("must not block");
+            }
+            public void executeAsync(final Closure<URIFetcherResponse> c) {
+                final URIFetcherResponse r = new InmutableURIFetcherResponse(uriAndCtx,
+                        new IllegalStateException());
+                c.execute(r);
+                c.execute(r);
+            }
+        }, new Closure<URIFetcherResponse>() {
+            public void execute(final URIFetcherResponse t) {
+                Assert.assertFalse(t.isSucceeded());
+                processed.incrementAndGet();
+            }
+        });
+        fetcher.shutdown();
+        Assert.assertEquals(1, processed.get());
+        Assert.assertEquals(0, fetcher.getInFlight());
+    }
+}
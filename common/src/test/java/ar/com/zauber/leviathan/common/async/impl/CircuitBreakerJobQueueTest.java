@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.async.impl;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
+import ar.com.zauber.leviathan.common.async.CircuitBreaker;
+import ar.com.zauber.leviathan.common.async.Job;
+
+/**
+ * Tests {@link CircuitBreakerJobQueue}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class CircuitBreakerJobQueueTest {
+
+    /** @return a job for the uri */
+    private Job job(final String uri) {
+        final URIAndCtx uriAndCtx = new InmutableURIAndCtx(URI.create(uri));
+        return new Job() {
+            public URIAndCtx getUriAndCtx() {
+                return uriAndCtx;
+            }
+            public void run() {
+                // nothing to do
+            }
+        };
+    }
+
+    /** the jobs of an open circuit wait until a probe is allowed */
+    @Test(timeout = 5000)
+    public final void testPark() throws Exception {
+        final CircuitBreaker breaker = new CircuitBreaker(1, 200);
+        final CircuitBreakerJobQueue queue = new CircuitBreakerJobQueue(
+                new BlockingQueueJobQueue<Job>(new LinkedBlockingQueue<Job>()),
+                breaker);
+        breaker.onFailure("down");
+        final Job down = job("http://down/");
+        final Job up = job("http://up/");
+        queue.add(down);
+        queue.add(up);
+
+        final long t1 = System.currentTimeMillis();
+        assertSame(up, queue.poll());
+        assertEquals(1, queue.size());
+        assertFalse(queue.isEmpty());
+        assertSame(down, queue.poll());
+        assertTrue(System.currentTimeMillis() - t1 >= 150);
+        assertTrue(breaker.tryAcquire("down"));
+        assertTrue(queue.isEmpty());
+        queue.shutdown();
+    }
+
+    /** shutdown gives back the parked jobs */
+    @Test(timeout = 5000)
+    public final void testShutdown() throws Exception {
+        final CircuitBreaker breaker = new CircuitBreaker(1, 60000);
+        final CircuitBreakerJobQueue queue = new CircuitBreakerJobQueue(
+                new BlockingQueueJobQueue<Job>(new LinkedBlockingQueue<Job>()),
+                breaker);
+        breaker.onFailure("down");
+        final Job down = job("http://down/");
+        queue.add(down);
+        queue.add(job("http://up/"));
+        queue.poll();
+        assertEquals(1, queue.size());
+
+        queue.shutdown();
+        assertSame(down, queue.poll());
+        try {
+            queue.poll();
+            fail();
+        } catch(final InterruptedException e) {
+            // ok
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.bandwidth;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.common.utils.ThrottledInputStream;
+
+/**
+ * Tests {@link BandwidthLimiter}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class BandwidthLimiterTest {
+
+    /** reservations over the burst leave the bucket in debt */
+    @Test
+    public final void testTokenBucket() {
+        final TokenBucket bucket = new TokenBucket(1000, 100);
+        assertEquals(0, bucket.reserve(100));
+        final long wait = bucket.reserve(500);
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(400));
+        assertTrue(wait <= TimeUnit.MILLISECONDS.toNanos(500));
+        assertFalse(bucket.isFull());
+    }
+
+    /** reading is paced by the host limit */
+    @Test(timeout = 5000)
+    public final void testHost() throws Exception {
+        final BandwidthLimiter limiter = new BandwidthLimiter(100000, -1);
+        assertEquals(30000, read(limiter, "a", 30000, 100000));
+        limiter.setHostLimit("b", 0);
+        final long t1 = System.currentTimeMillis();
+        assertEquals(30000, read(limiter, "b", 30000, 0));
+        assertTrue(System.currentTimeMillis() - t1 < 150);
+    }
+
+    /** the global limit is shared by all the hosts */
+    @Test(timeout = 5000)
+    public final void testGlobal() throws Exception {
+        final BandwidthLimiter limiter = new BandwidthLimiter(-1, 100000);
+        final long t1 = System.currentTimeMillis();
+        read(limiter, "a", 15000, 0);
+        read(limiter, "b", 15000, 0);
+        // 30000 bytes minus a burst of 10000 bytes at 100000 bytes/s
+        assertTrue(System.currentTimeMillis() - t1 >= 180);
+    }
+
+    /** 
+     * reads <code>length</code> bytes from the host 
+     * @return bytes read 
+     */
+    private int read(final BandwidthLimiter limiter, final String host,
+            final int length, final long bytesPerSecond) throws Exception {
+        final InputStream is = new ThrottledInputStream(
+                new ByteArrayInputStream(new byte[length]), limiter, host);
+        final long t1 = System.currentTimeMillis();
+        final int ret = IOUtils.toByteArray(is).length;
+        final long elapsed = System.currentTimeMillis() - t1;
+        if(bytesPerSecond > 0) {
+            // the first 100ms are the burst
+            final long expected = (length * 1000L / bytesPerSecond) - 100;
+            assertTrue(elapsed + " >= " + expected, elapsed >= expected * 9 / 10);
+        }
+        return ret;
+    }
+}
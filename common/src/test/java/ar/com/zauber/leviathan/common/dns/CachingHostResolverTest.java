@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.dns;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.common.async.Job;
+import ar.com.zauber.leviathan.common.async.JobQueue;
+import ar.com.zauber.leviathan.common.async.impl.EnqueuingJob;
+import ar.com.zauber.leviathan.common.async.impl.MultiDomainPoliteJobQueue;
+import ar.com.zauber.leviathan.common.async.impl.PreResolvingJobQueue;
+
+/**
+ * Tests {@link CachingHostResolver} and {@link PreResolvingJobQueue}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class CachingHostResolverTest {
+    private StubResolver stub;
+    private ExecutorService executor;
+
+    /** set up */
+    @Before
+    public final void setUp() throws Exception {
+        stub = new StubResolver();
+        stub.add("www.example.com", new byte[] {10, 0, 0, 1});
+        stub.add("www.example.org", new byte[] {10, 0, 0, 2});
+        executor = Executors.newCachedThreadPool();
+    }
+
+    /** tear down */
+    @After
+    public final void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /** positive answers are cached */
+    @Test
+    public final void testPositiveCache() throws Exception {
+        final CachingHostResolver resolver = new CachingHostResolver(stub, executor);
+        final InetAddress[] a = resolver.resolve("www.example.com");
+        assertEquals("10.0.0.1", a[0].getHostAddress());
+        final InetAddress[] b = resolver.resolve("WWW.EXAMPLE.COM");
+        assertEquals("10.0.0.1", b[0].getHostAddress());
+        assertEquals(1, stub.getLookups());
+        assertEquals(1, resolver.getMisses());
+        assertEquals(1, resolver.getHits());
+    }
+
+    /** unknown hosts are cached for the negative ttl */
+    @Test
+    public final void testNegativeCache() throws Exception {
+        final CachingHostResolver resolver = new CachingHostResolver(stub, executor);
+        for(int i = 0; i < 3; i++) {
+            try {
+                resolver.resolve("unknown.example.com");
+                fail();
+            } catch(final UnknownHostException e) {
+                // ok
+            }
+        }
+        assertEquals(1, stub.getLookups());
+
+        resolver.setNegativeTtl(0);
+        resolver.clear();
+        for(int i = 0; i < 2; i++) {
+            try {
+                resolver.resolve("unknown.example.com");
+                fail();
+            } catch(final UnknownHostException e) {
+                // ok
+            }
+        }
+        assertEquals(3, stub.getLookups());
+    }
+
+    /** expired answers are resolved again */
+    @Test
+    public final void testExpiration() throws Exception {
+        final CachingHostResolver resolver = new CachingHostResolver(stub, executor);
+        resolver.setPositiveTtl(0);
+        resolver.resolve("www.example.com");
+        resolver.resolve("www.example.com");
+        assertEquals(2, stub.getLookups());
+    }
+
+    /** the cache is bounded */
+    @Test
+    public final void testMaxEntries() throws Exception {
+        final CachingHostResolver resolver = new CachingHostResolver(stub, executor);
+        resolver.setMaxEntries(1);
+        resolver.resolve("www.example.com");
+        resolver.resolve("www.example.org");
+        assertEquals(1, resolver.size());
+    }
+
+    /** a prefetch is shared with the callers that arrive while it is in flight */
+    @Test(timeout = 5000)
+    public final void testPrefetch() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        stub.setLatch(latch);
+        final CachingHostResolver resolver = new CachingHostResolver(stub, executor);
+        resolver.prefetch("www.example.com");
+        resolver.prefetch("www.example.com");
+        resolver.prefetch(null);
+        assertEquals(1, resolver.getPrefetches());
+
+        latch.countDown();
+        assertEquals("10.0.0.1",
+                resolver.resolve("www.example.com")[0].getHostAddress());
+        assertEquals(1, stub.getLookups());
+        assertEquals(0, resolver.getMisses());
+
+        // still fresh: nothing to do
+        resolver.prefetch("www.example.com");
+        assertEquals(1, resolver.getPrefetches());
+        // about to expire: refreshed
+        resolver.setRefreshAhead(Long.MAX_VALUE / 2);
+        resolver.prefetch("www.example.com");
+        assertEquals(2, resolver.getPrefetches());
+    }
+
+    /** rejected prefetches are forgotten */
+    @Test
+    public final void testRejectedPrefetch() throws Exception {
+        executor.shutdown();
+        final CachingHostResolver resolver = new CachingHostResolver(stub, executor);
+        resolver.prefetch("www.example.com");
+        assertEquals(0, resolver.size());
+        assertEquals("10.0.0.1",
+                resolver.resolve("www.example.com")[0].getHostAddress());
+    }
+
+    /** jobs that wait in the queue get their host resolved */
+    @Test(timeout = 5000)
+    public final void testPreResolvingJobQueue() throws Exception {
+        final Executor direct = new Executor() {
+            public void execute(final Runnable command) {
+                command.run();
+            }
+        };
+        final CachingHostResolver resolver = new CachingHostResolver(stub, direct);
+        final JobQueue<Job> queue = new PreResolvingJobQueue(
+                new MultiDomainPoliteJobQueue(10, TimeUnit.MILLISECONDS), resolver);
+        final LinkedList<String> done = new LinkedList<String>();
+        queue.add(new EnqueuingJob("http://www.example.com/1", done));
+        queue.add(new EnqueuingJob("http://www.example.com/2", done));
+        queue.add(new EnqueuingJob("http://www.example.org/1", done));
+        assertEquals(3, queue.size());
+        assertEquals(2, stub.getLookups());
+        assertEquals(2, resolver.getPrefetches());
+
+        while(!queue.isEmpty()) {
+            final Job job = queue.poll();
+            resolver.resolve(job.getUriAndCtx().getURI().getHost());
+            job.run();
+        }
+        assertEquals(3, done.size());
+        assertEquals(2, stub.getLookups());
+        assertEquals(0, resolver.getMisses());
+    }
+
+    /** local resolver */
+    private static final class StubResolver implements HostResolver {
+        private final ConcurrentMap<String, InetAddress[]> hosts =
+            new ConcurrentHashMap<String, InetAddress[]>();
+        private final AtomicInteger lookups = new AtomicInteger();
+        private volatile CountDownLatch latch;
+
+        /** adds a host */
+        public void add(final String host, final byte[] address)
+                throws UnknownHostException {
+            hosts.put(host, new InetAddress[] {
+                    InetAddress.getByAddress(host, address)});
+        }
+
+        /** lookups wait for the latch */
+        public void setLatch(final CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        /** @return number of lookups */
+        public int getLookups() {
+            return lookups.get();
+        }
+
+        /** @see HostResolver#resolve(String) */
+        public InetAddress[] resolve(final String host) throws UnknownHostException {
+            lookups.incrementAndGet();
+            if(latch != null) {
+                try {
+                    latch.await();
+                } catch(final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            final InetAddress[] ret = hosts.get(host);
+            if(ret == null) {
+                throw new UnknownHostException(host);
+            }
+            return ret;
+        }
+    }
+}
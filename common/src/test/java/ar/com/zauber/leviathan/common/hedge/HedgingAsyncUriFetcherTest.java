@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.hedge;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import ar.com.zauber.commons.dao.Closure;
+import ar.com.zauber.leviathan.api.AsyncUriFetcher;
+import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.common.AbstractAsyncUriFetcher;
+import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.NonRepeatableFetchingTask;
+
+/**
+ * Tests {@link HedgingAsyncUriFetcher}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class HedgingAsyncUriFetcherTest {
+    private final URIAndCtx uri = new InmutableURIAndCtx(
+            URI.create("http://www.example.com/"));
+    private final List<URIFetcherResponse> delivered =
+        new CopyOnWriteArrayList<URIFetcherResponse>();
+    private final Closure<URIFetcherResponse> closure = new Closure<URIFetcherResponse>() {
+        public void execute(final URIFetcherResponse r) {
+            delivered.add(r);
+        }
+    };
+
+    /** @return a response with the status */
+    @SuppressWarnings("unchecked")
+    private URIFetcherResponse status(final int status) {
+        return new InmutableURIFetcherResponse(uri,
+                new InmutableURIFetcherHttpResponse("", status, Collections.EMPTY_MAP));
+    }
+
+    /** a task that answers fast */
+    private FetchingTask fast() {
+        return new FetchingTask() {
+            public URIAndCtx getURIAndCtx() {
+                return uri;
+            }
+            public URIFetcherResponse execute() {
+                return status(200);
+            }
+        };
+    }
+
+    /** the slow primary loses against its hedge and is interrupted */
+    @Test(timeout = 5000)
+    public final void testHedge() throws Exception {
+        final HedgingAsyncUriFetcher fetcher = new HedgingAsyncUriFetcher(
+                new ThreadPerTaskAsyncUriFetcher(), 1.0);
+        fetcher.setMinSamples(1);
+        // the hedge waits ~100ms: the primary is the first to run the task
+        fetcher.scheduleFetch(new FetchingTask() {
+            public URIAndCtx getURIAndCtx() {
+                return uri;
+            }
+            public URIFetcherResponse execute() {
+                try {
+                    Thread.sleep(100);
+                } catch(final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return status(200);
+            }
+        }, closure);
+        assertTrue(fetcher.awaitIdleness(4, TimeUnit.SECONDS));
+        assertEquals(1, fetcher.getLatencies("www.example.com").size());
+
+        final AtomicInteger executions = new AtomicInteger();
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        fetcher.scheduleFetch(new FetchingTask() {
+            public URIAndCtx getURIAndCtx() {
+                return uri;
+            }
+            public URIFetcherResponse execute() {
+                if(executions.incrementAndGet() == 1) {
+                    try {
+                        Thread.sleep(10000);
+                        return status(500);
+                    } catch(final InterruptedException e) {
+                        interrupted.set(true);
+                        return new InmutableURIFetcherResponse(uri, e);
+                    }
+                }
+                return status(201);
+            }
+        }, closure);
+        assertTrue(fetcher.awaitIdleness(4, TimeUnit.SECONDS));
+        assertEquals(2, delivered.size());
+        assertEquals(201, delivered.get(1).getHttpResponse().getStatusCode());
+        assertEquals(1, fetcher.getHedges());
+        assertEquals(1, fetcher.getHedgeWins());
+        for(int i = 0; i < 100 && !interrupted.get(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(interrupted.get());
+        assertEquals(2, delivered.size());
+        fetcher.shutdown();
+    }
+
+    /** without budget there are no hedges */
+    @Test(timeout = 5000)
+    public final void testBudget() throws Exception {
+        final HedgingAsyncUriFetcher fetcher = new HedgingAsyncUriFetcher(
+                new ThreadPerTaskAsyncUriFetcher(), 0.0);
+        fetcher.setMinSamples(1);
+        fetcher.scheduleFetch(fast(), closure);
+        fetcher.scheduleFetch(new FetchingTask() {
+            public URIAndCtx getURIAndCtx() {
+                return uri;
+            }
+            public URIFetcherResponse execute() {
+                try {
+                    Thread.sleep(200);
+                } catch(final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return status(200);
+            }
+        }, closure);
+        assertTrue(fetcher.awaitIdleness(4, TimeUnit.SECONDS));
+        assertEquals(2, delivered.size());
+        assertEquals(0, fetcher.getHedges());
+        fetcher.shutdown();
+    }
+
+    /** non repeatable tasks are never hedged */
+    @Test(timeout = 5000)
+    public final void testNonRepeatable() throws Exception {
+        final HedgingAsyncUriFetcher fetcher = new HedgingAsyncUriFetcher(
+                new ThreadPerTaskAsyncUriFetcher(), 1.0);
+        fetcher.setMinSamples(1);
+        fetcher.scheduleFetch(fast(), closure);
+        assertTrue(fetcher.awaitIdleness(4, TimeUnit.SECONDS));
+        fetcher.scheduleFetch(new NonRepeatableFetchingTask() {
+            public URIAndCtx getURIAndCtx() {
+                return uri;
+            }
+            public URIFetcherResponse execute() {
+                try {
+                    Thread.sleep(200);
+                } catch(final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return status(200);
+            }
+        }, closure);
+        assertTrue(fetcher.awaitIdleness(4, TimeUnit.SECONDS));
+        assertEquals(2, delivered.size());
+        assertEquals(0, fetcher.getHedges());
+        fetcher.shutdown();
+    }
+
+    /** the primary fails while its hedge can't be scheduled: the failure is delivered */
+    @Test(timeout = 5000)
+    public final void testHedgeRejected() throws Exception {
+        final CountDownLatch primaryDone = new CountDownLatch(1);
+        final HedgingAsyncUriFetcher fetcher = new HedgingAsyncUriFetcher(
+                new ThreadPerTaskAsyncUriFetcher() {
+            private final AtomicInteger calls = new AtomicInteger();
+            @Override
+            public AsyncUriFetcher scheduleFetch(final FetchingTask task,
+                    final Closure<URIFetcherResponse> closure) {
+                final int call = calls.incrementAndGet();
+                if(call == 1) {
+                    return super.scheduleFetch(task, closure);
+                } else if(call == 2) {
+                    return super.scheduleFetch(task, new Closure<URIFetcherResponse>() {
+                        public void execute(final URIFetcherResponse r) {
+                            closure.execute(r);
+                            primaryDone.countDown();
+                        }
+                    });
+                }
+                // the hedge: rejected once the primary already failed
+                try {
+                    primaryDone.await();
+                } catch(final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new RejectedExecutionException("shutting down");
+            }
+        }, 1.0);
+        fetcher.setMinSamples(1);
+        fetcher.scheduleFetch(fast(), closure);
+        assertTrue(fetcher.awaitIdleness(4, TimeUnit.SECONDS));
+
+        fetcher.scheduleFetch(new FetchingTask() {
+            public URIAndCtx getURIAndCtx() {
+                return uri;
+            }
+            public URIFetcherResponse execute() {
+                try {
+                    Thread.sleep(200);
+                } catch(final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new InmutableURIFetcherResponse(uri,
+                        new IOException("connection reset"));
+            }
+        }, closure);
+        assertTrue(fetcher.awaitIdleness(4, TimeUnit.SECONDS));
+        assertEquals(2, delivered.size());
+        assertFalse(delivered.get(1).isSucceeded());
+        assertEquals(1, fetcher.getHedges());
+    }
+
+    /** latency percentiles */
+    @Test
+    public final void testLatencyWindow() {
+        final LatencyWindow window = new LatencyWindow(4);
+        assertEquals(-1, window.getPercentile(0.5));
+        for(int i = 1; i <= 6; i++) {
+            window.add(i * 10);
+        }
+        assertEquals(4, window.size());
+        assertEquals(40, window.getPercentile(0.5));
+        assertEquals(60, window.getPercentile(1));
+        assertEquals(30, window.getPercentile(0.1));
+    }
+
+    /** runs every task in its own thread */
+    private static class ThreadPerTaskAsyncUriFetcher extends AbstractAsyncUriFetcher {
+        public AsyncUriFetcher scheduleFetch(final FetchingTask task,
+                final Closure<URIFetcherResponse> closure) {
+            new Thread(new Runnable() {
+                public void run() {
+                    closure.execute(execute(task));
+                }
+            }).start();
+            return this;
+        }
+        public void shutdown() {
+            // nothing to do
+        }
+        public void shutdownNow() {
+            // nothing to do
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.retry;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.UnhandledException;
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+
+/**
+ * Tests {@link BackoffRetryPolicy}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class BackoffRetryPolicyTest {
+    private final InmutableURIAndCtx uri = new InmutableURIAndCtx(
+            URI.create("http://www.example.com/"));
+
+    /** @return a response with the status */
+    private URIFetcherResponse status(final int status, final String retryAfter) {
+        final Map<String, List<String>> headers = retryAfter == null
+            ? Collections.<String, List<String>>emptyMap()
+            : Collections.singletonMap("Retry-After", Arrays.asList(retryAfter));
+        return new InmutableURIFetcherResponse(uri,
+                new InmutableURIFetcherHttpResponse("", status, headers));
+    }
+
+    /** @return a failed response */
+    private URIFetcherResponse error(final Throwable t) {
+        return new InmutableURIFetcherResponse(uri, t);
+    }
+
+    /** status and exception policies */
+    @Test
+    public final void testRetryable() {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        assertTrue(policy.getRetryDelay(status(503, null), 1) >= 0);
+        assertTrue(policy.getRetryDelay(status(503, null), 2) >= 0);
+        assertTrue(policy.getRetryDelay(status(503, null), 3) < 0);
+        assertTrue(policy.getRetryDelay(status(200, null), 1) < 0);
+        assertTrue(policy.getRetryDelay(status(404, null), 1) < 0);
+
+        assertTrue(policy.getRetryDelay(error(new SocketTimeoutException()), 1) >= 0);
+        assertTrue(policy.getRetryDelay(error(new UnhandledException(
+                new IOException())), 1) >= 0);
+        assertTrue(policy.getRetryDelay(error(new UnknownHostException()), 1) < 0);
+        assertTrue(policy.getRetryDelay(error(new IllegalStateException()), 1) < 0);
+
+        policy.retryOnStatus(404, 2).retryOnException(IllegalStateException.class, 5);
+        assertTrue(policy.getRetryDelay(status(404, null), 1) >= 0);
+        assertTrue(policy.getRetryDelay(status(404, null), 2) < 0);
+        assertTrue(policy.getRetryDelay(error(new IllegalStateException()), 4) >= 0);
+    }
+
+    /** exponential backoff with jitter */
+    @Test
+    public final void testBackoff() {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setBaseDelay(100);
+        policy.setMaxDelay(350);
+        policy.retryOnStatus(500, 100);
+        for(int i = 0; i < 50; i++) {
+            final long d1 = policy.getRetryDelay(status(500, null), 1);
+            assertTrue(d1 >= 50 && d1 <= 100);
+            final long d2 = policy.getRetryDelay(status(500, null), 2);
+            assertTrue(d2 >= 100 && d2 <= 200);
+            final long d40 = policy.getRetryDelay(status(500, null), 40);
+            assertTrue(d40 >= 175 && d40 <= 350);
+        }
+    }
+
+    /** Retry-After overrides the backoff */
+    @Test
+    public final void testRetryAfter() {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setMaxRetryAfter(60000);
+        assertEquals(30000, policy.getRetryDelay(status(429, "30"), 1));
+        assertEquals(30000, policy.getRetryDelay(status(503, " 30 "), 1));
+        assertTrue(policy.getRetryDelay(status(503, "3600"), 1) < 0);
+        // ignored on other status codes
+        assertTrue(policy.getRetryDelay(status(500, "30"), 1) <= 1000);
+
+        assertEquals(-1, BackoffRetryPolicy.parseRetryAfter("soon", 0));
+        assertEquals(-1, BackoffRetryPolicy.parseRetryAfter(null, 0));
+        assertEquals(2000, BackoffRetryPolicy.parseRetryAfter(
+                "Thu, 01 Jan 1970 00:00:12 GMT", 10000));
+        assertEquals(0, BackoffRetryPolicy.parseRetryAfter(
+                "Thu, 01 Jan 1970 00:00:12 GMT", 20000));
+    }
+}
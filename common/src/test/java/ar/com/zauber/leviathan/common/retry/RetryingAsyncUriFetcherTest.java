@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.retry;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ar.com.zauber.commons.dao.Closure;
+import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcher;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.api.UrlEncodedPostBody;
+import ar.com.zauber.leviathan.common.AbstractURIFetcher;
+import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.NonRepeatableFetchingTask;
+import ar.com.zauber.leviathan.common.NotsoAsyncUriFetcher;
+
+/**
+ * Tests {@link RetryingAsyncUriFetcher}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class RetryingAsyncUriFetcherTest {
+    private final URIAndCtx uri = new InmutableURIAndCtx(
+            URI.create("http://www.example.com/"));
+
+    /** @return a response with the status */
+    @SuppressWarnings("unchecked")
+    private URIFetcherResponse status(final int status) {
+        return new InmutableURIFetcherResponse(uri,
+                new InmutableURIFetcherHttpResponse("", status, Collections.EMPTY_MAP));
+    }
+
+    /** @return a task that answers the responses in order */
+    private FetchingTask scripted(final URIFetcherResponse ... responses) {
+        final Queue<URIFetcherResponse> queue = new LinkedList<URIFetcherResponse>();
+        Collections.addAll(queue, responses);
+        return new FetchingTask() {
+            public URIAndCtx getURIAndCtx() {
+                return uri;
+            }
+            public synchronized URIFetcherResponse execute() {
+                return queue.size() > 1 ? queue.poll() : queue.peek();
+            }
+        };
+    }
+
+    /** transient failures are retried and only the final response is delivered */
+    @Test(timeout = 5000)
+    public final void testRetry() throws Exception {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setBaseDelay(10);
+        final RetryingAsyncUriFetcher fetcher = new RetryingAsyncUriFetcher(
+                new NotsoAsyncUriFetcher(), policy);
+        final List<URIFetcherResponse> delivered =
+            new CopyOnWriteArrayList<URIFetcherResponse>();
+        final Closure<URIFetcherResponse> closure = new Closure<URIFetcherResponse>() {
+            public void execute(final URIFetcherResponse r) {
+                delivered.add(r);
+            }
+        };
+
+        fetcher.scheduleFetch(scripted(status(503),
+                new InmutableURIFetcherResponse(uri, new SocketTimeoutException()),
+                status(200)), closure);
+        assertTrue(fetcher.awaitIdleness(4, TimeUnit.SECONDS));
+        assertEquals(1, delivered.size());
+        assertEquals(200, delivered.get(0).getHttpResponse().getStatusCode());
+        assertEquals(2, fetcher.getRetries());
+
+        // gives up after the maximum number of attempts
+        fetcher.scheduleFetch(scripted(status(500)), closure);
+        assertTrue(fetcher.awaitIdleness(4, TimeUnit.SECONDS));
+        assertEquals(2, delivered.size());
+        assertEquals(500, delivered.get(1).getHttpResponse().getStatusCode());
+        assertEquals(4, fetcher.getRetries());
+
+        // final responses are not retried
+        fetcher.scheduleFetch(scripted(status(404)), closure);
+        assertTrue(fetcher.awaitIdleness(4, TimeUnit.SECONDS));
+        assertEquals(3, delivered.size());
+        assertEquals(4, fetcher.getRetries());
+
+        // non repeatable tasks are not retried
+        final FetchingTask once = scripted(status(503), status(200));
+        fetcher.scheduleFetch(new NonRepeatableFetchingTask() {
+            public URIAndCtx getURIAndCtx() {
+                return once.getURIAndCtx();
+            }
+            public URIFetcherResponse execute() {
+                return once.execute();
+            }
+        }, closure);
+        assertTrue(fetcher.awaitIdleness(4, TimeUnit.SECONDS));
+        assertEquals(4, delivered.size());
+        assertEquals(503, delivered.get(3).getHttpResponse().getStatusCode());
+        assertEquals(4, fetcher.getRetries());
+        fetcher.shutdown();
+    }
+
+    /** the synchronous decorator */
+    @Test
+    public final void testSync() throws Exception {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setBaseDelay(1);
+        final FetchingTask task = scripted(status(502), status(200));
+        final URIFetcher target = new AbstractURIFetcher() {
+            public FetchingTask createGet(final URIAndCtx uriAndCtx) {
+                return task;
+            }
+            public FetchingTask createPost(final URIAndCtx uriAndCtx,
+                    final InputStream body) {
+                throw new UnsupportedOperationException();
+            }
+            public FetchingTask createPost(final URIAndCtx uriAndCtx,
+                    final UrlEncodedPostBody body) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        assertEquals(200, new RetryingURIFetcher(target, policy).get(uri)
+                .getHttpResponse().getStatusCode());
+    }
+}
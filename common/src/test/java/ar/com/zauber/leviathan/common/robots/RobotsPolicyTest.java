@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.robots;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.api.UrlEncodedPostBody;
+import ar.com.zauber.leviathan.common.AbstractURIFetcher;
+import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.async.Job;
+import ar.com.zauber.leviathan.common.async.RejectableJob;
+import ar.com.zauber.leviathan.common.async.impl.MultiDomainPoliteJobQueue;
+import ar.com.zauber.leviathan.common.async.impl.RobotsJobQueue;
+
+/**
+ * Tests {@link RobotsPolicy} and {@link RobotsJobQueue}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class RobotsPolicyTest {
+    /** robots.txt by host. null means a network error */
+    private final Map<String, Object> sites = new HashMap<String, Object>();
+    private int fetches = 0;
+
+    private final AbstractURIFetcher fetcher = new AbstractURIFetcher() {
+        public FetchingTask createGet(final URIAndCtx uriAndCtx) {
+            return new FetchingTask() {
+                public URIAndCtx getURIAndCtx() {
+                    return uriAndCtx;
+                }
+                public URIFetcherResponse execute() {
+                    fetches++;
+                    final URI uri = uriAndCtx.getURI();
+                    assertEquals("/robots.txt", uri.getPath());
+                    final Object site = sites.get(uri.getHost());
+                    if(site == null) {
+                        return new InmutableURIFetcherResponse(uriAndCtx,
+                                new ConnectException());
+                    }
+                    final int status = site instanceof Integer ? (Integer) site : 200;
+                    return new InmutableURIFetcherResponse(uriAndCtx,
+                            new InmutableURIFetcherHttpResponse(
+                                    site instanceof String ? (String) site : "",
+                                    status, new HashMap<String, List<String>>()));
+                }
+            };
+        }
+        public FetchingTask createPost(final URIAndCtx uriAndCtx,
+                final InputStream body) {
+            throw new UnsupportedOperationException();
+        }
+        public FetchingTask createPost(final URIAndCtx uriAndCtx,
+                final UrlEncodedPostBody body) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    /** each site is fetched once; errors disallow and 4xx allow */
+    @Test
+    public final void testPolicy() {
+        sites.put("a", "User-agent: *\nDisallow: /x\n");
+        sites.put("b", 404);
+        sites.put("c", 503);
+        final RobotsPolicy policy = new RobotsPolicy(fetcher, "leviathan");
+        policy.setErrorTtl(0);
+
+        assertFalse(policy.isAllowed(URI.create("http://a/x")));
+        assertTrue(policy.isAllowed(URI.create("http://a/y")));
+        assertTrue(policy.isAllowed(URI.create("http://b/x")));
+        assertFalse(policy.isAllowed(URI.create("http://c/y")));
+        assertFalse(policy.isAllowed(URI.create("http://d/y")));
+        assertEquals(4, fetches);
+        assertEquals(4, policy.getFetches());
+
+        // other scheme or port is another site
+        assertFalse(policy.isAllowed(URI.create("https://a/x")));
+        assertEquals(5, fetches);
+
+        // lru
+        final RobotsPolicy small = new RobotsPolicy(fetcher, "leviathan");
+        small.setMaxSites(2);
+        small.isAllowed(URI.create("http://a/"));
+        small.isAllowed(URI.create("http://b/"));
+        small.isAllowed(URI.create("http://a/"));
+        small.isAllowed(URI.create("http://c/"));
+        assertEquals(2, small.size());
+        assertEquals(8, fetches);
+        small.isAllowed(URI.create("http://a/"));
+        assertEquals(8, fetches);
+        small.isAllowed(URI.create("http://b/"));
+        assertEquals(9, fetches);
+
+        // errors expire
+        sites.put("c", "");
+        assertTrue(policy.isAllowed(URI.create("http://c/y")));
+    }
+
+    /**
+     * jobs wait (parked) for the rules, that are fetched by a job of the
+     * queue; disallowed jobs are rejected and the crawl delay is the domain
+     * delay
+     */
+    @Test(timeout = 5000)
+    public final void testQueue() throws Exception {
+        sites.put("a", "User-agent: *\nDisallow: /x\nCrawl-delay: 0.3\n");
+        final MultiDomainPoliteJobQueue polite = new MultiDomainPoliteJobQueue(
+                0, TimeUnit.MILLISECONDS);
+        final RobotsJobQueue queue = new RobotsJobQueue(polite,
+                new RobotsPolicy(fetcher, "leviathan"), polite);
+        final Map<URI, Throwable> rejected = new HashMap<URI, Throwable>();
+        queue.add(job("http://a/x", rejected));
+        queue.add(job("http://a/1", rejected));
+        queue.add(job("http://a/2", rejected));
+        assertEquals(0, fetches);
+        // the parked jobs and the one that fetches the robots.txt
+        assertEquals(4, queue.size());
+
+        final Job rules = queue.poll();
+        assertEquals(URI.create("http://a/robots.txt"), rules.getUriAndCtx().getURI());
+        rules.run();
+        assertEquals(1, fetches);
+        assertEquals(1, rejected.size());
+        assertTrue(rejected.get(URI.create("http://a/x"))
+                instanceof RobotsDisallowedException);
+        assertEquals(2, queue.size());
+
+        // the rules are known: no waiting
+        try {
+            queue.add(job("http://a/x", rejected));
+            fail();
+        } catch(final RobotsDisallowedException e) {
+            assertEquals(URI.create("http://a/x"), e.getURI());
+        }
+        final long t1 = System.currentTimeMillis();
+        assertEquals(URI.create("http://a/1"), queue.poll().getUriAndCtx().getURI());
+        assertEquals(URI.create("http://a/2"), queue.poll().getUriAndCtx().getURI());
+        assertTrue(System.currentTimeMillis() - t1 >= 250);
+        assertTrue(queue.isEmpty());
+        queue.shutdown();
+    }
+
+    /** when the rules can't be obtained the parked jobs are rejected */
+    @Test(timeout = 5000)
+    public final void testQueueRulesError() throws Exception {
+        final MultiDomainPoliteJobQueue polite = new MultiDomainPoliteJobQueue(
+                0, TimeUnit.MILLISECONDS);
+        final RobotsPolicy robots = new RobotsPolicy(new AbstractURIFetcher() {
+            public FetchingTask createGet(final URIAndCtx uriAndCtx) {
+                throw new IllegalStateException("boom");
+            }
+            public FetchingTask createPost(final URIAndCtx uriAndCtx,
+                    final InputStream body) {
+                throw new UnsupportedOperationException();
+            }
+            public FetchingTask createPost(final URIAndCtx uriAndCtx,
+                    final UrlEncodedPostBody body) {
+                throw new UnsupportedOperationException();
+            }
+        }, "leviathan");
+        final RobotsJobQueue queue = new RobotsJobQueue(polite, robots, polite);
+        final Map<URI, Throwable> rejected = new HashMap<URI, Throwable>();
+        queue.add(job("http://a/1", rejected));
+        queue.add(job("http://a/2", rejected));
+        queue.poll().run();
+        assertEquals(2, rejected.size());
+        assertTrue(rejected.get(URI.create("http://a/1")).getCause()
+                instanceof IllegalStateException);
+        assertTrue(queue.isEmpty());
+        queue.shutdown();
+    }
+
+    /** @return a job for the uri, that records its rejection */
+    private Job job(final String uri, final Map<URI, Throwable> rejected) {
+        final URIAndCtx uriAndCtx = new InmutableURIAndCtx(URI.create(uri));
+        return new RejectableJob() {
+            public URIAndCtx getUriAndCtx() {
+                return uriAndCtx;
+            }
+            public void run() {
+                // nothing to do
+            }
+            public void reject(final Throwable cause) {
+                rejected.put(uriAndCtx.getURI(), cause);
+            }
+        };
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.robots;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link RobotsRules}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class RobotsRulesTest {
+    private static final String ROBOTS =
+          "# comment\n"
+        + "User-agent: *\n"
+        + "Disallow: /private/\n"
+        + "Allow: /private/public$\n"
+        + "Disallow: /*.pdf$\n"
+        + "Disallow: /search*q=\n"
+        + "Crawl-delay: 2\n"
+        + "\n"
+        + "User-agent: googlebot\n"
+        + "User-agent: Leviathan\n"
+        + "Disallow: /nolev   # trailing comment\n"
+        + "Crawl-delay: 0.5\n"
+        + "\n"
+        + "Sitemap: http://example.com/sitemap.xml\n"
+        + "User-agent: leviathan-images\n"
+        + "Disallow: /\n";
+
+    /** the most specific group applies */
+    @Test
+    public final void testGroups() {
+        final RobotsRules lev = RobotsRules.parse(ROBOTS, "Leviathan/1.0");
+        assertFalse(lev.isAllowed("/nolev/x"));
+        assertTrue(lev.isAllowed("/private/"));
+        assertEquals(500, lev.getCrawlDelay());
+
+        final RobotsRules images = RobotsRules.parse(ROBOTS, "leviathan-images");
+        assertFalse(images.isAllowed("/"));
+        assertTrue(images.isAllowed("/robots.txt"));
+        assertEquals(-1, images.getCrawlDelay());
+
+        final RobotsRules other = RobotsRules.parse(ROBOTS, "otherbot");
+        assertEquals(2000, other.getCrawlDelay());
+        assertTrue(other.isAllowed("/nolev"));
+    }
+
+    /** the product token must be equal to the group name, not a prefix of it */
+    @Test
+    public final void testProductToken() {
+        final String robots =
+              "User-agent: *\n"
+            + "Disallow: /private/\n"
+            + "\n"
+            + "User-agent: LEVIATHAN\n"
+            + "Disallow: /\n";
+
+        final RobotsRules images = RobotsRules.parse(robots,
+                "leviathan-images/2.0 (+http://example.com/bot)");
+        assertTrue(images.isAllowed("/"));
+        assertFalse(images.isAllowed("/private/"));
+
+        final RobotsRules lev = RobotsRules.parse(robots, "Leviathan (+http://example.com)");
+        assertFalse(lev.isAllowed("/"));
+        assertEquals("leviathan", RobotsRules.productToken(" Leviathan/1.0 (x)"));
+    }
+
+    /** wildcards, anchors and precedence */
+    @Test
+    public final void testPatterns() {
+        final RobotsRules rules = RobotsRules.parse(ROBOTS, "otherbot");
+        assertTrue(rules.isAllowed("/"));
+        assertTrue(rules.isAllowed(""));
+        assertFalse(rules.isAllowed("/private/x"));
+        assertTrue(rules.isAllowed("/private/public"));
+        assertFalse(rules.isAllowed("/private/public/x"));
+        assertFalse(rules.isAllowed("/a/b.pdf"));
+        assertTrue(rules.isAllowed("/a/b.pdf?x=1"));
+        assertFalse(rules.isAllowed("/search?a=1&q=2"));
+        assertTrue(rules.isAllowed("/search?a=1"));
+    }
+
+    /** on a tie allow wins; empty disallow allows everything */
+    @Test
+    public final void testTie() {
+        final RobotsRules rules = RobotsRules.parse(
+                "User-agent: *\nDisallow: /a\nAllow: /a\nDisallow:\n", "x");
+        assertTrue(rules.isAllowed("/a"));
+        assertTrue(RobotsRules.parse("", "x").isAllowed("/a"));
+        assertFalse(RobotsRules.DISALLOW_ALL.isAllowed("/a"));
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.common.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.common.ContentTooLargeException;
+
+/**
+ * Tests {@link LimitedInputStream}.
+ * 
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class LimitedInputStreamTest {
+
+    /** content exactly at the limit is read */
+    @Test
+    public final void atLimit() throws IOException {
+        final LimitedInputStream is = new LimitedInputStream(
+                new ByteArrayInputStream(new byte[100]), 100, null);
+        Assert.assertEquals(100, IOUtils.toByteArray(is).length);
+        Assert.assertEquals(100, is.getCount());
+    }
+
+    /** content over the limit fails without reading the whole stream */
+    @Test
+    public final void overLimit() throws IOException {
+        final ByteArrayInputStream in = new ByteArrayInputStream(new byte[10000]);
+        try {
+            IOUtils.toByteArray(new LimitedInputStream(in, 100, "text/html"));
+            Assert.fail();
+        } catch(final ContentTooLargeException e) {
+            Assert.assertEquals(101, e.getLength());
+            Assert.assertEquals(100, e.getMaxLength());
+            Assert.assertEquals("text/html", e.getContentType());
+        }
+        Assert.assertEquals(10000 - 101, in.available());
+    }
+
+    /** single byte reads */
+    @Test
+    public final void singleByte() throws IOException {
+        final LimitedInputStream is = new LimitedInputStream(
+                new ByteArrayInputStream(new byte[2]), 1, null);
+        Assert.assertEquals(0, is.read());
+        try {
+            is.read();
+            Assert.fail();
+        } catch(final ContentTooLargeException e) {
+            // ok
+        }
+    }
+}
@@ -17,6 +17,7 @@ package ar.com.zauber.leviathan.impl;
 
 import static org.junit.Assert.*;
 
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -24,6 +25,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.SerializationUtils;
 import org.junit.Test;
 
 import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
@@ -85,4 +88,51 @@ public class InmutableURIFetcherHttpResponseTest {
         assertNotNull(new InmutableURIFetcherHttpResponse("", 200, headers)
         .getHeader("content-type"));
     }
+    
+    /** test */
+    @SuppressWarnings("unchecked")
+    @Test
+    public final void testLazyDecoding() throws Exception {
+        // UTF-8 byte order mark + "ni\u00f1o"
+        final byte[] data = new byte[] {(byte) 0xef, (byte) 0xbb, (byte) 0xbf,
+                'n', 'i', (byte) 0xc3, (byte) 0xb1, 'o'};
+        final InmutableURIFetcherHttpResponse response =
+            new InmutableURIFetcherHttpResponse(data, 3, Charset.forName("utf-8"),
+                    200, Collections.EMPTY_MAP);
+        
+        assertArrayEquals(Arrays.copyOfRange(data, 3, data.length),
+                IOUtils.toByteArray(response.getRawContent()));
+        assertFalse(response.isDecoded());
+        assertEquals("ni\u00f1o", response.getContentAsString());
+        assertTrue(response.isDecoded());
+        assertSame(response.getContentAsString(), response.getContentAsString());
+        assertEquals("ni\u00f1o", IOUtils.toString(response.getContent()));
+    }
+    
+    /** test */
+    @SuppressWarnings("unchecked")
+    @Test
+    public final void testMalformedInput() throws Exception {
+        final byte[] data = new byte[] {'a', (byte) 0xff, 'b'};
+        assertEquals(new String(data, "utf-8"),
+            new InmutableURIFetcherHttpResponse(data, 0, Charset.forName("utf-8"),
+                    200, Collections.EMPTY_MAP).getContentAsString());
+        assertEquals("", new InmutableURIFetcherHttpResponse(new byte[0], 0,
+                Charset.forName("iso-8859-1"), 200, Collections.EMPTY_MAP)
+                .getContentAsString());
+    }
+    
+    /** test */
+    @SuppressWarnings("unchecked")
+    @Test
+    public final void testSerializable() throws Exception {
+        final InmutableURIFetcherHttpResponse response =
+            new InmutableURIFetcherHttpResponse("hola".getBytes("utf-16"), 0,
+                    Charset.forName("utf-16"), 200, Collections.EMPTY_MAP);
+        response.getContentAsString();
+        final InmutableURIFetcherHttpResponse copy =
+            (InmutableURIFetcherHttpResponse) SerializationUtils.clone(response);
+        assertFalse(copy.isDecoded());
+        assertEquals("hola", copy.getContentAsString());
+    }
 }
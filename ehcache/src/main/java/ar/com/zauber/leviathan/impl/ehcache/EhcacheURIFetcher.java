@@ -18,21 +18,36 @@ package ar.com.zauber.leviathan.impl.ehcache;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.Formatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.Element;
 
+import org.apache.commons.lang.UnhandledException;
 import org.apache.commons.lang.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcherHttpResponse;
 import ar.com.zauber.leviathan.api.URIFetcher;
 import ar.com.zauber.leviathan.api.URIFetcherResponse;
 import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
 import ar.com.zauber.leviathan.api.UrlEncodedPostBody;
 import ar.com.zauber.leviathan.common.AbstractURIFetcher;
 import ar.com.zauber.leviathan.common.CtxDecorableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.RequestHeaders;
+import ar.com.zauber.leviathan.common.ResponseCodec;
+import ar.com.zauber.leviathan.common.SpooledURIFetcherHttpResponse;
 
 /**
  * EhCache URI fetcher.
@@ -43,6 +58,10 @@ import ar.com.zauber.leviathan.common.CtxDecorableURIFetcherResponse;
  * caso de no ser necesario se podra considerar ya que la funcionalidad es
  * similar.
  *
+ * Concurrent misses (and revalidations) of the same URI are coalesced: one
+ * thread fetches while the others wait for it and share its response (the
+ * in-memory copy, if the response must be released once processed).
+ *
  * @author Francisco J. Gonzalez Costanzo
  * @since Nov 19, 2009
  */
@@ -52,8 +71,20 @@ public class EhcacheURIFetcher extends AbstractURIFetcher {
     private final URIFetcher fetcher;
     private final Cache cache;
     private final CACHING_BEHAVIOR cachingBehavior;
-    private long hits;
-    private long total;
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final int NOT_MODIFIED = 304;
+    private long revalidationInterval = -1;
+    private boolean storeEncoded = true;
+    /** fetchs in flight by cache key */
+    private final ConcurrentMap<URI, FutureTask<Fetched>> inFlight =
+        new ConcurrentHashMap<URI, FutureTask<Fetched>>();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
 
 
     /**
@@ -130,39 +161,281 @@ public class EhcacheURIFetcher extends AbstractURIFetcher {
             @Override
             public URIFetcherResponse execute() {
                 final Element e = cache.get(uriAndCtx.getURI());
+                final URIFetcherResponse cached = e == null ? null : toResponse(e);
                 URIFetcherResponse ret;
-                if (e == null) {
-                    ret = fetcher.get(uriAndCtx);
-
-                    switch (cachingBehavior) {
-                        case OK:
-                            if(ret.isSucceeded() && ret.getHttpResponse().getStatusCode() >= 200 
-                                    && ret.getHttpResponse().getStatusCode() < 300) {
-                                cache.put(new Element(uriAndCtx.getURI(), ret));
-                            }
-                            break;
-                        case SUCCEEDED:
-                            if(ret.isSucceeded()) {
-                                cache.put(new Element(uriAndCtx.getURI(), ret));
-                            }
-                            break;
-                        case ALL:
-                            cache.put(new Element(uriAndCtx.getURI(), ret));
-                            break;
-                        default:
-                            throw new IllegalStateException("CachingBehavior no manejado");
-                    }
+                if (cached == null) {
+                    ret = coalesce(uriAndCtx, new Callable<Fetched>() {
+                        public Fetched call() {
+                            final URIFetcherResponse r = fetcher.get(uriAndCtx);
+                            return new Fetched(r, store(uriAndCtx, r));
+                        }
+                    });
+                } else if(isStale(e)) {
+                    ret = coalesce(uriAndCtx, new Callable<Fetched>() {
+                        public Fetched call() {
+                            return revalidate(uriAndCtx, cached);
+                        }
+                    });
                 } else {
-                    ret = new CtxDecorableURIFetcherResponse(
-                            (URIFetcherResponse) e.getValue(), uriAndCtx);
-                    hits++;
+                    ret = new CtxDecorableURIFetcherResponse(cached, uriAndCtx);
+                    hits.incrementAndGet();
                 }
-                total++;
+                total.incrementAndGet();
                 return ret;
             }
         };
     }
 
+    /**
+     * Executes the fetch unless another thread is already fetching the same
+     * key, in which case it waits for that fetch and shares its result.
+     */
+    private URIFetcherResponse coalesce(final URIAndCtx uriAndCtx,
+            final Callable<Fetched> fetch) {
+        final URI key = uriAndCtx.getURI();
+        final FutureTask<Fetched> task = new FutureTask<Fetched>(new Callable<Fetched>() {
+            public Fetched call() throws Exception {
+                // the previous leader may have filled the cache after our miss
+                final Element e = cache.get(key);
+                final URIFetcherResponse cached = e == null || isStale(e)
+                    ? null : toResponse(e);
+                if(cached != null) {
+                    hits.incrementAndGet();
+                    return new Fetched(new CtxDecorableURIFetcherResponse(cached,
+                            uriAndCtx), cached);
+                }
+                return fetch.call();
+            }
+        });
+        final FutureTask<Fetched> leader = inFlight.putIfAbsent(key, task);
+        if(leader == null) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+        }
+
+        final Fetched fetched;
+        try {
+            fetched = result(leader == null ? task : leader);
+        } catch(final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new InmutableURIFetcherResponse(uriAndCtx, e);
+        }
+        if(leader == null) {
+            return fetched.response;
+        }
+        coalesced.incrementAndGet();
+        if(fetched.cached) {
+            hits.incrementAndGet();
+        }
+        return new CtxDecorableURIFetcherResponse(fetched.shared, uriAndCtx);
+    }
+
+    /** @return the result of the fetch, rethrowing its exceptions */
+    private static Fetched result(final FutureTask<Fetched> task)
+            throws InterruptedException {
+        try {
+            return task.get();
+        } catch(final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new UnhandledException(cause);
+        }
+    }
+
+    /** result of a fetch, for the thread that made it and for the ones that waited */
+    private static final class Fetched {
+        /** for the thread that fetched */
+        private final URIFetcherResponse response;
+        /** for the threads that waited: it never needs to be released */
+        private final URIFetcherResponse shared;
+        /** <code>true</code> if <code>shared</code> is the cached response */
+        private final boolean cached;
+
+        /**
+         * Creates the Fetched.
+         *
+         * @param response the response
+         * @param stored   what was stored in the cache for it, or
+         *                 <code>null</code> if it was not cached
+         */
+        public Fetched(final URIFetcherResponse response,
+                final URIFetcherResponse stored) {
+            this.response = response;
+            this.cached = stored != null;
+            this.shared = cached ? stored : inMemory(response);
+        }
+    }
+
+    /**
+     * stores the response in the cache following the caching behavior
+     * @return what was cached (see {@link #put(URIAndCtx, URIFetcherResponse)}),
+     *         or <code>null</code> if the response was not cached
+     */
+    private URIFetcherResponse store(final URIAndCtx uriAndCtx,
+            final URIFetcherResponse ret) {
+        switch (cachingBehavior) {
+            case OK:
+                if(ret.isSucceeded() && ret.getHttpResponse().getStatusCode() >= 200 
+                        && ret.getHttpResponse().getStatusCode() < 300) {
+                    return put(uriAndCtx, ret);
+                }
+                return null;
+            case SUCCEEDED:
+                if(ret.isSucceeded()) {
+                    return put(uriAndCtx, ret);
+                }
+                return null;
+            case ALL:
+                return put(uriAndCtx, ret);
+            default:
+                throw new IllegalStateException("CachingBehavior no manejado");
+        }
+    }
+
+    /** @return <code>true</code> if the element must be revalidated */
+    private boolean isStale(final Element e) {
+        return revalidationInterval >= 0 
+            && System.currentTimeMillis() - e.getCreationTime() >= revalidationInterval;
+    }
+
+    /**
+     * Revalidates a stale response with a conditional GET using the validators
+     * (<code>ETag</code>, <code>Last-Modified</code>) of the cached response.
+     * On a <code>304 Not Modified</code> the cached response is served and
+     * stored again (with a new timestamp). If the revalidation fails (network
+     * error or <code>5xx</code>) the stale copy is kept and served.
+     */
+    private Fetched revalidate(final URIAndCtx uriAndCtx,
+            final URIFetcherResponse cached) {
+        final Map<String, String> validators = new HashMap<String, String>();
+        if(cached.isSucceeded()) {
+            final URIFetcherHttpResponse httpResponse = cached.getHttpResponse();
+            final String etag = httpResponse.getHeader(ETAG);
+            if(etag != null) {
+                validators.put(IF_NONE_MATCH, etag);
+            }
+            final String lastModified = httpResponse.getHeader(LAST_MODIFIED);
+            if(lastModified != null) {
+                validators.put(IF_MODIFIED_SINCE, lastModified);
+            }
+        }
+
+        if(!validators.isEmpty()) {
+            final URIFetcherResponse r = fetcher.get(
+                    RequestHeaders.with(uriAndCtx, validators));
+            if(r.isSucceeded() && r.getHttpResponse().getStatusCode() == NOT_MODIFIED) {
+                final URIFetcherResponse fresh = refresh(cached, r.getHttpResponse());
+                cache.put(new Element(uriAndCtx.getURI(), toValue(fresh)));
+                revalidations.incrementAndGet();
+                hits.incrementAndGet();
+                return new Fetched(new CtxDecorableURIFetcherResponse(fresh, uriAndCtx),
+                        fresh);
+            }
+            if(isFailure(r) && !isFailure(cached)) {
+                return serveStale(uriAndCtx, cached);
+            }
+            // hides the validators from the caller
+            return new Fetched(new CtxDecorableURIFetcherResponse(r, uriAndCtx),
+                    store(uriAndCtx, r));
+        }
+        final URIFetcherResponse ret = fetcher.get(uriAndCtx);
+        if(isFailure(ret) && !isFailure(cached)) {
+            return serveStale(uriAndCtx, cached);
+        }
+        return new Fetched(ret, store(uriAndCtx, ret));
+    }
+
+    /**
+     * @return <code>true</code> if the response says nothing about the content
+     *         (the request failed, or the server had a <code>5xx</code> error)
+     */
+    private static boolean isFailure(final URIFetcherResponse r) {
+        return !r.isSucceeded() || r.getHttpResponse().getStatusCode() >= 500;
+    }
+
+    /** the revalidation failed: the stale copy is kept in the cache */
+    private Fetched serveStale(final URIAndCtx uriAndCtx,
+            final URIFetcherResponse cached) {
+        LOGGER.warn("revalidation of {} failed. Serving the stale copy",
+                uriAndCtx.getURI());
+        hits.incrementAndGet();
+        return new Fetched(new CtxDecorableURIFetcherResponse(cached, uriAndCtx),
+                cached);
+    }
+
+    /**
+     * @return the cached response with the headers updated with the ones of
+     *         the <code>304 Not Modified</code> (ie: new <code>ETag</code> or
+     *         <code>Expires</code>)
+     */
+    private URIFetcherResponse refresh(final URIFetcherResponse cached,
+            final URIFetcherHttpResponse notModified) {
+        if(cached.getHttpResponse() instanceof InmutableURIFetcherHttpResponse
+                && notModified instanceof InmutableURIFetcherHttpResponse) {
+            return new InmutableURIFetcherResponse(cached.getURIAndCtx(),
+                    ((InmutableURIFetcherHttpResponse) cached.getHttpResponse())
+                    .withHeaders(((InmutableURIFetcherHttpResponse) notModified)
+                            .getHeaders()));
+        }
+        return cached;
+    }
+
+    /**
+     * stores the response in the cache. Spooled responses are released by
+     * the caller once processed, so an in-memory copy is cached instead.
+     *
+     * @return the cached response (the in-memory copy)
+     */
+    private URIFetcherResponse put(final URIAndCtx uriAndCtx,
+            final URIFetcherResponse response) {
+        final URIFetcherResponse value = inMemory(response);
+        cache.put(new Element(uriAndCtx.getURI(), toValue(value)));
+        return value;
+    }
+
+    /**
+     * @return the response, or an in-memory copy of it if it is spooled (it
+     *         is released once processed)
+     */
+    private static URIFetcherResponse inMemory(final URIFetcherResponse response) {
+        if(response.isSucceeded() 
+                && response.getHttpResponse() instanceof SpooledURIFetcherHttpResponse) {
+            return new InmutableURIFetcherResponse(response.getURIAndCtx(), 
+                    ((SpooledURIFetcherHttpResponse) response.getHttpResponse()).toInmutable());
+        }
+        return response;
+    }
+
+    /** @return what is stored in the cache for the response */
+    private Object toValue(final URIFetcherResponse response) {
+        return storeEncoded && ResponseCodec.canEncode(response)
+            ? ResponseCodec.encode(response) : response;
+    }
+
+    /**
+     * @return the response stored in the element, or <code>null</code> if it
+     *         can't be read (ie: it was written by another version of the
+     *         codec, or the disk store is corrupt). Such elements are removed,
+     *         so they are a miss.
+     */
+    private URIFetcherResponse toResponse(final Element e) {
+        final Object value = e.getObjectValue();
+        try {
+            return value instanceof byte[]
+                ? ResponseCodec.decode((byte[]) value) : (URIFetcherResponse) value;
+        } catch(final RuntimeException ex) {
+            LOGGER.warn("discarding the cached response of " + e.getObjectKey(), ex);
+            cache.remove(e.getObjectKey());
+            return null;
+        }
+    }
     
     @Override
     public final FetchingTask createPost(final URIAndCtx uriAndCtx, final InputStream body) {
@@ -175,20 +448,64 @@ public class EhcacheURIFetcher extends AbstractURIFetcher {
     }
     
     public final long getHits() {
-        return hits;
+        return hits.get();
     }
 
     public final long getTotal() {
-        return total;
+        return total.get();
+    }
+
+    /**
+     * @return number of requests that were served by the fetch of another
+     *         thread (concurrent misses of the same URI)
+     */
+    public final long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /** @return number of stale responses that were revalidated (304) */
+    public final long getRevalidations() {
+        return revalidations.get();
+    }
+
+    /**
+     * Enables the revalidation of cached responses. Responses older than
+     * <code>revalidationInterval</code> are refreshed with a conditional GET
+     * (<code>If-None-Match</code>/<code>If-Modified-Since</code>) through the
+     * wrapped fetcher; if the server answers <code>304 Not Modified</code> the
+     * cached body is served (and its timestamp renewed) instead of downloading
+     * it again. Responses without validators are fetched again.
+     *
+     * The wrapped fetcher must honor {@link RequestHeaders}.
+     *
+     * @param revalidationInterval milliseconds. A negative value disables the
+     *                             revalidation (default): entries live until
+     *                             the cache expires them.
+     */
+    public final void setRevalidationInterval(final long revalidationInterval) {
+        this.revalidationInterval = revalidationInterval;
+    }
+
+    /**
+     * @param storeEncoded <code>true</code> (default) to store the responses
+     *                     in their {@link ResponseCodec} binary form, that is
+     *                     smaller and faster to write to (and read from) the
+     *                     disk store than java serialization. Responses that
+     *                     can't be encoded are always stored as objects.
+     */
+    public final void setStoreEncoded(final boolean storeEncoded) {
+        this.storeEncoded = storeEncoded;
     }
 
     /** log the status of the fetcher */
     public final void logStatus() {
-        if(total > 0) {
+        final long h = hits.get();
+        final long t = total.get();
+        if(t > 0) {
             LOGGER.info(
                new Formatter(new StringBuilder()).format(
                     "Fetcher cache hit ratio: %2.2f%% (%d/%d).",
-                    100.0 * hits / total, hits, total).toString());
+                    100.0 * h / t, h, t).toString());
         }
     }
 
@@ -0,0 +1,283 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+
+import org.apache.commons.lang.Validate;
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import ar.com.zauber.leviathan.api.URIFetcher;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.common.CompactHeaders;
+import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.RequestHeaders;
+import ar.com.zauber.leviathan.common.SpooledContent;
+import ar.com.zauber.leviathan.common.SpooledURIFetcherHttpResponse;
+import ar.com.zauber.leviathan.impl.ehcache.EhcacheURIFetcher;
+import ar.com.zauber.leviathan.impl.ehcache.EhcacheURIFetcher.CACHING_BEHAVIOR;
+
+/**
+ * Unit tests for {@link EhcacheURIFetcher} that don't need the network.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class EhcacheURIFetcherTest {
+    private Cache cache;
+    private URIFetcher mockedFetcher;
+    private URIAndCtx uri;
+
+    /** setup */
+    @Before
+    public final void setUp() throws URISyntaxException {
+        final InputStream is =
+            EhcacheURIFetcherTest.class.getResourceAsStream("ehcache.xml");
+        Validate.notNull(is, "cant find ehcache.xml");
+        final CacheManager m = CacheManager.create(is);
+        cache = m.getCache("fetcher");
+
+        mockedFetcher = mock(URIFetcher.class);
+        uri = new InmutableURIAndCtx(new URI("http://www.club.lanacion.com.ar"));
+        when(mockedFetcher.get(uri)).thenReturn(new InmutableURIFetcherResponse(uri,
+                new InmutableURIFetcherHttpResponse("hola", 200,
+                        CompactHeaders.of(new String[] {"ETag"},
+                                          new String[] {"\"abc\""}), null)));
+    }
+
+    /** tear down */
+    @After
+    public final void tearDown() {
+        cache.removeAll();
+        CacheManager.getInstance().shutdown();
+    }
+
+    /** stale entries are revalidated with a conditional GET */
+    @Test
+    public final void testRevalidation() {
+        final URIFetcherResponse notModified = response(304);
+        when(mockedFetcher.get(argThat(new ConditionalGet()))).thenReturn(notModified);
+
+        final EhcacheURIFetcher fetcher = new EhcacheURIFetcher(mockedFetcher, cache,
+                CACHING_BEHAVIOR.OK);
+        fetcher.setRevalidationInterval(0);
+
+        fetcher.get(uri);
+        assertEquals(0, fetcher.getHits());
+        final URIFetcherResponse r = fetcher.get(uri);
+        assertEquals(1, fetcher.getHits());
+        assertEquals(1, fetcher.getRevalidations());
+        assertEquals("hola", r.getHttpResponse().getContentAsString());
+        assertEquals(uri, r.getURIAndCtx());
+    }
+
+    /** a failed revalidation does not replace the stale copy */
+    @Test
+    public final void testFailedRevalidation() {
+        final URIFetcherResponse unavailable = response(503);
+        final URIFetcherResponse error = new InmutableURIFetcherResponse(uri,
+                new IOException("connection refused"));
+        when(mockedFetcher.get(argThat(new ConditionalGet())))
+            .thenReturn(unavailable, error);
+
+        final EhcacheURIFetcher fetcher = new EhcacheURIFetcher(mockedFetcher, cache,
+                CACHING_BEHAVIOR.ALL);
+        fetcher.setRevalidationInterval(0);
+
+        fetcher.get(uri);
+        for(int i = 0; i < 2; i++) {
+            final URIFetcherResponse r = fetcher.get(uri);
+            assertEquals(200, r.getHttpResponse().getStatusCode());
+            assertEquals("hola", r.getHttpResponse().getContentAsString());
+        }
+        assertEquals(2, fetcher.getHits());
+        assertEquals(0, fetcher.getRevalidations());
+
+        fetcher.setRevalidationInterval(-1);
+        assertEquals("hola", fetcher.get(uri).getHttpResponse().getContentAsString());
+    }
+
+    /** entries that can't be decoded are a miss, and are replaced */
+    @Test
+    public final void testUndecodableEntry() {
+        cache.put(new Element(uri.getURI(), new byte[] {1, 2, 3}));
+        final EhcacheURIFetcher fetcher = new EhcacheURIFetcher(mockedFetcher, cache,
+                CACHING_BEHAVIOR.OK);
+
+        assertEquals("hola", fetcher.get(uri).getHttpResponse().getContentAsString());
+        assertEquals(0, fetcher.getHits());
+        assertEquals("hola", fetcher.get(uri).getHttpResponse().getContentAsString());
+        assertEquals(1, fetcher.getHits());
+        verify(mockedFetcher, times(1)).get(uri);
+    }
+
+    /** concurrent misses of the same URI make a single fetch */
+    @Test(timeout = 10000)
+    public final void testCoalescing() throws Exception {
+        final AtomicInteger fetchs = new AtomicInteger();
+        when(mockedFetcher.get(any(URIAndCtx.class))).thenAnswer(
+                new Answer<URIFetcherResponse>() {
+            public URIFetcherResponse answer(final InvocationOnMock invocation)
+                    throws Exception {
+                fetchs.incrementAndGet();
+                // gives time to the other threads to ask for the same uri
+                Thread.sleep(500);
+                return new InmutableURIFetcherResponse(uri,
+                        new InmutableURIFetcherHttpResponse("hola", 200,
+                                CompactHeaders.EMPTY, new byte[0]));
+            }
+        });
+        final EhcacheURIFetcher fetcher = new EhcacheURIFetcher(mockedFetcher, cache,
+                CACHING_BEHAVIOR.OK);
+
+        final int n = 20;
+        for(final URIFetcherResponse r : getConcurrently(fetcher, n)) {
+            assertEquals("hola", r.getHttpResponse().getContentAsString());
+        }
+        assertEquals(1, fetchs.get());
+        assertEquals(n - 1, fetcher.getCoalesced());
+        assertEquals(n - 1, fetcher.getHits());
+        assertEquals(n, fetcher.getTotal());
+    }
+
+    /**
+     * the threads that wait for a spooled response that is not cached share
+     * an in-memory copy: the one that fetched releases the spooled one
+     */
+    @Test(timeout = 10000)
+    public final void testCoalescingSpooled() throws Exception {
+        final AtomicInteger fetchs = new AtomicInteger();
+        when(mockedFetcher.get(any(URIAndCtx.class))).thenAnswer(
+                new Answer<URIFetcherResponse>() {
+            public URIFetcherResponse answer(final InvocationOnMock invocation)
+                    throws Exception {
+                fetchs.incrementAndGet();
+                Thread.sleep(500);
+                return new InmutableURIFetcherResponse(uri,
+                        new SpooledURIFetcherHttpResponse(SpooledContent.spool(
+                                new ByteArrayInputStream("no esta".getBytes("UTF-8")),
+                                1, null), 0, Charset.forName("UTF-8"), 404,
+                                CompactHeaders.EMPTY));
+            }
+        });
+        final EhcacheURIFetcher fetcher = new EhcacheURIFetcher(mockedFetcher, cache,
+                CACHING_BEHAVIOR.OK);
+
+        final int n = 10;
+        final List<URIFetcherResponse> responses = getConcurrently(fetcher, n);
+        int spooled = 0;
+        for(final URIFetcherResponse r : responses) {
+            if(r.getHttpResponse() instanceof SpooledURIFetcherHttpResponse) {
+                // the fetching thread is done with it
+                ((SpooledURIFetcherHttpResponse) r.getHttpResponse()).release();
+                spooled++;
+            }
+        }
+        assertEquals(1, spooled);
+        for(final URIFetcherResponse r : responses) {
+            if(!(r.getHttpResponse() instanceof SpooledURIFetcherHttpResponse)) {
+                assertEquals(404, r.getHttpResponse().getStatusCode());
+                assertEquals("no esta", r.getHttpResponse().getContentAsString());
+            }
+        }
+        assertEquals(1, fetchs.get());
+        assertEquals(n - 1, fetcher.getCoalesced());
+        assertEquals(0, fetcher.getHits());
+    }
+
+    /** @return the responses of <code>n</code> concurrent gets of the uri */
+    private List<URIFetcherResponse> getConcurrently(final EhcacheURIFetcher fetcher,
+            final int n) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(n);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<URIFetcherResponse>> futures =
+            new ArrayList<Future<URIFetcherResponse>>();
+        for(int i = 0; i < n; i++) {
+            final URIAndCtx uriAndCtx = new InmutableURIAndCtx(uri.getURI());
+            futures.add(executor.submit(new Callable<URIFetcherResponse>() {
+                public URIFetcherResponse call() throws Exception {
+                    start.await();
+                    return fetcher.get(uriAndCtx);
+                }
+            }));
+        }
+        start.countDown();
+        final List<URIFetcherResponse> ret = new ArrayList<URIFetcherResponse>();
+        for(final Future<URIFetcherResponse> future : futures) {
+            ret.add(future.get());
+        }
+        executor.shutdown();
+        return ret;
+    }
+
+    /** @return a response without body */
+    private URIFetcherResponse response(final int status) {
+        return new InmutableURIFetcherResponse(uri, new InmutableURIFetcherHttpResponse(
+                "", status, CompactHeaders.EMPTY, new byte[0]));
+    }
+
+    /** matches the conditional GET of the cached response */
+    private static class ConditionalGet extends BaseMatcher<URIAndCtx> {
+        /** @see BaseMatcher#matches(Object) */
+        public boolean matches(final Object item) {
+            final Map<String, String> validators = new TreeMap<String, String>();
+            validators.put("If-None-Match", "\"abc\"");
+            return item instanceof URIAndCtx
+                && validators.equals(RequestHeaders.get((URIAndCtx) item));
+        }
+
+        /** @see BaseMatcher#describeTo(Description) */
+        public void describeTo(final Description description) {
+            description.appendText("conditional get");
+        }
+    }
+}
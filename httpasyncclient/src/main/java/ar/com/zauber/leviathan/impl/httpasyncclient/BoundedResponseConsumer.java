@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpasyncclient;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.ByteArrayBuffer;
+
+import ar.com.zauber.leviathan.common.ContentTooLargeException;
+
+/**
+ * {@link HttpAsyncResponseConsumer} that keeps the body in memory up to a
+ * maximum length. A body that is declared (<code>Content-Length</code>) or
+ * found to be bigger while it is read fails the exchange with a
+ * {@link ContentTooLargeException}: the connection is closed without reading
+ * the rest of the body.
+ *
+ * The result is the {@link HttpResponse} (its entity carries only the
+ * headers), the body is available with {@link #getBody()} once the exchange
+ * completes.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class BoundedResponseConsumer
+        extends AbstractAsyncResponseConsumer<HttpResponse> {
+    /** the initial buffer is not bigger than this, whatever the declared length */
+    private static final int MAX_INITIAL_CAPACITY = 1024 * 1024;
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    private final long maxContentLength;
+    private HttpResponse response;
+    private String contentType;
+    private ByteArrayBuffer buffer;
+    private ByteBuffer chunk;
+    private volatile byte[] body;
+
+    /**
+     * Creates the BoundedResponseConsumer.
+     *
+     * @param maxContentLength maximum length of the body in bytes. A negative
+     *                         value disables the limit
+     */
+    public BoundedResponseConsumer(final long maxContentLength) {
+        this.maxContentLength = maxContentLength;
+    }
+
+    @Override
+    protected void onResponseReceived(final HttpResponse r) {
+        this.response = r;
+    }
+
+    @Override
+    protected void onEntityEnclosed(final HttpEntity entity,
+            final ContentType type) throws IOException {
+        contentType = entity.getContentType() == null
+                ? null : entity.getContentType().getValue();
+        final long length = entity.getContentLength();
+        if(maxContentLength >= 0 && length > maxContentLength) {
+            throw new ContentTooLargeException(length, maxContentLength, contentType);
+        }
+        buffer = new ByteArrayBuffer(length < 0
+                ? DEFAULT_CAPACITY : (int) Math.min(length, MAX_INITIAL_CAPACITY));
+        chunk = ByteBuffer.allocate(DEFAULT_CAPACITY);
+    }
+
+    @Override
+    protected void onContentReceived(final ContentDecoder decoder,
+            final IOControl ioctrl) throws IOException {
+        int n;
+        while((n = decoder.read(chunk)) > 0) {
+            final long length = (long) buffer.length() + n;
+            if(maxContentLength >= 0 && length > maxContentLength) {
+                throw new ContentTooLargeException(length, maxContentLength,
+                        contentType);
+            }
+            buffer.append(chunk.array(), 0, n);
+            chunk.clear();
+        }
+    }
+
+    @Override
+    protected HttpResponse buildResult(final HttpContext context) {
+        if(buffer != null) {
+            body = buffer.length() == buffer.capacity()
+                    ? buffer.buffer() : buffer.toByteArray();
+        }
+        return response;
+    }
+
+    @Override
+    protected void releaseResources() {
+        response = null;
+        buffer = null;
+        chunk = null;
+    }
+
+    /**
+     * @return the body of the response, or <code>null</code> if it didn't
+     *         have one (ie: 304 Not Modified) or the exchange didn't complete
+     */
+    public byte[] getBody() {
+        return body;
+    }
+}
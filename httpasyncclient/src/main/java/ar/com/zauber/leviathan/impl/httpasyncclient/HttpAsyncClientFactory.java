@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpasyncclient;
+
+import org.apache.commons.lang.Validate;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+
+/**
+ * Creates started {@link CloseableHttpAsyncClient}s suitable for crawling.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class HttpAsyncClientFactory {
+
+    /** utility class */
+    private HttpAsyncClientFactory() {
+        // void
+    }
+
+    /**
+     * @param ioThreads          number of I/O reactor threads (ie: the number
+     *                           of cores)
+     * @param maxConnTotal       maximum number of open connections
+     * @param maxConnPerRoute    maximum number of open connections per host
+     * @param connectTimeout     connect timeout in milliseconds
+     * @param soTimeout          socket timeout in milliseconds
+     * @return a started client. It must be closed after use.
+     */
+    public static CloseableHttpAsyncClient create(final int ioThreads,
+            final int maxConnTotal, final int maxConnPerRoute,
+            final int connectTimeout, final int soTimeout) {
+        Validate.isTrue(ioThreads > 0, "ioThreads must be positive");
+        Validate.isTrue(maxConnTotal > 0, "maxConnTotal must be positive");
+        Validate.isTrue(maxConnPerRoute > 0, "maxConnPerRoute must be positive");
+        Validate.isTrue(connectTimeout >= 0, "connectTimeout must be positive");
+        Validate.isTrue(soTimeout >= 0, "soTimeout must be positive");
+
+        final IOReactorConfig config = IOReactorConfig.custom()
+            .setIoThreadCount(ioThreads)
+            .setConnectTimeout(connectTimeout)
+            .setSoTimeout(soTimeout)
+            .setTcpNoDelay(true)
+            .build();
+        final CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+            .setDefaultIOReactorConfig(config)
+            .setMaxConnTotal(maxConnTotal)
+            .setMaxConnPerRoute(maxConnPerRoute)
+            .build();
+        client.start();
+        return client;
+    }
+
+    /** @see #create(int, int, int, int, int) */
+    public static CloseableHttpAsyncClient create() {
+        return create(Runtime.getRuntime().availableProcessors(), 200, 4, 10000, 30000);
+    }
+}
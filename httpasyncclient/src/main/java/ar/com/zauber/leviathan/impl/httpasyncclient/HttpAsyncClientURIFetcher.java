@@ -0,0 +1,380 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpasyncclient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang.UnhandledException;
+import org.apache.commons.lang.Validate;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+
+import ar.com.zauber.commons.dao.Closure;
+import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcher;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
+import ar.com.zauber.leviathan.api.UrlEncodedPostBody;
+import ar.com.zauber.leviathan.common.AbstractPrefixCharsetStrategy;
+import ar.com.zauber.leviathan.common.AbstractURIFetcher;
+import ar.com.zauber.leviathan.common.CharsetStrategy;
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.ContentTooLargeException;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
+import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.NonRepeatableFetchingTask;
+import ar.com.zauber.leviathan.common.RequestHeaders;
+import ar.com.zauber.leviathan.common.ResponseMetadata;
+import ar.com.zauber.leviathan.common.async.NonBlockingFetchQueueAsyncUriFetcher;
+import ar.com.zauber.leviathan.common.async.NonBlockingFetchingTask;
+import ar.com.zauber.leviathan.impl.httpclient.HTTPClientURIFetcher;
+import ar.com.zauber.leviathan.impl.httpclient.charset.DefaultHttpCharsetStrategy;
+import ar.com.zauber.leviathan.impl.httpclient.charset.SkipBytesException;
+
+/**
+ * {@link URIFetcher} that uses Apache's HttpAsyncClient (non-blocking I/O).
+ * The tasks it creates are {@link NonBlockingFetchingTask}s: used with a
+ * {@link NonBlockingFetchQueueAsyncUriFetcher} thousands of requests can be
+ * in flight served by a handful of I/O threads.
+ *
+ * The {@link HttpAsyncClient} must be started (see
+ * {@link HttpAsyncClientFactory#create(int, int, int, int, int)}).
+ *
+ * Bodies are kept in memory, up to {@link #setMaxContentLength(long)} bytes
+ * (see {@link BoundedResponseConsumer}).
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class HttpAsyncClientURIFetcher extends AbstractURIFetcher {
+    private final HttpAsyncClient httpClient;
+    private final CharsetStrategy charsetStrategy;
+    private int charsetPrefixSize = ContentPrefix.DEFAULT_SIZE;
+    private long maxContentLength = -1;
+
+    /** constructor utiliza la default charset strategy */
+    public HttpAsyncClientURIFetcher(final HttpAsyncClient httpClient) {
+        this(httpClient, new DefaultHttpCharsetStrategy());
+    }
+
+    /** Creates the HttpAsyncClientURIFetcher. */
+    public HttpAsyncClientURIFetcher(final HttpAsyncClient httpClient,
+            final CharsetStrategy charsetStrategy) {
+        Validate.notNull(httpClient);
+        Validate.notNull(charsetStrategy);
+
+        this.httpClient = httpClient;
+        this.charsetStrategy = charsetStrategy;
+    }
+
+    @Override
+    public final FetchingTask createGet(final URIAndCtx uriAndCtx) {
+        return new HttpAsyncFetchingTask(uriAndCtx) {
+            @Override
+            protected HttpUriRequest createRequest() {
+                return new HttpGet(uriAndCtx.getURI());
+            }
+        };
+    }
+
+    /**
+     * The body is streamed to the connection (it is not buffered) by the I/O
+     * threads, so it should not block. Its length is known for
+     * {@link java.io.ByteArrayInputStream}s and
+     * {@link java.io.FileInputStream}s; other streams are sent chunked.
+     *
+     * The stream can be sent only once, so the task is a
+     * {@link NonRepeatableFetchingTask}: it is not retried nor hedged.
+     *
+     * @see URIFetcher#createPost(URIAndCtx, InputStream)
+     */
+    @Override
+    public final FetchingTask createPost(final URIAndCtx uriAndCtx,
+            final InputStream body) {
+        return createPost(uriAndCtx, body, -1);
+    }
+
+    /**
+     * Creates a POST task that streams <code>body</code> to the connection.
+     * The task runs only once: executing it again answers an error.
+     *
+     * @param uriAndCtx     the uri
+     * @param body          the body (it is closed once sent)
+     * @param contentLength length of the body in bytes. A negative value
+     *                      detects it if possible, or sends the body chunked
+     * @return the task
+     * @see HTTPClientURIFetcher#createPost(URIAndCtx, InputStream, long)
+     */
+    public final FetchingTask createPost(final URIAndCtx uriAndCtx,
+            final InputStream body, final long contentLength) {
+        Validate.notNull(body);
+        return new NonRepeatableHttpAsyncFetchingTask(uriAndCtx) {
+            @Override
+            protected HttpUriRequest createRequest() throws IOException {
+                final HttpPost httpPost = new HttpPost(uriAndCtx.getURI());
+                final long length = contentLength < 0
+                        ? HTTPClientURIFetcher.knownLength(body) : contentLength;
+                final InputStreamEntity entity = new InputStreamEntity(body, length);
+                entity.setChunked(length < 0);
+                httpPost.setEntity(entity);
+                return httpPost;
+            }
+        };
+    }
+
+    @Override
+    public final FetchingTask createPost(final URIAndCtx uriAndCtx,
+            final UrlEncodedPostBody body) {
+        return new HttpAsyncFetchingTask(uriAndCtx) {
+            @Override
+            protected HttpUriRequest createRequest() {
+                final HttpPost httpPost = new HttpPost(uriAndCtx.getURI());
+                final List<NameValuePair> pairs = new ArrayList<NameValuePair>();
+
+                for (final String simpleParam : body.getSimpleParameters()) {
+                    pairs.add(new BasicNameValuePair(simpleParam,
+                              body.getSimpleParameter(simpleParam)));
+                }
+                for (final String collectionParam : body.getCollectionParameters()) {
+                    for (final String value : body.getCollectionParameter(collectionParam)) {
+                        pairs.add(new BasicNameValuePair(collectionParam, value));
+                    }
+                }
+
+                final String content = URLEncodedUtils.format(pairs, "UTF-8");
+                final ByteArrayEntity entity = new ByteArrayEntity(content.getBytes());
+                entity.setContentType("application/x-www-form-urlencoded");
+                httpPost.setEntity(entity);
+                return httpPost;
+            }
+        };
+    }
+
+    /**
+     * {@link NonBlockingFetchingTask} that executes an {@link HttpUriRequest}
+     * with the {@link HttpAsyncClient}.
+     */
+    private abstract class HttpAsyncFetchingTask implements NonBlockingFetchingTask {
+        private final URIAndCtx uriAndCtx;
+
+        /** Creates the HttpAsyncFetchingTask. */
+        public HttpAsyncFetchingTask(final URIAndCtx uriAndCtx) {
+            Validate.notNull(uriAndCtx);
+            this.uriAndCtx = uriAndCtx;
+        }
+
+        /** @return the request to execute */
+        protected abstract HttpUriRequest createRequest() throws IOException;
+
+        /** @return the request to execute, with the extra headers */
+        protected HttpUriRequest createRequestWithHeaders() throws IOException {
+            final HttpUriRequest request = createRequest();
+            for(final Entry<String, String> header
+                    : RequestHeaders.get(uriAndCtx).entrySet()) {
+                request.setHeader(header.getKey(), header.getValue());
+            }
+            return request;
+        }
+
+        /** @see FetchingTask#getURIAndCtx() */
+        public final URIAndCtx getURIAndCtx() {
+            return uriAndCtx;
+        }
+
+        /** @see FetchingTask#execute() */
+        public final URIFetcherResponse execute() {
+            try {
+                final BoundedResponseConsumer consumer =
+                    new BoundedResponseConsumer(maxContentLength);
+                return toResponse(uriAndCtx, httpClient.execute(
+                        HttpAsyncMethods.create(createRequestWithHeaders()),
+                        consumer, null).get(), consumer.getBody());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new InmutableURIFetcherResponse(uriAndCtx, e);
+            } catch (final ExecutionException e) {
+                return new InmutableURIFetcherResponse(uriAndCtx,
+                        e.getCause() == null ? e : e.getCause());
+            } catch (final Throwable t) {
+                return new InmutableURIFetcherResponse(uriAndCtx, t);
+            }
+        }
+
+        /** @see NonBlockingFetchingTask#executeAsync(Closure) */
+        public final void executeAsync(final Closure<URIFetcherResponse> closure) {
+            final HttpUriRequest request;
+            try {
+                request = createRequestWithHeaders();
+            } catch (final Throwable t) {
+                closure.execute(new InmutableURIFetcherResponse(uriAndCtx,
+                        new UnhandledException("creating request", t)));
+                return;
+            }
+
+            try {
+                final BoundedResponseConsumer consumer =
+                    new BoundedResponseConsumer(maxContentLength);
+                httpClient.execute(HttpAsyncMethods.create(request), consumer,
+                        new FutureCallback<HttpResponse>() {
+                    public void completed(final HttpResponse response) {
+                        closure.execute(toResponse(uriAndCtx, response,
+                                consumer.getBody()));
+                    }
+                    public void failed(final Exception e) {
+                        closure.execute(new InmutableURIFetcherResponse(uriAndCtx, e));
+                    }
+                    public void cancelled() {
+                        closure.execute(new InmutableURIFetcherResponse(uriAndCtx,
+                                new CancellationException("request cancelled")));
+                    }
+                });
+            } catch (final Throwable t) {
+                // ie: the client is not running
+                closure.execute(new InmutableURIFetcherResponse(uriAndCtx, t));
+            }
+        }
+
+        /** @see Object#toString() */
+        @Override
+        public final String toString() {
+            return uriAndCtx.getURI().toString();
+        }
+    }
+
+    /**
+     * {@link HttpAsyncFetchingTask} whose request can be sent only once (ie:
+     * its body is a stream).
+     */
+    private abstract class NonRepeatableHttpAsyncFetchingTask
+            extends HttpAsyncFetchingTask implements NonRepeatableFetchingTask {
+        private final AtomicBoolean executed = new AtomicBoolean(false);
+
+        /** Creates the NonRepeatableHttpAsyncFetchingTask. */
+        public NonRepeatableHttpAsyncFetchingTask(final URIAndCtx uriAndCtx) {
+            super(uriAndCtx);
+        }
+
+        @Override
+        protected final HttpUriRequest createRequestWithHeaders() throws IOException {
+            if(!executed.compareAndSet(false, true)) {
+                throw new IllegalStateException("the body was already sent");
+            }
+            return super.createRequestWithHeaders();
+        }
+    }
+
+    /**
+     * converts the (already buffered) http response
+     *
+     * @param body the body read by the {@link BoundedResponseConsumer}
+     */
+    private URIFetcherResponse toResponse(final URIAndCtx uriAndCtx,
+            final HttpResponse response, final byte[] body) {
+        try {
+            final URI uri = uriAndCtx.getURI();
+            final HttpEntity entity = response.getEntity();
+            if(entity == null) {
+                // ie: 304 Not Modified
+                return new InmutableURIFetcherResponse(uriAndCtx,
+                        new InmutableURIFetcherHttpResponse("",
+                                response.getStatusLine().getStatusCode(),
+                                HTTPClientURIFetcher.extractCompactHeaders(response),
+                                new byte[0]));
+            }
+
+            final ResponseMetadata meta = HTTPClientURIFetcher.getMetaResponse(uri,
+                    response, entity);
+            final byte[] data = body == null ? new byte[0] : body;
+
+            Charset charset;
+            int offset = 0;
+            try {
+                charset = AbstractPrefixCharsetStrategy.getCharset(charsetStrategy, meta,
+                        ContentPrefix.wrap(data, charsetPrefixSize));
+            } catch (final SkipBytesException e) {
+                charset = e.getCharset();
+                offset = e.getBytesToSkip();
+            }
+
+            return new InmutableURIFetcherResponse(
+                uriAndCtx,
+                new InmutableURIFetcherHttpResponse(data, offset, charset,
+                    meta.getStatusCode(),
+                    HTTPClientURIFetcher.extractCompactHeaders(response)));
+        } catch (final Throwable t) {
+            return new InmutableURIFetcherResponse(uriAndCtx, t);
+        }
+    }
+
+    /**
+     * @param size how many bytes of the body the {@link CharsetStrategy} can
+     *             inspect. Default {@link ContentPrefix#DEFAULT_SIZE}
+     */
+    public final void setCharsetPrefixSize(final int size) {
+        Validate.isTrue(size >= 0);
+        this.charsetPrefixSize = size;
+    }
+
+    /**
+     * Sets the maximum length of a response body. Bigger responses are
+     * aborted (the connection is closed without reading the rest of the body)
+     * and a failed {@link URIFetcherResponse} with a
+     * {@link ContentTooLargeException} is returned. The declared
+     * <code>Content-Length</code> is checked before reading, and the limit is
+     * enforced while reading too.
+     *
+     * @param maxContentLength maximum length in bytes. A negative value
+     *                         disables the limit (default)
+     */
+    public final void setMaxContentLength(final long maxContentLength) {
+        this.maxContentLength = maxContentLength;
+    }
+
+    /**
+     * Closes the underlying client (if it is {@link Closeable}). In flight
+     * requests are aborted.
+     */
+    public final void shutdown() {
+        if(httpClient instanceof Closeable) {
+            try {
+                ((Closeable) httpClient).close();
+            } catch (final IOException e) {
+                throw new UnhandledException("closing http async client", e);
+            }
+        }
+    }
+}
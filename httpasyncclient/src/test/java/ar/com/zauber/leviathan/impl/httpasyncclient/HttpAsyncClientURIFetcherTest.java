@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpasyncclient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import ar.com.zauber.commons.dao.Closure;
+import ar.com.zauber.leviathan.api.FetchingTask;
+import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.common.ContentTooLargeException;
+import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
+import ar.com.zauber.leviathan.common.NonRepeatableFetchingTask;
+import ar.com.zauber.leviathan.common.async.Job;
+import ar.com.zauber.leviathan.common.async.JobScheduler;
+import ar.com.zauber.leviathan.common.async.NonBlockingFetchQueueAsyncUriFetcher;
+import ar.com.zauber.leviathan.common.async.NonBlockingFetchingTask;
+import ar.com.zauber.leviathan.common.async.impl.BlockingQueueJobQueue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests {@link HttpAsyncClientURIFetcher} against a local http server.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class HttpAsyncClientURIFetcherTest {
+    private static final int SLOW_MILLIS = 500;
+    private final AtomicInteger concurrent = new AtomicInteger(0);
+    private final AtomicInteger maxConcurrent = new AtomicInteger(0);
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private CloseableHttpAsyncClient client;
+    private HttpAsyncClientURIFetcher fetcher;
+
+    /** starts the server and the client */
+    @Before
+    public final void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getByName("127.0.0.1"), 0), 100);
+        server.createContext("/echo", new HttpHandler() {
+            public void handle(final HttpExchange exchange) throws IOException {
+                final byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+                reply(exchange, exchange.getRequestMethod() + " "
+                        + new String(body, "UTF-8"));
+            }
+        });
+        server.createContext("/slow", new HttpHandler() {
+            public void handle(final HttpExchange exchange) throws IOException {
+                final int n = concurrent.incrementAndGet();
+                synchronized (maxConcurrent) {
+                    maxConcurrent.set(Math.max(n, maxConcurrent.get()));
+                }
+                try {
+                    Thread.sleep(SLOW_MILLIS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    concurrent.decrementAndGet();
+                }
+                reply(exchange, "slow");
+            }
+        });
+        server.createContext("/big", new HttpHandler() {
+            public void handle(final HttpExchange exchange) throws IOException {
+                // chunked: the length is not declared
+                exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                exchange.sendResponseHeaders(200, 0);
+                final OutputStream os = exchange.getResponseBody();
+                try {
+                    for(int i = 0; i < 100; i++) {
+                        os.write(new byte[1024]);
+                    }
+                } catch (final IOException e) {
+                    // the client aborted
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        client = HttpAsyncClientFactory.create(2, 100, 100, 5000, 5000);
+        fetcher = new HttpAsyncClientURIFetcher(client);
+    }
+
+    /** stops the client and the server */
+    @After
+    public final void tearDown() {
+        fetcher.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    /** answers a text/plain body */
+    private static void reply(final HttpExchange exchange, final String body)
+            throws IOException {
+        final byte[] data = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, data.length);
+        final OutputStream os = exchange.getResponseBody();
+        try {
+            os.write(data);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /** @return the uri of a path of the server */
+    private URI uri(final String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    /** executes the task with the closure contract and waits for the response */
+    private static URIFetcherResponse executeAsync(final FetchingTask task)
+            throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<URIFetcherResponse> ret =
+            new AtomicReference<URIFetcherResponse>();
+        ((NonBlockingFetchingTask) task).executeAsync(new Closure<URIFetcherResponse>() {
+            public void execute(final URIFetcherResponse r) {
+                ret.set(r);
+                latch.countDown();
+            }
+        });
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        return ret.get();
+    }
+
+    /** a GET completes through the closure */
+    @Test(timeout = 10000)
+    public final void get() throws Exception {
+        final URIFetcherResponse r = executeAsync(fetcher.createGet(
+                new InmutableURIAndCtx(uri("/echo"))));
+        Assert.assertTrue(r.isSucceeded());
+        Assert.assertEquals(200, r.getHttpResponse().getStatusCode());
+        Assert.assertEquals("GET ", r.getHttpResponse().getContentAsString());
+    }
+
+    /** a POST streams its body and completes through the closure, only once */
+    @Test(timeout = 10000)
+    public final void post() throws Exception {
+        final InputStream body = new ByteArrayInputStream("foo=bar".getBytes("UTF-8"));
+        final FetchingTask task = fetcher.createPost(
+                new InmutableURIAndCtx(uri("/echo")), body);
+        Assert.assertTrue(task instanceof NonRepeatableFetchingTask);
+
+        final URIFetcherResponse r = executeAsync(task);
+        Assert.assertTrue(r.isSucceeded());
+        Assert.assertEquals("POST foo=bar", r.getHttpResponse().getContentAsString());
+        Assert.assertFalse(executeAsync(task).isSucceeded());
+    }
+
+    /** bodies over the limit are aborted while they are read */
+    @Test(timeout = 10000)
+    public final void maxContentLength() throws Exception {
+        fetcher.setMaxContentLength(10 * 1024);
+        final URIFetcherResponse r = executeAsync(fetcher.createGet(
+                new InmutableURIAndCtx(uri("/big"))));
+        Assert.assertFalse(r.isSucceeded());
+        Assert.assertTrue(r.getError().toString(),
+                r.getError() instanceof ContentTooLargeException);
+
+        // the client is still usable
+        Assert.assertTrue(executeAsync(fetcher.createGet(
+                new InmutableURIAndCtx(uri("/echo")))).isSucceeded());
+    }
+
+    /** many slow requests are in flight at the same time on two I/O threads */
+    @Test(timeout = 20000)
+    public final void manyInFlight() throws Exception {
+        final int n = 50;
+        final NonBlockingFetchQueueAsyncUriFetcher async =
+            new NonBlockingFetchQueueAsyncUriFetcher(
+                new BlockingQueueJobQueue<Job>(new LinkedBlockingQueue<Job>()),
+                new JobScheduler(new BlockingQueueJobQueue<Job>(
+                        new LinkedBlockingQueue<Job>()),
+                        Executors.newSingleThreadExecutor()),
+                Executors.newSingleThreadExecutor(), n);
+        final AtomicInteger succeeded = new AtomicInteger(0);
+        final Closure<URIFetcherResponse> closure = new Closure<URIFetcherResponse>() {
+            public void execute(final URIFetcherResponse r) {
+                if(r.isSucceeded()) {
+                    succeeded.incrementAndGet();
+                }
+            }
+        };
+
+        final long t1 = System.currentTimeMillis();
+        for(int i = 0; i < n; i++) {
+            async.scheduleFetch(fetcher.createGet(new InmutableURIAndCtx(
+                    uri("/slow?" + i))), closure);
+        }
+        async.shutdown();
+        final long elapsed = System.currentTimeMillis() - t1;
+
+        Assert.assertEquals(n, succeeded.get());
+        Assert.assertTrue("max concurrent " + maxConcurrent.get(),
+                maxConcurrent.get() >= n / 2);
+        Assert.assertTrue("took " + elapsed + " ms", elapsed < n * SLOW_MILLIS / 5);
+    }
+}
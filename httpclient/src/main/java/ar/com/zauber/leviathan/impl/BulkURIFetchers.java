@@ -15,8 +15,7 @@
  */
 package ar.com.zauber.leviathan.impl;
 
-import static java.util.Arrays.*;
-
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Timer;
@@ -28,15 +27,11 @@ import java.util.concurrent.TimeUnit;
 import org.apache.http.HttpVersion;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.params.ClientParamBean;
-import org.apache.http.conn.ClientConnectionManager;
-import org.apache.http.conn.params.ConnManagerParamBean;
-import org.apache.http.conn.params.ConnPerRouteBean;
 import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParamBean;
 import org.apache.http.params.HttpConnectionParams;
@@ -53,11 +48,15 @@ import ar.com.zauber.leviathan.common.async.JobScheduler;
 import ar.com.zauber.leviathan.common.async.impl.BlockingQueueJobQueue;
 import ar.com.zauber.leviathan.common.async.impl.MultiDomainPoliteJobQueue;
 import ar.com.zauber.leviathan.common.async.impl.OutputStreamAsyncUriFetcherObserver;
+import ar.com.zauber.leviathan.common.dns.CachingHostResolver;
+import ar.com.zauber.leviathan.common.dns.HostResolver;
 import ar.com.zauber.leviathan.common.utils.BlockingRejectedExecutionHandler;
 import ar.com.zauber.leviathan.impl.httpclient.HTTPClientURIFetcher;
 import ar.com.zauber.leviathan.impl.httpclient.charset.ChainedCharsetStrategy;
 import ar.com.zauber.leviathan.impl.httpclient.charset.DefaultHttpCharsetStrategy;
 import ar.com.zauber.leviathan.impl.httpclient.charset.FixedCharsetStrategy;
+import ar.com.zauber.leviathan.impl.httpclient.charset.HTMLMetaCharsetStrategy;
+import ar.com.zauber.leviathan.impl.httpclient.conn.AdaptiveClientConnManager;
 
 /**
  * Helps with the creation of {@link BulkURIFetcher}s.
@@ -67,6 +66,12 @@ import ar.com.zauber.leviathan.impl.httpclient.charset.FixedCharsetStrategy;
  */
 public final class BulkURIFetchers {
     private static final HttpParams PARAMS = new BasicHttpParams();
+    /** global connection budget */
+    private static final int MAX_TOTAL_CONNECTIONS = 100;
+    /** connections of a route before its limit is adapted */
+    private static final int INITIAL_CONNECTIONS_PER_ROUTE = 5;
+    /** milliseconds between pool adjustments */
+    private static final long ADJUST_PERIOD = 5000;
 
     static {
         HttpConnectionParams.setConnectionTimeout(PARAMS, 20 * 1000);
@@ -80,6 +85,14 @@ public final class BulkURIFetchers {
     
     /** create a safe {@link URIFetcher} */
     public static URIFetcher createSafeHttpClientURIFetcher() {
+        return createSafeHttpClientURIFetcher(null);
+    }
+    
+    /** 
+     * create a safe {@link URIFetcher} that resolves hosts with the given
+     * resolver (ie: a {@link CachingHostResolver} shared with the queue).
+     */
+    public static URIFetcher createSafeHttpClientURIFetcher(final HostResolver resolver) {
         final Map<String, Scheme> registries = new HashMap<String, Scheme>();
         registries.put("http", new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
         registries.put("https", new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
@@ -88,11 +101,15 @@ public final class BulkURIFetchers {
         
         final HttpParams params = createHttpParams();
         
-        final ClientConnectionManager cm = new ThreadSafeClientConnManager(params, schemaRegistry);
+        final AdaptiveClientConnManager cm = new AdaptiveClientConnManager(schemaRegistry,
+                MAX_TOTAL_CONNECTIONS, ADJUST_PERIOD, resolver);
+        cm.setInitialPerRoute(INITIAL_CONNECTIONS_PER_ROUTE);
         final HttpClient httpclient = new DefaultHttpClient(cm, params);
         
-        final CharsetStrategy charsetStrategy = new ChainedCharsetStrategy(asList(
-                new DefaultHttpCharsetStrategy(), new FixedCharsetStrategy("utf-8")));
+        final CharsetStrategy charsetStrategy = new ChainedCharsetStrategy(
+                Arrays.<CharsetStrategy>asList(
+                new DefaultHttpCharsetStrategy(), new HTMLMetaCharsetStrategy(),
+                new FixedCharsetStrategy("utf-8")));
         
         return new HTTPClientURIFetcher(httpclient, charsetStrategy);
     }
@@ -125,11 +142,6 @@ public final class BulkURIFetchers {
         clientParam.setMaxRedirects(10);
         clientParam.setAllowCircularRedirects(false);
         
-        final ConnManagerParamBean connManagerParam = new ConnManagerParamBean(params);
-        connManagerParam.setConnectionsPerRoute(new ConnPerRouteBean(5));
-        connManagerParam.setMaxTotalConnections(100);
-        
-        final ConnManagerParamBean connConnectionParam = new ConnManagerParamBean(params);
         return params;
     }
     
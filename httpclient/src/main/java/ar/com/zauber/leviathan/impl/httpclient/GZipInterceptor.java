@@ -35,7 +35,11 @@ import org.apache.http.protocol.HttpContext;
  * 
  * @author Juan F. Codagnone
  * @since Feb 27, 2010
+ * @deprecated use 
+ *   {@link ar.com.zauber.leviathan.impl.httpclient.encoding.ContentDecodingInterceptor}:
+ *   it also decodes deflate (and any registered codec) reusing pooled inflaters.
  */
+@Deprecated
 public class GZipInterceptor implements HttpRequestInterceptor, 
                                         HttpResponseInterceptor {
     
@@ -16,15 +16,20 @@
 package ar.com.zauber.leviathan.impl.httpclient;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.UnhandledException;
@@ -32,14 +37,11 @@ import org.apache.commons.lang.Validate;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.client.utils.URLEncodedUtils;
-import org.apache.http.entity.ByteArrayEntity;
-import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.util.EntityUtils;
 
 import ar.com.zauber.leviathan.api.FetchingTask;
@@ -47,23 +49,47 @@ import ar.com.zauber.leviathan.api.URIFetcher;
 import ar.com.zauber.leviathan.api.URIFetcherResponse;
 import ar.com.zauber.leviathan.api.URIFetcherResponse.URIAndCtx;
 import ar.com.zauber.leviathan.api.UrlEncodedPostBody;
+import ar.com.zauber.leviathan.common.AbstractPrefixCharsetStrategy;
 import ar.com.zauber.leviathan.common.AbstractURIFetcher;
 import ar.com.zauber.leviathan.common.CharsetStrategy;
+import ar.com.zauber.leviathan.common.CompactHeaders;
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.ContentTooLargeException;
+import ar.com.zauber.leviathan.common.DownloadURIFetcher;
+import ar.com.zauber.leviathan.common.FileURIFetcherHttpResponse;
 import ar.com.zauber.leviathan.common.InmutableURIFetcherHttpResponse;
 import ar.com.zauber.leviathan.common.InmutableURIFetcherResponse;
+import ar.com.zauber.leviathan.common.NonRepeatableFetchingTask;
+import ar.com.zauber.leviathan.common.RequestHeaders;
 import ar.com.zauber.leviathan.common.ResponseMetadata;
+import ar.com.zauber.leviathan.common.SpooledContent;
+import ar.com.zauber.leviathan.common.SpooledURIFetcherHttpResponse;
+import ar.com.zauber.leviathan.common.bandwidth.BandwidthLimiter;
+import ar.com.zauber.leviathan.common.utils.LimitedInputStream;
+import ar.com.zauber.leviathan.common.utils.ThrottledInputStream;
 import ar.com.zauber.leviathan.impl.httpclient.charset.DefaultHttpCharsetStrategy;
 import ar.com.zauber.leviathan.impl.httpclient.charset.SkipBytesException;
+import ar.com.zauber.leviathan.impl.httpclient.conn.AdaptiveClientConnManager;
 
 /**
- * {@link URIFetcher} that uses Apache's HttpClient components
+ * {@link URIFetcher} that uses Apache's HttpClient components. It is a
+ * {@link DownloadURIFetcher} too: binary content can be written straight to
+ * a file.
  *
  * @author Juan F. Codagnone
  * @since Oct 12, 2009
  */
-public class HTTPClientURIFetcher extends AbstractURIFetcher {
+public class HTTPClientURIFetcher extends AbstractURIFetcher
+                                  implements DownloadURIFetcher {
     private final HttpClient httpClient;
     private final CharsetStrategy charsetStrategy;
+    private int spoolThreshold = -1;
+    private File spoolDirectory;
+    private long maxContentLength = -1;
+    private Map<String, Long> maxContentLengths = new HashMap<String, Long>();
+    private BandwidthLimiter bandwidthLimiter;
+    private String digestAlgorithm = FileURIFetcherHttpResponse.DEFAULT_DIGEST_ALGORITHM;
+    private int charsetPrefixSize = ContentPrefix.DEFAULT_SIZE;
 
     /** constructor utiliza la default charset strategy */
     public HTTPClientURIFetcher(final HttpClient httpClient) {
@@ -99,9 +125,36 @@ public class HTTPClientURIFetcher extends AbstractURIFetcher {
         };
     }
     
+    /**
+     * The body is streamed to the connection (it is not buffered). Its length
+     * is known for {@link ByteArrayInputStream}s and {@link FileInputStream}s;
+     * other streams are sent chunked. 
+     * 
+     * The stream can be sent only once, so the task is a
+     * {@link NonRepeatableFetchingTask}: it is not retried nor hedged.
+     * 
+     * @see URIFetcher#createPost(URIAndCtx, InputStream)
+     */
     @Override
     public final FetchingTask createPost(final URIAndCtx uriAndCtx, final InputStream body) {
-        return new FetchingTask() {
+        return createPost(uriAndCtx, body, -1);
+    }
+
+    /**
+     * Creates a POST task that streams <code>body</code> to the connection.
+     * The task runs only once: executing it again answers an error.
+     * 
+     * @param uriAndCtx     the uri
+     * @param body          the body (it is closed once sent)
+     * @param contentLength length of the body in bytes. A negative value 
+     *                      detects it if possible, or sends the body chunked
+     * @return the task
+     */
+    public final FetchingTask createPost(final URIAndCtx uriAndCtx, 
+            final InputStream body, final long contentLength) {
+        Validate.notNull(body);
+        final AtomicBoolean executed = new AtomicBoolean(false);
+        return new NonRepeatableFetchingTask() {
             @Override
             public URIAndCtx getURIAndCtx() {
                 return uriAndCtx;
@@ -109,9 +162,17 @@ public class HTTPClientURIFetcher extends AbstractURIFetcher {
             
             @Override
             public URIFetcherResponse execute() {
+                if(!executed.compareAndSet(false, true)) {
+                    return new InmutableURIFetcherResponse(uriAndCtx, 
+                            new IllegalStateException("the body was already sent"));
+                }
                 try {
                     final HttpPost httpPost = new HttpPost(uriAndCtx.getURI());
-                    httpPost.setEntity(new ByteArrayEntity(IOUtils.toByteArray(body)));
+                    final long length = contentLength < 0 
+                            ? knownLength(body) : contentLength;
+                    final InputStreamEntity entity = new InputStreamEntity(body, length);
+                    entity.setChunked(length < 0);
+                    httpPost.setEntity(entity);
                     return fetchInternal(uriAndCtx, httpPost);
                 } catch (final Throwable e) {
                     return new InmutableURIFetcherResponse(uriAndCtx, 
@@ -134,24 +195,7 @@ public class HTTPClientURIFetcher extends AbstractURIFetcher {
             public URIFetcherResponse execute() {
                 try {
                     final HttpPost httpPost = new HttpPost(uriAndCtx.getURI());
-
-                    final List<NameValuePair> pairs = new ArrayList<NameValuePair>();
-                    
-                    for (final String simpleParam : body.getSimpleParameters()) {
-                        pairs.add(new BasicNameValuePair(simpleParam,
-                                  body.getSimpleParameter(simpleParam)));
-                    }
-                    
-                    for (final String collectionParam : body.getCollectionParameters()) {
-                        for (final String value : body.getCollectionParameter(collectionParam)) {
-                            pairs.add(new BasicNameValuePair(collectionParam, value));
-                        }
-                    }
-                    
-                    final String content = URLEncodedUtils.format(pairs, "UTF-8");
-                    final ByteArrayEntity entity = new ByteArrayEntity(content.getBytes());
-                    entity.setContentType("application/x-www-form-urlencoded");
-                    httpPost.setEntity(entity);
+                    httpPost.setEntity(new UrlEncodedPostEntity(body));
                     return fetchInternal(uriAndCtx, httpPost);
                 } catch(final Throwable t) {
                     return new InmutableURIFetcherResponse(uriAndCtx, t);
@@ -161,6 +205,44 @@ public class HTTPClientURIFetcher extends AbstractURIFetcher {
     }
     
 
+    /**
+     * @return the length of the remaining content of a POST body, or -1 if it
+     *         is unknown (it has to be sent chunked)
+     */
+    public static long knownLength(final InputStream body) throws IOException {
+        if(body instanceof ByteArrayInputStream) {
+            return body.available();
+        } else if(body instanceof FileInputStream) {
+            final FileChannel channel = ((FileInputStream) body).getChannel();
+            return channel.size() - channel.position();
+        }
+        return -1;
+    }
+
+    /** @see DownloadURIFetcher#createDownload(URIAndCtx, File) */
+    public final FetchingTask createDownload(final URIAndCtx uriAndCtx,
+            final File target) {
+        Validate.notNull(target);
+        return new FetchingTask() {
+            @Override
+            public URIAndCtx getURIAndCtx() {
+                return uriAndCtx;
+            }
+
+            @Override
+            public URIFetcherResponse execute() {
+                return fetchInternal(uriAndCtx, new HttpGet(uriAndCtx.getURI()),
+                        target);
+            }
+        };
+    }
+
+    /** @see DownloadURIFetcher#download(URIAndCtx, File) */
+    public final URIFetcherResponse download(final URIAndCtx uriAndCtx,
+            final File target) {
+        return createDownload(uriAndCtx, target).execute();
+    }
+
     /**
      * Actual fetching.
      * 
@@ -168,44 +250,82 @@ public class HTTPClientURIFetcher extends AbstractURIFetcher {
      */
     private URIFetcherResponse fetchInternal(final URIAndCtx uriAndCtx,
             final HttpUriRequest httpMethod) {
+        return fetchInternal(uriAndCtx, httpMethod, null);
+    }
+
+    /**
+     * Actual fetching.
+     * 
+     * @param httpMethod 
+     * @param target where successful (2xx) bodies are written, without
+     *               charset detection. <code>null</code> to keep them in memory
+     */
+    private URIFetcherResponse fetchInternal(final URIAndCtx uriAndCtx,
+            final HttpUriRequest httpMethod, final File target) {
         HttpResponse response = null;
+        boolean aborted = false;
         try {
             final URI uri = uriAndCtx.getURI();
             Validate.notNull(uri, "uri is null");
             
+            for(final Entry<String, String> header 
+                    : RequestHeaders.get(uriAndCtx).entrySet()) {
+                httpMethod.setHeader(header.getKey(), header.getValue());
+            }
             response  = httpClient.execute(httpMethod);
             Validate.notNull(response);
             
             final HttpEntity entity = response.getEntity();
-            Validate.notNull(entity);
+            if(entity == null) {
+                // ie: 304 Not Modified
+                return new InmutableURIFetcherResponse(uriAndCtx,
+                        new InmutableURIFetcherHttpResponse("",
+                                response.getStatusLine().getStatusCode(),
+                                extractCompactHeaders(response), new byte[0]));
+            }
             
-            final InputStream content = entity.getContent();
+            final ResponseMetadata meta = getMetaResponse(uri, response, entity);
+            InputStream content = limit(uri, entity, meta.getContentType());
             Validate.notNull(content);
             
-            byte[] data = IOUtils.toByteArray(content);
-
-            final ResponseMetadata meta = getMetaResponse(uri, response, entity);
+            if(target != null && meta.getStatusCode() / 100 == 2) {
+                return new InmutableURIFetcherResponse(uriAndCtx,
+                        FileURIFetcherHttpResponse.transfer(content, target,
+                                digestAlgorithm, meta.getStatusCode(),
+                                extractCompactHeaders(response)));
+            }
+            if(spoolThreshold > 0) {
+                return new InmutableURIFetcherResponse(uriAndCtx,
+                        spoolResponse(response, meta, content));
+            }
             
+            final byte[] data = IOUtils.toByteArray(content);
+
             Charset charset;
+            int offset = 0;
             try {
-               charset = charsetStrategy.getCharset(meta, new ByteArrayInputStream(data));
+               charset = AbstractPrefixCharsetStrategy.getCharset(charsetStrategy, meta,
+                       ContentPrefix.wrap(data, charsetPrefixSize));
             } catch (final SkipBytesException e) {
                charset = e.getCharset();
-               e.getBytesToSkip();
-               data = Arrays.copyOfRange(data, e.getBytesToSkip() - 1, data.length);
+               offset = e.getBytesToSkip();
             }
-               
+            
+            // decoded on demand
             return new InmutableURIFetcherResponse(
                 uriAndCtx,
-                new InmutableURIFetcherHttpResponse(
-                    new String(data, charset.displayName()), 
-                    meta.getStatusCode(), 
-                    extractHeaders(response), data));
+                new InmutableURIFetcherHttpResponse(data, offset, charset,
+                    meta.getStatusCode(), extractCompactHeaders(response)));
             
+        } catch (final ContentTooLargeException e) {
+            // don't read the rest of the body: close the connection
+            aborted = true;
+            AdaptiveClientConnManager.abort(httpMethod);
+            return new InmutableURIFetcherResponse(uriAndCtx, e);
         } catch (final Throwable e) {
             return new InmutableURIFetcherResponse(uriAndCtx, e);
         } finally {
-            if(response != null) {
+            if(response != null && response.getEntity() != null && !aborted) {
                 try {
                     response.getEntity().consumeContent();
                 } catch (final IOException e) {
@@ -215,14 +335,115 @@ public class HTTPClientURIFetcher extends AbstractURIFetcher {
         }
     }
 
+    /**
+     * @return the content of the entity, limited to the maximum length
+     * configured for its content type and paced by the bandwidth limiter
+     * @throws ContentTooLargeException if the declared length is over the limit
+     */
+    private InputStream limit(final URI uri, final HttpEntity entity,
+            final String contentType) throws IOException {
+        final long max = getMaxContentLength(contentType);
+        if(max >= 0 && entity.getContentLength() > max) {
+            throw new ContentTooLargeException(entity.getContentLength(), max,
+                    contentType);
+        }
+        InputStream ret = entity.getContent();
+        final BandwidthLimiter limiter = bandwidthLimiter == null 
+                ? BandwidthLimiter.current() : bandwidthLimiter;
+        if(limiter != null) {
+            ret = new ThrottledInputStream(ret, limiter, uri.getHost());
+        }
+        return max < 0 ? ret : new LimitedInputStream(ret, max, contentType);
+    }
+
+    /**
+     * @param contentType the value of the <code>Content-Type</code> header
+     *                    (may be null)
+     * @return the maximum body length for the content type, or a negative
+     *         value if there is no limit
+     */
+    public final long getMaxContentLength(final String contentType) {
+        if(contentType != null && !maxContentLengths.isEmpty()) {
+            String mimeType = contentType;
+            final int i = mimeType.indexOf(';');
+            if(i != -1) {
+                mimeType = mimeType.substring(0, i);
+            }
+            mimeType = mimeType.trim().toLowerCase();
+
+            Long ret = maxContentLengths.get(mimeType);
+            if(ret == null) {
+                final int j = mimeType.indexOf('/');
+                if(j != -1) {
+                    ret = maxContentLengths.get(mimeType.substring(0, j) + "/*");
+                }
+            }
+            if(ret != null) {
+                return ret;
+            }
+        }
+        return maxContentLength;
+    }
+
+    /**
+     * Builds a {@link SpooledURIFetcherHttpResponse}: the body is kept in memory
+     * up to {@link #spoolThreshold} bytes, and the rest goes to a temporary file.
+     */
+    private SpooledURIFetcherHttpResponse spoolResponse(final HttpResponse response,
+            final ResponseMetadata meta, final InputStream content) throws IOException {
+        final SpooledContent spooled = SpooledContent.spool(content, spoolThreshold,
+                spoolDirectory);
+        boolean ok = false;
+        try {
+            Charset charset;
+            int offset = 0;
+            final InputStream is = spooled.openStream(0);
+            try {
+                charset = AbstractPrefixCharsetStrategy.getCharset(charsetStrategy, meta,
+                        ContentPrefix.read(is, charsetPrefixSize));
+            } catch (final SkipBytesException e) {
+                charset = e.getCharset();
+                offset = e.getBytesToSkip();
+            } finally {
+                IOUtils.closeQuietly(is);
+            }
+            final SpooledURIFetcherHttpResponse ret = new SpooledURIFetcherHttpResponse(
+                    spooled, offset, charset, meta.getStatusCode(), extractCompactHeaders(response));
+            ok = true;
+            return ret;
+        } finally {
+            if(!ok) {
+                spooled.release();
+            }
+        }
+    }
 
+    /**
+     * Extracts de headers of the {@link HttpResponse}.
+     * 
+     * @param response
+     * @return the headers 
+     */
+    public static CompactHeaders extractCompactHeaders(final HttpResponse response) {
+        final Header[] allHeaders = response.getAllHeaders();
+        final String[] names = new String[allHeaders.length];
+        final String[] values = new String[allHeaders.length];
+        for(int i = 0; i < allHeaders.length; i++) {
+            names[i] = allHeaders[i].getName();
+            values[i] = allHeaders[i].getValue();
+        }
+        return CompactHeaders.of(names, values);
+    }
+    
     /**
      * Extracts de headers of the {@link HttpResponse}.
      * 
      * @param response
      * @return the headers map 
+     * @deprecated use {@link #extractCompactHeaders(HttpResponse)}
      */
-    private Map<String, List<String>> extractHeaders(final HttpResponse response) {
+    @Deprecated
+    public static Map<String, List<String>> extractHeaders(final HttpResponse response) {
         final Map<String, List<String>> out = new TreeMap<String, List<String>>();
         
         final Header[] allHeaders = response.getAllHeaders();
@@ -266,6 +487,94 @@ public class HTTPClientURIFetcher extends AbstractURIFetcher {
     }
 
 
+    /**
+     * Enables the streaming (spooled) response mode. Responses bodies bigger
+     * than <code>threshold</code> bytes are spilled to a temporary file instead
+     * of being held in the heap (as raw bytes and as a decoded string).
+     * The returned {@link SpooledURIFetcherHttpResponse} must be released after
+     * use (the {@link ar.com.zauber.leviathan.api.AsyncUriFetcher}s do it once
+     * the closure returns).
+     * 
+     * @param threshold maximum bytes kept in memory per response. A value
+     *                  less or equal to zero disables the spooled mode
+     */
+    public final void setSpoolThreshold(final int threshold) {
+        this.spoolThreshold = threshold;
+    }
+
+    /**
+     * Sets the maximum length of a response body. Bigger responses are
+     * aborted (the connection is closed without reading the rest of the body)
+     * and a failed {@link URIFetcherResponse} with a
+     * {@link ContentTooLargeException} is returned. The declared
+     * <code>Content-Length</code> is checked before reading, and the limit is
+     * enforced while reading too.
+     *
+     * @param maxContentLength maximum length in bytes. A negative value
+     *                         disables the limit (default)
+     */
+    public final void setMaxContentLength(final long maxContentLength) {
+        this.maxContentLength = maxContentLength;
+    }
+
+    /**
+     * Sets the maximum length of a response body by content type. They
+     * take precedence over {@link #setMaxContentLength(long)}.
+     *
+     * @param maxContentLengths mime type (ie: <code>text/html</code> or
+     *                          <code>image/*</code>) to maximum length
+     *                          in bytes. A negative length disables the
+     *                          limit for the type.
+     */
+    public final void setMaxContentLengths(final Map<String, Long> maxContentLengths) {
+        Validate.notNull(maxContentLengths);
+        final Map<String, Long> m = new HashMap<String, Long>();
+        for(final Entry<String, Long> entry : maxContentLengths.entrySet()) {
+            Validate.notNull(entry.getKey());
+            Validate.notNull(entry.getValue());
+            m.put(entry.getKey().trim().toLowerCase(), entry.getValue());
+        }
+        this.maxContentLengths = m;
+    }
+
+    /**
+     * Paces the reading of the response bodies. Without a limiter, the one
+     * bound to the fetching thread is used (see 
+     * {@link BandwidthLimiter#current()}).
+     *
+     * @param limiter the limiter (<code>null</code> to use the bound one)
+     */
+    public final void setBandwidthLimiter(final BandwidthLimiter limiter) {
+        this.bandwidthLimiter = limiter;
+    }
+
+    /**
+     * @param size how many bytes of the body the {@link CharsetStrategy} can
+     *             inspect. Default {@link ContentPrefix#DEFAULT_SIZE}
+     */
+    public final void setCharsetPrefixSize(final int size) {
+        Validate.isTrue(size >= 0);
+        this.charsetPrefixSize = size;
+    }
+
+    /**
+     * @param algorithm digest algorithm of the downloaded files (see
+     *                  {@link #createDownload(URIAndCtx, File)}). Default
+     *                  <code>SHA-1</code>
+     */
+    public final void setDigestAlgorithm(final String algorithm) {
+        Validate.notEmpty(algorithm);
+        this.digestAlgorithm = algorithm;
+    }
+
+    /**
+     * @param directory where the spool files are created. <code>null</code>
+     *                  uses the default temporary directory
+     */
+    public final void setSpoolDirectory(final File directory) {
+        this.spoolDirectory = directory;
+    }
+
     /**
      * When HttpClient instance is no longer needed,
      * shut down the connection manager to ensure
@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.lang.Validate;
+import org.apache.http.entity.AbstractHttpEntity;
+
+import ar.com.zauber.leviathan.api.UrlEncodedPostBody;
+
+/**
+ * <code>application/x-www-form-urlencoded</code> (UTF-8) entity that encodes
+ * a {@link UrlEncodedPostBody} straight to the connection: the parameters are
+ * not copied to name/value pairs, a String and a byte array. The length is
+ * computed beforehand (without allocating) so no chunked encoding is needed.
+ *
+ * The output is the same as <code>URLEncodedUtils.format(pairs, "UTF-8")</code>.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class UrlEncodedPostEntity extends AbstractHttpEntity {
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+    private static final int BUFFER_SIZE = 1024;
+    private final UrlEncodedPostBody body;
+    private final long length;
+
+    /** Creates the UrlEncodedPostEntity. */
+    public UrlEncodedPostEntity(final UrlEncodedPostBody body) {
+        Validate.notNull(body);
+
+        this.body = body;
+        setContentType("application/x-www-form-urlencoded");
+        try {
+            final Sink counter = new Sink(null);
+            encode(counter);
+            this.length = counter.count;
+        } catch(final IOException e) {
+            // there is no output stream
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** @see AbstractHttpEntity#isRepeatable() */
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    /** @see AbstractHttpEntity#getContentLength() */
+    public long getContentLength() {
+        return length;
+    }
+
+    /** @see AbstractHttpEntity#isStreaming() */
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /** 
+     * @see AbstractHttpEntity#getContent()
+     * (not used to send the entity: {@link #writeTo(OutputStream)} is)
+     */
+    public InputStream getContent() throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream((int) length);
+        writeTo(os);
+        return new ByteArrayInputStream(os.toByteArray());
+    }
+
+    /** @see AbstractHttpEntity#writeTo(OutputStream) */
+    public void writeTo(final OutputStream outstream) throws IOException {
+        Validate.notNull(outstream);
+        final Sink sink = new Sink(outstream);
+        encode(sink);
+        sink.flush();
+    }
+
+    /** encodes the parameters, in the same order than the original post */
+    private void encode(final Sink sink) throws IOException {
+        for(final String name : body.getSimpleParameters()) {
+            pair(sink, name, body.getSimpleParameter(name));
+        }
+        for(final String name : body.getCollectionParameters()) {
+            for(final String value : body.getCollectionParameter(name)) {
+                pair(sink, name, value);
+            }
+        }
+    }
+
+    /** encodes a name=value pair */
+    private static void pair(final Sink sink, final String name, final String value)
+            throws IOException {
+        if(sink.count > 0) {
+            sink.write('&');
+        }
+        encode(sink, name);
+        sink.write('=');
+        if(value != null) {
+            encode(sink, value);
+        }
+    }
+
+    /** 
+     * encodes a string as {@link java.net.URLEncoder#encode(String, String)}
+     * does with UTF-8
+     */
+    private static void encode(final Sink sink, final String s) throws IOException {
+        final int n = s.length();
+        for(int i = 0; i < n; i++) {
+            final char c = s.charAt(i);
+            if(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                    || c == '.' || c == '-' || c == '*' || c == '_') {
+                sink.write(c);
+            } else if(c == ' ') {
+                sink.write('+');
+            } else if(c < 0x80) {
+                escape(sink, c);
+            } else if(c < 0x800) {
+                escape(sink, 0xc0 | c >> 6);
+                escape(sink, 0x80 | c & 0x3f);
+            } else if(Character.isHighSurrogate(c) && i + 1 < n
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, s.charAt(++i));
+                escape(sink, 0xf0 | cp >> 18);
+                escape(sink, 0x80 | cp >> 12 & 0x3f);
+                escape(sink, 0x80 | cp >> 6 & 0x3f);
+                escape(sink, 0x80 | cp & 0x3f);
+            } else if(c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                // unpaired surrogate: replaced, as the UTF-8 encoder does
+                escape(sink, '?');
+            } else {
+                escape(sink, 0xe0 | c >> 12);
+                escape(sink, 0x80 | c >> 6 & 0x3f);
+                escape(sink, 0x80 | c & 0x3f);
+            }
+        }
+    }
+
+    /** writes %XX */
+    private static void escape(final Sink sink, final int b) throws IOException {
+        sink.write('%');
+        sink.write(HEX[b >> 4 & 0x0f]);
+        sink.write(HEX[b & 0x0f]);
+    }
+
+    /** buffered output that counts the bytes (and discards them without a stream) */
+    private static final class Sink {
+        private final OutputStream os;
+        private final byte[] buf;
+        private int pos;
+        private long count;
+
+        /** @param os where to write. <code>null</code> only counts */
+        Sink(final OutputStream os) {
+            this.os = os;
+            this.buf = os == null ? null : new byte[BUFFER_SIZE];
+        }
+
+        /** writes a byte */
+        void write(final int b) throws IOException {
+            count++;
+            if(os != null) {
+                if(pos == buf.length) {
+                    flush();
+                }
+                buf[pos++] = (byte) b;
+            }
+        }
+
+        /** writes the buffered bytes */
+        void flush() throws IOException {
+            if(os != null && pos > 0) {
+                os.write(buf, 0, pos);
+                pos = 0;
+            }
+        }
+    }
+}
@@ -15,14 +15,14 @@
  */
 package ar.com.zauber.leviathan.impl.httpclient.charset;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
+import ar.com.zauber.leviathan.common.AbstractPrefixCharsetStrategy;
 import ar.com.zauber.leviathan.common.CharsetStrategy;
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.PrefixCharsetStrategy;
 import ar.com.zauber.leviathan.common.ResponseMetadata;
 
 /**
@@ -33,7 +33,7 @@ import ar.com.zauber.leviathan.common.ResponseMetadata;
  * @since 31/07/2012
  * @see http://en.wikipedia.org/wiki/Byte_order_mark
  */
-public final class ByteOrderMarkCharsetStrategy implements CharsetStrategy {
+public final class ByteOrderMarkCharsetStrategy extends AbstractPrefixCharsetStrategy {
 
     @SuppressWarnings("serial")
     private static final List<ByteOrderMark> BOM_LIST = new ArrayList<ByteOrderMark>() {{
@@ -53,24 +53,14 @@ public final class ByteOrderMarkCharsetStrategy implements CharsetStrategy {
 //        add(new ByteOrderMark(Charset.forName("GB-18030"), new byte[]{ (byte)0x84, (byte)0x31, (byte)0x95, (byte)0x33 }));  
     }};
     
-    @Override
-    public Charset getCharset(final ResponseMetadata meta, final InputStream content) {
-        Charset detectedCharset = null;
-        try {
-            final byte[] bytes = new byte[4];
-            if (content.read(bytes, 0, 4) == 4) {
-                for (final ByteOrderMark bom : BOM_LIST) {
-                    final byte[] copy = Arrays.copyOf(bytes, bom.bytes.length);
-                    if (Arrays.equals(bom.bytes, copy)) {
-                        detectedCharset = bom.charset;
-                        throw new SkipBytesException(bom.bytes.length, detectedCharset);
-                    }
-                }
+    /** @see PrefixCharsetStrategy#getCharsetFromPrefix(ResponseMetadata, ContentPrefix) */
+    public Charset getCharsetFromPrefix(final ResponseMetadata meta, final ContentPrefix prefix) {
+        for (final ByteOrderMark bom : BOM_LIST) {
+            if (prefix.startsWith(bom.bytes)) {
+                throw new SkipBytesException(bom.bytes.length, bom.charset);
             }
-        } catch (final IOException e) {
-            // Nothing to be done
         }
-        return detectedCharset;
+        return null;
     }
 
     private static final class ByteOrderMark {
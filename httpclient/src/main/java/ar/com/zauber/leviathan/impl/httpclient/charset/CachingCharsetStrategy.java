@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.charset;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.Validate;
+
+import ar.com.zauber.leviathan.common.AbstractPrefixCharsetStrategy;
+import ar.com.zauber.leviathan.common.CharsetStrategy;
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.PrefixCharsetStrategy;
+import ar.com.zauber.leviathan.common.ResponseMetadata;
+
+/**
+ * {@link CharsetStrategy} decorator that learns the charset that a site
+ * serves. Once the decorated strategy answered the same charset
+ * {@link #setConfirmations(int) N times} in a row for a host and content type
+ * (the whole <code>Content-Type</code> header, so a declared charset is part
+ * of the key), that charset is returned without running it. One of every
+ * {@link #setVerifyRate(int) verifyRate} answers is verified again; if the
+ * site changed, the charset is learned again.
+ *
+ * Byte order marks are still honored (they are per document, see
+ * {@link ByteOrderMarkCharsetStrategy}). At most
+ * {@link #setMaxEntries(int) maxEntries} keys are kept (LRU).
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class CachingCharsetStrategy extends AbstractPrefixCharsetStrategy {
+    private static final PrefixCharsetStrategy BOM = new ByteOrderMarkCharsetStrategy();
+    private final CharsetStrategy target;
+    private final Map<String, Entry> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile int confirmations = 3;
+    private volatile int verifyRate = 100;
+    private volatile int maxEntries = 10000;
+
+    /** Creates the CachingCharsetStrategy. */
+    public CachingCharsetStrategy(final CharsetStrategy target) {
+        Validate.notNull(target);
+
+        this.target = target;
+        this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<String, CachingCharsetStrategy.Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /** @see PrefixCharsetStrategy#getCharsetFromPrefix(ResponseMetadata, ContentPrefix) */
+    public final Charset getCharsetFromPrefix(final ResponseMetadata meta,
+            final ContentPrefix prefix) {
+        final String key = getKey(meta);
+        if(key == null) {
+            misses.incrementAndGet();
+            return getCharset(target, meta, prefix);
+        }
+
+        Charset learned = null;
+        synchronized (cache) {
+            final Entry entry = cache.get(key);
+            if(entry != null && entry.count >= confirmations
+                    && (verifyRate <= 0 || ++entry.hits % verifyRate != 0)) {
+                learned = entry.charset;
+            }
+        }
+        if(learned != null) {
+            // may throw SkipBytesException
+            BOM.getCharsetFromPrefix(meta, prefix);
+            hits.incrementAndGet();
+            return learned;
+        }
+
+        misses.incrementAndGet();
+        final Charset charset = getCharset(target, meta, prefix);
+        synchronized (cache) {
+            final Entry entry = cache.get(key);
+            if(charset == null) {
+                cache.remove(key);
+            } else if(entry != null && entry.charset.equals(charset)) {
+                entry.count++;
+            } else {
+                cache.put(key, new Entry(charset));
+            }
+        }
+        return charset;
+    }
+
+    /** @return the key of the response, or <code>null</code> if it has no host */
+    private static String getKey(final ResponseMetadata meta) {
+        final URI uri = meta == null ? null : meta.getURI();
+        final String host = uri == null ? null : uri.getHost();
+        return host == null ? null : getKey(host, meta.getContentType());
+    }
+
+    /** @return the key of a host and content type */
+    private static String getKey(final String host, final String contentType) {
+        final StringBuilder sb = new StringBuilder(host.length() + 32);
+        sb.append(host.toLowerCase()).append(' ');
+        if(contentType != null) {
+            for(int i = 0; i < contentType.length(); i++) {
+                final char c = contentType.charAt(i);
+                if(!Character.isWhitespace(c)) {
+                    sb.append(Character.toLowerCase(c));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param host        the host
+     * @param contentType the content type header (may be null)
+     * @return the learned charset, or <code>null</code>
+     */
+    public final Charset getLearnedCharset(final String host, final String contentType) {
+        Validate.notNull(host);
+        synchronized (cache) {
+            final Entry entry = cache.get(getKey(host, contentType));
+            return entry != null && entry.count >= confirmations ? entry.charset : null;
+        }
+    }
+
+    /** @return how many answers were given without running the strategy */
+    public final long getHits() {
+        return hits.get();
+    }
+
+    /** @return how many times the strategy was run */
+    public final long getMisses() {
+        return misses.get();
+    }
+
+    /** @return how many keys are cached */
+    public final int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /** forgets everything */
+    public final void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /** @param confirmations equal answers needed to learn a charset (default 3) */
+    public final void setConfirmations(final int confirmations) {
+        Validate.isTrue(confirmations > 0);
+        this.confirmations = confirmations;
+    }
+
+    /**
+     * @param verifyRate one of every <code>verifyRate</code> answers of a
+     *                   learned charset is verified (default 100). Zero or
+     *                   less never verifies
+     */
+    public final void setVerifyRate(final int verifyRate) {
+        this.verifyRate = verifyRate;
+    }
+
+    /** @param maxEntries maximum number of keys kept (default 10000) */
+    public final void setMaxEntries(final int maxEntries) {
+        Validate.isTrue(maxEntries > 0);
+        this.maxEntries = maxEntries;
+    }
+
+    /** what was learned for a key */
+    private static final class Entry {
+        private final Charset charset;
+        private int count = 1;
+        private long hits;
+
+        /** @param charset the first answer */
+        Entry(final Charset charset) {
+            this.charset = charset;
+        }
+    }
+}
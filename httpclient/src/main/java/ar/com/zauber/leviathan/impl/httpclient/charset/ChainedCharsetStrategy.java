@@ -15,23 +15,26 @@
  */
 package ar.com.zauber.leviathan.impl.httpclient.charset;
 
-import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.List;
 
 import org.apache.commons.lang.Validate;
 
+import ar.com.zauber.leviathan.common.AbstractPrefixCharsetStrategy;
 import ar.com.zauber.leviathan.common.CharsetStrategy;
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.PrefixCharsetStrategy;
 import ar.com.zauber.leviathan.common.ResponseMetadata;
 
 /**
  * {@link CharsetStrategy} que delega a una lista de {@link CharsetStrategy}'s.
- * Devuelve el primer Charset obtenido.
+ * Devuelve el primer Charset obtenido. Todas las estrategias inspeccionan el
+ * mismo {@link ContentPrefix}.
  * 
  * @author Francisco J. Gonzlez Costanz
  * @since Apr 9, 2010
  */
-public class ChainedCharsetStrategy implements CharsetStrategy {
+public class ChainedCharsetStrategy extends AbstractPrefixCharsetStrategy {
     
     private final List<CharsetStrategy> strategies;
 
@@ -41,11 +44,11 @@ public class ChainedCharsetStrategy implements CharsetStrategy {
         this.strategies = strategies;
     }
 
-    /** @see CharsetStrategy#getCharset(ResponseMetadata, InputStream) */
-    public final Charset getCharset(final ResponseMetadata meta, 
-            final InputStream content) {
+    /** @see PrefixCharsetStrategy#getCharsetFromPrefix(ResponseMetadata, ContentPrefix) */
+    public final Charset getCharsetFromPrefix(final ResponseMetadata meta, 
+            final ContentPrefix prefix) {
         for (CharsetStrategy strategy : strategies) {
-            Charset charset = strategy.getCharset(meta, content);
+            Charset charset = getCharset(strategy, meta, prefix);
             if (charset != null) {
                 return charset;
             }
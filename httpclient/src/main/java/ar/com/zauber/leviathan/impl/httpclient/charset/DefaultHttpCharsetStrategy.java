@@ -23,6 +23,8 @@ import java.nio.charset.UnsupportedCharsetException;
 import org.apache.commons.lang.Validate;
 
 import ar.com.zauber.leviathan.common.CharsetStrategy;
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.PrefixCharsetStrategy;
 import ar.com.zauber.leviathan.common.ResponseMetadata;
 
 /**
@@ -31,7 +33,7 @@ import ar.com.zauber.leviathan.common.ResponseMetadata;
  * @author Mariano Semelman
  * @since Dec 15, 2009
  */
-public class DefaultHttpCharsetStrategy implements CharsetStrategy {
+public class DefaultHttpCharsetStrategy implements PrefixCharsetStrategy {
 
     /** @see CharsetStrategy#getCharset(ResponseMetadata, byte[]) */
     public final Charset getCharset(final ResponseMetadata meta,
@@ -50,4 +52,10 @@ public class DefaultHttpCharsetStrategy implements CharsetStrategy {
         return res;
     }
 
+    /** @see PrefixCharsetStrategy#getCharsetFromPrefix(ResponseMetadata, ContentPrefix) */
+    public final Charset getCharsetFromPrefix(final ResponseMetadata meta,
+            final ContentPrefix prefix) {
+        return getCharset(meta, null);
+    }
+
 }
@@ -15,47 +15,45 @@
  */
 package ar.com.zauber.leviathan.impl.httpclient.charset;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 import org.mozilla.universalchardet.UniversalDetector;
 
+import ar.com.zauber.leviathan.common.AbstractPrefixCharsetStrategy;
 import ar.com.zauber.leviathan.common.CharsetStrategy;
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.PrefixCharsetStrategy;
 import ar.com.zauber.leviathan.common.ResponseMetadata;
 
 
 /**
  * Implementacin de {@link CharsetStrategy} que analiza el contenido del 
  * documento para intentar determinar el encoding del mismo.
- * En caso de no poder lograrlo retorna <code>null</code>
+ * En caso de no poder lograrlo retorna <code>null</code>. Solo se analiza
+ * el {@link ContentPrefix}.
  * 
  * 
  * @author Mariano Focaraccio
  * @since Sep 16, 2010
  */
-public class DetectorCharsetStrategy implements CharsetStrategy {
+public class DetectorCharsetStrategy extends AbstractPrefixCharsetStrategy {
 
-    /** @see CharsetStrategy#getCharset(ResponseMetadata, InputStream) */
-    public final Charset getCharset(final ResponseMetadata meta, 
-                                    final InputStream content) {
+    /** @see PrefixCharsetStrategy#getCharsetFromPrefix(ResponseMetadata, ContentPrefix) */
+    public final Charset getCharsetFromPrefix(final ResponseMetadata meta, 
+                                    final ContentPrefix prefix) {
         
         final UniversalDetector detector = new UniversalDetector(null);
-        final byte[] buf = new byte[4096];
-        int nread;
-        try {
-            while ((nread = content.read(buf)) > 0 && !detector.isDone()) {
-              detector.handleData(buf, 0, nread);
-            }
-            detector.dataEnd();
-            final String charset = detector.getDetectedCharset();
-            final Charset result = (charset == null) ? null 
-                                     : Charset.forName(charset);
-            return result;
-        } catch (IOException e) {
-            e.printStackTrace();
+        final ByteBuffer content = prefix.asByteBuffer();
+        final byte[] buf = new byte[Math.min(4096, content.remaining())];
+        while (content.hasRemaining() && !detector.isDone()) {
+            final int nread = Math.min(buf.length, content.remaining());
+            content.get(buf, 0, nread);
+            detector.handleData(buf, 0, nread);
         }
-        return null;
+        detector.dataEnd();
+        final String charset = detector.getDetectedCharset();
+        return charset == null ? null : Charset.forName(charset);
     }
 
 }
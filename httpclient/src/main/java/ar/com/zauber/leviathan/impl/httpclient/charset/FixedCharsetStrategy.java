@@ -22,6 +22,8 @@ import java.nio.charset.UnsupportedCharsetException;
 import org.apache.commons.lang.Validate;
 
 import ar.com.zauber.leviathan.common.CharsetStrategy;
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.PrefixCharsetStrategy;
 import ar.com.zauber.leviathan.common.ResponseMetadata;
 
 /**
@@ -30,7 +32,7 @@ import ar.com.zauber.leviathan.common.ResponseMetadata;
  * @author Mariano Semelman
  * @since Dec 15, 2009
  */
-public class FixedCharsetStrategy implements CharsetStrategy {
+public class FixedCharsetStrategy implements PrefixCharsetStrategy {
 
     private final Charset charset;
 
@@ -52,4 +54,10 @@ public class FixedCharsetStrategy implements CharsetStrategy {
         return this.charset;
     }
 
+    /** @see PrefixCharsetStrategy#getCharsetFromPrefix(ResponseMetadata, ContentPrefix) */
+    public final Charset getCharsetFromPrefix(final ResponseMetadata meta,
+            final ContentPrefix prefix) {
+        return getCharset(meta, null);
+    }
+
 }
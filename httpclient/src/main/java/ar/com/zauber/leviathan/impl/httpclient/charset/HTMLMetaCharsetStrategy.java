@@ -0,0 +1,379 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.charset;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+
+import ar.com.zauber.leviathan.common.AbstractPrefixCharsetStrategy;
+import ar.com.zauber.leviathan.common.CharsetStrategy;
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.PrefixCharsetStrategy;
+import ar.com.zauber.leviathan.common.ResponseMetadata;
+
+/**
+ * {@link CharsetStrategy} for HTML documents: it looks for
+ * <code>&lt;meta charset="..."&gt;</code> and
+ * <code>&lt;meta http-equiv="Content-Type" content="...; charset=..."&gt;</code>
+ * declarations with the <em>prescan</em> algorithm of the HTML specification,
+ * over the first {@link #DEFAULT_MAX_BYTES} bytes of the document (no parser
+ * is involved). Comments and the attributes of other tags are skipped.
+ *
+ * It is cheap: put it before {@link DetectorCharsetStrategy} in a
+ * {@link ChainedCharsetStrategy}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ * @see http://www.w3.org/TR/html5/syntax.html#prescan-a-byte-stream-to-determine-its-encoding
+ */
+public class HTMLMetaCharsetStrategy extends AbstractPrefixCharsetStrategy {
+    /** how many bytes are inspected by default */
+    public static final int DEFAULT_MAX_BYTES = 1024;
+    /** labels that browsers read as another encoding */
+    private static final Map<String, String> ALIASES = new HashMap<String, String>();
+    static {
+        for(final String label : new String[] {"ascii", "us-ascii", "iso-8859-1",
+                "iso8859-1", "iso_8859-1", "latin1", "l1", "cp1252", "x-cp1252",
+                "x-user-defined", }) {
+            ALIASES.put(label, "windows-1252");
+        }
+        ALIASES.put("gb2312", "GBK");
+        ALIASES.put("x-gbk", "GBK");
+        ALIASES.put("utf-16", "UTF-8");
+        ALIASES.put("utf-16be", "UTF-8");
+        ALIASES.put("utf-16le", "UTF-8");
+    }
+
+    private String[] htmlTypes = {
+        "text/html",
+        "application/xhtml+xml",
+    };
+    private int maxBytes = DEFAULT_MAX_BYTES;
+
+    /** @see PrefixCharsetStrategy#getCharsetFromPrefix(ResponseMetadata, ContentPrefix) */
+    public final Charset getCharsetFromPrefix(final ResponseMetadata meta,
+            final ContentPrefix prefix) {
+        Validate.notNull(meta);
+        final String contentType = meta.getContentType();
+        if(contentType == null
+                || !StringUtils.startsWithAny(contentType.toLowerCase(), htmlTypes)) {
+            return null;
+        }
+        return new Prescan(prefix, Math.min(prefix.length(), maxBytes)).run();
+    }
+
+    /**
+     * @param label an encoding label
+     * @return the charset (as browsers read it), or <code>null</code> if it
+     *         is not supported
+     */
+    static Charset getEncoding(final String label) {
+        final String name = label.trim().toLowerCase();
+        if(name.length() == 0) {
+            return null;
+        }
+        final String alias = ALIASES.get(name);
+        try {
+            return Charset.forName(alias == null ? name : alias);
+        } catch(final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** the prescan algorithm (it is not thread safe) */
+    private static final class Prescan {
+        private final ContentPrefix prefix;
+        private final int length;
+        private int pos;
+        private final StringBuilder name = new StringBuilder();
+        private final StringBuilder value = new StringBuilder();
+
+        /** @param length how many bytes are inspected */
+        Prescan(final ContentPrefix prefix, final int length) {
+            this.prefix = prefix;
+            this.length = length;
+        }
+
+        /** @return the declared charset, or <code>null</code> */
+        Charset run() {
+            while(pos < length) {
+                if(matches("<!--")) {
+                    final int end = indexOf("-->", pos + 2);
+                    if(end == -1) {
+                        return null;
+                    }
+                    pos = end + 3;
+                    continue;
+                } else if(matchesIgnoreCase("<meta") && pos + 5 < length
+                        && (isSpace(at(pos + 5)) || at(pos + 5) == '/')) {
+                    pos += 5;
+                    final Charset charset = meta();
+                    if(charset != null) {
+                        return charset;
+                    }
+                    if(pos >= length) {
+                        return null;
+                    }
+                } else if(at(pos) == '<' && pos + 1 < length && (isLetter(at(pos + 1))
+                        || at(pos + 1) == '/' && pos + 2 < length
+                        && isLetter(at(pos + 2)))) {
+                    // other tag: skip its name and its attributes
+                    while(pos < length && !isSpace(at(pos)) && at(pos) != '>') {
+                        pos++;
+                    }
+                    while(attribute()) {
+                        // skip
+                    }
+                    if(pos >= length) {
+                        return null;
+                    }
+                } else if(matches("<!") || matches("</") || matches("<?")) {
+                    final int end = indexOf(">", pos + 2);
+                    if(end == -1) {
+                        return null;
+                    }
+                    pos = end;
+                }
+                pos++;
+            }
+            return null;
+        }
+
+        /** processes the attributes of a meta tag */
+        private Charset meta() {
+            final Set<String> seen = new HashSet<String>();
+            boolean gotPragma = false;
+            Boolean needPragma = null;
+            Charset charset = null;
+
+            while(attribute()) {
+                final String attr = name.toString();
+                if(!seen.add(attr)) {
+                    continue;
+                }
+                if(attr.equals("http-equiv")) {
+                    gotPragma |= value.toString().equals("content-type");
+                } else if(attr.equals("content") && charset == null) {
+                    final String label = extractCharset(value);
+                    if(label != null) {
+                        charset = getEncoding(label);
+                        needPragma = Boolean.TRUE;
+                    }
+                } else if(attr.equals("charset")) {
+                    charset = getEncoding(value.toString());
+                    needPragma = Boolean.FALSE;
+                }
+            }
+            if(needPragma == null || needPragma && !gotPragma) {
+                return null;
+            }
+            return charset;
+        }
+
+        /**
+         * Reads an attribute in {@link #name} and {@link #value} (lowercased)
+         *
+         * @return <code>false</code> if there are no more attributes
+         */
+        private boolean attribute() {
+            name.setLength(0);
+            value.setLength(0);
+            while(pos < length && (isSpace(at(pos)) || at(pos) == '/')) {
+                pos++;
+            }
+            if(pos >= length || at(pos) == '>') {
+                return false;
+            }
+            // name
+            for(;; pos++) {
+                if(pos >= length) {
+                    return false;
+                }
+                final int c = at(pos);
+                if(c == '=' && name.length() > 0) {
+                    pos++;
+                    break;
+                } else if(isSpace(c)) {
+                    skipSpaces();
+                    if(pos >= length) {
+                        return false;
+                    }
+                    if(at(pos) != '=') {
+                        return true;
+                    }
+                    pos++;
+                    break;
+                } else if(c == '/' || c == '>') {
+                    return true;
+                }
+                name.append(lower(c));
+            }
+            skipSpaces();
+            if(pos >= length) {
+                return false;
+            }
+            // value
+            final int c = at(pos);
+            if(c == '"' || c == '\'') {
+                for(pos++; pos < length; pos++) {
+                    if(at(pos) == c) {
+                        pos++;
+                        return true;
+                    }
+                    value.append(lower(at(pos)));
+                }
+                return false;
+            } else if(c == '>') {
+                return true;
+            }
+            for(; pos < length; pos++) {
+                if(isSpace(at(pos)) || at(pos) == '>') {
+                    return true;
+                }
+                value.append(lower(at(pos)));
+            }
+            return false;
+        }
+
+        /** skips white space */
+        private void skipSpaces() {
+            while(pos < length && isSpace(at(pos))) {
+                pos++;
+            }
+        }
+
+        /** @return the byte at i */
+        private int at(final int i) {
+            return prefix.byteAt(i);
+        }
+
+        /** @return <code>true</code> if s is at the current position */
+        private boolean matches(final String s) {
+            if(pos + s.length() > length) {
+                return false;
+            }
+            for(int i = 0; i < s.length(); i++) {
+                if(at(pos + i) != s.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** @return <code>true</code> if s (lowercase) is at the current position */
+        private boolean matchesIgnoreCase(final String s) {
+            if(pos + s.length() > length) {
+                return false;
+            }
+            for(int i = 0; i < s.length(); i++) {
+                if(lower(at(pos + i)) != s.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** @return index of s at or after from, or -1 */
+        private int indexOf(final String s, final int from) {
+            final int save = pos;
+            try {
+                for(pos = from; pos + s.length() <= length; pos++) {
+                    if(matches(s)) {
+                        return pos;
+                    }
+                }
+                return -1;
+            } finally {
+                pos = save;
+            }
+        }
+    }
+
+    /**
+     * The algorithm for extracting a character encoding from a meta element.
+     *
+     * @param content value of the content attribute (lowercase)
+     * @return the encoding label, or <code>null</code>
+     */
+    static String extractCharset(final CharSequence content) {
+        final String s = content.toString();
+        final int n = s.length();
+        int i = 0;
+        for(;;) {
+            final int j = s.indexOf("charset", i);
+            if(j == -1) {
+                return null;
+            }
+            i = j + 7;
+            while(i < n && isSpace(s.charAt(i))) {
+                i++;
+            }
+            if(i < n && s.charAt(i) == '=') {
+                break;
+            }
+        }
+        i++;
+        while(i < n && isSpace(s.charAt(i))) {
+            i++;
+        }
+        if(i >= n) {
+            return null;
+        }
+        final char c = s.charAt(i);
+        if(c == '"' || c == '\'') {
+            final int end = s.indexOf(c, i + 1);
+            return end == -1 ? null : s.substring(i + 1, end);
+        }
+        int end = i;
+        while(end < n && !isSpace(s.charAt(end)) && s.charAt(end) != ';') {
+            end++;
+        }
+        return s.substring(i, end);
+    }
+
+    /** @return <code>true</code> for HTML white space */
+    private static boolean isSpace(final int c) {
+        return c == 0x09 || c == 0x0A || c == 0x0C || c == 0x0D || c == 0x20;
+    }
+
+    /** @return <code>true</code> for ASCII letters */
+    private static boolean isLetter(final int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    /** @return the byte as a lowercase char */
+    private static char lower(final int c) {
+        return (char) (c >= 'A' && c <= 'Z' ? c + 0x20 : c);
+    }
+
+    /** @param htmlTypes content types that are inspected */
+    public final void setHtmlTypes(final String[] htmlTypes) {
+        Validate.notNull(htmlTypes);
+        this.htmlTypes = htmlTypes;
+    }
+
+    /** @param maxBytes how many bytes are inspected (at most the prefix) */
+    public final void setMaxBytes(final int maxBytes) {
+        Validate.isTrue(maxBytes >= 0);
+        this.maxBytes = maxBytes;
+    }
+}
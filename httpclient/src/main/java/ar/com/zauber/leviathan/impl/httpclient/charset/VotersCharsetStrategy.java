@@ -15,7 +15,6 @@
  */
 package ar.com.zauber.leviathan.impl.httpclient.charset;
 
-import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -26,7 +25,10 @@ import java.util.Set;
 
 import org.apache.commons.lang.Validate;
 
+import ar.com.zauber.leviathan.common.AbstractPrefixCharsetStrategy;
 import ar.com.zauber.leviathan.common.CharsetStrategy;
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.PrefixCharsetStrategy;
 import ar.com.zauber.leviathan.common.ResponseMetadata;
 
 /**
@@ -47,6 +49,8 @@ import ar.com.zauber.leviathan.common.ResponseMetadata;
  * Esto quiere decir, que el orden en que se recibe el listado de voters, 
  * determina el orden de prioridad en caso de empate, siendo el mismo de 
  * mayor a menor. 
+ * 
+ * <li> Todos los voters inspeccionan el mismo {@link ContentPrefix}.
  * </ol>
  * 
  * @throws UnsupportedCharsetException en caso de que el charset default no 
@@ -55,7 +59,7 @@ import ar.com.zauber.leviathan.common.ResponseMetadata;
  * @author Mariano Focaraccio
  * @since Sep 16, 2010
  */
-public class VotersCharsetStrategy implements CharsetStrategy {
+public class VotersCharsetStrategy extends AbstractPrefixCharsetStrategy {
 
    private List<CharsetStrategy> voters;
    private Charset defaultCharset;
@@ -69,15 +73,15 @@ public class VotersCharsetStrategy implements CharsetStrategy {
         this.defaultCharset = Charset.forName(charset);
     }
 
-    /** @see CharsetStrategy#getCharset(ResponseMetadata, InputStream) */
-    public final Charset getCharset(final ResponseMetadata meta, 
-                                   final InputStream content) {
+    /** @see PrefixCharsetStrategy#getCharsetFromPrefix(ResponseMetadata, ContentPrefix) */
+    public final Charset getCharsetFromPrefix(final ResponseMetadata meta, 
+                                   final ContentPrefix prefix) {
         if (voters ==  null || voters.isEmpty()) {
             return defaultCharset;
         }
         final List<Charset> votes = new ArrayList<Charset>(); 
         for (CharsetStrategy voter : voters) {
-            final Charset charset = voter.getCharset(meta, content);
+            final Charset charset = getCharset(voter, meta, prefix);
             if (charset != null) {
                 votes.add(charset);
             }
@@ -15,32 +15,28 @@
  */
 package ar.com.zauber.leviathan.impl.httpclient.charset;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.Charset;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
-import org.w3c.dom.Document;
-import org.xml.sax.SAXException;
 
+import ar.com.zauber.leviathan.common.AbstractPrefixCharsetStrategy;
 import ar.com.zauber.leviathan.common.CharsetStrategy;
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.PrefixCharsetStrategy;
 import ar.com.zauber.leviathan.common.ResponseMetadata;
 
 /**
  * {@link CharsetStrategy} para XMLs. Obtiene el charset a partir del header del
  * XML. Por defecto soporta los tipos declarados en {@link #xmlTypes}. Esta 
- * lista puede ser inyectada como property.
+ * lista puede ser inyectada como property. Solo se lee la declaracion XML
+ * del {@link ContentPrefix}, sin parser (ver {@link XMLDeclarationSniffer}).
  * 
  * 
  * @author Francisco J. Gonzlez Costanz
  * @since Apr 9, 2010
  */
-public class XMLCharsetStrategy implements CharsetStrategy {
+public class XMLCharsetStrategy extends AbstractPrefixCharsetStrategy {
     
     /** Content types containing xml header */
     private String[] xmlTypes = {
@@ -55,18 +51,18 @@ public class XMLCharsetStrategy implements CharsetStrategy {
     
     /** * Creates the XMLCharsetStrategy. */
     public XMLCharsetStrategy() { 
-        this.setValidate(false);
+        this.validate = false;
     }
     
     /** Creates the XMLCharsetStrategy.
      * @param validate */
     public XMLCharsetStrategy(final boolean validate) {
-        this.setValidate(validate);
+        this.validate = validate;
     }
     
-    /** @see CharsetStrategy#getCharset(ResponseMetadata, InputStream) */
-    public final Charset getCharset(final ResponseMetadata meta,
-            final InputStream content) {
+    /** @see PrefixCharsetStrategy#getCharsetFromPrefix(ResponseMetadata, ContentPrefix) */
+    public final Charset getCharsetFromPrefix(final ResponseMetadata meta,
+            final ContentPrefix prefix) {
         Validate.notNull(meta);
         final String contentType = meta.getContentType();
         if (contentType == null
@@ -74,30 +70,13 @@ public class XMLCharsetStrategy implements CharsetStrategy {
             return null;
         }
         
-        try {
-            final DocumentBuilderFactory builderFactory = 
-                        DocumentBuilderFactory.newInstance();
-            
-            if (!validate) {
-                builderFactory.setValidating(false);
-                // To disable DOM DTD Validation 
-                builderFactory.setFeature(
-                  "http://apache.org/xml/features/nonvalidating/load-external-dtd",
-                   false);
-            }
-            final DocumentBuilder documentBuilder = builderFactory
-                                                       .newDocumentBuilder();
-            final Document dom = documentBuilder.parse(content);
-            final String xmlEncoding = dom.getXmlEncoding();
-            if (!StringUtils.isBlank(xmlEncoding)) {
+        final String xmlEncoding = XMLDeclarationSniffer.getEncoding(prefix);
+        if (xmlEncoding != null) {
+            try {
                 return Charset.forName(xmlEncoding);
+            } catch (IllegalArgumentException e) {
+                // charset invalido o no soportado
             }
-        } catch (ParserConfigurationException e) {
-            // nada que hacer
-        } catch (SAXException e) {
-            // nada que hacer
-        } catch (IOException e) {
-            // nada que hacer
         }
         
         return null;
@@ -107,10 +86,20 @@ public class XMLCharsetStrategy implements CharsetStrategy {
         this.xmlTypes = xmlTypes;
     }
 
+    /** 
+     * @param validate sin efecto: el documento no se parsea
+     * @deprecated solo se lee la declaracion XML
+     */
+    @Deprecated
     public final void setValidate(final boolean validate) {
         this.validate = validate;
     }
 
+    /** 
+     * @return el valor configurado (sin efecto)
+     * @deprecated solo se lee la declaracion XML
+     */
+    @Deprecated
     public final boolean isValidate() {
         return validate;
     }
@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.apache.commons.lang.Validate;
+
+import ar.com.zauber.leviathan.common.ContentPrefix;
+
+/**
+ * Reads the <code>encoding</code> of the XML declaration 
+ * (<code>&lt;?xml version="1.0" encoding="..."?&gt;</code>) from the first
+ * bytes of a document, without a parser. The layout of the declaration
+ * (UCS-4, UTF-16, ASCII compatible or EBCDIC) is detected as described in
+ * the appendix F of the XML specification.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ * @see http://www.w3.org/TR/xml/#sec-guessing-no-ext-info
+ */
+public final class XMLDeclarationSniffer {
+    /** longest declaration that is read (in characters) */
+    private static final int MAX_DECLARATION = 256;
+    private static final Charset EBCDIC = Charset.isSupported("IBM037")
+            ? Charset.forName("IBM037") : null;
+
+    /** utility class */
+    private XMLDeclarationSniffer() {
+        // void
+    }
+
+    /**
+     * @param prefix beginning of the document
+     * @return the declared encoding, or <code>null</code> if there is no
+     *         (well formed) XML declaration or it has no encoding
+     */
+    public static String getEncoding(final ContentPrefix prefix) {
+        Validate.notNull(prefix);
+        final int n = prefix.length();
+        if(n < 4) {
+            return null;
+        }
+        final int b0 = prefix.byteAt(0);
+        final int b1 = prefix.byteAt(1);
+        final int b2 = prefix.byteAt(2);
+        final int b3 = prefix.byteAt(3);
+
+        // with byte order mark
+        if(b0 == 0x00 && b1 == 0x00 && b2 == 0xFE && b3 == 0xFF) {
+            return parse(declaration(prefix, 4, 4, 3));
+        } else if(b0 == 0xFF && b1 == 0xFE && b2 == 0x00 && b3 == 0x00) {
+            return parse(declaration(prefix, 4, 4, 0));
+        } else if(b0 == 0xFE && b1 == 0xFF) {
+            return parse(declaration(prefix, 2, 2, 1));
+        } else if(b0 == 0xFF && b1 == 0xFE) {
+            return parse(declaration(prefix, 2, 2, 0));
+        } else if(b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+            return parse(declaration(prefix, 3, 1, 0));
+        }
+
+        // without byte order mark: "<?" in the different layouts
+        if(b0 == 0x00 && b1 == 0x00 && b2 == 0x00 && b3 == 0x3C) {
+            return parse(declaration(prefix, 0, 4, 3));
+        } else if(b0 == 0x3C && b1 == 0x00 && b2 == 0x00 && b3 == 0x00) {
+            return parse(declaration(prefix, 0, 4, 0));
+        } else if(b0 == 0x00 && b1 == 0x3C && b2 == 0x00 && b3 == 0x3F) {
+            return parse(declaration(prefix, 0, 2, 1));
+        } else if(b0 == 0x3C && b1 == 0x00 && b2 == 0x3F && b3 == 0x00) {
+            return parse(declaration(prefix, 0, 2, 0));
+        } else if(b0 == 0x3C && b1 == 0x3F && b2 == 0x78 && b3 == 0x6D) {
+            return parse(declaration(prefix, 0, 1, 0));
+        } else if(b0 == 0x4C && b1 == 0x6F && b2 == 0xA7 && b3 == 0x94
+                && EBCDIC != null) {
+            final ByteBuffer bytes = prefix.asByteBuffer();
+            bytes.limit(Math.min(bytes.limit(), MAX_DECLARATION));
+            return parse(EBCDIC.decode(bytes));
+        }
+        // no declaration
+        return null;
+    }
+
+    /**
+     * Extracts the (ASCII) characters of the declaration.
+     *
+     * @param start       where the declaration starts
+     * @param width       bytes per character
+     * @param significant index of the byte that carries the character
+     *                    (the others must be zero)
+     * @return the declaration, up to the first <code>&gt;</code>
+     */
+    private static CharSequence declaration(final ContentPrefix prefix,
+            final int start, final int width, final int significant) {
+        final StringBuilder sb = new StringBuilder(64);
+        final int n = prefix.length();
+        for(int i = start; i + width <= n && sb.length() < MAX_DECLARATION; i += width) {
+            for(int j = 0; j < width; j++) {
+                if(j != significant && prefix.byteAt(i + j) != 0) {
+                    return sb;
+                }
+            }
+            final int c = prefix.byteAt(i + significant);
+            if(c == 0 || c > 0x7F) {
+                return sb;
+            }
+            sb.append((char) c);
+            if(c == '>') {
+                break;
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Parses <code>&lt;?xml S name = "value" ... ?&gt;</code>
+     *
+     * @return the value of the <code>encoding</code> pseudo-attribute
+     */
+    static String parse(final CharSequence s) {
+        final int n = s.length();
+        if(n < 6 || !"<?xml".contentEquals(s.subSequence(0, 5))
+                || !isSpace(s.charAt(5))) {
+            return null;
+        }
+        int i = 5;
+        for(;;) {
+            while(i < n && isSpace(s.charAt(i))) {
+                i++;
+            }
+            if(i >= n || s.charAt(i) == '?') {
+                return null;
+            }
+            final int nameStart = i;
+            while(i < n && isNameChar(s.charAt(i))) {
+                i++;
+            }
+            final int nameEnd = i;
+            while(i < n && isSpace(s.charAt(i))) {
+                i++;
+            }
+            if(nameEnd == nameStart || i >= n || s.charAt(i) != '=') {
+                return null;
+            }
+            i++;
+            while(i < n && isSpace(s.charAt(i))) {
+                i++;
+            }
+            if(i >= n || (s.charAt(i) != '"' && s.charAt(i) != '\'')) {
+                return null;
+            }
+            final char quote = s.charAt(i++);
+            final int valueStart = i;
+            while(i < n && s.charAt(i) != quote) {
+                i++;
+            }
+            if(i >= n) {
+                return null;
+            }
+            if("encoding".contentEquals(s.subSequence(nameStart, nameEnd))) {
+                final String value = s.subSequence(valueStart, i).toString();
+                return isEncName(value) ? value : null;
+            }
+            i++;
+        }
+    }
+
+    /** @return <code>true</code> for XML white space */
+    private static boolean isSpace(final char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    /** @return <code>true</code> for the characters of a pseudo-attribute name */
+    private static boolean isNameChar(final char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    /** @return <code>true</code> if it matches [A-Za-z] ([A-Za-z0-9._] | '-')* */
+    private static boolean isEncName(final String s) {
+        if(s.length() == 0) {
+            return false;
+        }
+        for(int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            final boolean letter = c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+            if(!letter && (i == 0 || !(c >= '0' && c <= '9' || c == '.'
+                    || c == '_' || c == '-'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
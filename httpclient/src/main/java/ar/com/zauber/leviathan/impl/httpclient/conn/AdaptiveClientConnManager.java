@@ -0,0 +1,520 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.conn;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.Validate;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ar.com.zauber.leviathan.common.dns.HostResolver;
+
+/**
+ * {@link ClientConnectionManager} that sizes the connection limit of each
+ * route from what it observes, instead of using the same fixed limit for
+ * every host. The pooling itself is delegated to a
+ * {@link ThreadSafeClientConnManager}.
+ *
+ * <p>
+ * Every period each route is re-evaluated (additive increase, multiplicative
+ * decrease):
+ * </p>
+ * <ul>
+ *   <li>if the ratio of leases that ended with a broken connection is over
+ *       <code>maxErrorRate</code> the limit is halved (connections closed
+ *       with {@link #abort(HttpUriRequest)} or by a cancelled thread don't
+ *       count);</li>
+ *   <li>if the average lease time is over <code>latencyTarget</code> the
+ *       limit is decreased by one (slow hosts don't hold sockets);</li>
+ *   <li>if the route used all of its connections the limit is increased by
+ *       one, as long as the sum of the limits fits in the global budget;</li>
+ *   <li>if the route did not use its limit, it is decreased by one.</li>
+ * </ul>
+ * <p>
+ * The same background task closes expired and idle connections.
+ * {@link #getRouteStats()} exposes leased/available/pending counts per
+ * route.
+ * </p>
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class AdaptiveClientConnManager implements ClientConnectionManager {
+    /** periods without activity before a route is forgotten */
+    private static final int IDLE_PERIODS = 12;
+    /** set while {@link #abort(HttpUriRequest)} releases a connection */
+    private static final ThreadLocal<Boolean> DELIBERATE_ABORT = new ThreadLocal<Boolean>();
+
+    private final ThreadSafeClientConnManager delegate;
+    private final int maxTotal;
+    private final ConcurrentMap<HttpRoute, RouteState> routes =
+        new ConcurrentHashMap<HttpRoute, RouteState>();
+    private final ConcurrentMap<ManagedClientConnection, Lease> leases =
+        new ConcurrentHashMap<ManagedClientConnection, Lease>();
+    private final ScheduledExecutorService scheduler;
+    private final Logger logger = LoggerFactory.getLogger(
+            AdaptiveClientConnManager.class);
+
+    private volatile int minPerRoute = 1;
+    private volatile int initialPerRoute = 5;
+    private volatile int maxPerRoute = 50;
+    private volatile long latencyTarget = 10000;
+    private volatile double maxErrorRate = 0.2;
+    private volatile long idleTimeout = 30000;
+
+    /**
+     * Creates the AdaptiveClientConnManager.
+     *
+     * @param schemeRegistry the scheme registry
+     * @param maxTotal       global connection budget
+     * @param period         period of the adjustment (and idle eviction)
+     *                       task in milliseconds. A value less or equal to
+     *                       zero disables the background task (see
+     *                       {@link #adjust()}).
+     */
+    public AdaptiveClientConnManager(final SchemeRegistry schemeRegistry,
+            final int maxTotal, final long period) {
+        this(schemeRegistry, maxTotal, period, null);
+    }
+
+    /**
+     * Creates the AdaptiveClientConnManager.
+     *
+     * @param schemeRegistry the scheme registry
+     * @param maxTotal       global connection budget
+     * @param period         period of the adjustment task in milliseconds
+     * @param resolver       resolves the host names when connecting (ie: a
+     *                       {@link ar.com.zauber.leviathan.common.dns.CachingHostResolver}
+     *                       shared with a pre-resolving queue). If
+     *                       <code>null</code> the JVM resolver is used.
+     */
+    public AdaptiveClientConnManager(final SchemeRegistry schemeRegistry,
+            final int maxTotal, final long period, final HostResolver resolver) {
+        Validate.notNull(schemeRegistry);
+        Validate.isTrue(maxTotal > 0, "maxTotal must be positive");
+
+        this.maxTotal = maxTotal;
+        delegate = new ThreadSafeClientConnManager(schemeRegistry, -1,
+                TimeUnit.MILLISECONDS) {
+            @Override
+            protected ClientConnectionOperator createConnectionOperator(
+                    final SchemeRegistry schreg) {
+                if(resolver == null) {
+                    return super.createConnectionOperator(schreg);
+                }
+                return new DefaultClientConnectionOperator(schreg) {
+                    @Override
+                    protected InetAddress[] resolveHostname(final String host)
+                            throws UnknownHostException {
+                        return resolver.resolve(host);
+                    }
+                };
+            }
+
+            /* the connections release themselves to this manager (ie: when
+             * they are aborted or their entity is consumed) */
+            @Override
+            public void releaseConnection(final ManagedClientConnection conn,
+                    final long validDuration, final TimeUnit timeUnit) {
+                released(conn);
+                super.releaseConnection(conn, validDuration, timeUnit);
+            }
+        };
+        delegate.setMaxTotal(maxTotal);
+        delegate.setDefaultMaxPerRoute(Math.min(initialPerRoute, maxTotal));
+
+        if(period > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(final Runnable r) {
+                    final Thread t = new Thread(r, "AdaptiveClientConnManager");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        closeExpiredConnections();
+                        closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+                        adjust();
+                    } catch(final Throwable t) {
+                        logger.error("adjusting connection pool", t);
+                    }
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    /** @see ClientConnectionManager#getSchemeRegistry() */
+    public final SchemeRegistry getSchemeRegistry() {
+        return delegate.getSchemeRegistry();
+    }
+
+    /** @see ClientConnectionManager#requestConnection(HttpRoute, Object) */
+    public final ClientConnectionRequest requestConnection(final HttpRoute route,
+            final Object state) {
+        final RouteState routeState = acquire(route);
+        final ClientConnectionRequest request;
+        try {
+            request = delegate.requestConnection(route, state);
+        } catch(final RuntimeException e) {
+            routeState.pending.decrementAndGet();
+            throw e;
+        }
+
+        return new ClientConnectionRequest() {
+            private final AtomicBoolean done = new AtomicBoolean(false);
+
+            public ManagedClientConnection getConnection(final long timeout,
+                    final TimeUnit tunit) throws InterruptedException,
+                    ConnectionPoolTimeoutException {
+                try {
+                    final ManagedClientConnection conn =
+                        request.getConnection(timeout, tunit);
+                    routeState.leased();
+                    leases.put(conn, new Lease(routeState));
+                    return conn;
+                } finally {
+                    finish();
+                }
+            }
+
+            public void abortRequest() {
+                try {
+                    request.abortRequest();
+                } finally {
+                    finish();
+                }
+            }
+
+            /** the request is no longer pending */
+            private void finish() {
+                if(done.compareAndSet(false, true)) {
+                    routeState.pending.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    /** @see ClientConnectionManager#releaseConnection(ManagedClientConnection,
+     *       long, TimeUnit) */
+    public final void releaseConnection(final ManagedClientConnection conn,
+            final long validDuration, final TimeUnit timeUnit) {
+        delegate.releaseConnection(conn, validDuration, timeUnit);
+    }
+
+    /** accounts the end of the lease of the connection */
+    private void released(final ManagedClientConnection conn) {
+        final Lease lease = leases.remove(conn);
+        if(lease != null) {
+            // an aborted connection (timeout, I/O error) is already closed.
+            // aborts on purpose and cancellations are not errors of the host
+            final boolean error = !conn.isOpen() && DELIBERATE_ABORT.get() == null
+                    && !Thread.currentThread().isInterrupted();
+            lease.state.released(System.currentTimeMillis() - lease.start, error);
+        }
+    }
+
+    /**
+     * Aborts a request on purpose (ie: its body is bigger than allowed). The
+     * connection it was using is closed, but it is not counted as an error of
+     * the host by the {@link AdaptiveClientConnManager}s.
+     *
+     * @param request the request to abort
+     */
+    public static void abort(final HttpUriRequest request) {
+        Validate.notNull(request);
+        DELIBERATE_ABORT.set(Boolean.TRUE);
+        try {
+            request.abort();
+        } finally {
+            DELIBERATE_ABORT.remove();
+        }
+    }
+
+    /** @see ClientConnectionManager#closeIdleConnections(long, TimeUnit) */
+    public final void closeIdleConnections(final long idletime, final TimeUnit tunit) {
+        delegate.closeIdleConnections(idletime, tunit);
+    }
+
+    /** @see ClientConnectionManager#closeExpiredConnections() */
+    public final void closeExpiredConnections() {
+        delegate.closeExpiredConnections();
+    }
+
+    /** @see ClientConnectionManager#shutdown() */
+    public final void shutdown() {
+        if(scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        delegate.shutdown();
+    }
+
+    /** @return the statistics of the known routes */
+    public final List<RouteStats> getRouteStats() {
+        final List<RouteStats> ret = new ArrayList<RouteStats>(routes.size());
+        for(final Entry<HttpRoute, RouteState> entry : routes.entrySet()) {
+            ret.add(entry.getValue().toStats(entry.getKey()));
+        }
+        return ret;
+    }
+
+    /** @return the statistics of the route */
+    public final RouteStats getRouteStats(final HttpRoute route) {
+        Validate.notNull(route);
+        final RouteState state = routes.get(route);
+        return state == null
+            ? new RouteStats(route, 0, delegate.getConnectionsInPool(route), 0,
+                    delegate.getMaxForRoute(route), 0, 0.0)
+            : state.toStats(route);
+    }
+
+    /** @return the sum of the per route limits */
+    public final int getAllocated() {
+        int total = 0;
+        for(final RouteState state : routes.values()) {
+            total += state.max;
+        }
+        return total;
+    }
+
+    /**
+     * Re-evaluates the limit of every route with the observations of the last
+     * period. It is called periodically by the background task.
+     */
+    public final synchronized void adjust() {
+        int allocated = getAllocated();
+        for(final Entry<HttpRoute, RouteState> entry : routes.entrySet()) {
+            final HttpRoute route = entry.getKey();
+            final RouteState state = entry.getValue();
+            final int old = state.max;
+            final int max = state.nextMax(allocated < maxTotal);
+            allocated += max - old;
+
+            if(max != old) {
+                delegate.setMaxForRoute(route, max);
+                if(logger.isDebugEnabled()) {
+                    logger.debug("route " + route + " limit " + old + " -> " + max);
+                }
+            }
+            if(state.idlePeriods >= IDLE_PERIODS) {
+                forget(route, state);
+            }
+        }
+    }
+
+    /** drops the state of a route that is not being used */
+    private void forget(final HttpRoute route, final RouteState state) {
+        if(routes.remove(route, state)) {
+            if(state.pending.get() > 0 || state.leased.get() > 0) {
+                // raced with a new request
+                routes.putIfAbsent(route, state);
+            } else {
+                delegate.setMaxForRoute(route, initialPerRoute);
+            }
+        }
+    }
+
+    /** @return the state of the route, with a new pending request */
+    private RouteState acquire(final HttpRoute route) {
+        for(;;) {
+            RouteState state = routes.get(route);
+            if(state == null) {
+                final RouteState newState = new RouteState(
+                        delegate.getMaxForRoute(route), route);
+                state = routes.putIfAbsent(route, newState);
+                if(state == null) {
+                    state = newState;
+                }
+            }
+            state.pending.incrementAndGet();
+            if(routes.get(route) == state) {
+                return state;
+            }
+            state.pending.decrementAndGet();
+        }
+    }
+
+    /** a leased connection */
+    private static final class Lease {
+        private final RouteState state;
+        private final long start = System.currentTimeMillis();
+
+        /** Creates the Lease. */
+        public Lease(final RouteState state) {
+            this.state = state;
+        }
+    }
+
+    /** observations of a route */
+    private final class RouteState {
+        private final HttpRoute route;
+        private final AtomicInteger pending = new AtomicInteger(0);
+        private final AtomicInteger leased = new AtomicInteger(0);
+        private final AtomicInteger peakLeased = new AtomicInteger(0);
+        private final AtomicInteger completed = new AtomicInteger(0);
+        private final AtomicInteger errors = new AtomicInteger(0);
+        private final AtomicLong latency = new AtomicLong(0);
+        private volatile int max;
+        private volatile long lastLatency;
+        private volatile double lastErrorRate;
+        private int idlePeriods;
+
+        /** Creates the RouteState. */
+        public RouteState(final int max, final HttpRoute route) {
+            this.max = max;
+            this.route = route;
+        }
+
+        /** a connection was leased */
+        public void leased() {
+            final int n = leased.incrementAndGet();
+            int peak;
+            while((peak = peakLeased.get()) < n && !peakLeased.compareAndSet(peak, n)) {
+                // retry
+            }
+        }
+
+        /** a connection was released */
+        public void released(final long time, final boolean error) {
+            leased.decrementAndGet();
+            latency.addAndGet(time);
+            completed.incrementAndGet();
+            if(error) {
+                errors.incrementAndGet();
+            }
+        }
+
+        /**
+         * consumes the observations of the period.
+         *
+         * @param canGrow <code>true</code> if the global budget allows a new
+         *                connection
+         * @return the new limit
+         */
+        public int nextMax(final boolean canGrow) {
+            final int n = completed.getAndSet(0);
+            final int e = errors.getAndSet(0);
+            final long l = latency.getAndSet(0);
+            final int current = leased.get();
+            final int peak = peakLeased.getAndSet(current);
+
+            lastLatency = n == 0 ? 0 : l / n;
+            lastErrorRate = n == 0 ? 0.0 : (double) e / n;
+            if(n == 0 && peak == 0 && pending.get() == 0) {
+                idlePeriods++;
+                return max;
+            }
+            idlePeriods = 0;
+
+            int ret = max;
+            if(n > 0 && lastErrorRate > maxErrorRate) {
+                ret = max / 2;
+            } else if(n > 0 && lastLatency > latencyTarget) {
+                ret = max - 1;
+            } else if(peak >= max || pending.get() > 0 && current >= max) {
+                if(canGrow) {
+                    ret = max + 1;
+                }
+            } else if(peak < max - 1) {
+                ret = max - 1;
+            }
+            max = Math.max(minPerRoute, Math.min(maxPerRoute, ret));
+            return max;
+        }
+
+        /** @return a snapshot */
+        public RouteStats toStats(final HttpRoute r) {
+            final int l = leased.get();
+            return new RouteStats(r, l,
+                    Math.max(0, delegate.getConnectionsInPool(r) - l),
+                    pending.get(), max, lastLatency, lastErrorRate);
+        }
+
+        /** @see Object#toString() */
+        @Override
+        public String toString() {
+            return route.toString();
+        }
+    }
+
+    /** @param minPerRoute lower bound of the per route limit */
+    public final void setMinPerRoute(final int minPerRoute) {
+        Validate.isTrue(minPerRoute > 0, "minPerRoute must be positive");
+        this.minPerRoute = minPerRoute;
+    }
+
+    /** @param initialPerRoute limit of the routes not seen before */
+    public final void setInitialPerRoute(final int initialPerRoute) {
+        Validate.isTrue(initialPerRoute > 0, "initialPerRoute must be positive");
+        this.initialPerRoute = initialPerRoute;
+        delegate.setDefaultMaxPerRoute(Math.min(initialPerRoute, maxTotal));
+    }
+
+    /** @param maxPerRoute upper bound of the per route limit */
+    public final void setMaxPerRoute(final int maxPerRoute) {
+        Validate.isTrue(maxPerRoute > 0, "maxPerRoute must be positive");
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    /**
+     * @param latencyTarget average lease time (in milliseconds) over which a
+     *                      route is considered slow
+     */
+    public final void setLatencyTarget(final long latencyTarget) {
+        Validate.isTrue(latencyTarget > 0, "latencyTarget must be positive");
+        this.latencyTarget = latencyTarget;
+    }
+
+    /** @param maxErrorRate ratio of broken leases that halves the limit */
+    public final void setMaxErrorRate(final double maxErrorRate) {
+        Validate.isTrue(maxErrorRate >= 0 && maxErrorRate <= 1,
+                "maxErrorRate must be in [0, 1]");
+        this.maxErrorRate = maxErrorRate;
+    }
+
+    /** @param idleTimeout milliseconds after which idle connections are closed */
+    public final void setIdleTimeout(final long idleTimeout) {
+        Validate.isTrue(idleTimeout >= 0, "idleTimeout must be positive");
+        this.idleTimeout = idleTimeout;
+    }
+}
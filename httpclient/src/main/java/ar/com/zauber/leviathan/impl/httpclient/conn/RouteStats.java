@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.conn;
+
+import org.apache.commons.lang.Validate;
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+
+import ar.com.zauber.leviathan.common.ModelUtils;
+
+/**
+ * Snapshot of the connection pool of a route.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class RouteStats {
+    private final HttpRoute route;
+    private final int leased;
+    private final int available;
+    private final int pending;
+    private final int max;
+    private final long averageLatency;
+    private final double errorRate;
+
+    /**
+     * Creates the RouteStats.
+     *
+     * @param route          the route
+     * @param leased         connections in use
+     * @param available      idle connections kept in the pool
+     * @param pending        threads waiting for a connection
+     * @param max            current connection limit of the route
+     * @param averageLatency average time (in milliseconds) that a connection
+     *                       was leased during the last period
+     * @param errorRate      ratio of leases that ended with a broken connection
+     *                       during the last period
+     */
+    public RouteStats(final HttpRoute route, final int leased, final int available,
+            final int pending, final int max, final long averageLatency,
+            final double errorRate) {
+        Validate.notNull(route);
+
+        this.route = route;
+        this.leased = leased;
+        this.available = available;
+        this.pending = pending;
+        this.max = max;
+        this.averageLatency = averageLatency;
+        this.errorRate = errorRate;
+    }
+
+    /** @return the route */
+    public HttpRoute getRoute() {
+        return route;
+    }
+
+    /** @return connections in use */
+    public int getLeased() {
+        return leased;
+    }
+
+    /** @return idle connections kept in the pool */
+    public int getAvailable() {
+        return available;
+    }
+
+    /** @return threads waiting for a connection */
+    public int getPending() {
+        return pending;
+    }
+
+    /** @return current connection limit of the route */
+    public int getMax() {
+        return max;
+    }
+
+    /** @return average lease time in milliseconds (last period) */
+    public long getAverageLatency() {
+        return averageLatency;
+    }
+
+    /** @return ratio of broken leases (last period) */
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    /** @return <code>true</code> if there are threads waiting for a connection */
+    public boolean isStarving() {
+        return pending > 0 && leased >= max;
+    }
+
+    /** @see Object#toString() */
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ModelUtils.STYLE)
+        .append("route", route)
+        .append("leased", leased)
+        .append("available", available)
+        .append("pending", pending)
+        .append("max", max)
+        .append("latency", averageLatency)
+        .append("errorRate", errorRate)
+        .toString();
+    }
+}
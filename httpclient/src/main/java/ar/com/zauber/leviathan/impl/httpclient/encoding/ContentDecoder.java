@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.encoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes a <code>Content-Encoding</code> (ie: gzip, deflate, br) of a
+ * response body. Decoders are registered by name in a
+ * {@link ContentDecodingInterceptor}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public interface ContentDecoder {
+
+    /**
+     * @param in the encoded body
+     * @return a stream with the decoded body. Decoding must be streamed
+     *         (not buffered). Closing it must close <code>in</code>.
+     */
+    InputStream decode(InputStream in) throws IOException;
+}
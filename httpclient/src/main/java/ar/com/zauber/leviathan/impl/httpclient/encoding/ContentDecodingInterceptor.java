@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.encoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.Validate;
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Advertises (<code>Accept-Encoding</code>) and decodes the registered
+ * content encodings. By default <code>gzip</code>, <code>x-gzip</code> and
+ * <code>deflate</code> are registered; other codecs (ie: <code>br</code>,
+ * <code>zstd</code>) can be plugged with {@link #register(String,
+ * ContentDecoder)}.
+ *
+ * Decoding is streamed: the body is decompressed while it is read.
+ * Responses with an encoding that is not registered are left untouched.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class ContentDecodingInterceptor implements HttpRequestInterceptor,
+                                                   HttpResponseInterceptor {
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String IDENTITY = "identity";
+    private final Map<String, ContentDecoder> decoders =
+        new LinkedHashMap<String, ContentDecoder>();
+    private volatile String acceptEncoding;
+
+    /** Creates the ContentDecodingInterceptor with gzip and deflate */
+    public ContentDecodingInterceptor() {
+        this(InflaterPool.getDefault());
+    }
+
+    /** Creates the ContentDecodingInterceptor with gzip and deflate */
+    public ContentDecodingInterceptor(final InflaterPool pool) {
+        final ContentDecoder gzip = new GzipContentDecoder(pool);
+        register("gzip", gzip);
+        register("x-gzip", gzip);
+        register("deflate", new DeflateContentDecoder(pool));
+    }
+
+    /** Creates the ContentDecodingInterceptor with the given decoders */
+    public ContentDecodingInterceptor(final Map<String, ContentDecoder> decoders) {
+        Validate.notNull(decoders);
+        for(final Entry<String, ContentDecoder> entry : decoders.entrySet()) {
+            register(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Registers a decoder. It is advertised in the <code>Accept-Encoding</code>
+     * header in registration order.
+     *
+     * @param encoding the name of the encoding (ie: <code>br</code>)
+     * @param decoder  the decoder
+     */
+    public final synchronized void register(final String encoding,
+            final ContentDecoder decoder) {
+        Validate.notEmpty(encoding);
+        Validate.notNull(decoder);
+
+        decoders.put(encoding.trim().toLowerCase(), decoder);
+        final StringBuilder sb = new StringBuilder();
+        for(final String name : decoders.keySet()) {
+            if(sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(name);
+        }
+        acceptEncoding = sb.toString();
+    }
+
+    /** @see HttpRequestInterceptor#process(HttpRequest, HttpContext) */
+    public final void process(final HttpRequest request, final HttpContext context)
+         throws HttpException, IOException {
+        if(!request.containsHeader(ACCEPT_ENCODING) && acceptEncoding.length() > 0) {
+            request.addHeader(ACCEPT_ENCODING, acceptEncoding);
+        }
+    }
+
+    /** @see HttpResponseInterceptor#process(HttpResponse, HttpContext) */
+    public final void process(final HttpResponse response,
+            final HttpContext context) throws HttpException, IOException {
+        final HttpEntity entity = response.getEntity();
+        if(entity == null) {
+            return;
+        }
+        final Header ceheader = entity.getContentEncoding();
+        if(ceheader == null) {
+            return;
+        }
+
+        // encodings are listed in the order they were applied
+        final List<ContentDecoder> chain = new ArrayList<ContentDecoder>();
+        synchronized (this) {
+            for(final HeaderElement codec : ceheader.getElements()) {
+                final String name = codec.getName().trim().toLowerCase();
+                if(name.length() == 0 || name.equals(IDENTITY)) {
+                    continue;
+                }
+                final ContentDecoder decoder = decoders.get(name);
+                if(decoder == null) {
+                    return;
+                }
+                chain.add(decoder);
+            }
+        }
+        if(!chain.isEmpty()) {
+            Collections.reverse(chain);
+            response.setEntity(new DecodingEntity(entity, chain));
+        }
+    }
+}
+
+/**
+ * Entity that decodes the wrapped content.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+class DecodingEntity extends HttpEntityWrapper {
+    private final List<ContentDecoder> chain;
+
+    /**
+     * @param entity encoded entity
+     * @param chain  decoders in the order they must be applied
+     */
+    public DecodingEntity(final HttpEntity entity, final List<ContentDecoder> chain) {
+        super(entity);
+        this.chain = chain;
+    }
+
+    /** @see HttpEntityWrapper#getContent() */
+    @Override
+    public final InputStream getContent() throws IOException {
+        // the wrapped entity's getContent() decides about repeatability
+        final InputStream wrapped = wrappedEntity.getContent();
+        InputStream ret = wrapped;
+        boolean ok = false;
+        try {
+            for(final ContentDecoder decoder : chain) {
+                ret = decoder.decode(ret);
+            }
+            ok = true;
+            return ret;
+        } finally {
+            if(!ok) {
+                IOUtils.closeQuietly(wrapped);
+            }
+        }
+    }
+
+    /** @see HttpEntityWrapper#getContentLength() */
+    @Override
+    public final long getContentLength() {
+        // length of the decoded content is not known
+        return -1;
+    }
+}
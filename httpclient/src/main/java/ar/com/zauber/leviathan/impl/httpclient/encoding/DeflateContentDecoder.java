@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.encoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.lang.Validate;
+
+import ar.com.zauber.leviathan.impl.httpclient.encoding.PooledInflaterInputStream.Format;
+
+/**
+ * {@link ContentDecoder} for <code>deflate</code> (zlib or raw deflate) using pooled inflaters.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class DeflateContentDecoder implements ContentDecoder {
+    private final InflaterPool pool;
+
+    /** Creates the DeflateContentDecoder using the shared pool. */
+    public DeflateContentDecoder() {
+        this(InflaterPool.getDefault());
+    }
+
+    /** Creates the DeflateContentDecoder. */
+    public DeflateContentDecoder(final InflaterPool pool) {
+        Validate.notNull(pool);
+        this.pool = pool;
+    }
+
+    /** @see ContentDecoder#decode(InputStream) */
+    public InputStream decode(final InputStream in) throws IOException {
+        return new PooledInflaterInputStream(in, Format.DEFLATE, pool);
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.encoding;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Inflater;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Pool of {@link Inflater}s and input buffers. An {@link Inflater} holds
+ * native memory that is only freed by {@link Inflater#end()} (or by the
+ * finalizer), so creating one per response is expensive under load.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class InflaterPool {
+    /** shared pool */
+    private static final InflaterPool DEFAULT = new InflaterPool(64, 8 * 1024);
+
+    private final BlockingQueue<Inflater> zlib;
+    private final BlockingQueue<Inflater> raw;
+    private final BlockingQueue<byte[]> buffers;
+    private final int bufferSize;
+
+    /**
+     * Creates the InflaterPool.
+     *
+     * @param maxIdle    maximum number of idle inflaters (of each kind) and
+     *                   buffers kept in the pool
+     * @param bufferSize size of the input buffers
+     */
+    public InflaterPool(final int maxIdle, final int bufferSize) {
+        Validate.isTrue(maxIdle > 0, "maxIdle must be positive");
+        Validate.isTrue(bufferSize > 0, "bufferSize must be positive");
+
+        this.zlib = new ArrayBlockingQueue<Inflater>(maxIdle);
+        this.raw = new ArrayBlockingQueue<Inflater>(maxIdle);
+        this.buffers = new ArrayBlockingQueue<byte[]>(maxIdle);
+        this.bufferSize = bufferSize;
+    }
+
+    /** @return the shared pool */
+    public static InflaterPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param nowrap <code>true</code> for raw deflate data (no zlib header
+     *               nor checksum, as in gzip)
+     * @return an inflater ready to use
+     */
+    public Inflater borrowInflater(final boolean nowrap) {
+        final Inflater ret = (nowrap ? raw : zlib).poll();
+        return ret == null ? new Inflater(nowrap) : ret;
+    }
+
+    /** gives back an inflater obtained with {@link #borrowInflater(boolean)} */
+    public void releaseInflater(final Inflater inflater, final boolean nowrap) {
+        inflater.reset();
+        if(!(nowrap ? raw : zlib).offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    /** @return an input buffer */
+    public byte[] borrowBuffer() {
+        final byte[] ret = buffers.poll();
+        return ret == null ? new byte[bufferSize] : ret;
+    }
+
+    /** gives back a buffer obtained with {@link #borrowBuffer()} */
+    public void releaseBuffer(final byte[] buffer) {
+        if(buffer.length == bufferSize) {
+            buffers.offer(buffer);
+        }
+    }
+
+    /** @return number of idle inflaters */
+    public int getIdleInflaters() {
+        return zlib.size() + raw.size();
+    }
+}
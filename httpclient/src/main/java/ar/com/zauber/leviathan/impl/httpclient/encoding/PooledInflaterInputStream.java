@@ -0,0 +1,330 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.encoding;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Streaming decompression of gzip (RFC 1952) and deflate (RFC 1950 zlib
+ * streams, or raw RFC 1951 data as sent by some servers) content, using
+ * {@link Inflater}s and buffers borrowed from an {@link InflaterPool}. They
+ * are given back when the end of the stream is reached or when the stream is
+ * closed.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public final class PooledInflaterInputStream extends InputStream {
+    /** compressed formats */
+    public enum Format {
+        /** gzip members (RFC 1952) */
+        GZIP,
+        /** zlib (RFC 1950) or raw deflate (RFC 1951), autodetected */
+        DEFLATE
+    };
+
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+    private static final int GZIP_DEFLATE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final InputStream in;
+    private final InflaterPool pool;
+    private final Format format;
+    private final CRC32 crc;
+    private Inflater inflater;
+    private boolean nowrap;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private boolean started = false;
+    private boolean eof = false;
+    private boolean closed = false;
+    private final byte[] single = new byte[1];
+
+    /**
+     * Creates the PooledInflaterInputStream.
+     *
+     * @param in     compressed content
+     * @param format format of the content
+     * @param pool   where inflaters and buffers are borrowed from
+     */
+    public PooledInflaterInputStream(final InputStream in, final Format format,
+            final InflaterPool pool) {
+        Validate.notNull(in);
+        Validate.notNull(format);
+        Validate.notNull(pool);
+
+        this.in = in;
+        this.format = format;
+        this.pool = pool;
+        this.crc = format == Format.GZIP ? new CRC32() : null;
+        this.buf = pool.borrowBuffer();
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int n = read(single, 0, 1);
+        return n == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if(closed) {
+            throw new IOException("stream closed");
+        }
+        if(off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if(eof) {
+            return -1;
+        }
+        if(len == 0) {
+            return 0;
+        }
+        if(!started) {
+            started = true;
+            if(!start()) {
+                finish();
+                return -1;
+            }
+        }
+
+        for(;;) {
+            final int n;
+            try {
+                n = inflater.inflate(b, off, len);
+            } catch (final DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+            if(n > 0) {
+                if(crc != null) {
+                    crc.update(b, off, n);
+                }
+                return n;
+            }
+            if(inflater.finished()) {
+                pos = limit - inflater.getRemaining();
+                if(format == Format.GZIP) {
+                    readTrailer();
+                    if(nextMember()) {
+                        continue;
+                    }
+                }
+                finish();
+                return -1;
+            }
+            if(inflater.needsDictionary()) {
+                throw new ZipException("a preset dictionary is needed");
+            }
+            if(inflater.needsInput()) {
+                if(!fill()) {
+                    throw new EOFException("unexpected end of compressed content");
+                }
+                inflater.setInput(buf, pos, limit - pos);
+            }
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        if(closed) {
+            throw new IOException("stream closed");
+        }
+        return eof ? 0 : 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(!closed) {
+            closed = true;
+            giveBack();
+            in.close();
+        }
+    }
+
+    /**
+     * reads the header (gzip) or detects the format (deflate) and prepares
+     * the inflater.
+     *
+     * @return <code>false</code> if the content is empty
+     */
+    private boolean start() throws IOException {
+        if(format == Format.GZIP) {
+            readHeader();
+            nowrap = true;
+        } else {
+            if(!ensure(1)) {
+                return false;
+            }
+            // zlib: CM=8 and the 16 bits header is a multiple of 31
+            nowrap = !(ensure(2)
+                    && (buf[pos] & 0x0f) == GZIP_DEFLATE
+                    && (((buf[pos] & 0xff) << 8) | (buf[pos + 1] & 0xff)) % 31 == 0);
+        }
+        inflater = pool.borrowInflater(nowrap);
+        inflater.setInput(buf, pos, limit - pos);
+        return true;
+    }
+
+    /** reads a gzip member header */
+    private void readHeader() throws IOException {
+        if(readUByte() != GZIP_MAGIC_1 || readUByte() != GZIP_MAGIC_2) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if(readUByte() != GZIP_DEFLATE) {
+            throw new ZipException("Unsupported compression method");
+        }
+        final int flags = readUByte();
+        skip(6); // mtime, xfl, os
+        if((flags & FEXTRA) == FEXTRA) {
+            skip(readUByte() | readUByte() << 8);
+        }
+        if((flags & FNAME) == FNAME) {
+            while(readUByte() != 0) {
+                // skip
+            }
+        }
+        if((flags & FCOMMENT) == FCOMMENT) {
+            while(readUByte() != 0) {
+                // skip
+            }
+        }
+        if((flags & FHCRC) == FHCRC) {
+            skip(2);
+        }
+    }
+
+    /** reads and checks a gzip member trailer */
+    private void readTrailer() throws IOException {
+        final long expectedCrc = readUInt();
+        final long expectedSize = readUInt();
+        if(expectedCrc != crc.getValue()) {
+            throw new ZipException("Corrupt GZIP trailer (crc)");
+        }
+        if(expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+            throw new ZipException("Corrupt GZIP trailer (size)");
+        }
+    }
+
+    /**
+     * @return <code>true</code> if a concatenated gzip member follows (the
+     *         inflater is ready to read it)
+     */
+    private boolean nextMember() throws IOException {
+        if(!ensure(2) || (buf[pos] & 0xff) != GZIP_MAGIC_1
+                || (buf[pos + 1] & 0xff) != GZIP_MAGIC_2) {
+            // trailing garbage is ignored, as GZIPInputStream does
+            return false;
+        }
+        readHeader();
+        inflater.reset();
+        crc.reset();
+        inflater.setInput(buf, pos, limit - pos);
+        return true;
+    }
+
+    /** @return an unsigned byte */
+    private int readUByte() throws IOException {
+        if(!ensure(1)) {
+            throw new EOFException("unexpected end of compressed content");
+        }
+        return buf[pos++] & 0xff;
+    }
+
+    /** @return an unsigned little endian int */
+    private long readUInt() throws IOException {
+        final long b1 = readUByte();
+        final long b2 = readUByte();
+        final long b3 = readUByte();
+        final long b4 = readUByte();
+        return b1 | b2 << 8 | b3 << 16 | b4 << 24;
+    }
+
+    /** skips n bytes */
+    private void skip(final int n) throws IOException {
+        for(int i = 0; i < n; i++) {
+            readUByte();
+        }
+    }
+
+    /**
+     * makes sure that there are <code>n</code> unread bytes in the buffer
+     * @return <code>false</code> if the content ended before
+     */
+    private boolean ensure(final int n) throws IOException {
+        if(limit - pos >= n) {
+            return true;
+        }
+        if(pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while(limit < n) {
+            final int r = in.read(buf, limit, buf.length - limit);
+            if(r == -1) {
+                return false;
+            }
+            limit += r;
+        }
+        return true;
+    }
+
+    /**
+     * refills the (consumed) buffer
+     * @return <code>false</code> if there is no more content
+     */
+    private boolean fill() throws IOException {
+        int r;
+        do {
+            r = in.read(buf, 0, buf.length);
+        } while(r == 0);
+        pos = 0;
+        limit = Math.max(r, 0);
+        return r > 0;
+    }
+
+    /** end of the content */
+    private void finish() {
+        eof = true;
+        giveBack();
+    }
+
+    /** gives back the pooled resources */
+    private void giveBack() {
+        if(inflater != null) {
+            pool.releaseInflater(inflater, nowrap);
+            inflater = null;
+        }
+        if(buf != null) {
+            pool.releaseBuffer(buf);
+            buf = null;
+            pos = limit = 0;
+        }
+    }
+}
@@ -19,21 +19,29 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
 
 import junit.framework.Assert;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicHttpResponse;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import ar.com.zauber.leviathan.api.URIFetcherResponse;
+import ar.com.zauber.leviathan.common.ContentTooLargeException;
 import ar.com.zauber.leviathan.common.InmutableURIAndCtx;
 
 /**
@@ -68,5 +76,64 @@ public class HttpClientURIFetcherTest {
         
         Assert.assertEquals(ESTA_ES_LA_RESPUESTA, output.toString());
     }
+
+    /** the declared Content-Length is over the limit: the body is not read */
+    @Test
+    public final void testMaxContentLengthDeclared() throws Exception {
+        final HttpClient httpClient = mock(HttpClient.class);
+        final HttpUriRequest[] request = new HttpUriRequest[1];
+        final InputStreamEntity entity = new InputStreamEntity(
+                new ByteArrayInputStream(new byte[2048]), 2048);
+        entity.setContentType("application/octet-stream");
+        final BasicHttpResponse httpResponse 
+            = new BasicHttpResponse(mock(StatusLine.class));
+        httpResponse.setEntity(entity);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenAnswer(
+                new Answer<HttpResponse>() {
+            public HttpResponse answer(final InvocationOnMock invocation) {
+                request[0] = (HttpUriRequest) invocation.getArguments()[0];
+                return httpResponse;
+            }
+        });
+        
+        final HTTPClientURIFetcher fetcher = new HTTPClientURIFetcher(httpClient);
+        fetcher.setMaxContentLength(1024);
+        final URIFetcherResponse ufr = fetcher.get(new InmutableURIAndCtx(
+                new URI("http://www.zaubersoftware.com")));
+        
+        Assert.assertFalse(ufr.isSucceeded());
+        Assert.assertTrue(ufr.getError() instanceof ContentTooLargeException);
+        Assert.assertEquals(2048, 
+                ((ContentTooLargeException) ufr.getError()).getLength());
+        Assert.assertTrue(request[0].isAborted());
+    }
     
+    /** the body is bigger than declared: the limit is enforced while reading */
+    @Test
+    public final void testMaxContentLengthByType() throws Exception {
+        final HttpClient httpClient = mock(HttpClient.class);
+        final InputStreamEntity entity = new InputStreamEntity(
+                new ByteArrayInputStream(new byte[2048]), -1);
+        entity.setContentType("text/html; charset=utf-8");
+        final BasicHttpResponse httpResponse 
+            = new BasicHttpResponse(mock(StatusLine.class));
+        httpResponse.setEntity(entity);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(httpResponse);
+        
+        final HTTPClientURIFetcher fetcher = new HTTPClientURIFetcher(httpClient);
+        final Map<String, Long> limits = new HashMap<String, Long>();
+        limits.put("text/*", 1024L);
+        limits.put("image/png", 4096L);
+        fetcher.setMaxContentLengths(limits);
+        
+        Assert.assertEquals(1024, fetcher.getMaxContentLength("Text/HTML; charset=utf-8"));
+        Assert.assertEquals(4096, fetcher.getMaxContentLength("image/png"));
+        Assert.assertEquals(-1, fetcher.getMaxContentLength("image/gif"));
+        Assert.assertEquals(-1, fetcher.getMaxContentLength(null));
+        
+        final URIFetcherResponse ufr = fetcher.get(new InmutableURIAndCtx(
+                new URI("http://www.zaubersoftware.com")));
+        Assert.assertFalse(ufr.isSucceeded());
+        Assert.assertTrue(ufr.getError() instanceof ContentTooLargeException);
+    }
 }
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicNameValuePair;
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.api.UrlEncodedPostBody;
+
+/**
+ * Bytes allocated per POST by the buffered entities that
+ * {@link HTTPClientURIFetcher} used to build and by the streaming ones
+ * ({@link InputStreamEntity} and {@link UrlEncodedPostEntity}), when the
+ * JVM can measure it.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class PostEntityDriverTest {
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 2000;
+    private static final int PAYLOAD = 1024 * 1024;
+
+    /** benchmark */
+    @Test
+    public final void benchmark() throws Exception {
+        final byte[] payload = new byte[PAYLOAD];
+        final UrlEncodedPostBody form = new UrlEncodedPostBody();
+        final List<String> ids = new ArrayList<String>();
+        for(int i = 0; i < 2000; i++) {
+            ids.add("item " + i + " / \u00e1rbol");
+        }
+        form.addSimpleParameter("action", "bulk update");
+        form.addCollectionParameter("id", ids);
+
+        final Strategy[] strategies = {
+            new Strategy("stream (buffered)") {
+                HttpEntity create() throws Exception {
+                    return new ByteArrayEntity(IOUtils.toByteArray(
+                            new ByteArrayInputStream(payload)));
+                }
+            },
+            new Strategy("stream (streaming)") {
+                HttpEntity create() throws Exception {
+                    return new InputStreamEntity(new ByteArrayInputStream(payload),
+                            payload.length);
+                }
+            },
+            new Strategy("form (buffered)") {
+                HttpEntity create() throws Exception {
+                    final List<NameValuePair> pairs = new ArrayList<NameValuePair>();
+                    for(final String name : form.getSimpleParameters()) {
+                        pairs.add(new BasicNameValuePair(name,
+                                form.getSimpleParameter(name)));
+                    }
+                    for(final String name : form.getCollectionParameters()) {
+                        for(final String value : form.getCollectionParameter(name)) {
+                            pairs.add(new BasicNameValuePair(name, value));
+                        }
+                    }
+                    return new ByteArrayEntity(
+                            URLEncodedUtils.format(pairs, "UTF-8").getBytes());
+                }
+            },
+            new Strategy("form (streaming)") {
+                HttpEntity create() throws Exception {
+                    return new UrlEncodedPostEntity(form);
+                }
+            },
+        };
+
+        final OutputStream socket = new NullOutputStream();
+        for(final Strategy strategy : strategies) {
+            for(int i = 0; i < WARMUP; i++) {
+                strategy.create().writeTo(socket);
+            }
+        }
+        for(final Strategy strategy : strategies) {
+            final long a1 = allocatedBytes();
+            final long t1 = System.nanoTime();
+            for(int i = 0; i < ITERATIONS; i++) {
+                strategy.create().writeTo(socket);
+            }
+            final long t2 = System.nanoTime();
+            final long a2 = allocatedBytes();
+
+            System.out.println(String.format("%-20s %8.1f us/post %10s bytes/post",
+                    strategy.name, (t2 - t1) / 1e3 / ITERATIONS,
+                    a1 < 0 ? "n/a" : String.valueOf((a2 - a1) / ITERATIONS)));
+        }
+    }
+
+    /** builds the entity of a post */
+    private abstract static class Strategy {
+        private final String name;
+
+        /** @param name name of the strategy */
+        Strategy(final String name) {
+            this.name = name;
+        }
+
+        /** @return the entity to send */
+        abstract HttpEntity create() throws Exception;
+    }
+
+    /** @return bytes allocated by the current thread, or -1 if not supported */
+    private static long allocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        try {
+            // com.sun.management.ThreadMXBean (HotSpot 6u25+)
+            final Method m = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", long.class);
+            return (Long) m.invoke(bean, Thread.currentThread().getId());
+        } catch (final Exception e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.message.BasicNameValuePair;
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.api.UrlEncodedPostBody;
+
+/**
+ * Tests {@link UrlEncodedPostEntity}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class UrlEncodedPostEntityTest {
+
+    /** the output is the same than URLEncodedUtils' */
+    @Test
+    public final void testSameAsURLEncodedUtils() throws Exception {
+        final UrlEncodedPostBody body = new UrlEncodedPostBody();
+        body.addSimpleParameter("q", "a b&c=d");
+        body.addSimpleParameter("name", "\u00f1and\u00fa \u20ac \ud83d\ude00 \ud800 ~!*'()");
+        body.addSimpleParameter("empty", "");
+        body.addCollectionParameter("ids", Arrays.asList("1", "2", "3/4"));
+
+        final List<NameValuePair> pairs = new ArrayList<NameValuePair>();
+        for(final String name : body.getSimpleParameters()) {
+            pairs.add(new BasicNameValuePair(name, body.getSimpleParameter(name)));
+        }
+        for(final String name : body.getCollectionParameters()) {
+            for(final String value : body.getCollectionParameter(name)) {
+                pairs.add(new BasicNameValuePair(name, value));
+            }
+        }
+        final String expected = URLEncodedUtils.format(pairs, "UTF-8");
+
+        final UrlEncodedPostEntity entity = new UrlEncodedPostEntity(body);
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        entity.writeTo(os);
+        assertEquals(expected, os.toString("US-ASCII"));
+        assertEquals(expected.length(), entity.getContentLength());
+        assertTrue(entity.isRepeatable());
+        assertEquals(expected, IOUtils.toString(entity.getContent(), "US-ASCII"));
+        assertEquals("application/x-www-form-urlencoded",
+                entity.getContentType().getValue());
+    }
+
+    /** null values are sent empty */
+    @Test
+    public final void testNullValue() throws Exception {
+        final UrlEncodedPostBody body = new UrlEncodedPostBody();
+        body.addSimpleParameter("a", null);
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new UrlEncodedPostEntity(body).writeTo(os);
+        assertEquals("a=", os.toString("US-ASCII"));
+    }
+
+    /** bodies bigger than the buffer */
+    @Test
+    public final void testBig() throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < 5000; i++) {
+            sb.append("x y");
+        }
+        final UrlEncodedPostBody body = new UrlEncodedPostBody();
+        body.addSimpleParameter("data", sb.toString());
+        final UrlEncodedPostEntity entity = new UrlEncodedPostEntity(body);
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        entity.writeTo(os);
+
+        assertEquals("data=" + sb.toString().replace(' ', '+'), os.toString("US-ASCII"));
+        assertEquals(os.size(), entity.getContentLength());
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.charset;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.common.CharsetStrategy;
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.ResponseMetadata;
+import ar.com.zauber.leviathan.impl.httpclient.InmutableResponseMetadata;
+
+/**
+ * Tests {@link CachingCharsetStrategy}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class CachingCharsetStrategyTest {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+    private final ContentPrefix prefix = ContentPrefix.wrap(new byte[] {'<'}, 10);
+
+    /** counts the detections */
+    private static final class Counting implements CharsetStrategy {
+        private Charset answer = UTF8;
+        private int calls;
+
+        public Charset getCharset(final ResponseMetadata meta, final InputStream content) {
+            calls++;
+            return answer;
+        }
+    }
+
+    /** learns after the confirmations, verifies with the sample rate */
+    @Test
+    public final void testLearn() throws Exception {
+        final Counting target = new Counting();
+        final CachingCharsetStrategy strategy = new CachingCharsetStrategy(target);
+        strategy.setConfirmations(3);
+        strategy.setVerifyRate(10);
+
+        for(int i = 0; i < 3; i++) {
+            assertEquals(UTF8, strategy.getCharsetFromPrefix(meta("a.com", "text/html"), prefix));
+        }
+        assertEquals(3, target.calls);
+        assertEquals(UTF8, strategy.getLearnedCharset("A.COM", "text/html"));
+
+        for(int i = 0; i < 100; i++) {
+            assertEquals(UTF8, strategy.getCharsetFromPrefix(meta("a.com", "text/html"), prefix));
+        }
+        assertEquals(3 + 10, target.calls);
+        assertEquals(90, strategy.getHits());
+
+        // other content type, other host
+        strategy.getCharsetFromPrefix(meta("a.com", "text/html; charset=utf-8"), prefix);
+        strategy.getCharsetFromPrefix(meta("b.com", "text/html"), prefix);
+        assertEquals(3 + 10 + 2, target.calls);
+    }
+
+    /** a verification that disagrees forgets the charset */
+    @Test
+    public final void testSiteChanged() throws Exception {
+        final Counting target = new Counting();
+        final CachingCharsetStrategy strategy = new CachingCharsetStrategy(target);
+        strategy.setConfirmations(2);
+        strategy.setVerifyRate(2);
+
+        strategy.getCharsetFromPrefix(meta("a.com", "text/html"), prefix);
+        strategy.getCharsetFromPrefix(meta("a.com", "text/html"), prefix);
+        assertEquals(UTF8, strategy.getLearnedCharset("a.com", "text/html"));
+
+        target.answer = LATIN1;
+        assertEquals(UTF8, strategy.getCharsetFromPrefix(meta("a.com", "text/html"), prefix));
+        assertEquals(LATIN1, strategy.getCharsetFromPrefix(meta("a.com", "text/html"), prefix));
+        assertNull(strategy.getLearnedCharset("a.com", "text/html"));
+        assertEquals(LATIN1, strategy.getCharsetFromPrefix(meta("a.com", "text/html"), prefix));
+        assertEquals(LATIN1, strategy.getLearnedCharset("a.com", "text/html"));
+    }
+
+    /** byte order marks are honored after learning */
+    @Test
+    public final void testByteOrderMark() throws Exception {
+        final CachingCharsetStrategy strategy = new CachingCharsetStrategy(new Counting());
+        strategy.setConfirmations(1);
+        strategy.getCharsetFromPrefix(meta("a.com", "text/html"), prefix);
+        try {
+            strategy.getCharsetFromPrefix(meta("a.com", "text/html"), ContentPrefix.wrap(
+                    new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, '<'}, 10));
+            fail();
+        } catch(final SkipBytesException e) {
+            assertEquals(3, e.getBytesToSkip());
+        }
+    }
+
+    /** bounded */
+    @Test
+    public final void testLRU() throws Exception {
+        final CachingCharsetStrategy strategy = new CachingCharsetStrategy(new Counting());
+        strategy.setMaxEntries(2);
+        strategy.getCharsetFromPrefix(meta("a.com", null), prefix);
+        strategy.getCharsetFromPrefix(meta("b.com", null), prefix);
+        strategy.getCharsetFromPrefix(meta("c.com", null), prefix);
+        assertEquals(2, strategy.size());
+    }
+
+    /** @return the metadata of a response */
+    private static ResponseMetadata meta(final String host, final String contentType)
+            throws Exception {
+        return new InmutableResponseMetadata(new URI("http://" + host + "/"),
+                contentType, null, 200, null);
+    }
+}
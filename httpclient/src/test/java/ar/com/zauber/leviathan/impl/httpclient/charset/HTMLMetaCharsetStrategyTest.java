@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.charset;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.impl.httpclient.InmutableResponseMetadata;
+
+/**
+ * Tests {@link HTMLMetaCharsetStrategy}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class HTMLMetaCharsetStrategyTest {
+    private final HTMLMetaCharsetStrategy strategy = new HTMLMetaCharsetStrategy();
+
+    /** meta charset */
+    @Test
+    public final void testMetaCharset() throws Exception {
+        assertEquals("UTF-8", detect("<!DOCTYPE html><html><head>"
+                + "<meta charset=\"utf-8\"><title>x</title>"));
+        assertEquals("UTF-8", detect("<META CHARSET=UTF-8>"));
+        assertEquals("Shift_JIS", detect("<meta charset='shift_jis'/>"));
+        assertEquals("UTF-8", detect("<meta\n  charset = \"  UTF-8 \" >"));
+    }
+
+    /** meta http-equiv */
+    @Test
+    public final void testHttpEquiv() throws Exception {
+        assertEquals("ISO-8859-15", detect("<html><head><meta http-equiv=\"Content-Type\" "
+                + "content=\"text/html; charset=iso-8859-15\">"));
+        assertEquals("ISO-8859-15", detect("<meta content='text/html;charset=\"iso-8859-15\"' "
+                + "http-equiv=content-type>"));
+        // content without http-equiv is ignored
+        assertNull(detect("<meta content=\"text/html; charset=iso-8859-15\">"));
+        assertNull(detect("<meta name=\"description\" content=\"charset=utf-8\">"));
+    }
+
+    /** encodings that browsers read differently */
+    @Test
+    public final void testAliases() throws Exception {
+        assertEquals("windows-1252", detect("<meta charset=iso-8859-1>"));
+        assertEquals("windows-1252", detect("<meta charset=us-ascii>"));
+        assertEquals("UTF-8", detect("<meta charset=utf-16>"));
+        assertNull(detect("<meta charset=no-such-charset>"));
+    }
+
+    /** comments, attributes of other tags, other tags */
+    @Test
+    public final void testSkipped() throws Exception {
+        assertNull(detect("<!-- <meta charset=\"utf-8\"> -->"));
+        assertEquals("UTF-8", detect("<!--> <meta charset=\"utf-8\">"));
+        assertNull(detect("<div title='<meta charset=utf-8>'>"));
+        assertEquals("UTF-8", detect("<div title='<meta charset=utf-8>'>"
+                + "<meta charset=\"utf-8\">"));
+        assertNull(detect("<?xml version=\"1.0\" encoding=\"utf-8\"?><html>"));
+        assertEquals("EUC-KR", detect("<p>hola</p><br/><meta charset=euc-kr>"));
+        // the first charset attribute wins
+        assertEquals("UTF-8", detect("<meta charset=utf-8 charset=euc-kr>"));
+    }
+
+    /** only the first bytes are inspected */
+    @Test
+    public final void testBounded() throws Exception {
+        final StringBuilder sb = new StringBuilder("<html><head>");
+        while(sb.length() < 1100) {
+            sb.append("<link rel=\"stylesheet\" href=\"/a.css\">");
+        }
+        assertNull(detect(sb + "<meta charset=utf-8>"));
+        strategy.setMaxBytes(4096);
+        assertEquals("UTF-8", detect(sb + "<meta charset=utf-8>"));
+    }
+
+    /** only html is inspected */
+    @Test
+    public final void testContentType() throws Exception {
+        assertNull(strategy.getCharsetFromPrefix(new InmutableResponseMetadata(
+                new URI("http://example.com"), "text/plain", null, 200, null),
+                ContentPrefix.wrap("<meta charset=utf-8>".getBytes("US-ASCII"), 100)));
+    }
+
+    /** @return the detected charset name */
+    private String detect(final String html) throws Exception {
+        final Charset charset = strategy.getCharsetFromPrefix(
+                new InmutableResponseMetadata(new URI("http://example.com"),
+                        "text/html; charset=", null, 200, null),
+                ContentPrefix.wrap(html.getBytes("US-ASCII"), ContentPrefix.DEFAULT_SIZE));
+        return charset == null ? null : charset.name();
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.charset;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.common.ContentPrefix;
+import ar.com.zauber.leviathan.common.ResponseMetadata;
+import ar.com.zauber.leviathan.impl.httpclient.InmutableResponseMetadata;
+
+/**
+ * Compares {@link XMLCharsetStrategy} (it only reads the XML declaration)
+ * with a DOM parse of the whole feed, as it used to do.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class XMLCharsetStrategyDriverTest {
+    private static final int ITEMS = 5000;
+    private static final int WARMUP = 10;
+    private static final int ITERATIONS = 50;
+
+    /** benchmark */
+    @Test
+    public final void benchmark() throws Exception {
+        final byte[] feed = feed();
+        final ResponseMetadata meta = new InmutableResponseMetadata(
+                new URI("http://example.com/rss"), "application/rss+xml", null,
+                200, null);
+        final XMLCharsetStrategy strategy = new XMLCharsetStrategy();
+
+        for(int i = 0; i < WARMUP; i++) {
+            dom(feed);
+            strategy.getCharsetFromPrefix(meta, 
+                    ContentPrefix.wrap(feed, ContentPrefix.DEFAULT_SIZE));
+        }
+
+        long t1 = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; i++) {
+            dom(feed);
+        }
+        long t2 = System.nanoTime();
+        print("DOM", feed.length, t2 - t1);
+
+        t1 = System.nanoTime();
+        for(int i = 0; i < ITERATIONS * 1000; i++) {
+            strategy.getCharsetFromPrefix(meta, 
+                    ContentPrefix.wrap(feed, ContentPrefix.DEFAULT_SIZE));
+        }
+        t2 = System.nanoTime();
+        print("XMLDeclarationSniffer", feed.length, (t2 - t1) / 1000);
+    }
+
+    /** the old implementation */
+    private static String dom(final byte[] feed) throws Exception {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setValidating(false);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(feed))
+            .getXmlEncoding();
+    }
+
+    /** prints the results */
+    private static void print(final String name, final int size, final long nanos) {
+        System.out.println(String.format("%-25s %12.3f us/feed (%d KB feed)",
+                name, nanos / 1e3 / ITERATIONS, size / 1024));
+    }
+
+    /** @return a big RSS feed */
+    private static byte[] feed() throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n");
+        sb.append("<rss version=\"2.0\"><channel><title>leviathan</title>\n");
+        for(int i = 0; i < ITEMS; i++) {
+            sb.append("<item><title>Item ").append(i).append("</title>")
+              .append("<link>http://example.com/items/").append(i).append("</link>")
+              .append("<description>Lorem ipsum dolor sit amet, consectetur ")
+              .append("adipiscing elit &amp; more</description></item>\n");
+        }
+        sb.append("</channel></rss>\n");
+        return sb.toString().getBytes("ISO-8859-1");
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.charset;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.common.ContentPrefix;
+
+/**
+ * Tests {@link XMLDeclarationSniffer}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class XMLDeclarationSnifferTest {
+    private static final String DECL = 
+        "<?xml version=\"1.0\" encoding='ISO-8859-1' standalone=\"yes\"?><rss/>";
+
+    /** the layouts of the autodetection table */
+    @Test
+    public final void testLayouts() throws Exception {
+        assertEquals("ISO-8859-1", sniff(DECL.getBytes("US-ASCII")));
+        assertEquals("ISO-8859-1", sniff(concat(new byte[] {(byte) 0xEF, (byte) 0xBB,
+                (byte) 0xBF}, DECL.getBytes("US-ASCII"))));
+        assertEquals("ISO-8859-1", sniff(DECL.getBytes("UTF-16BE")));
+        assertEquals("ISO-8859-1", sniff(DECL.getBytes("UTF-16LE")));
+        assertEquals("ISO-8859-1", sniff(concat(new byte[] {(byte) 0xFE, (byte) 0xFF},
+                DECL.getBytes("UTF-16BE"))));
+        assertEquals("ISO-8859-1", sniff(concat(new byte[] {(byte) 0xFF, (byte) 0xFE},
+                DECL.getBytes("UTF-16LE"))));
+        assertEquals("ISO-8859-1", sniff(ucs4(DECL, true)));
+        assertEquals("ISO-8859-1", sniff(ucs4(DECL, false)));
+        assertEquals("ISO-8859-1", sniff(concat(new byte[] {0, 0, (byte) 0xFE,
+                (byte) 0xFF}, ucs4(DECL, true))));
+        assertEquals("ISO-8859-1", sniff(DECL.getBytes("IBM037")));
+    }
+
+    /** declarations without encoding, or broken */
+    @Test
+    public final void testNoEncoding() throws Exception {
+        assertNull(sniff("<?xml version=\"1.0\"?><rss/>".getBytes("US-ASCII")));
+        assertNull(sniff("<rss><encoding>utf-8</encoding></rss>".getBytes("US-ASCII")));
+        assertNull(sniff("<?xml-stylesheet href=\"a\"?>".getBytes("US-ASCII")));
+        assertNull(sniff("<?xml version=\"1.0\" encoding=\"utf-8".getBytes("US-ASCII")));
+        assertNull(sniff("<?xml encoding=\"utf 8\"?>".getBytes("US-ASCII")));
+        assertNull(sniff(new byte[] {'<', '?'}));
+        assertNull(sniff(new byte[0]));
+    }
+
+    /** white space around the equal sign */
+    @Test
+    public final void testSpaces() throws Exception {
+        assertEquals("windows-1252", sniff(
+                "<?xml\tversion = '1.0'\r\n encoding =\n\"windows-1252\" ?>"
+                .getBytes("US-ASCII")));
+    }
+
+    /** @return the declared encoding */
+    private static String sniff(final byte[] data) {
+        return XMLDeclarationSniffer.getEncoding(ContentPrefix.wrap(data, 1024));
+    }
+
+    /** @return UCS-4 bytes of an ASCII string */
+    private static byte[] ucs4(final String s, final boolean bigEndian) {
+        final byte[] ret = new byte[s.length() * 4];
+        for(int i = 0; i < s.length(); i++) {
+            ret[i * 4 + (bigEndian ? 3 : 0)] = (byte) s.charAt(i);
+        }
+        return ret;
+    }
+
+    /** @return a + b */
+    private static byte[] concat(final byte[] a, final byte[] b) {
+        final byte[] ret = new byte[a.length + b.length];
+        System.arraycopy(a, 0, ret, 0, a.length);
+        System.arraycopy(b, 0, ret, a.length, b.length);
+        return ret;
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.conn;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.common.dns.HostResolver;
+
+/**
+ * Tests {@link AdaptiveClientConnManager}. The connections are never opened.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class AdaptiveClientConnManagerTest {
+    private final HttpRoute routeA = new HttpRoute(new HttpHost("a.example.com", 80));
+    private final HttpRoute routeB = new HttpRoute(new HttpHost("b.example.com", 80));
+    private SchemeRegistry registry;
+    private AdaptiveClientConnManager manager;
+
+    /** setup */
+    @Before
+    public final void setUp() {
+        registry = new SchemeRegistry();
+        registry.register(new Scheme("http", 80, PlainSocketFactory.getSocketFactory()));
+    }
+
+    /** tear down */
+    @After
+    public final void tearDown() {
+        if(manager != null) {
+            manager.shutdown();
+        }
+    }
+
+    /** leases a connection */
+    private ManagedClientConnection lease(final HttpRoute route) throws Exception {
+        return manager.requestConnection(route, null).getConnection(1,
+                TimeUnit.SECONDS);
+    }
+
+    /** a route that uses all its connections grows */
+    @Test
+    public final void growWhenSaturated() throws Exception {
+        manager = new AdaptiveClientConnManager(registry, 10, 0);
+        manager.setInitialPerRoute(2);
+        lease(routeA);
+        lease(routeA);
+
+        Assert.assertEquals(2, manager.getRouteStats(routeA).getLeased());
+        manager.adjust();
+        Assert.assertEquals(3, manager.getRouteStats(routeA).getMax());
+        lease(routeA);
+        Assert.assertEquals(3, manager.getRouteStats(routeA).getLeased());
+    }
+
+    /** the sum of the limits does not exceed the global budget */
+    @Test
+    public final void globalBudget() throws Exception {
+        manager = new AdaptiveClientConnManager(registry, 4, 0);
+        manager.setInitialPerRoute(2);
+        lease(routeA);
+        lease(routeA);
+        lease(routeB);
+        lease(routeB);
+
+        manager.adjust();
+        Assert.assertEquals(2, manager.getRouteStats(routeA).getMax());
+        Assert.assertEquals(2, manager.getRouteStats(routeB).getMax());
+        Assert.assertEquals(4, manager.getAllocated());
+    }
+
+    /** broken connections halve the limit */
+    @Test
+    public final void shrinkOnErrors() throws Exception {
+        manager = new AdaptiveClientConnManager(registry, 10, 0);
+        manager.setInitialPerRoute(4);
+        for(int i = 0; i < 4; i++) {
+            // never opened: it is released as a broken connection
+            manager.releaseConnection(lease(routeA), -1, TimeUnit.MILLISECONDS);
+        }
+        manager.adjust();
+
+        final RouteStats stats = manager.getRouteStats(routeA);
+        Assert.assertEquals(2, stats.getMax());
+        Assert.assertEquals(1.0, stats.getErrorRate(), 0.001);
+        Assert.assertEquals(0, stats.getLeased());
+    }
+
+    /**
+     * connections aborted on purpose (ie: a body that is too large) are not
+     * errors of the host; other aborts are, even when the connection releases
+     * itself
+     */
+    @Test
+    public final void deliberateAbort() throws Exception {
+        manager = new AdaptiveClientConnManager(registry, 10, 0);
+        manager.setInitialPerRoute(4);
+        for(int i = 0; i < 4; i++) {
+            final HttpGet get = new HttpGet("http://a.example.com/");
+            get.setReleaseTrigger(lease(routeA));
+            AdaptiveClientConnManager.abort(get);
+        }
+        manager.adjust();
+        RouteStats stats = manager.getRouteStats(routeA);
+        Assert.assertEquals(0.0, stats.getErrorRate(), 0.001);
+        Assert.assertEquals(0, stats.getLeased());
+
+        final HttpGet get = new HttpGet("http://a.example.com/");
+        get.setReleaseTrigger(lease(routeA));
+        get.abort();
+        manager.adjust();
+        stats = manager.getRouteStats(routeA);
+        Assert.assertEquals(1.0, stats.getErrorRate(), 0.001);
+        Assert.assertEquals(0, stats.getLeased());
+    }
+
+    /** threads waiting for a connection are visible */
+    @Test(timeout = 5000)
+    public final void pending() throws Exception {
+        manager = new AdaptiveClientConnManager(registry, 10, 0);
+        manager.setInitialPerRoute(1);
+        final ManagedClientConnection conn = lease(routeA);
+        final CountDownLatch leased = new CountDownLatch(1);
+        final Thread t = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    lease(routeA);
+                    leased.countDown();
+                } catch (final Exception e) {
+                    // void
+                }
+            }
+        });
+        t.start();
+        while(manager.getRouteStats(routeA).getPending() == 0) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(manager.getRouteStats(routeA).isStarving());
+
+        manager.releaseConnection(conn, -1, TimeUnit.MILLISECONDS);
+        leased.await();
+        Assert.assertEquals(0, manager.getRouteStats(routeA).getPending());
+        Assert.assertEquals(1, manager.getRouteStats(routeA).getLeased());
+    }
+
+    /** host names are resolved with the given resolver */
+    @Test(timeout = 5000)
+    public final void hostResolver() throws Exception {
+        final ServerSocket server = new ServerSocket(0, 1,
+                InetAddress.getByName("127.0.0.1"));
+        try {
+            final List<String> lookups = new ArrayList<String>();
+            manager = new AdaptiveClientConnManager(registry, 10, 0,
+                    new HostResolver() {
+                public InetAddress[] resolve(final String host) {
+                    lookups.add(host);
+                    return new InetAddress[] {server.getInetAddress()};
+                }
+            });
+            final HttpRoute route = new HttpRoute(new HttpHost("stub.invalid",
+                    server.getLocalPort()));
+            final ManagedClientConnection conn = lease(route);
+            conn.open(route, new BasicHttpContext(), new BasicHttpParams());
+            Assert.assertTrue(conn.isOpen());
+            Assert.assertEquals(Arrays.asList("stub.invalid"), lookups);
+            conn.shutdown();
+        } finally {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.encoding;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.impl.httpclient.GZipInterceptor;
+
+/**
+ * Compares {@link ContentDecodingInterceptor} with the old
+ * {@link GZipInterceptor}: decoded bytes per second and bytes allocated per
+ * response (when the JVM can measure it).
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class ContentDecodingInterceptorDriverTest {
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 20000;
+
+    /** benchmark */
+    @Test
+    @SuppressWarnings("deprecation")
+    public final void benchmark() throws Exception {
+        final byte[] body = gzip(page(32 * 1024));
+        final byte[] buf = new byte[8 * 1024];
+        final HttpResponseInterceptor[] interceptors = {
+            new GZipInterceptor(), new ContentDecodingInterceptor(),
+        };
+        for(final HttpResponseInterceptor interceptor : interceptors) {
+            run(interceptor, body, buf, WARMUP);
+        }
+        for(final HttpResponseInterceptor interceptor : interceptors) {
+            final long a1 = allocatedBytes();
+            final long t1 = System.nanoTime();
+            final long bytes = run(interceptor, body, buf, ITERATIONS);
+            final long t2 = System.nanoTime();
+            final long a2 = allocatedBytes();
+
+            System.out.println(String.format("%-30s %8.1f MB/s %10s bytes/response",
+                    interceptor.getClass().getSimpleName(),
+                    bytes / ((t2 - t1) / 1e9) / (1024 * 1024),
+                    a1 < 0 ? "n/a" : String.valueOf((a2 - a1) / ITERATIONS)));
+        }
+    }
+
+    /** @return decoded bytes */
+    private static long run(final HttpResponseInterceptor interceptor,
+            final byte[] body, final byte[] buf, final int iterations)
+            throws Exception {
+        long total = 0;
+        for(int i = 0; i < iterations; i++) {
+            final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1,
+                    200, "OK");
+            final ByteArrayEntity entity = new ByteArrayEntity(body);
+            entity.setContentEncoding("gzip");
+            response.setEntity(entity);
+            interceptor.process(response, null);
+
+            final InputStream is = response.getEntity().getContent();
+            int n;
+            while((n = is.read(buf)) != -1) {
+                total += n;
+            }
+            is.close();
+        }
+        return total;
+    }
+
+    /** @return bytes allocated by the current thread, or -1 if not supported */
+    private static long allocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        try {
+            // com.sun.management.ThreadMXBean (HotSpot 6u25+)
+            final Method m = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", long.class);
+            return (Long) m.invoke(bean, Thread.currentThread().getId());
+        } catch (final Exception e) {
+            return -1;
+        }
+    }
+
+    /** @return html-like content */
+    private static byte[] page(final int size) {
+        final String[] words = {"<div class=\"item\">", "</div>", "leviathan ",
+                "fetcher ", "<a href=\"/foo/bar\">", "</a>", "\n", };
+        final Random random = new Random(0);
+        final StringBuilder sb = new StringBuilder(size);
+        while(sb.length() < size) {
+            sb.append(words[random.nextInt(words.length)]);
+        }
+        return sb.toString().getBytes();
+    }
+
+    /** @return gzipped data */
+    private static byte[] gzip(final byte[] data) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final GZIPOutputStream gz = new GZIPOutputStream(os);
+        gz.write(data);
+        gz.close();
+        return os.toByteArray();
+    }
+}
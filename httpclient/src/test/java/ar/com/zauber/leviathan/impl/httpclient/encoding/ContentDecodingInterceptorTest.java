@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.encoding;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link ContentDecodingInterceptor}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class ContentDecodingInterceptorTest {
+    private final ContentDecodingInterceptor interceptor = new ContentDecodingInterceptor();
+
+    /** @return a response with the given body and Content-Encoding */
+    private static HttpResponse response(final byte[] body, final String encoding) {
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        final ByteArrayEntity entity = new ByteArrayEntity(body);
+        entity.setContentEncoding(encoding);
+        response.setEntity(entity);
+        return response;
+    }
+
+    /** @return gzipped data */
+    private static byte[] gzip(final byte[] data) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final GZIPOutputStream gz = new GZIPOutputStream(os);
+        gz.write(data);
+        gz.close();
+        return os.toByteArray();
+    }
+
+    /** the registered codecs are advertised */
+    @Test
+    public final void acceptEncoding() throws Exception {
+        interceptor.register("br", new ContentDecoder() {
+            public InputStream decode(final InputStream in) {
+                return in;
+            }
+        });
+        final HttpGet get = new HttpGet("http://foo");
+        interceptor.process(get, null);
+        Assert.assertEquals("gzip, x-gzip, deflate, br",
+                get.getFirstHeader("Accept-Encoding").getValue());
+
+        final HttpGet custom = new HttpGet("http://foo");
+        custom.addHeader("Accept-Encoding", "identity");
+        interceptor.process(custom, null);
+        Assert.assertEquals("identity", custom.getFirstHeader("Accept-Encoding").getValue());
+    }
+
+    /** gzip content is decoded */
+    @Test
+    public final void gzip() throws Exception {
+        final HttpResponse response = response(gzip("hola mundo".getBytes()), "gzip");
+        interceptor.process(response, null);
+        Assert.assertEquals("hola mundo", EntityUtils.toString(response.getEntity()));
+        Assert.assertEquals(-1, response.getEntity().getContentLength());
+    }
+
+    /** encodings are undone in reverse order */
+    @Test
+    public final void chained() throws Exception {
+        final HttpResponse response = response(gzip(gzip("hola".getBytes())),
+                "gzip, identity, x-gzip");
+        interceptor.process(response, null);
+        Assert.assertEquals("hola", EntityUtils.toString(response.getEntity()));
+    }
+
+    /** unknown encodings and responses without body are left untouched */
+    @Test
+    public final void untouched() throws Exception {
+        final HttpResponse response = response("raw".getBytes(), "zstd");
+        interceptor.process(response, null);
+        Assert.assertEquals("raw", IOUtils.toString(response.getEntity().getContent()));
+
+        final HttpResponse notModified = new BasicHttpResponse(HttpVersion.HTTP_1_1, 304,
+                "Not Modified");
+        interceptor.process(notModified, null);
+        Assert.assertNull(notModified.getEntity());
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2009-2012 Zauber S.A. <http://zauberlabs.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ar.com.zauber.leviathan.impl.httpclient.encoding;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import ar.com.zauber.leviathan.impl.httpclient.encoding.PooledInflaterInputStream.Format;
+
+/**
+ * Tests {@link PooledInflaterInputStream}.
+ *
+ * @author agent (agent@local)
+ * @since Oct 18, 2026
+ */
+public class PooledInflaterInputStreamTest {
+    private final InflaterPool pool = new InflaterPool(4, 512);
+
+    /** @return compressible test data */
+    private static byte[] data(final int size) {
+        final Random random = new Random(size);
+        final byte[] ret = new byte[size];
+        for(int i = 0; i < size; i++) {
+            ret[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return ret;
+    }
+
+    /** @return gzipped data */
+    private static byte[] gzip(final byte[] data) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final GZIPOutputStream gz = new GZIPOutputStream(os);
+        gz.write(data);
+        gz.close();
+        return os.toByteArray();
+    }
+
+    /** @return deflated data */
+    private static byte[] deflate(final byte[] data, final boolean nowrap)
+            throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+        final DeflaterOutputStream d = new DeflaterOutputStream(os, deflater);
+        d.write(data);
+        d.close();
+        deflater.end();
+        return os.toByteArray();
+    }
+
+    /** @return the decoded content */
+    private byte[] decode(final byte[] data, final Format format) throws IOException {
+        final InputStream is = new PooledInflaterInputStream(
+                new ByteArrayInputStream(data), format, pool);
+        try {
+            return IOUtils.toByteArray(is);
+        } finally {
+            is.close();
+        }
+    }
+
+    /** gzip round trip (bigger than the buffers) */
+    @Test
+    public final void gzip() throws IOException {
+        final byte[] data = data(100000);
+        Assert.assertArrayEquals(data, decode(gzip(data), Format.GZIP));
+        Assert.assertEquals(1, pool.getIdleInflaters());
+        Assert.assertArrayEquals(data, decode(gzip(data), Format.GZIP));
+        Assert.assertEquals(1, pool.getIdleInflaters());
+    }
+
+    /** concatenated gzip members are one stream */
+    @Test
+    public final void gzipMembers() throws IOException {
+        final byte[] a = data(1000);
+        final byte[] b = data(3000);
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        os.write(gzip(a));
+        os.write(gzip(b));
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(a);
+        expected.write(b);
+        Assert.assertArrayEquals(expected.toByteArray(), decode(os.toByteArray(),
+                Format.GZIP));
+    }
+
+    /** corrupted data is detected */
+    @Test(expected = ZipException.class)
+    public final void gzipBadCrc() throws IOException {
+        final byte[] gz = gzip(data(1000));
+        gz[gz.length - 6] ^= 0xff;
+        decode(gz, Format.GZIP);
+    }
+
+    /** gzip header with file name */
+    @Test
+    public final void gzipHeaderFields() throws IOException {
+        final byte[] data = data(100);
+        final byte[] gz = gzip(data);
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        os.write(gz, 0, 10);
+        os.write("name.txt".getBytes("US-ASCII"));
+        os.write(0);
+        os.write(gz, 10, gz.length - 10);
+        final byte[] withName = os.toByteArray();
+        withName[3] = 8; // FNAME
+        Assert.assertArrayEquals(data, decode(withName, Format.GZIP));
+    }
+
+    /** deflate: zlib and raw are both accepted */
+    @Test
+    public final void deflate() throws IOException {
+        final byte[] data = data(50000);
+        Assert.assertArrayEquals(data, decode(deflate(data, false), Format.DEFLATE));
+        Assert.assertArrayEquals(data, decode(deflate(data, true), Format.DEFLATE));
+    }
+
+    /** empty content */
+    @Test
+    public final void empty() throws IOException {
+        Assert.assertEquals(0, decode(new byte[0], Format.DEFLATE).length);
+    }
+
+    /** truncated content */
+    @Test(expected = IOException.class)
+    public final void truncated() throws IOException {
+        final byte[] gz = gzip(data(10000));
+        final byte[] half = new byte[gz.length / 2];
+        System.arraycopy(gz, 0, half, 0, half.length);
+        decode(half, Format.GZIP);
+    }
+}